@@ -42,11 +42,14 @@ import org.jboss.shrinkwrap.api.formatter.Formatters;
  * they may be wrapped in another user "view" used to perform
  * operations like adding JavaEE Spec-specific resources
  * or exporting in ZIP format.
+ * 
+ * <br /><br />Iterating over an {@link Archive} yields its {@link Node}s
+ * in the order of {@link #visit(ArchiveVisitor)}, without copying the content.
  *
  * @author <a href="mailto:andrew.rubinger@jboss.org">ALR</a>
  * @version $Revision: $
  */
-public interface Archive<T extends Archive<T>> extends Assignable
+public interface Archive<T extends Archive<T>> extends Assignable, Iterable<Node>
 {
    //-------------------------------------------------------------------------------------||
    // Contracts --------------------------------------------------------------------------||
@@ -59,13 +62,15 @@ public interface Archive<T extends Archive<T>> extends Assignable
 
    /**
     * Adds the specified asset under the specified path into the
-    * target context
+    * target context.  Any {@link Node} already at the target is replaced; 
+    * should it be a directory, all content beneath it is removed along with it.
     * 
     * @param target The context under which to add the assets 
     * @param asset
     * @return
     * @throws IllegalArgumentException If no target or assets were specified
-    * @throws IllegalArchivePathException If the target is invalid.
+    * @throws IllegalArchivePathException If the target is invalid, ie. the root
+    * of the archive, which may only be a directory.
     */
    T add(Asset asset, ArchivePath target) throws IllegalArgumentException;
 
@@ -108,6 +113,20 @@ public interface Archive<T extends Archive<T>> extends Assignable
     */
    T add(Asset asset, String target) throws IllegalArgumentException;
 
+   /**
+    * Adds all of the specified assets, each under the path by which it is keyed.  
+    * A null {@link Asset} denotes a directory.  Equivalent to calling 
+    * {@link Archive#add(Asset, ArchivePath)} or {@link Archive#addDirectory(ArchivePath)}
+    * for each entry, though implementations may add many entries sharing parent
+    * directories more efficiently.
+    * 
+    * @param assets The assets to add, keyed by path
+    * @return This archive
+    * @throws IllegalArgumentException If no assets or a null path were specified
+    * @throws IllegalArchivePathException If at least one path is invalid.
+    */
+   T addAll(Map<ArchivePath, Asset> assets) throws IllegalArgumentException;
+
    /**
     * Adds the specified directory.
     * 
@@ -197,18 +216,56 @@ public interface Archive<T extends Archive<T>> extends Assignable
 
    /**
     * Obtains all assets in this archive, along with its respective Path.
-    * The returned Map will be an immutable view.
+    * The returned Map will be an immutable view, backed by the archive 
+    * such that later changes are reflected.
     * @return
     */
    Map<ArchivePath, Node> getContent();
 
    /**
     * Obtains all assets matching given filter in this archive, along with its respective Path.
-    * The returned Map will be an immutable view.
+    * The returned Map will be an immutable view, backed by the archive 
+    * such that later changes are reflected.
     * @return
     */
    Map<ArchivePath, Node> getContent(Filter<ArchivePath> filter);
 
+   /**
+    * Walks the content of this archive depth-first, passing each {@link Node}
+    * to the specified visitor.  Directories are visited before their children, 
+    * and siblings in ascending order of their names as compared by 
+    * {@link String#compareTo(String)}; the walk is therefore in path order.  Should 
+    * the visitor return false for a directory, nothing beneath it is visited and 
+    * the walk continues with its next sibling.  The root {@link Node} is not visited.
+    * 
+    * @param visitor
+    * @throws IllegalArgumentException If the visitor is not specified
+    */
+   void visit(ArchiveVisitor visitor) throws IllegalArgumentException;
+
+   /**
+    * Denotes whether this archive has the same content structure (the same
+    * set of {@link ArchivePath}s) as the specified archive, regardless of name.
+    * {@link Object#equals(Object)} additionally requires equal names.
+    * 
+    * @param other
+    * @return
+    * @throws IllegalArgumentException If the other archive is not specified
+    */
+   boolean contentEquals(Archive<?> other) throws IllegalArgumentException;
+
+   /**
+    * Obtains a read-only, point-in-time view of this archive, of the same type and 
+    * name, which is unaffected by later changes to this archive.  The content is 
+    * shared with this archive rather than copied, such that taking a snapshot is 
+    * constant-time and readers of the snapshot need not coordinate with writers of 
+    * this archive.  Nested archives are shared as they are, not snapshotted.
+    * Any attempt to change the snapshot results in an {@link UnsupportedOperationException}.
+    * 
+    * @return
+    */
+   T snapshot();
+
    /**
     * Add an archive under a specific context and maintain the archive name as 
     * context path.
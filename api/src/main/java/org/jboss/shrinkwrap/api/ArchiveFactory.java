@@ -17,10 +17,8 @@
 package org.jboss.shrinkwrap.api;
 
 import java.io.File;
-import java.io.IOException;
 import java.util.UUID;
 import java.util.zip.ZipException;
-import java.util.zip.ZipFile;
 
 import org.jboss.shrinkwrap.api.importer.ArchiveImportException;
 import org.jboss.shrinkwrap.api.importer.ZipImporter;
@@ -145,7 +143,8 @@ public final class ArchiveFactory
     * from the specified {@link File}.  The file is expected to be encoded as
     * ZIP (ie. JAR/WAR/EAR).   The name of the archive will be set to {@link File#getName()}. 
     * The archive will be be backed by the {@link Configuration}
-    * specific to this {@link ArchiveFactory}.
+    * specific to this {@link ArchiveFactory}.  Content is read lazily from the
+    * file, which is held open until the archive is released or no longer referenced.
     *
     * @param type The type of the archive e.g. {@link org.jboss.shrinkwrap.api.spec.WebArchive}
     * @param archiveFile the archiveFile to use
@@ -176,24 +175,20 @@ public final class ArchiveFactory
          throw new IllegalArgumentException("File for import must not be a directory: " + archiveFile.getAbsolutePath());
       }
 
-      // Construct ZipFile
-      final ZipFile zipFile;
+      // Import; the archive holds the file open until released
       try
       {
-         zipFile = new ZipFile(archiveFile);
-      }
-      catch (final ZipException ze)
-      {
-         throw new IllegalArgumentException("Does not appear to be a valid ZIP file: " + archiveFile.getAbsolutePath());
+         return ShrinkWrap.create(type, archiveFile.getName()).as(ZipImporter.class).importFrom(archiveFile).as(
+               type);
       }
-      catch (final IOException ioe)
+      catch (final ArchiveImportException aie)
       {
-         throw new RuntimeException("I/O Error in importing new archive from ZIP: " + archiveFile.getAbsolutePath(),
-               ioe);
+         if (aie.getCause() instanceof ZipException)
+         {
+            throw new IllegalArgumentException("Does not appear to be a valid ZIP file: "
+                  + archiveFile.getAbsolutePath());
+         }
+         throw aie;
       }
-
-      // Import
-      return ShrinkWrap.create(type, archiveFile.getName()).as(ZipImporter.class).importFrom(zipFile).as(type);
-
    }
 }
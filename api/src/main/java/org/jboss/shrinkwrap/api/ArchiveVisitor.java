@@ -0,0 +1,38 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.api;
+
+/**
+ * Callback receiving each {@link Node} of an {@link Archive} during a 
+ * depth-first walk of its content via {@link Archive#visit(ArchiveVisitor)}.
+ * A directory is always visited before its children, and may prune them
+ * from the walk; siblings are visited in order of name.
+ *
+ * @version $Revision: $
+ */
+public interface ArchiveVisitor
+{
+
+   /**
+    * Called once per {@link Node} in the walk
+    * 
+    * @param node The current {@link Node}
+    * @return true if the children of the node should be visited, false to 
+    *   skip the subtree below it
+    */
+   boolean visit(Node node);
+}
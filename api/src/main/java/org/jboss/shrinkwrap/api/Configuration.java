@@ -16,6 +16,7 @@
  */
 package org.jboss.shrinkwrap.api;
 
+import java.io.File;
 import java.util.concurrent.ExecutorService;
 
 /**
@@ -54,6 +55,16 @@ public class Configuration
     */
    private final ExecutorService executorService;
 
+   /**
+    * Maximum number of bytes of exported nested archives to be cached, or 0 if caching is disabled
+    */
+   private final long exportCacheSize;
+
+   /**
+    * Directory in which cached exports are stored, or null if they are held in memory
+    */
+   private final File exportCacheDirectory;
+
    //-------------------------------------------------------------------------------------||
    // Constructor ------------------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -76,6 +87,8 @@ public class Configuration
       // Set 
       this.extensionLoader = builder.getExtensionLoader();
       this.executorService = builder.getExecutorService();
+      this.exportCacheSize = builder.getExportCacheSize();
+      this.exportCacheDirectory = builder.getExportCacheDirectory();
    }
 
    //-------------------------------------------------------------------------------------||
@@ -97,4 +110,22 @@ public class Configuration
    {
       return executorService;
    }
+
+   /**
+    * @return the maximum number of bytes of exported nested archives to be cached, 
+    * or 0 if caching is disabled
+    */
+   public long getExportCacheSize()
+   {
+      return exportCacheSize;
+   }
+
+   /**
+    * @return the directory in which cached exports are stored, or null if they
+    * are held in memory
+    */
+   public File getExportCacheDirectory()
+   {
+      return exportCacheDirectory;
+   }
 }
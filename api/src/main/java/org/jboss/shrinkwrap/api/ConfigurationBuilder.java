@@ -16,7 +16,9 @@
  */
 package org.jboss.shrinkwrap.api;
 
+import java.io.File;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -25,7 +27,11 @@ import java.util.logging.Logger;
  * Provides defaults for each property if not specified (null) according to the following:
  * 
  * <ul>
- *   <li><code>executorService</code> - Stay null, none is required and ShrinkWrap will create its own and destroy it when done as needed</li>
+ *   <li><code>executorService</code> - A new {@link DomainExecutorService} of daemon threads shared by all archives
+ *   of the configuration, sized according to <code>executorMaximumThreads</code>, <code>executorQueueCapacity</code>
+ *   and <code>executorThreadFactory</code></li>
+ *   <li><code>exportCacheSize</code> - 0; nested archives are not cached between exports</li>
+ *   <li><code>exportCacheDirectory</code> - Stay null; cached exports are held in memory</li>
  *   <li><code>extensionLoader</code> - A new instance of the service extension loader from shrinkwrap-impl</li>
  * </ul>
  * 
@@ -66,6 +72,31 @@ public class ConfigurationBuilder
     */
    private ExecutorService executorService;
 
+   /**
+    * Maximum number of pooled threads of the default {@link ExecutorService}
+    */
+   private int executorMaximumThreads = DomainExecutorService.DEFAULT_MAXIMUM_THREADS;
+
+   /**
+    * Job queue capacity of the default {@link ExecutorService}
+    */
+   private int executorQueueCapacity = DomainExecutorService.DEFAULT_QUEUE_CAPACITY;
+
+   /**
+    * {@link ThreadFactory} of the default {@link ExecutorService}, if any 
+    */
+   private ThreadFactory executorThreadFactory;
+
+   /**
+    * Maximum number of bytes of exported nested archives to be cached, or 0 to disable caching
+    */
+   private long exportCacheSize;
+
+   /**
+    * Directory in which cached exports are stored, or null to store them in memory
+    */
+   private File exportCacheDirectory;
+
    //-------------------------------------------------------------------------------------||
    // Constructor ------------------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -99,6 +130,45 @@ public class ConfigurationBuilder
       return executorService;
    }
 
+   /**
+    * @return the maximum number of pooled threads of the default {@link ExecutorService}
+    */
+   public int getExecutorMaximumThreads()
+   {
+      return executorMaximumThreads;
+   }
+
+   /**
+    * @return the job queue capacity of the default {@link ExecutorService}
+    */
+   public int getExecutorQueueCapacity()
+   {
+      return executorQueueCapacity;
+   }
+
+   /**
+    * @return the {@link ThreadFactory} of the default {@link ExecutorService}
+    */
+   public ThreadFactory getExecutorThreadFactory()
+   {
+      return executorThreadFactory;
+   }
+
+   /**
+    * @return the maximum number of bytes of exported nested archives to be cached
+    */
+   public long getExportCacheSize()
+   {
+      return exportCacheSize;
+   }
+
+   /**
+    * @return the directory in which cached exports are stored
+    */
+   public File getExportCacheDirectory()
+   {
+      return exportCacheDirectory;
+   }
 
    /**
     * Sets the {@link ExtensionLoader} to be used, returning this instance
@@ -123,6 +193,90 @@ public class ConfigurationBuilder
       return this;
    }
 
+   /**
+    * Sets the maximum number of pooled threads of the default {@link ExecutorService}, 
+    * returning this instance.  Ignored if an {@link ExecutorService} has been supplied.
+    * @param executorMaximumThreads
+    * @return
+    * @throws IllegalArgumentException If the maximum is less than 1
+    */
+   public ConfigurationBuilder executorMaximumThreads(final int executorMaximumThreads)
+         throws IllegalArgumentException
+   {
+      if (executorMaximumThreads < 1)
+      {
+         throw new IllegalArgumentException("Maximum threads must be at least 1");
+      }
+      this.executorMaximumThreads = executorMaximumThreads;
+      return this;
+   }
+
+   /**
+    * Sets the job queue capacity of the default {@link ExecutorService}, returning this 
+    * instance.  A capacity of 0 (the default) hands each job directly to a thread, and 
+    * idle threads are released after a keep-alive period.  With a queue, all threads up 
+    * to the maximum are kept once started, as they must all be core threads for queued 
+    * jobs to be spread among them.  Ignored if an {@link ExecutorService} has been supplied.
+    * @param executorQueueCapacity
+    * @return
+    * @throws IllegalArgumentException If the capacity is negative
+    */
+   public ConfigurationBuilder executorQueueCapacity(final int executorQueueCapacity)
+         throws IllegalArgumentException
+   {
+      if (executorQueueCapacity < 0)
+      {
+         throw new IllegalArgumentException("Queue capacity must not be negative");
+      }
+      this.executorQueueCapacity = executorQueueCapacity;
+      return this;
+   }
+
+   /**
+    * Sets the {@link ThreadFactory} of the default {@link ExecutorService}, returning 
+    * this instance; for instance a factory of virtual threads where the runtime supports 
+    * them.  If not specified, daemon threads are created.  Ignored if an 
+    * {@link ExecutorService} has been supplied.
+    * @param executorThreadFactory
+    * @return
+    */
+   public ConfigurationBuilder executorThreadFactory(final ThreadFactory executorThreadFactory)
+   {
+      this.executorThreadFactory = executorThreadFactory;
+      return this;
+   }
+
+   /**
+    * Enables caching of the exported form of nested archives, returning this instance.  
+    * A nested archive whose content has not been added to or removed from since it was 
+    * last exported is then written from the cache rather than exported again.  The least
+    * recently used entries are evicted to keep the cache within the specified size.
+    * @param exportCacheSize Maximum number of bytes to be cached, or 0 (the default) to disable caching
+    * @return
+    * @throws IllegalArgumentException If the size is negative
+    */
+   public ConfigurationBuilder exportCacheSize(final long exportCacheSize) throws IllegalArgumentException
+   {
+      if (exportCacheSize < 0)
+      {
+         throw new IllegalArgumentException("Export cache size must not be negative");
+      }
+      this.exportCacheSize = exportCacheSize;
+      return this;
+   }
+
+   /**
+    * Sets the directory in which cached exports are stored as temporary files, returning 
+    * this instance.  If not specified, cached exports are held in memory. 
+    * @param exportCacheDirectory
+    * @return
+    */
+   public ConfigurationBuilder exportCacheDirectory(final File exportCacheDirectory)
+   {
+      this.exportCacheDirectory = exportCacheDirectory;
+      return this;
+   }
+
    /**
     * Builds a new {@link Configuration} using the properties contained
     * in this builder.  In the case a property has not been specified, it will be defaulted
@@ -159,6 +313,19 @@ public class ConfigurationBuilder
          }
          this.extensionLoader(loader);
       }
+
+      // If no executor service is present, create one to be shared by the domain
+      if (getExecutorService() == null)
+      {
+         final ExecutorService service = new DomainExecutorService(executorMaximumThreads, executorQueueCapacity,
+               executorThreadFactory);
+         if (log.isLoggable(Level.FINER))
+         {
+            log.finer("User has not defined an explicit " + ExecutorService.class.getSimpleName()
+                  + "; defaulting to " + service);
+         }
+         this.executorService(service);
+      }
    }
 
    /**
@@ -0,0 +1,244 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.api;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@link ExecutorService} shared by all {@link Archive}s of a {@link Domain}
+ * for asynchronous operations (ie. export), created by the {@link ConfigurationBuilder}
+ * if the user has not supplied an {@link ExecutorService} of their own.
+ * 
+ * Up to a maximum number of daemon {@link Thread}s are retained and reused across
+ * operations, and no others are ever created.  By default idle {@link Thread}s are
+ * released after a keep-alive period; should a queue capacity be configured, all 
+ * {@link Thread}s are instead kept once started, as the pool must then consist of core
+ * {@link Thread}s (which Java 5 cannot time out) for queued jobs to be spread among 
+ * more than one of them.  By default jobs are handed off directly to a free 
+ * {@link Thread} rather than queued, as a job may itself wait upon another; should no
+ * pooled {@link Thread} (or queue space, if a queue capacity has been configured) be
+ * available, the job is run upon the submitting {@link Thread} instead of being 
+ * rejected or left to wait upon the job it is blocking.  Submitters for which that
+ * would not do (ie. one which will read the output of the job) must not rely on it.
+ * The number of such overflows, along with the {@link ThreadPoolExecutor} statistics,
+ * may be used to monitor utilization and size the pool via 
+ * {@link ConfigurationBuilder#executorMaximumThreads(int)}.
+ * 
+ * A {@link ThreadFactory} may be supplied via 
+ * {@link ConfigurationBuilder#executorThreadFactory(ThreadFactory)}; for instance
+ * to run upon virtual {@link Thread}s where the runtime supports them.
+ *
+ * @version $Revision: $
+ */
+public final class DomainExecutorService extends ThreadPoolExecutor
+{
+
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Logger
+    */
+   private static final Logger log = Logger.getLogger(DomainExecutorService.class.getName());
+
+   /**
+    * Default maximum number of pooled {@link Thread}s
+    */
+   public static final int DEFAULT_MAXIMUM_THREADS = Math.max(8, Runtime.getRuntime().availableProcessors() * 2);
+
+   /**
+    * Default capacity of the job queue; jobs are handed off directly to a {@link Thread}
+    */
+   public static final int DEFAULT_QUEUE_CAPACITY = 0;
+
+   /**
+    * Time in seconds an idle pooled {@link Thread} is retained
+    */
+   private static final long KEEP_ALIVE_SECONDS = 60;
+
+   /**
+    * Used in naming {@link Thread}s of the default {@link ThreadFactory}
+    */
+   private static final AtomicInteger poolCounter = new AtomicInteger();
+
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Number of jobs run upon their submitting {@link Thread} as no pooled {@link Thread} was available
+    */
+   private final AtomicLong overflowCount = new AtomicLong();
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Creates a new instance with the default sizing
+    */
+   public DomainExecutorService()
+   {
+      this(DEFAULT_MAXIMUM_THREADS, DEFAULT_QUEUE_CAPACITY, null);
+   }
+
+   /**
+    * Creates a new instance with the specified sizing
+    * 
+    * @param maximumThreads Maximum number of pooled {@link Thread}s
+    * @param queueCapacity Capacity of the job queue, or 0 to hand jobs off directly to a {@link Thread};
+    *   if greater than 0, pooled {@link Thread}s are never released
+    * @param threadFactory Factory for new {@link Thread}s, or null to create daemon {@link Thread}s
+    * @throws IllegalArgumentException If the maximum threads is less than 1 or the queue capacity is negative
+    */
+   public DomainExecutorService(final int maximumThreads, final int queueCapacity, final ThreadFactory threadFactory)
+         throws IllegalArgumentException
+   {
+      // A core size of 0 with a non-direct queue would queue everything upon a single Thread
+      super(queueCapacity == 0 ? 0 : maximumThreads, maximumThreads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+            createQueue(queueCapacity), threadFactory == null ? new DaemonThreadFactory() : threadFactory);
+      this.setRejectedExecutionHandler(new OverflowHandler());
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Functional Methods -----------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Obtains the number of jobs which have been run upon their submitting {@link Thread}
+    * as no pooled {@link Thread} or queue space was available
+    * @return
+    */
+   public long getOverflowCount()
+   {
+      return overflowCount.get();
+   }
+
+   /**
+    * Obtains the ratio of actively-working pooled {@link Thread}s to the 
+    * maximum number of pooled {@link Thread}s, from 0.0 to 1.0.  As no other
+    * {@link Thread}s are created, this accounts for all work upon the service.
+    * @return
+    */
+   public double getUtilization()
+   {
+      return (double) this.getActiveCount() / this.getMaximumPoolSize();
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Overridden Implementations ---------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@inheritDoc}
+    * @see java.lang.Object#toString()
+    */
+   @Override
+   public String toString()
+   {
+      return this.getClass().getSimpleName() + " [active=" + this.getActiveCount() + ", pool="
+            + this.getPoolSize() + "/" + this.getMaximumPoolSize() + ", queued=" + this.getQueue().size()
+            + ", completed=" + this.getCompletedTaskCount() + ", overflow=" + this.getOverflowCount() + "]";
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Creates the job queue of the specified capacity
+    */
+   private static BlockingQueue<Runnable> createQueue(final int queueCapacity) throws IllegalArgumentException
+   {
+      if (queueCapacity < 0)
+      {
+         throw new IllegalArgumentException("Queue capacity must not be negative");
+      }
+      if (queueCapacity == 0)
+      {
+         return new SynchronousQueue<Runnable>();
+      }
+      return new LinkedBlockingQueue<Runnable>(queueCapacity);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Inner Classes ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Runs jobs which could not be pooled or queued upon the submitting {@link Thread},
+    * such that the number of {@link Thread}s is bounded and submitters are slowed 
+    * to the pace of the pool
+    */
+   private final class OverflowHandler implements RejectedExecutionHandler
+   {
+      /**
+       * {@inheritDoc}
+       * @see java.util.concurrent.RejectedExecutionHandler#rejectedExecution(java.lang.Runnable, java.util.concurrent.ThreadPoolExecutor)
+       */
+      @Override
+      public void rejectedExecution(final Runnable job, final ThreadPoolExecutor executor)
+      {
+         if (executor.isShutdown())
+         {
+            throw new RejectedExecutionException(executor + " has been shut down");
+         }
+         overflowCount.incrementAndGet();
+         if (log.isLoggable(Level.FINER))
+         {
+            log.finer("No pooled thread available, running job upon the submitting thread: " + executor);
+         }
+         job.run();
+      }
+   }
+
+   /**
+    * Creates named daemon {@link Thread}s, such that a {@link Domain}
+    * need never be shut down
+    */
+   private static final class DaemonThreadFactory implements ThreadFactory
+   {
+      private final String prefix = "shrinkwrap-domain-" + poolCounter.incrementAndGet() + "-thread-";
+
+      private final AtomicInteger threadCounter = new AtomicInteger();
+
+      /**
+       * {@inheritDoc}
+       * @see java.util.concurrent.ThreadFactory#newThread(java.lang.Runnable)
+       */
+      @Override
+      public Thread newThread(final Runnable job)
+      {
+         final Thread thread = new Thread(job, prefix + threadCounter.incrementAndGet());
+         thread.setDaemon(true);
+         return thread;
+      }
+   }
+}
@@ -17,7 +17,9 @@
 package org.jboss.shrinkwrap.api.asset;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -28,7 +30,7 @@ import java.util.logging.Logger;
  * @author <a href="mailto:andrew.rubinger@jboss.org">ALR</a>
  * @version $Revision: $
  */
-public class ByteArrayAsset implements Asset
+public class ByteArrayAsset implements SizedAsset
 {
 
    //-------------------------------------------------------------------------------------||
@@ -107,6 +109,37 @@ public class ByteArrayAsset implements Asset
       return new ByteArrayInputStream(this.content);
    }
 
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.asset.SizedAsset#getSize()
+    */
+   @Override
+   public long getSize()
+   {
+      return content.length;
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.asset.SizedAsset#getCrc()
+    */
+   @Override
+   public long getCrc()
+   {
+      return -1;
+   }
+
+   /**
+    * {@inheritDoc}
+    * Writes the backing array in place; no copy is made.
+    * @see org.jboss.shrinkwrap.api.asset.SizedAsset#transferTo(java.nio.channels.WritableByteChannel)
+    */
+   @Override
+   public long transferTo(final WritableByteChannel target) throws IllegalArgumentException, IOException
+   {
+      return ByteArrayIOUtil.write(content, target);
+   }
+
    /**
     * {@inheritDoc}
     * @see java.lang.Object#toString()
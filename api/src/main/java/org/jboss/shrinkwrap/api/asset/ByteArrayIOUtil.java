@@ -19,6 +19,8 @@ package org.jboss.shrinkwrap.api.asset;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -80,4 +82,28 @@ class ByteArrayIOUtil
       // Return
       return content;
    }
+
+   /**
+    * Writes the specified content fully into the specified channel
+    *
+    * @param content
+    * @param target
+    * @return The number of bytes written
+    * @throws IllegalArgumentException If the target was not specified
+    * @throws IOException If an error occurred in writing
+    */
+   static long write(final byte[] content, final WritableByteChannel target) throws IllegalArgumentException,
+         IOException
+   {
+      // Precondition check
+      if (target == null) {
+         throw new IllegalArgumentException("target must be specified");
+      }
+
+      final ByteBuffer buffer = ByteBuffer.wrap(content);
+      while (buffer.hasRemaining()) {
+         target.write(buffer);
+      }
+      return content.length;
+   }
 }
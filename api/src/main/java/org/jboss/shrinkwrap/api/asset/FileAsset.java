@@ -20,7 +20,10 @@ import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 
 
 /**
@@ -28,7 +31,7 @@ import java.io.InputStream;
  *
  * @author <a href="mailto:aslak@conduct.no">Aslak Knutsen</a>
  */
-public class FileAsset implements Asset
+public class FileAsset implements SizedAsset
 {
    private File file;
 
@@ -74,6 +77,73 @@ public class FileAsset implements Asset
       }
    }
 
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.asset.SizedAsset#getSize()
+    */
+   @Override
+   public long getSize()
+   {
+      return file.length();
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.asset.SizedAsset#getCrc()
+    */
+   @Override
+   public long getCrc()
+   {
+      return -1;
+   }
+
+   /**
+    * {@inheritDoc}
+    * Transfers via {@link FileChannel#transferTo(long, long, WritableByteChannel)}, 
+    * such that the operating system may copy the file without passing it through 
+    * the heap.
+    * @throws IOException Also if less than the size of the file when the transfer began
+    * could be transferred
+    * @see org.jboss.shrinkwrap.api.asset.SizedAsset#transferTo(java.nio.channels.WritableByteChannel)
+    */
+   @Override
+   public long transferTo(final WritableByteChannel target) throws IllegalArgumentException, IOException
+   {
+      // Precondition check
+      if (target == null)
+      {
+         throw new IllegalArgumentException("target must be specified");
+      }
+
+      final FileInputStream in = new FileInputStream(file);
+      try
+      {
+         final FileChannel channel = in.getChannel();
+         final long size = channel.size();
+         long position = 0;
+         while (position < size)
+         {
+            final long transferred = channel.transferTo(position, size - position, target);
+            if (transferred <= 0)
+            {
+               break;
+            }
+            position += transferred;
+         }
+
+         // Shrunk since measured, or the target accepts no more
+         if (position < size)
+         {
+            throw new IOException("Could only transfer " + position + " of " + size + " bytes of " + file);
+         }
+         return position;
+      }
+      finally
+      {
+         in.close();
+      }
+   }
+
    /**
     * {@inheritDoc}
     * @see java.lang.Object#toString()
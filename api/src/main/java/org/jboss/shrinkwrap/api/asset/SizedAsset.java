@@ -0,0 +1,58 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.api.asset;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * An {@link Asset} which knows the size of its content without reading
+ * it, and which may write its content directly into a channel.  Consumers 
+ * (ie. exporters) may use this to avoid buffering an {@link Asset} in order to
+ * learn its size, and to avoid copying through an intermediate buffer.
+ * 
+ * @version $Revision: $
+ */
+public interface SizedAsset extends Asset
+{
+   /**
+    * Obtains the number of bytes of the content, as would be read 
+    * from {@link Asset#openStream()}
+    * 
+    * @return
+    */
+   long getSize();
+
+   /**
+    * Obtains the CRC-32 checksum of the content, should it be known 
+    * without reading the content
+    * 
+    * @return The checksum, or -1 if not known
+    */
+   long getCrc();
+
+   /**
+    * Writes the full content into the specified channel, which 
+    * is left open
+    * 
+    * @param target
+    * @return The number of bytes written
+    * @throws IllegalArgumentException If the target is not specified
+    * @throws IOException If the content could not be read or written
+    */
+   long transferTo(WritableByteChannel target) throws IllegalArgumentException, IOException;
+}
@@ -1,7 +1,9 @@
 package org.jboss.shrinkwrap.api.asset;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -11,7 +13,7 @@ import java.util.logging.Logger;
  * @author <a href="mailto:dan.j.allen@gmail.com">Dan Allen</a>
  * @version $Revision: $
  */
-public class StringAsset implements Asset
+public class StringAsset implements SizedAsset
 {
    //-------------------------------------------------------------------------------------||
    // Class Members ----------------------------------------------------------------------||
@@ -70,6 +72,36 @@ public class StringAsset implements Asset
       return new ByteArrayInputStream(content.getBytes());
    }
 
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.asset.SizedAsset#getSize()
+    */
+   @Override
+   public long getSize()
+   {
+      return content.getBytes().length;
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.asset.SizedAsset#getCrc()
+    */
+   @Override
+   public long getCrc()
+   {
+      return -1;
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.asset.SizedAsset#transferTo(java.nio.channels.WritableByteChannel)
+    */
+   @Override
+   public long transferTo(final WritableByteChannel target) throws IllegalArgumentException, IOException
+   {
+      return ByteArrayIOUtil.write(content.getBytes(), target);
+   }
+
    /**
     * {@inheritDoc}
     * @see java.lang.Object#toString()
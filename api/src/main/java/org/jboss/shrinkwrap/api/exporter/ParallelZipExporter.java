@@ -0,0 +1,43 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.api.exporter;
+
+import java.util.concurrent.ExecutorService;
+
+import org.jboss.shrinkwrap.api.Assignable;
+import org.jboss.shrinkwrap.api.Configuration;
+
+/**
+ * Exporter used to represent an {@link Assignable} in ZIP format, 
+ * compressing entries concurrently.  The contents of each entry are 
+ * deflated upon the {@link ExecutorService} of the archive's 
+ * {@link Configuration} (or, if none is configured, a pool created for the
+ * duration of the export) and written in the same order as the
+ * {@link ZipExporter}.  Best suited to archives with many entries
+ * where export is bound by compression.
+ * 
+ * @see http://www.pkware.com/documents/casestudies/APPNOTE.TXT
+ * @version $Revision: $
+ */
+public interface ParallelZipExporter extends ZipExporter
+{
+   //-------------------------------------------------------------------------------------||
+   // Contracts --------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   // Inherited from superclass
+}
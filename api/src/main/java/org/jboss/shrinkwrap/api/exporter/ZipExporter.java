@@ -18,10 +18,15 @@ package org.jboss.shrinkwrap.api.exporter;
 
 import java.io.File;
 
+import org.jboss.shrinkwrap.api.ArchivePath;
 import org.jboss.shrinkwrap.api.Assignable;
+import org.jboss.shrinkwrap.api.Filter;
 
 /**
- * Exporter used to represent an {@link Assignable} in ZIP format. 
+ * Exporter used to represent an {@link Assignable} in ZIP format.  
+ * Entries are DEFLATED at the default compression level unless configured 
+ * otherwise via {@link #compressionLevel(int)} and {@link #storeEntries(Filter)}
+ * before calling upon one of the export methods.
  * 
  * @see http://www.pkware.com/documents/casestudies/APPNOTE.TXT
  * @author <a href="mailto:baileyje@gmail.com">John Bailey</a>
@@ -65,4 +70,40 @@ public interface ZipExporter extends StreamExporter
    @Deprecated
    void exportZip(File target, boolean overwrite) throws ArchiveExportException, FileExistsException,
          IllegalArgumentException;
+
+   /**
+    * Sets the level (0-9) at which DEFLATED entries will be compressed
+    * by subsequent exports.  Lower levels trade archive size for export speed; 
+    * 0 performs no compression at all.  A value of -1 denotes the default level.
+    * 
+    * @param level
+    * @return This exporter
+    * @throws IllegalArgumentException If the level is not -1 or in the range 0-9
+    */
+   ZipExporter compressionLevel(int level) throws IllegalArgumentException;
+
+   /**
+    * Marks all entries whose {@link ArchivePath} is included by the 
+    * specified {@link Filter} to be written uncompressed (STORED) by 
+    * subsequent exports.  Useful for content which is already compressed, 
+    * such as nested archives or images.  May be called more than once; an
+    * entry is STORED if included by any of the supplied filters.
+    * 
+    * @param filter
+    * @return This exporter
+    * @throws IllegalArgumentException If the filter is not specified
+    */
+   ZipExporter storeEntries(Filter<ArchivePath> filter) throws IllegalArgumentException;
+
+   /**
+    * Marks all entries whose name ends with any of the specified extensions
+    * (ie. "jar", "png", "gz"; case-insensitive, with or without the leading '.') to
+    * be written uncompressed (STORED) by subsequent exports.
+    * 
+    * @param extensions
+    * @return This exporter
+    * @throws IllegalArgumentException If no extensions are specified
+    * @see #storeEntries(Filter)
+    */
+   ZipExporter storeEntries(String... extensions) throws IllegalArgumentException;
 }
@@ -16,10 +16,7 @@
  */
 package org.jboss.shrinkwrap.api.formatter;
 
-import java.util.Map;
-
 import org.jboss.shrinkwrap.api.Archive;
-import org.jboss.shrinkwrap.api.ArchivePath;
 import org.jboss.shrinkwrap.api.Node;
 
 /**
@@ -71,10 +68,9 @@ enum SimpleFormatter implements Formatter {
    {
       int assets = 0;
       
-      Map<ArchivePath, Node> content = archive.getContent();
-      for (Map.Entry<ArchivePath, Node> entry : content.entrySet()) 
+      for (Node node : archive) 
       {
-         if (entry.getValue().getAsset() != null) 
+         if (node.getAsset() != null) 
          {
             assets++;
          }
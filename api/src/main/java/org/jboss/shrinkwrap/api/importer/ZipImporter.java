@@ -16,6 +16,7 @@
  */
 package org.jboss.shrinkwrap.api.importer;
 
+import java.io.InputStream;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
@@ -67,4 +68,21 @@ public interface ZipImporter extends StreamImporter<ZipImporter>
     * @throws IllegalArgumentException If no file is specified
     */
    ZipImporter importFrom(ZipFile file) throws ArchiveImportException;
+
+   /**
+    * Imports provided stream as a {@link Archive} by first spooling it 
+    * to a temporary file, from which the content of each entry is read lazily
+    * as it's requested.  Unlike {@link #importFrom(InputStream)}, the entry
+    * contents are not held in memory, making this suitable for large archives.
+    * The temporary file is removed once it's no longer in use (or at the 
+    * latest upon JVM exit).  It remains the responsibility of the caller 
+    * to close the stream.
+    * 
+    * @param stream the stream to import; should be a raw type, not wrapped
+    * in any implementation-specific encoding
+    * @return Archive of the imported stream
+    * @throws ArchiveImportException If an error occurred during the import process
+    * @throws IllegalArgumentException If no stream is specified
+    */
+   ZipImporter importFromSpooled(InputStream stream) throws ArchiveImportException;
 }
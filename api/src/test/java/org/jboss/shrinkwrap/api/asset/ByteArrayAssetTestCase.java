@@ -18,6 +18,7 @@ package org.jboss.shrinkwrap.api.asset;
 
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.nio.channels.Channels;
 import java.util.Arrays;
 import java.util.logging.Logger;
 
@@ -97,4 +98,24 @@ public class ByteArrayAssetTestCase
       }
 
    }
+
+   /**
+    * Ensures that the size of the asset is known, and that its contents
+    * may be transferred into a channel
+    */
+   @Test
+   public void testTransferTo() throws Exception
+   {
+      final byte[] contents = new byte[]
+      {1, 2, 3, 4};
+      final ByteArrayAsset asset = new ByteArrayAsset(contents);
+
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      final long transferred = asset.transferTo(Channels.newChannel(out));
+
+      Assert.assertEquals("Size should be that of the contents", contents.length, asset.getSize());
+      Assert.assertEquals("All contents should be transferred", contents.length, transferred);
+      Assert.assertTrue("Transferred contents did not equal passed in contents", Arrays.equals(contents, out
+            .toByteArray()));
+   }
 }
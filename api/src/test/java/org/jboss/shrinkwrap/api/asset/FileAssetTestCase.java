@@ -16,8 +16,13 @@
  */
 package org.jboss.shrinkwrap.api.asset;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 
 import junit.framework.Assert;
 
@@ -50,6 +55,48 @@ public class FileAssetTestCase
             .convertToString(io));
    }
 
+   @Test
+   public void shouldBeAbleToTransferFile() throws Exception
+   {
+      final File file = new File(EXISTING_FILE);
+      final FileAsset asset = new FileAsset(file);
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+      final long transferred = asset.transferTo(Channels.newChannel(out));
+
+      Assert.assertEquals("Size should be that of the file", file.length(), asset.getSize());
+      Assert.assertEquals("All of the file should be transferred", file.length(), transferred);
+      Assert.assertEquals("Should be able to transfer the content of the resource", "shrinkwrap=true", new String(out
+            .toByteArray()));
+   }
+
+   @Test(expected = IOException.class)
+   public void shouldFailTransferIncomplete() throws Exception
+   {
+      // Target which accepts nothing
+      final WritableByteChannel full = new WritableByteChannel()
+      {
+         @Override
+         public int write(final ByteBuffer src)
+         {
+            return 0;
+         }
+
+         @Override
+         public boolean isOpen()
+         {
+            return true;
+         }
+
+         @Override
+         public void close()
+         {
+         }
+      };
+
+      new FileAsset(new File(EXISTING_FILE)).transferTo(full);
+   }
+
    @Test
    public void shouldThrowExceptionOnNullFile() throws Exception
    {
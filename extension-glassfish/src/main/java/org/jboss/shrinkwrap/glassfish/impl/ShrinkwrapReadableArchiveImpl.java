@@ -25,14 +25,15 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.List;
-import java.util.Map.Entry;
 import java.util.jar.Manifest;
 
 import org.glassfish.api.deployment.archive.ReadableArchive;
 import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.ArchivePath;
 import org.jboss.shrinkwrap.api.ArchivePaths;
+import org.jboss.shrinkwrap.api.ArchiveVisitor;
 import org.jboss.shrinkwrap.api.Node;
+import org.jboss.shrinkwrap.api.asset.SizedAsset;
 import org.jboss.shrinkwrap.glassfish.api.ShrinkwrapReadableArchive;
 import org.jboss.shrinkwrap.impl.base.AssignableBase;
 import org.jboss.shrinkwrap.impl.base.asset.ArchiveAsset;
@@ -103,6 +104,12 @@ public class ShrinkwrapReadableArchiveImpl extends AssignableBase<Archive<?>> im
    @Override
    public long getEntrySize(String path)
    {
+      final Node node = this.getArchive().get(ArchivePaths.create(path));
+      if (node != null && node.getAsset() instanceof SizedAsset)
+      {
+         return ((SizedAsset) node.getAsset()).getSize();
+      }
+
       // Per API, signal that we don't know by using 0. 
       return 0;
    }
@@ -179,11 +186,11 @@ public class ShrinkwrapReadableArchiveImpl extends AssignableBase<Archive<?>> im
    {
       List<String> entries = new ArrayList<String>();
 
-      for (Entry<ArchivePath, Node> entry : this.getArchive().getContent().entrySet())
+      for (Node node : this.getArchive())
       {
-         if (entry.getValue().getAsset() != null) 
+         if (node.getAsset() != null) 
          {
-            entries.add(entry.getKey().get());
+            entries.add(node.getPath().get());
          }
       }
       return Collections.enumeration(entries);
@@ -193,20 +200,28 @@ public class ShrinkwrapReadableArchiveImpl extends AssignableBase<Archive<?>> im
     * @see org.glassfish.api.deployment.archive.Archive#entries(java.lang.String)
     */
    @Override
-   public Enumeration<String> entries(String path)
+   public Enumeration<String> entries(final String path)
    {
-      List<String> entries = new ArrayList<String>();
+      final List<String> entries = new ArrayList<String>();
 
-      for (Entry<ArchivePath, Node> entry : this.getArchive().getContent().entrySet())
+      this.getArchive().visit(new ArchiveVisitor()
       {
-         if (entry.getKey().get().startsWith(path))
+         @Override
+         public boolean visit(Node node)
          {
-            if (entry.getValue().getAsset() != null) 
+            final String name = node.getPath().get();
+            if (name.startsWith(path))
             {
-               entries.add(entry.getKey().get());
+               if (node.getAsset() != null) 
+               {
+                  entries.add(name);
+               }
+               return true;
             }
+            // Only descend into directories which may hold matching entries
+            return path.startsWith(name);
          }
-      }
+      });
       return Collections.enumeration(entries);
    }
 
@@ -229,11 +244,11 @@ public class ShrinkwrapReadableArchiveImpl extends AssignableBase<Archive<?>> im
    {
       List<String> entries = new ArrayList<String>();
 
-      for (Entry<ArchivePath, Node> entry : this.getArchive().getContent().entrySet())
+      for (Node node : this.getArchive())
       {
-         if (entry.getValue().getAsset() == null)
+         if (node.getAsset() == null)
          {
-            entries.add(entry.getKey().get());
+            entries.add(node.getPath().get());
          }
       }
       return entries;
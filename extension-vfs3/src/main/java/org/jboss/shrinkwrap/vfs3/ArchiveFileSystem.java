@@ -30,6 +30,7 @@ import java.util.Set;
 import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.Node;
 import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.asset.SizedAsset;
 import org.jboss.vfs.TempDir;
 import org.jboss.vfs.VFSUtils;
 import org.jboss.vfs.VirtualFile;
@@ -162,6 +163,18 @@ public class ArchiveFileSystem implements FileSystem
          {
             cachedFile.mkdir();
          }
+         else if (asset instanceof SizedAsset)
+         {
+            final FileOutputStream out = new FileOutputStream(cachedFile);
+            try
+            {
+               ((SizedAsset) asset).transferTo(out.getChannel());
+            }
+            finally
+            {
+               out.close();
+            }
+         }
          else
          {
             VFSUtils.copyStreamAndClose(asset.openStream(), new BufferedOutputStream(new FileOutputStream(cachedFile)));
@@ -191,6 +204,11 @@ public class ArchiveFileSystem implements FileSystem
       {
          return cachedFile.length();
       }
+      else if (node.getAsset() instanceof SizedAsset)
+      {
+         // Known without materializing the file
+         return ((SizedAsset) node.getAsset()).getSize();
+      }
       else if (node.getAsset() != null)
       {
          // This sucks, but is the only way to get at it.
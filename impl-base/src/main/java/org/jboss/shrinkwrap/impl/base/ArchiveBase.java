@@ -16,8 +16,11 @@
  */
 package org.jboss.shrinkwrap.impl.base;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.logging.Level;
@@ -26,18 +29,21 @@ import java.util.logging.Logger;
 import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.ArchivePath;
 import org.jboss.shrinkwrap.api.ArchivePaths;
+import org.jboss.shrinkwrap.api.ArchiveVisitor;
 import org.jboss.shrinkwrap.api.Assignable;
 import org.jboss.shrinkwrap.api.Configuration;
 import org.jboss.shrinkwrap.api.Filter;
-import org.jboss.shrinkwrap.api.Filters;
 import org.jboss.shrinkwrap.api.Node;
 import org.jboss.shrinkwrap.api.asset.Asset;
 import org.jboss.shrinkwrap.api.exporter.StreamExporter;
 import org.jboss.shrinkwrap.api.formatter.Formatter;
 import org.jboss.shrinkwrap.api.formatter.Formatters;
 import org.jboss.shrinkwrap.impl.base.asset.ArchiveAsset;
+import org.jboss.shrinkwrap.impl.base.filter.IncludeAllPaths;
 import org.jboss.shrinkwrap.impl.base.path.BasicPath;
 import org.jboss.shrinkwrap.spi.Configurable;
+import org.jboss.shrinkwrap.spi.MutationCounted;
+import org.jboss.shrinkwrap.spi.Releasable;
 
 /**
  * ArchiveBase
@@ -51,7 +57,8 @@ import org.jboss.shrinkwrap.spi.Configurable;
  * @author <a href="mailto:baileyje@gmail.com">John Bailey</a>
  * @version $Revision: $
  */
-public abstract class ArchiveBase<T extends Archive<T>> implements Archive<T>, Configurable
+public abstract class ArchiveBase<T extends Archive<T>> implements Archive<T>, Configurable, Releasable,
+      MutationCounted
 {
 
    //-------------------------------------------------------------------------------------||
@@ -77,6 +84,11 @@ public abstract class ArchiveBase<T extends Archive<T>> implements Archive<T>, C
     */
    private final Configuration configuration;
 
+   /**
+    * Resources held on behalf of the content, to be closed upon {@link #release()}
+    */
+   private final List<Closeable> heldResources = new ArrayList<Closeable>();
+
    //-------------------------------------------------------------------------------------||
    // Constructor ------------------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -194,6 +206,36 @@ public abstract class ArchiveBase<T extends Archive<T>> implements Archive<T>, C
       return add(archiveAsset, contentPath);
    }
 
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.Archive#addAll(java.util.Map)
+    */
+   @Override
+   public T addAll(final Map<ArchivePath, Asset> assets) throws IllegalArgumentException
+   {
+      // Precondition check
+      Validate.notNull(assets, "assets must be specified");
+
+      // Add
+      for (final Entry<ArchivePath, Asset> entry : assets.entrySet())
+      {
+         final ArchivePath path = entry.getKey();
+         Validate.notNull(path, "path must be specified");
+         final Asset asset = entry.getValue();
+         if (asset == null)
+         {
+            this.addDirectory(path);
+         }
+         else
+         {
+            this.add(asset, path);
+         }
+      }
+
+      // Return
+      return covariantReturn();
+   }
+
    /**
     * {@inheritDoc}
     * @see org.jboss.shrinkwrap.api.Archive#addDirectory(java.lang.String)
@@ -289,7 +331,8 @@ public abstract class ArchiveBase<T extends Archive<T>> implements Archive<T>, C
       Validate.notNull(source, "No source archive was specified");
       Validate.notNull(path, "No path was specified");
 
-      return merge(source, path, Filters.includeAll());
+      this.mergeContent(source, path, null);
+      return covariantReturn();
    }
 
    /**
@@ -327,29 +370,8 @@ public abstract class ArchiveBase<T extends Archive<T>> implements Archive<T>, C
       Validate.notNull(path, "No path was specified");
       Validate.notNull(filter, "No filter was specified");
 
-      // Get existing contents from source archive
-      final Map<ArchivePath, Node> sourceContent = source.getContent();
-      Validate.notNull(sourceContent, "Source archive content can not be null.");
-
-      // Add each asset from the source archive
-      for (final Entry<ArchivePath, Node> contentEntry : sourceContent.entrySet())
-      {
-         final Node node = contentEntry.getValue();
-         ArchivePath nodePath = new BasicPath(path, contentEntry.getKey());
-         if (!filter.include(nodePath))
-         {
-            continue;
-         }
-         // Delegate
-         if (node.getAsset() == null)
-         {
-            addDirectory(nodePath);
-         }
-         else
-         {
-            add(node.getAsset(), nodePath);
-         }
-      }
+      // No need to consult a filter which includes everything
+      this.mergeContent(source, path, filter instanceof IncludeAllPaths ? null : filter);
       return covariantReturn();
    }
 
@@ -409,9 +431,10 @@ public abstract class ArchiveBase<T extends Archive<T>> implements Archive<T>, C
    @Override
    public int hashCode()
    {
+      // Maintained upon each change, so we need not visit the content
       final int prime = 31;
       int result = 1;
-      result = prime * result + ((getContent() == null) ? 0 : getContent().hashCode());
+      result = prime * result + this.getContentFingerprint();
       result = prime * result + ((name == null) ? 0 : name.hashCode());
       return result;
    }
@@ -434,13 +457,6 @@ public abstract class ArchiveBase<T extends Archive<T>> implements Archive<T>, C
 
       ArchiveBase<?> other = (ArchiveBase<?>) obj;
 
-      if (getContent() == null)
-      {
-         if (other.getContent() != null)
-            return false;
-      }
-      else if (!getContent().equals(other.getContent()))
-         return false;
       if (name == null)
       {
          if (other.name != null)
@@ -448,7 +464,28 @@ public abstract class ArchiveBase<T extends Archive<T>> implements Archive<T>, C
       }
       else if (!name.equals(other.name))
          return false;
-      return true;
+      return this.contentEquals(other);
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.Archive#contentEquals(org.jboss.shrinkwrap.api.Archive)
+    */
+   @Override
+   public boolean contentEquals(final Archive<?> other) throws IllegalArgumentException
+   {
+      Validate.notNull(other, "Other archive must be specified");
+      if (this == other)
+      {
+         return true;
+      }
+
+      // Differing fingerprints denote differing content; only compare in full if they match
+      if (other instanceof ArchiveBase && ((ArchiveBase<?>) other).getContentFingerprint() != this.getContentFingerprint())
+      {
+         return false;
+      }
+      return this.getContent().equals(other.getContent());
    }
 
    /**
@@ -461,6 +498,49 @@ public abstract class ArchiveBase<T extends Archive<T>> implements Archive<T>, C
       return configuration;
    }
 
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.spi.Releasable#hold(java.io.Closeable)
+    */
+   @Override
+   public void hold(final Closeable resource) throws IllegalArgumentException
+   {
+      Validate.notNull(resource, "resource must be specified");
+      synchronized (heldResources)
+      {
+         heldResources.add(resource);
+      }
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.spi.Releasable#release()
+    */
+   @Override
+   public void release()
+   {
+      // Take all resources held so far
+      final List<Closeable> resources;
+      synchronized (heldResources)
+      {
+         resources = new ArrayList<Closeable>(heldResources);
+         heldResources.clear();
+      }
+
+      // Close each; a failure to close one should not prevent closing the others
+      for (final Closeable resource : resources)
+      {
+         try
+         {
+            resource.close();
+         }
+         catch (final IOException ioe)
+         {
+            log.log(Level.WARNING, "Could not close resource held by " + this.getName() + ": " + resource, ioe);
+         }
+      }
+   }
+
    //-------------------------------------------------------------------------------------||
    // Contracts --------------------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -473,10 +553,63 @@ public abstract class ArchiveBase<T extends Archive<T>> implements Archive<T>, C
     */
    protected abstract Class<T> getActualClass();
 
+   /**
+    * Returns a fingerprint of the content structure (the set of {@link ArchivePath}s), 
+    * such that archives whose content is equal have equal fingerprints.  Must not
+    * require visiting the content; implementations should maintain it upon each change.
+    * 
+    * @return
+    */
+   protected abstract int getContentFingerprint();
+
    //-------------------------------------------------------------------------------------||
    // Internal Helper Methods ------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
 
+   /**
+    * Adds the content of the specified source archive beneath the specified path 
+    * of this archive.  Adds each {@link Node} in turn; implementations with direct
+    * access to their storage may override to add the content in bulk.
+    * 
+    * @param source
+    * @param path
+    * @param filter Filter for the target paths to include, or null to include all
+    */
+   protected void mergeContent(final Archive<?> source, final ArchivePath path, final Filter<ArchivePath> filter)
+   {
+      // Get existing contents from source archive; gathered up front, as the source 
+      // may be this archive
+      final List<Node> sourceContent = new ArrayList<Node>();
+      source.visit(new ArchiveVisitor()
+      {
+         @Override
+         public boolean visit(final Node node)
+         {
+            sourceContent.add(node);
+            return true;
+         }
+      });
+
+      // Add each asset from the source archive
+      for (final Node node : sourceContent)
+      {
+         ArchivePath nodePath = new BasicPath(path, node.getPath());
+         if (filter != null && !filter.include(nodePath))
+         {
+            continue;
+         }
+         // Delegate
+         if (node.getAsset() == null)
+         {
+            addDirectory(nodePath);
+         }
+         else
+         {
+            add(node.getAsset(), nodePath);
+         }
+      }
+   }
+
    /**
     * Provides typesafe covariant return of this instance
     */
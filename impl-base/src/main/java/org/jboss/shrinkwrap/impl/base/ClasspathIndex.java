@@ -0,0 +1,382 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Process-wide index of the classes available under classpath roots, used by 
+ * the {@link URLPackageScanner} such that repeated scans of the same package
+ * resolve to map lookups rather than full JAR enumerations or directory listings.
+ * 
+ * Archives are indexed by package on first request and re-indexed if their
+ * last modified time or size changes.  Directories are indexed individually 
+ * and re-listed if their last modified time changes (ie. an entry has been 
+ * added, removed or renamed).  Only the most recently used archives and 
+ * directories are kept indexed, such that a long-running process scanning
+ * ever-changing classpaths does not accumulate indexes without bound.
+ *
+ * @version $Revision: $
+ */
+final class ClasspathIndex
+{
+
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   private static final Logger log = Logger.getLogger(ClasspathIndex.class.getName());
+
+   /**
+    * Extension of a compiled class resource
+    */
+   private static final String EXTENSION_CLASS = ".class";
+
+   /**
+    * Separator between package names
+    */
+   private static final char SEPARATOR_PACKAGE = '.';
+
+   /**
+    * Character immediately following {@link ClasspathIndex#SEPARATOR_PACKAGE}, used
+    * as the exclusive upper bound of a range of sub packages
+    */
+   private static final char SEPARATOR_PACKAGE_UPPER_BOUND = SEPARATOR_PACKAGE + 1;
+
+   /**
+    * Maximum number of archives kept indexed
+    */
+   private static final int MAX_ARCHIVES = 256;
+
+   /**
+    * Maximum number of directories kept indexed
+    */
+   private static final int MAX_DIRECTORIES = 4096;
+
+   /**
+    * Indexed archives, keyed by archive file, in least-recently-used order; also the lock
+    */
+   private static final Map<File, ArchiveIndex> archives = new IndexCache<ArchiveIndex>(MAX_ARCHIVES);
+
+   /**
+    * Indexed directories, keyed by directory, in least-recently-used order; also the lock
+    */
+   private static final Map<File, DirectoryIndex> directories = new IndexCache<DirectoryIndex>(MAX_DIRECTORIES);
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Internal constructor; should not be called
+    */
+   private ClasspathIndex()
+   {
+      throw new UnsupportedOperationException("No instances should be created; stateless class");
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Functional Methods -----------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Obtains the fully-qualified names of all classes in the specified package
+    * (and optionally its sub packages) contained in the specified archive
+    * 
+    * @param archive The archive (JAR) file
+    * @param packageName The package name, or an empty String for the default package
+    * @param recursive Whether to include classes in sub packages
+    * @return The class names, in no particular order
+    * @throws IOException If the archive could not be read
+    */
+   static Collection<String> getClassNames(final File archive, final String packageName, final boolean recursive)
+         throws IOException
+   {
+      final SortedMap<String, List<String>> classesByPackage = getArchiveIndex(archive).classesByPackage;
+
+      // Only the package itself
+      if (!recursive)
+      {
+         final List<String> classNames = classesByPackage.get(packageName);
+         return classNames == null ? Collections.<String> emptyList() : classNames;
+      }
+
+      // All packages
+      if (packageName.length() == 0)
+      {
+         return flatten(classesByPackage.values());
+      }
+
+      // The package and the range of all names prefixed by "packageName."
+      final List<List<String>> matches = new ArrayList<List<String>>();
+      final List<String> classNames = classesByPackage.get(packageName);
+      if (classNames != null)
+      {
+         matches.add(classNames);
+      }
+      matches.addAll(classesByPackage.subMap(packageName + SEPARATOR_PACKAGE,
+            packageName + SEPARATOR_PACKAGE_UPPER_BOUND).values());
+      return flatten(matches);
+   }
+
+   /**
+    * Obtains the simple names (without extension) of all classes directly within 
+    * the specified directory
+    * 
+    * @param directory
+    * @return
+    */
+   static List<String> getClassNames(final File directory)
+   {
+      return getDirectoryIndex(directory).classNames;
+   }
+
+   /**
+    * Obtains all subdirectories directly within the specified directory
+    * 
+    * @param directory
+    * @return
+    */
+   static List<File> getSubdirectories(final File directory)
+   {
+      return getDirectoryIndex(directory).subdirectories;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Obtains the current index of the specified archive, (re)building it
+    * if absent or stale
+    */
+   private static ArchiveIndex getArchiveIndex(final File archive) throws IOException
+   {
+      final long lastModified = archive.lastModified();
+      final long length = archive.length();
+      ArchiveIndex index;
+      synchronized (archives)
+      {
+         index = archives.get(archive);
+      }
+      if (index == null || index.lastModified != lastModified || index.length != length)
+      {
+         // Index outside the lock; concurrent indexing of the same archive is harmless
+         index = new ArchiveIndex(lastModified, length, indexArchive(archive));
+         synchronized (archives)
+         {
+            archives.put(archive, index);
+         }
+      }
+      return index;
+   }
+
+   /**
+    * Obtains the current index of the specified directory, (re)building it
+    * if absent or stale
+    */
+   private static DirectoryIndex getDirectoryIndex(final File directory)
+   {
+      final long lastModified = directory.lastModified();
+      DirectoryIndex index;
+      synchronized (directories)
+      {
+         index = directories.get(directory);
+      }
+      if (index == null || index.lastModified != lastModified)
+      {
+         index = indexDirectory(directory, lastModified);
+         synchronized (directories)
+         {
+            directories.put(directory, index);
+         }
+      }
+      return index;
+   }
+
+   /**
+    * Reads all class entries of the specified archive, grouped by package name
+    */
+   private static SortedMap<String, List<String>> indexArchive(final File archive) throws IOException
+   {
+      log.fine("indexing archive: " + archive);
+      final SortedMap<String, List<String>> classesByPackage = new TreeMap<String, List<String>>();
+      final ZipFile zip = new ZipFile(archive);
+      try
+      {
+         final Enumeration<? extends ZipEntry> entries = zip.entries();
+         while (entries.hasMoreElements())
+         {
+            final String name = entries.nextElement().getName();
+            if (!name.endsWith(EXTENSION_CLASS))
+            {
+               continue;
+            }
+            final String className = name.substring(0, name.length() - EXTENSION_CLASS.length()).replace('/',
+                  SEPARATOR_PACKAGE);
+            final int lastSeparator = className.lastIndexOf(SEPARATOR_PACKAGE);
+            final String packageName = lastSeparator < 0 ? "" : className.substring(0, lastSeparator);
+            List<String> classNames = classesByPackage.get(packageName);
+            if (classNames == null)
+            {
+               classNames = new ArrayList<String>();
+               classesByPackage.put(packageName, classNames);
+            }
+            classNames.add(className);
+         }
+      }
+      finally
+      {
+         try
+         {
+            zip.close();
+         }
+         catch (final IOException ignore)
+         {
+
+         }
+      }
+
+      for (final Map.Entry<String, List<String>> entry : classesByPackage.entrySet())
+      {
+         entry.setValue(Collections.unmodifiableList(entry.getValue()));
+      }
+      return Collections.unmodifiableSortedMap(classesByPackage);
+   }
+
+   /**
+    * Lists the classes and subdirectories directly within the specified directory
+    */
+   private static DirectoryIndex indexDirectory(final File directory, final long lastModified)
+   {
+      final List<String> classNames = new ArrayList<String>();
+      final List<File> subdirectories = new ArrayList<File>();
+      final File[] children = directory.listFiles();
+      if (children != null)
+      {
+         for (final File child : children)
+         {
+            final String name = child.getName();
+            if (child.isDirectory())
+            {
+               subdirectories.add(child);
+            }
+            else if (name.endsWith(EXTENSION_CLASS))
+            {
+               classNames.add(name.substring(0, name.length() - EXTENSION_CLASS.length()));
+            }
+         }
+      }
+      return new DirectoryIndex(lastModified, Collections.unmodifiableList(classNames), Collections
+            .unmodifiableList(subdirectories));
+   }
+
+   /**
+    * Concatenates the specified lists
+    */
+   private static List<String> flatten(final Collection<List<String>> lists)
+   {
+      final List<String> flattened = new ArrayList<String>();
+      for (final List<String> list : lists)
+      {
+         flattened.addAll(list);
+      }
+      return flattened;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Inner Classes ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Map of indexes by file, holding no more than a maximum number of entries
+    * by evicting the least recently used.  Not thread-safe.
+    */
+   private static final class IndexCache<V> extends LinkedHashMap<File, V>
+   {
+      private static final long serialVersionUID = 1L;
+
+      private final int maximumSize;
+
+      IndexCache(final int maximumSize)
+      {
+         super(16, 0.75f, true);
+         this.maximumSize = maximumSize;
+      }
+
+      /**
+       * {@inheritDoc}
+       * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.Entry)
+       */
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<File, V> eldest)
+      {
+         return this.size() > maximumSize;
+      }
+   }
+
+   /**
+    * Immutable index of an archive at a given modification time and size
+    */
+   private static final class ArchiveIndex
+   {
+      private final long lastModified;
+
+      private final long length;
+
+      private final SortedMap<String, List<String>> classesByPackage;
+
+      ArchiveIndex(final long lastModified, final long length, final SortedMap<String, List<String>> classesByPackage)
+      {
+         this.lastModified = lastModified;
+         this.length = length;
+         this.classesByPackage = classesByPackage;
+      }
+   }
+
+   /**
+    * Immutable listing of a directory at a given modification time
+    */
+   private static final class DirectoryIndex
+   {
+      private final long lastModified;
+
+      private final List<String> classNames;
+
+      private final List<File> subdirectories;
+
+      DirectoryIndex(final long lastModified, final List<String> classNames, final List<File> subdirectories)
+      {
+         this.lastModified = lastModified;
+         this.classNames = classNames;
+         this.subdirectories = subdirectories;
+      }
+   }
+}
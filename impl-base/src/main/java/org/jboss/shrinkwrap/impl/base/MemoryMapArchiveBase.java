@@ -16,16 +16,32 @@
  */
 package org.jboss.shrinkwrap.impl.base;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.ArchivePath;
 import org.jboss.shrinkwrap.api.ArchivePaths;
+import org.jboss.shrinkwrap.api.ArchiveVisitor;
 import org.jboss.shrinkwrap.api.Configuration;
 import org.jboss.shrinkwrap.api.Filter;
 import org.jboss.shrinkwrap.api.IllegalArchivePathException;
@@ -40,6 +56,23 @@ import org.jboss.shrinkwrap.impl.base.path.PathUtil;
  * MemoryMapArchiveBase
  * 
  * A base implementation for all MemoryMap archives. Thread-safe.
+ * 
+ * {@link Node}s are stored as a tree keyed by path segment, rooted 
+ * at {@link ArchivePaths#root()}, such that lookups are proportional to 
+ * the depth of the path rather than the size of the archive.  Content
+ * is enumerated in path order.  Paths beneath a nested archive 
+ * ({@link ArchiveAsset}) are resolved within that archive as the tree is walked.
+ * 
+ * {@link #snapshot()} shares the tree with the snapshot and advances the generation 
+ * of the archive; {@link Node}s of earlier generations are no longer changed in place, 
+ * but are copied, along with their parents, upon the first change beneath them. 
+ * 
+ * Changes from concurrent threads proceed without blocking one another: a thread 
+ * holds only the shared lock of its own stripe while adding, new {@link Node}s are 
+ * inserted (and missing parents created) via atomic put-if-absent, and counts are 
+ * kept per stripe.  Under the shared locks existing {@link Node}s are never removed or
+ * replaced (other than by their copies upon a snapshot); changes which do, and so may 
+ * detach a subtree, are made holding the locks of all stripes exclusively.
  *
  * @author <a href="mailto:baileyje@gmail.com">John Bailey</a>
  * @author <a href="mailto:aslak@conduct.no">Aslak Knutsen</a>
@@ -49,19 +82,40 @@ import org.jboss.shrinkwrap.impl.base.path.PathUtil;
 public abstract class MemoryMapArchiveBase<T extends Archive<T>> extends ArchiveBase<T> implements Archive<T>
 {
 
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Number of {@link Stripe}s per archive; the lowest power of two not below
+    * the number of processors
+    */
+   private static final int NUM_STRIPES = getNumStripes();
+
    //-------------------------------------------------------------------------------------||
    // Instance Members -------------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
 
    /**
-    * Storage for the {@link Node}s.
+    * Root of the {@link Node} tree; all content is reachable from here.  Replaced
+    * by a copy upon the first change following a snapshot.
+    */
+   private final AtomicReference<NodeImpl> root = new AtomicReference<NodeImpl>(new NodeImpl(new BasicPath("/")));
+
+   /**
+    * Generation of the {@link Node}s which may be changed in place
     */
-   private final Map<ArchivePath, NodeImpl> content = new ConcurrentHashMap<ArchivePath, NodeImpl>();
+   private volatile int generation;
 
    /**
-    * Storage for the {@link ArchiveAsset}s.  Used to help get access to nested archive content.
+    * Locks and counts, spread by thread
     */
-   private final Map<ArchivePath, ArchiveAsset> nestedArchives = new ConcurrentHashMap<ArchivePath, ArchiveAsset>();
+   private final Stripe[] stripes = newStripes();
+
+   /**
+    * Whether this archive is a read-only snapshot of another
+    */
+   private volatile boolean readOnly;
 
    //-------------------------------------------------------------------------------------||
    // Constructor ------------------------------------------------------------------------||
@@ -94,10 +148,6 @@ public abstract class MemoryMapArchiveBase<T extends Archive<T>> extends Archive
          throws IllegalArgumentException
    {
       super(archiveName, configuration);
-
-      // Add the root node to the content
-      final ArchivePath rootPath = new BasicPath("/");
-      content.put(rootPath, new NodeImpl(rootPath));
    }
 
    //-------------------------------------------------------------------------------------||
@@ -113,25 +163,40 @@ public abstract class MemoryMapArchiveBase<T extends Archive<T>> extends Archive
    {
       Validate.notNull(asset, "No asset was specified");
       Validate.notNull(path, "No path was specified");
+      assertWritable();
 
-      // Retrieve the parent
-      NodeImpl parentNode = obtainParent(path.getParent());
+      final Lock lock = lockShared();
+      try
+      {
+         // Retrieve the parent
+         final NodeImpl parentNode = obtainParent(path.getParent());
+         if (parentNode == null)
+         {
+            throw new IllegalArchivePathException("Cannot add an asset as the root of an archive");
+         }
 
-      // Check if a the path already contains a node so we remove it from the parent's children
-      NodeImpl existingNode = content.get(path);
-      if (parentNode != null && existingNode != null)
+         // Add the node to the parent, unless a node exists at the same path
+         final NodeImpl node = new NodeImpl(path, asset, generation);
+         if (parentNode.putChildIfAbsent(getName(path), node) == null)
+         {
+            changed(getFingerprint(node), 1);
+            return covariantReturn();
+         }
+      }
+      finally
       {
-         parentNode.removeChild(existingNode);
+         lock.unlock();
       }
 
-      // Add the node to the content of the archive
-      NodeImpl node = new NodeImpl(path, asset);
-      content.put(path, node);
-
-      // Add the new node to the parent as a child
-      if (parentNode != null)
+      // Replace the existing node; exclusively, as it may be a directory being added to
+      lockExclusive();
+      try
+      {
+         replace(path, asset);
+      }
+      finally
       {
-         parentNode.addChild(node);
+         unlockExclusive();
       }
 
       return covariantReturn();
@@ -152,26 +217,32 @@ public abstract class MemoryMapArchiveBase<T extends Archive<T>> extends Archive
 
    /**
     * {@inheritDoc}
-    * @see org.jboss.shrinkwrap.impl.base.ArchiveBase#add(org.jboss.shrinkwrap.api.Archive, org.jboss.shrinkwrap.api.ArchivePath, java.lang.Class)
+    * @see org.jboss.shrinkwrap.api.Archive#addDirectory(org.jboss.shrinkwrap.api.ArchivePath)
     */
    @Override
-   public T add(final Archive<?> archive, final ArchivePath path, final Class<? extends StreamExporter> exporter)
+   public T addDirectory(final ArchivePath path) throws IllegalArgumentException
    {
-      // Add archive asset
-      super.add(archive, path, exporter);
-
-      // Expected Archive Path
-      final ArchivePath archivePath = new BasicPath(path, archive.getName());
+      // Precondition check
+      Validate.notNull(path, "path must be specified");
+      assertWritable();
 
-      // Get the Asset that was just added 
-      final Node node = get(archivePath);
+      // Adjust the path to remove any trailing slash
+      ArchivePath adjustedPath = new BasicPath(PathUtil.getCanonicalContext(path));
 
-      // Make sure it is an ArchiveAsset
-      if (node.getAsset() != null && node.getAsset() instanceof ArchiveAsset)
+      // Check if it exists. If it doesn't, create it and add it. The same with all the
+      // non-existing parents
+      if (!contains(adjustedPath))
       {
-         final ArchiveAsset archiveAsset = ArchiveAsset.class.cast(node.getAsset());
-         // Add asset to ArchiveAsset Map
-         nestedArchives.put(archivePath, archiveAsset);
+         final Lock lock = lockShared();
+         try
+         {
+            obtainParent(adjustedPath);
+            changed(0, 0);
+         }
+         finally
+         {
+            lock.unlock();
+         }
       }
 
       return covariantReturn();
@@ -179,32 +250,64 @@ public abstract class MemoryMapArchiveBase<T extends Archive<T>> extends Archive
 
    /**
     * {@inheritDoc}
-    * @see org.jboss.shrinkwrap.api.Archive#addDirectory(org.jboss.shrinkwrap.api.ArchivePath)
+    * 
+    * Entries are added in path order, and each parent directory is obtained once 
+    * for the whole batch rather than walked to from the root for every entry.
+    * 
+    * @see org.jboss.shrinkwrap.impl.base.ArchiveBase#addAll(java.util.Map)
     */
    @Override
-   public T addDirectory(final ArchivePath path) throws IllegalArgumentException
+   public T addAll(final Map<ArchivePath, Asset> assets) throws IllegalArgumentException
    {
-      // Precondition check
-      Validate.notNull(path, "path must be specified");
+      Validate.notNull(assets, "assets must be specified");
+      assertWritable();
 
-      // Adjust the path to remove any trailing slash
-      ArchivePath adjustedPath = new BasicPath(PathUtil.optionallyRemoveFollowingSlash(path.get()));
-
-      // Check if it exists. If it doesn't, create it and add it. The same with all the
-      // non-existing parents
-      if (!contains(adjustedPath))
+      final List<Entry<ArchivePath, Asset>> entries = new ArrayList<Entry<ArchivePath, Asset>>(assets.entrySet());
+      for (final Entry<ArchivePath, Asset> entry : entries)
       {
-         NodeImpl node = new NodeImpl(adjustedPath);
-         content.put(adjustedPath, node);
+         Validate.notNull(entry.getKey(), "path must be specified");
+      }
+      Collections.sort(entries, PathOrder.INSTANCE);
 
-         // retrieve the parent and add the node as a child
-         NodeImpl parentNode = obtainParent(adjustedPath.getParent());
-         if (parentNode != null)
+      // Assets to replace existing nodes; deferred until the shared lock is released
+      final Map<ArchivePath, Asset> replacements = new LinkedHashMap<ArchivePath, Asset>();
+      final Lock lock = lockShared();
+      try
+      {
+         final Map<String, NodeImpl> directories = new HashMap<String, NodeImpl>(entries.size());
+         for (final Entry<ArchivePath, Asset> entry : entries)
          {
-            parentNode.addChild(node);
+            final ArchivePath path = entry.getKey();
+            final Asset asset = entry.getValue();
+            if (asset == null)
+            {
+               obtainDirectory(path, directories);
+               changed(0, 0);
+               continue;
+            }
+
+            final ArchivePath parentPath = path.getParent();
+            if (parentPath == null)
+            {
+               throw new IllegalArchivePathException("Cannot add an asset as the root of an archive");
+            }
+            final NodeImpl node = new NodeImpl(path, asset, generation);
+            if (obtainDirectory(parentPath, directories).putChildIfAbsent(getName(path), node) == null)
+            {
+               changed(getFingerprint(node), 1);
+            }
+            else
+            {
+               replacements.put(path, asset);
+            }
          }
       }
+      finally
+      {
+         lock.unlock();
+      }
 
+      replaceAll(replacements);
       return covariantReturn();
    }
 
@@ -217,12 +320,7 @@ public abstract class MemoryMapArchiveBase<T extends Archive<T>> extends Archive
    {
       Validate.notNull(path, "No path was specified");
 
-      boolean found = content.containsKey(path);
-      if (!found)
-      {
-         found = nestedContains(path);
-      }
-      return found;
+      return resolve(path) != null;
    }
 
    /**
@@ -245,20 +343,37 @@ public abstract class MemoryMapArchiveBase<T extends Archive<T>> extends Archive
    public boolean delete(ArchivePath path)
    {
       Validate.notNull(path, "No path was specified");
+      assertWritable();
 
-      NodeImpl node = content.get(path);
-      if (node == null)
+      // The root may not be removed
+      final ArchivePath parentPath = path.getParent();
+      if (parentPath == null || lookup(path) == null)
       {
          return false;
       }
 
-      NodeImpl parentNode = content.get(path.getParent());
-      if (parentNode != null)
+      // Exclusively, such that nothing is added beneath the removed node meanwhile
+      lockExclusive();
+      try
       {
-         parentNode.removeChild(node);
-      }
+         final NodeImpl parentNode = obtainNode(parentPath, false);
+         if (parentNode == null)
+         {
+            return false;
+         }
 
-      return content.remove(path) != null;
+         final NodeImpl removed = parentNode.removeChild(getName(path));
+         if (removed == null)
+         {
+            return false;
+         }
+         changed(-getSubtreeFingerprint(removed), -getSubtreeSize(removed));
+         return true;
+      }
+      finally
+      {
+         unlockExclusive();
+      }
    }
 
    /** 
@@ -269,12 +384,7 @@ public abstract class MemoryMapArchiveBase<T extends Archive<T>> extends Archive
    public Node get(ArchivePath path)
    {
       Validate.notNull(path, "No path was specified");
-      Node node = content.get(path);
-      if (node == null && contains(path))
-      {
-         node = getNestedNode(path);
-      }
-      return node;
+      return resolve(path);
    }
 
    /** 
@@ -284,16 +394,7 @@ public abstract class MemoryMapArchiveBase<T extends Archive<T>> extends Archive
    @Override
    public Map<ArchivePath, Node> getContent()
    {
-      Map<ArchivePath, Node> ret = new HashMap<ArchivePath, Node>();
-      for (Map.Entry<ArchivePath, NodeImpl> item : content.entrySet())
-      {
-         if (!item.getKey().equals(new BasicPath("/")))
-         {
-            ret.put(item.getKey(), item.getValue());
-         }
-      }
-
-      return Collections.unmodifiableMap(ret);
+      return new ContentView(null);
    }
 
    /**
@@ -305,111 +406,313 @@ public abstract class MemoryMapArchiveBase<T extends Archive<T>> extends Archive
    {
       Validate.notNull(filter, "Filter must be specified");
 
-      Map<ArchivePath, Node> filteredContent = new HashMap<ArchivePath, Node>();
-      for (Map.Entry<ArchivePath, NodeImpl> contentEntry : content.entrySet())
+      return new ContentView(filter);
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.Archive#visit(org.jboss.shrinkwrap.api.ArchiveVisitor)
+    */
+   @Override
+   public void visit(final ArchiveVisitor visitor) throws IllegalArgumentException
+   {
+      Validate.notNull(visitor, "Visitor must be specified");
+
+      visit(root.get(), visitor);
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see java.lang.Iterable#iterator()
+    */
+   @Override
+   public Iterator<Node> iterator()
+   {
+      return new NodeIterator();
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.Archive#snapshot()
+    */
+   @Override
+   public T snapshot()
+   {
+      // Already immutable
+      if (readOnly)
       {
-         if (filter.include(contentEntry.getKey()))
-         {
-            if (!contentEntry.getKey().equals(new BasicPath("/")))
-            {
-               filteredContent.put(contentEntry.getKey(), contentEntry.getValue());
-            }
-         }
+         return covariantReturn();
+      }
+
+      // Capture the content as of a point where no change is in progress
+      final NodeImpl frozenRoot;
+      final int fingerprint;
+      final long count;
+      final long nodeCount;
+      lockExclusive();
+      try
+      {
+         frozenRoot = freezeRoot();
+         fingerprint = getContentFingerprint();
+         count = getMutationCount();
+         nodeCount = getNodeCount();
+      }
+      finally
+      {
+         unlockExclusive();
       }
-      return filteredContent;
+
+      final T snapshot = newInstance(getName(), getConfiguration());
+      final MemoryMapArchiveBase<?> snapshotBase = (MemoryMapArchiveBase<?>) snapshot;
+      snapshotBase.root.set(frozenRoot);
+      snapshotBase.stripes[0].contentFingerprint.set(fingerprint);
+      snapshotBase.stripes[0].mutationCount.set(count);
+      snapshotBase.stripes[0].nodeCount.set(nodeCount);
+      snapshotBase.readOnly = true;
+      return snapshot;
    }
 
    //-------------------------------------------------------------------------------------||
-   // Internal Helper Methods ------------------------------------------------------------||
+   // Required Implementations - MutationCounted -----------------------------------------||
    //-------------------------------------------------------------------------------------||
 
    /**
-    * Check to see if a path is found in a nested archive
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.spi.MutationCounted#getMutationCount()
     */
-   private boolean nestedContains(ArchivePath path)
+   @Override
+   public long getMutationCount()
    {
-      // Iterate through nested archives
-      for (Entry<ArchivePath, ArchiveAsset> nestedArchiveEntry : nestedArchives.entrySet())
+      long count = 0;
+      for (final Stripe stripe : stripes)
       {
-         ArchivePath archivePath = nestedArchiveEntry.getKey();
-         ArchiveAsset archiveAsset = nestedArchiveEntry.getValue();
+         count += stripe.mutationCount.get();
+      }
+      return count;
+   }
 
-         // Check to see if the requested path starts with the nested archive path
-         if (startsWith(path, archivePath))
-         {
-            Archive<?> nestedArchive = archiveAsset.getArchive();
+   //-------------------------------------------------------------------------------------||
+   // Required Implementations - ArchiveBase ---------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.impl.base.ArchiveBase#getContentFingerprint()
+    */
+   @Override
+   protected int getContentFingerprint()
+   {
+      int fingerprint = 0;
+      for (final Stripe stripe : stripes)
+      {
+         fingerprint += stripe.contentFingerprint.get();
+      }
+      return fingerprint;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Overridden Implementations ---------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@inheritDoc}
+    * Grafts the source tree beneath the path in a single pass, sharing the source
+    * {@link Asset}s and creating each target directory once.
+    * @see org.jboss.shrinkwrap.impl.base.ArchiveBase#mergeContent(org.jboss.shrinkwrap.api.Archive, org.jboss.shrinkwrap.api.ArchivePath, org.jboss.shrinkwrap.api.Filter)
+    */
+   @Override
+   protected void mergeContent(final Archive<?> source, final ArchivePath path, final Filter<ArchivePath> filter)
+   {
+      assertWritable();
+
+      Node sourceRoot = source.get(ArchivePaths.root());
+      if (sourceRoot == null)
+      {
+         super.mergeContent(source, path, filter);
+         return;
+      }
+      // Grafting from our own tree would walk the branches being grafted; graft from a frozen version instead
+      if (sourceRoot == root.get())
+      {
+         sourceRoot = freeze();
+      }
+
+      // Assets to replace existing nodes; deferred until the shared lock is released
+      final Map<ArchivePath, Asset> replacements = new LinkedHashMap<ArchivePath, Asset>();
+      final Lock lock = lockShared();
+      try
+      {
+         graft(sourceRoot, null, path, filter, replacements);
+      }
+      finally
+      {
+         lock.unlock();
+      }
+
+      replaceAll(replacements);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Contracts --------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Creates a new, empty instance of this archive type, to hold a snapshot
+    * 
+    * @param archiveName
+    * @param configuration
+    * @return
+    */
+   protected abstract T newInstance(String archiveName, Configuration configuration);
 
-            // Get the asset path from within the nested archive
-            ArchivePath nestedAssetPath = getNestedPath(path, archivePath);
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
 
-            // Recurse the call to the nested archive
-            return nestedArchive.contains(nestedAssetPath);
+   /**
+    * Passes all descendants of the specified node, depth-first in path order, 
+    * to the specified visitor, skipping those below any node it prunes
+    * 
+    * @param node
+    * @param visitor
+    */
+   private void visit(final NodeImpl node, final ArchiveVisitor visitor)
+   {
+      for (final NodeImpl child : node.getChildNodes())
+      {
+         if (visitor.visit(child))
+         {
+            visit(child, visitor);
          }
       }
-      return false;
    }
 
-   /** 
-    * Attempt to get the asset from a nested archive. 
+   /**
+    * Obtains the {@link Node} at the specified path from the tree, or 
+    * null if there is none
     * 
     * @param path
     * @return
     */
-   private Node getNestedNode(ArchivePath path)
+   private NodeImpl lookup(final ArchivePath path)
    {
-      // Iterate through nested archives
-      for (Entry<ArchivePath, ArchiveAsset> nestedArchiveEntry : nestedArchives.entrySet())
+      final BasicPath basicPath = asBasicPath(path);
+      NodeImpl node = root.get();
+      for (int i = 0, count = basicPath.getSegmentCount(); i < count; i++)
       {
-         ArchivePath archivePath = nestedArchiveEntry.getKey();
-         ArchiveAsset archiveAsset = nestedArchiveEntry.getValue();
-
-         // Check to see if the requested path starts with the nested archive path
-         if (startsWith(path, archivePath))
+         node = node.getChild(basicPath.getSegment(i));
+         if (node == null)
          {
-            Archive<?> nestedArchive = archiveAsset.getArchive();
+            return null;
+         }
+      }
+      return node;
+   }
 
-            // Get the asset path from within the nested archive
-            ArchivePath nestedAssetPath = getNestedPath(path, archivePath);
+   /**
+    * Obtains the {@link Node} at the specified path, descending into any nested 
+    * archive ({@link ArchiveAsset}) encountered along the way.  Returns null 
+    * if there is no such {@link Node}.
+    * 
+    * @param path
+    * @return
+    */
+   private Node resolve(final ArchivePath path)
+   {
+      final BasicPath basicPath = asBasicPath(path);
+      final int count = basicPath.getSegmentCount();
+      NodeImpl node = root.get();
+      for (int i = 0; i < count; i++)
+      {
+         // If we've reached a nested archive, the remainder of the path is within it
+         final Asset asset = node.getAsset();
+         if (asset instanceof ArchiveAsset)
+         {
+            final StringBuilder nestedPath = new StringBuilder();
+            for (int j = i; j < count; j++)
+            {
+               nestedPath.append(PathUtil.SLASH).append(basicPath.getSegment(j));
+            }
+            return ((ArchiveAsset) asset).getArchive().get(new BasicPath(nestedPath.toString()));
+         }
 
-            // Recurse the call to the nested archive
-            return nestedArchive.get(nestedAssetPath);
+         node = node.getChild(basicPath.getSegment(i));
+         if (node == null)
+         {
+            return null;
          }
       }
-      return null;
+      return node;
    }
 
    /**
-    * Check to see if one path starts with another
+    * Obtains the specified path as a {@link BasicPath}, whose segments
+    * are split once and kept
     * 
-    * @param fullPath
-    * @param startingPath
+    * @param path
     * @return
     */
-   private boolean startsWith(ArchivePath fullPath, ArchivePath startingPath)
+   private static BasicPath asBasicPath(final ArchivePath path)
    {
-      final String context = fullPath.get();
-      final String startingContext = startingPath.get();
+      return path instanceof BasicPath ? (BasicPath) path : new BasicPath(path.get());
+   }
 
-      return context.startsWith(startingContext);
+   /**
+    * Obtains the contribution of the specified {@link Node} to the content fingerprint; 
+    * derived from its path alone, as is {@link Node} equality
+    * 
+    * @param node
+    * @return
+    */
+   private static int getFingerprint(final Node node)
+   {
+      return PathUtil.getCanonicalContext(node.getPath()).hashCode();
    }
 
    /**
-    * Given a full path and a base path return a new path containing the full path with the 
-    * base path removed from the beginning.
+    * Obtains the sum of the fingerprints of the specified {@link Node}
+    * and all of its descendants
     * 
-    * @param fullPath
-    * @param basePath
+    * @param node
     * @return
     */
-   private ArchivePath getNestedPath(ArchivePath fullPath, ArchivePath basePath)
+   private static int getSubtreeFingerprint(final Node node)
    {
-      final String context = fullPath.get();
-      final String baseContent = basePath.get();
+      int fingerprint = getFingerprint(node);
+      for (final NodeImpl child : ((NodeImpl) node).getChildNodes())
+      {
+         fingerprint += getSubtreeFingerprint(child);
+      }
+      return fingerprint;
+   }
 
-      // Remove the base path from the full path
-      String nestedArchiveContext = context.substring(baseContent.length());
+   /**
+    * Obtains the number of {@link Node}s in the subtree of the specified 
+    * {@link Node}, including itself
+    * 
+    * @param node
+    * @return
+    */
+   private static int getSubtreeSize(final Node node)
+   {
+      int size = 1;
+      for (final NodeImpl child : ((NodeImpl) node).getChildNodes())
+      {
+         size += getSubtreeSize(child);
+      }
+      return size;
+   }
 
-      return new BasicPath(nestedArchiveContext);
+   /**
+    * Obtains the name of the specified path; its last segment
+    * 
+    * @param path
+    * @return
+    */
+   private static String getName(final ArchivePath path)
+   {
+      final String context = PathUtil.getCanonicalContext(path);
+      return context.substring(context.lastIndexOf(PathUtil.SLASH) + 1);
    }
 
    /**
@@ -429,34 +732,764 @@ public abstract class MemoryMapArchiveBase<T extends Archive<T>> extends Archive
          return null;
       }
 
-      NodeImpl node = content.get(path);
+      return obtainNode(path, true);
+   }
 
-      // If the node exists, just return it
-      if (node != null)
+   /**
+    * Obtains the {@link Node} at the specified path such that it may be changed in place, 
+    * copying it and its parents where they are shared with a snapshot.  Must be called while
+    * holding a lock.
+    * 
+    * @param path
+    * @param create Whether to create any non-existing nodes along the way; if not, 
+    *   null is returned for a non-existing path
+    * @return
+    * @throws IllegalArchivePathException If creating, and the path passes through an {@link Asset}
+    */
+   private NodeImpl obtainNode(final ArchivePath path, final boolean create)
+   {
+      // Walk down from the root, creating all non-existing nodes along the way
+      NodeImpl node = writableRoot();
+      final BasicPath basicPath = asBasicPath(path);
+      final StringBuilder context = new StringBuilder();
+      for (int i = 0, count = basicPath.getSegmentCount(); i < count; i++)
       {
-         // if the node is an asset, throw an exception
-         if (node.getAsset() != null)
+         final String segment = basicPath.getSegment(i);
+         context.append(PathUtil.SLASH).append(segment);
+         node = obtainChild(node, segment, context, create);
+         if (node == null)
          {
-            throw new IllegalArchivePathException("Could not create node under " + path.getParent()
-                  + ". It points to an asset.");
+            return null;
          }
-
-         return node;
       }
 
-      // If the node doesn't exists, create it. Also create all possible non-existing 
-      // parents
-      node = new NodeImpl(path);
-      NodeImpl parentNode = obtainParent(path.getParent());
+      return node;
+   }
 
-      if (parentNode != null)
+   /**
+    * Obtains the directory at the specified path as would {@link MemoryMapArchiveBase#obtainParent(ArchivePath)},
+    * though looking first in, and recording all directories obtained along the way to, the
+    * specified directories of a batch.  Must be called while holding a lock.
+    * 
+    * @param path
+    * @param directories The directories obtained so far, keyed by their path without trailing slash
+    * @return
+    * @throws IllegalArchivePathException If the path passes through an {@link Asset}
+    */
+   private NodeImpl obtainDirectory(final ArchivePath path, final Map<String, NodeImpl> directories)
+   {
+      final String context = PathUtil.getCanonicalContext(path);
+      NodeImpl directory = directories.get(context);
+      if (directory == null)
       {
-         parentNode.addChild(node);
+         final ArchivePath parentPath = path.getParent();
+         directory = parentPath == null ? writableRoot() : obtainChild(obtainDirectory(parentPath, directories),
+               getName(path), context, true);
+         directories.put(context, directory);
       }
+      return directory;
+   }
+
+   /**
+    * Obtains the child directory of the specified name such that it may be changed in place
+    * 
+    * @see MemoryMapArchiveBase#obtainNode(ArchivePath, boolean)
+    */
+   private NodeImpl obtainChild(final NodeImpl parent, final String segment, final CharSequence context,
+         final boolean create)
+   {
+      while (true)
+      {
+         NodeImpl child = parent.getChild(segment);
+         if (child == null)
+         {
+            if (!create)
+            {
+               return null;
+            }
+            final NodeImpl created = new NodeImpl(new BasicPath(context.toString()), null, generation);
+            child = parent.putChildIfAbsent(segment, created);
+            if (child == null)
+            {
+               final Stripe stripe = stripe();
+               stripe.contentFingerprint.addAndGet(getFingerprint(created));
+               stripe.nodeCount.incrementAndGet();
+               return created;
+            }
+         }
+
+         // if the node is an asset, throw an exception
+         if (child.getAsset() != null)
+         {
+            if (!create)
+            {
+               return null;
+            }
+            throw new IllegalArchivePathException("Could not create node under " + child.getPath().getParent()
+                  + ". It points to an asset.");
+         }
 
-      // Add the node to the contents of the archive
-      content.put(path, node);
+         if (child.getGeneration() == generation)
+         {
+            return child;
+         }
+
+         // Shared with a snapshot; look again should it have been removed or replaced meanwhile
+         child = parent.thawChild(segment, generation);
+         if (child != null && child.getAsset() == null)
+         {
+            return child;
+         }
+      }
+   }
+
+   /**
+    * Adds the specified {@link Asset} at the specified path, replacing any existing 
+    * {@link Node}; must be called while holding the locks exclusively
+    * 
+    * @param path
+    * @param asset
+    */
+   private void replace(final ArchivePath path, final Asset asset)
+   {
+      final NodeImpl parentNode = obtainParent(path.getParent());
+      final NodeImpl node = new NodeImpl(path, asset, generation);
+      final NodeImpl replaced = parentNode.putChild(getName(path), node);
+      if (replaced == null)
+      {
+         changed(getFingerprint(node), 1);
+      }
+      else
+      {
+         changed(getFingerprint(node) - getSubtreeFingerprint(replaced), 1 - getSubtreeSize(replaced));
+      }
+   }
+
+   /**
+    * Adds each of the specified {@link Asset}s at the path by which it is keyed, 
+    * replacing any existing {@link Node}s; exclusively
+    * 
+    * @param replacements
+    */
+   private void replaceAll(final Map<ArchivePath, Asset> replacements)
+   {
+      if (replacements.isEmpty())
+      {
+         return;
+      }
+      lockExclusive();
+      try
+      {
+         for (final Entry<ArchivePath, Asset> replacement : replacements.entrySet())
+         {
+            replace(replacement.getKey(), replacement.getValue());
+         }
+      }
+      finally
+      {
+         unlockExclusive();
+      }
+   }
+
+   /**
+    * Records a change to the content, by which the content fingerprint and the 
+    * number of {@link Node}s changed by the specified amounts
+    * 
+    * @param fingerprintDelta
+    * @param nodeDelta
+    */
+   private void changed(final int fingerprintDelta, final int nodeDelta)
+   {
+      final Stripe stripe = stripe();
+      stripe.contentFingerprint.addAndGet(fingerprintDelta);
+      stripe.nodeCount.addAndGet(nodeDelta);
+      stripe.mutationCount.incrementAndGet();
+   }
+
+   /**
+    * Obtains the number of {@link Node}s in the content, excluding the root
+    * 
+    * @return
+    */
+   private long getNodeCount()
+   {
+      long count = 0;
+      for (final Stripe stripe : stripes)
+      {
+         count += stripe.nodeCount.get();
+      }
+      return count;
+   }
+
+   /**
+    * Obtains the {@link Stripe} of the calling thread
+    * 
+    * @return
+    */
+   private Stripe stripe()
+   {
+      return stripes[(int) Thread.currentThread().getId() & (stripes.length - 1)];
+   }
+
+   /**
+    * Acquires the shared lock of the calling thread's {@link Stripe}, under which new
+    * {@link Node}s may be added, but no existing ones removed or replaced
+    * 
+    * @return The acquired lock, to be released by the caller
+    */
+   private Lock lockShared()
+   {
+      final Lock lock = stripe().lock.readLock();
+      lock.lock();
+      return lock;
+   }
+
+   /**
+    * Acquires the locks of all {@link Stripe}s exclusively, waiting for all changes in 
+    * progress to complete.  Must not be called while holding a shared lock.
+    */
+   private void lockExclusive()
+   {
+      for (final Stripe stripe : stripes)
+      {
+         stripe.lock.writeLock().lock();
+      }
+   }
+
+   /**
+    * Releases the locks acquired by {@link MemoryMapArchiveBase#lockExclusive()}
+    */
+   private void unlockExclusive()
+   {
+      for (int i = stripes.length - 1; i >= 0; i--)
+      {
+         stripes[i].lock.writeLock().unlock();
+      }
+   }
+
+   /**
+    * Obtains the root such that it may be changed in place, copying it if it 
+    * is shared with a snapshot
+    * 
+    * @return
+    */
+   private NodeImpl writableRoot()
+   {
+      while (true)
+      {
+         final NodeImpl current = root.get();
+         if (current.getGeneration() == generation)
+         {
+            return current;
+         }
+         final NodeImpl copy = current.copy(generation);
+         if (root.compareAndSet(current, copy))
+         {
+            return copy;
+         }
+      }
+   }
+
+   /**
+    * Advances the generation, such that the current content is no longer changed in place
+    * 
+    * @return The root of the current content
+    */
+   private NodeImpl freeze()
+   {
+      lockExclusive();
+      try
+      {
+         return freezeRoot();
+      }
+      finally
+      {
+         unlockExclusive();
+      }
+   }
+
+   /**
+    * Advances the generation unless nothing has changed since it last was; must be called while 
+    * holding the generation lock exclusively
+    * 
+    * @return The root of the current content
+    */
+   private NodeImpl freezeRoot()
+   {
+      // Any change copies the root first, so a root of an earlier generation means no changes
+      final NodeImpl current = root.get();
+      if (current.getGeneration() == generation)
+      {
+         generation++;
+      }
+      return current;
+   }
+
+   /**
+    * Determines the number of {@link Stripe}s per archive
+    * 
+    * @return
+    */
+   private static int getNumStripes()
+   {
+      final int processors = Runtime.getRuntime().availableProcessors();
+      int stripes = 1;
+      while (stripes < processors)
+      {
+         stripes <<= 1;
+      }
+      return stripes;
+   }
+
+   /**
+    * Creates the {@link Stripe}s of an archive
+    * 
+    * @return
+    */
+   private static Stripe[] newStripes()
+   {
+      final Stripe[] stripes = new Stripe[NUM_STRIPES];
+      for (int i = 0; i < stripes.length; i++)
+      {
+         stripes[i] = new Stripe();
+      }
+      return stripes;
+   }
+
+   /**
+    * Ensures this archive is not a read-only snapshot
+    * 
+    * @throws UnsupportedOperationException If this archive is a snapshot
+    */
+   private void assertWritable() throws UnsupportedOperationException
+   {
+      if (readOnly)
+      {
+         throw new UnsupportedOperationException("Archive " + getName() + " is a read-only snapshot");
+      }
+   }
+
+   /**
+    * Copies the children of the specified source {@link Node}, and all their descendants,
+    * beneath the specified target.  The target directory is created, along with any missing
+    * parents, only once something is first added beneath it.
+    * 
+    * @param source
+    * @param target The target directory, or null if not yet obtained
+    * @param targetPath The path of the target directory
+    * @param filter Filter for the target paths to include, or null to include all
+    * @param replacements Receives the {@link Asset}s to replace existing nodes, by path
+    */
+   private void graft(final Node source, NodeImpl target, final ArchivePath targetPath,
+         final Filter<ArchivePath> filter, final Map<ArchivePath, Asset> replacements)
+   {
+      final Collection<? extends Node> children = source instanceof NodeImpl
+            ? ((NodeImpl) source).getChildNodes()
+            : source.getChildren();
+      for (final Node child : children)
+      {
+         final String name = getName(child.getPath());
+         final ArchivePath childPath = new BasicPath(targetPath, name);
+         final Asset asset = child.getAsset();
+
+         NodeImpl grafted = null;
+         if (filter == null || filter.include(childPath))
+         {
+            if (target == null)
+            {
+               target = obtainParent(targetPath);
+            }
+            if (asset == null)
+            {
+               grafted = graftDirectory(target, name, childPath);
+            }
+            else if (!graftAsset(target, name, childPath, asset))
+            {
+               replacements.put(childPath, asset);
+            }
+         }
+
+         // Descend; an excluded directory is only created if something beneath it is included
+         if (asset == null)
+         {
+            graft(child, grafted, childPath, filter, replacements);
+         }
+      }
+   }
+
+   /**
+    * Adds the specified {@link Asset} beneath the specified parent, unless a {@link Node}
+    * of the same name exists
+    * 
+    * @return Whether the {@link Asset} was added
+    */
+   private boolean graftAsset(final NodeImpl parent, final String name, final ArchivePath path, final Asset asset)
+   {
+      final NodeImpl node = new NodeImpl(path, asset, generation);
+      if (parent.putChildIfAbsent(name, node) != null)
+      {
+         return false;
+      }
+      changed(getFingerprint(node), 1);
+      return true;
+   }
+
+   /**
+    * Obtains the directory of the specified name beneath the specified parent, creating 
+    * it if it doesn't exist
+    * 
+    * @return The directory, or null if an {@link Asset} exists under the name
+    */
+   private NodeImpl graftDirectory(final NodeImpl parent, final String name, final ArchivePath path)
+   {
+      NodeImpl existing = parent.getChild(name);
+      if (existing == null)
+      {
+         final NodeImpl created = new NodeImpl(path, null, generation);
+         existing = parent.putChildIfAbsent(name, created);
+         if (existing == null)
+         {
+            changed(getFingerprint(created), 1);
+            return created;
+         }
+      }
+
+      // Left to obtainParent to report, should anything be added beneath an asset
+      if (existing.getAsset() == null && existing.getGeneration() != generation)
+      {
+         existing = parent.thawChild(name, generation);
+      }
+      return existing != null && existing.getAsset() == null ? existing : null;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Inner Classes ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Orders the entries of a batch by path, such that siblings are added together
+    * and directories before their content
+    */
+   private static final class PathOrder implements Comparator<Entry<ArchivePath, Asset>>
+   {
+      private static final PathOrder INSTANCE = new PathOrder();
+
+      /**
+       * {@inheritDoc}
+       * @see java.util.Comparator#compare(java.lang.Object, java.lang.Object)
+       */
+      @Override
+      public int compare(final Entry<ArchivePath, Asset> entry1, final Entry<ArchivePath, Asset> entry2)
+      {
+         return entry1.getKey().get().compareTo(entry2.getKey().get());
+      }
+   }
+
+   /**
+    * Lock and counts for the changes made by a subset of threads, such that 
+    * threads changing the archive concurrently do not contend with one another
+    */
+   private static final class Stripe
+   {
+      /**
+       * Held shared by each change of the threads of this stripe, and exclusively
+       * (along with those of all other stripes) by changes which may detach
+       * existing {@link Node}s and while advancing the generation
+       */
+      private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+      /**
+       * Number of additions and removals made to the content
+       */
+      private final AtomicLong mutationCount = new AtomicLong();
+
+      /**
+       * Part of the sum of the fingerprints of all {@link Node}s
+       * 
+       * @see MemoryMapArchiveBase#getFingerprint(Node)
+       */
+      private final AtomicInteger contentFingerprint = new AtomicInteger();
+
+      /**
+       * Part of the number of {@link Node}s in the content, excluding the root
+       */
+      private final AtomicLong nodeCount = new AtomicLong();
+   }
+
+   /**
+    * Depth-first {@link Iterator} over all descendants of the root, in path order.
+    * Holds only the position within each level of the current branch.
+    */
+   private class NodeIterator implements Iterator<Node>
+   {
+      /**
+       * Positions within the children of each {@link Node} on the current branch, 
+       * innermost last
+       */
+      private final List<Iterator<NodeImpl>> branch = new ArrayList<Iterator<NodeImpl>>();
+
+      NodeIterator()
+      {
+         branch.add(root.get().getChildNodes().iterator());
+      }
+
+      /**
+       * {@inheritDoc}
+       * @see java.util.Iterator#hasNext()
+       */
+      @Override
+      public boolean hasNext()
+      {
+         // Drop exhausted levels
+         for (int last = branch.size() - 1; last >= 0 && !branch.get(last).hasNext(); last--)
+         {
+            branch.remove(last);
+         }
+         return !branch.isEmpty();
+      }
+
+      /**
+       * {@inheritDoc}
+       * @see java.util.Iterator#next()
+       */
+      @Override
+      public Node next()
+      {
+         if (!hasNext())
+         {
+            throw new NoSuchElementException();
+         }
+         final NodeImpl node = branch.get(branch.size() - 1).next();
+         final List<NodeImpl> children = node.getChildNodes();
+         if (!children.isEmpty())
+         {
+            branch.add(children.iterator());
+         }
+         return node;
+      }
+
+      /**
+       * Not supported; the content is read-only through this view
+       * @see java.util.Iterator#remove()
+       */
+      @Override
+      public void remove()
+      {
+         throw new UnsupportedOperationException("Content may not be removed via iteration; use delete");
+      }
+   }
+
+   /**
+    * Read-only {@link Map} view of the content, optionally restricted to the paths 
+    * included by a {@link Filter}.  Backed directly by the {@link Node} tree; single
+    * lookups resolve through the tree and nothing is copied.
+    */
+   private class ContentView extends AbstractMap<ArchivePath, Node>
+   {
+      /**
+       * Filter for the paths to include, or null to include all
+       */
+      private final Filter<ArchivePath> filter;
+
+      ContentView(final Filter<ArchivePath> filter)
+      {
+         this.filter = filter;
+      }
+
+      /**
+       * {@inheritDoc}
+       * @see java.util.AbstractMap#get(java.lang.Object)
+       */
+      @Override
+      public Node get(final Object key)
+      {
+         if (!(key instanceof ArchivePath))
+         {
+            return null;
+         }
+         final ArchivePath path = (ArchivePath) key;
+         // The root is not part of the content
+         if (path.getParent() == null || (filter != null && !filter.include(path)))
+         {
+            return null;
+         }
+         return lookup(path);
+      }
+
+      /**
+       * {@inheritDoc}
+       * @see java.util.AbstractMap#containsKey(java.lang.Object)
+       */
+      @Override
+      public boolean containsKey(final Object key)
+      {
+         return get(key) != null;
+      }
+
+      /**
+       * {@inheritDoc}
+       * @see java.util.AbstractMap#isEmpty()
+       */
+      @Override
+      public boolean isEmpty()
+      {
+         if (filter == null)
+         {
+            return getNodeCount() == 0;
+         }
+         return !entrySet().iterator().hasNext();
+      }
+
+      /**
+       * {@inheritDoc}
+       * @see java.util.AbstractMap#entrySet()
+       */
+      @Override
+      public Set<Entry<ArchivePath, Node>> entrySet()
+      {
+         return new AbstractSet<Entry<ArchivePath, Node>>()
+         {
+            @Override
+            public Iterator<Entry<ArchivePath, Node>> iterator()
+            {
+               return new ContentIterator(filter);
+            }
+
+            @Override
+            public int size()
+            {
+               // All Nodes but the root are included; no need to walk the tree
+               if (filter == null)
+               {
+                  return (int) Math.min(getNodeCount(), Integer.MAX_VALUE);
+               }
+               int size = 0;
+               for (final Iterator<Entry<ArchivePath, Node>> it = iterator(); it.hasNext(); it.next())
+               {
+                  size++;
+               }
+               return size;
+            }
+         };
+      }
+   }
+
+   /**
+    * {@link Iterator} over the entries of a {@link ContentView}
+    */
+   private class ContentIterator implements Iterator<Entry<ArchivePath, Node>>
+   {
+      private final Iterator<Node> nodes = new NodeIterator();
+
+      private final Filter<ArchivePath> filter;
+
+      /**
+       * The next included {@link Node}, or null if not yet looked up
+       */
+      private Node next;
+
+      ContentIterator(final Filter<ArchivePath> filter)
+      {
+         this.filter = filter;
+      }
+
+      /**
+       * {@inheritDoc}
+       * @see java.util.Iterator#hasNext()
+       */
+      @Override
+      public boolean hasNext()
+      {
+         while (next == null && nodes.hasNext())
+         {
+            final Node node = nodes.next();
+            if (filter == null || filter.include(node.getPath()))
+            {
+               next = node;
+            }
+         }
+         return next != null;
+      }
+
+      /**
+       * {@inheritDoc}
+       * @see java.util.Iterator#next()
+       */
+      @Override
+      public Entry<ArchivePath, Node> next()
+      {
+         if (!hasNext())
+         {
+            throw new NoSuchElementException();
+         }
+         final Node node = next;
+         next = null;
+         return new NodeEntry(node);
+      }
+
+      /**
+       * Not supported; the content is read-only through this view
+       * @see java.util.Iterator#remove()
+       */
+      @Override
+      public void remove()
+      {
+         throw new UnsupportedOperationException("Content may not be removed via iteration; use delete");
+      }
+   }
+
+   /**
+    * Read-only {@link Entry} of a {@link Node} keyed by its path
+    */
+   private static final class NodeEntry implements Entry<ArchivePath, Node>
+   {
+      private final Node node;
+
+      NodeEntry(final Node node)
+      {
+         this.node = node;
+      }
+
+      @Override
+      public ArchivePath getKey()
+      {
+         return node.getPath();
+      }
+
+      @Override
+      public Node getValue()
+      {
+         return node;
+      }
+
+      @Override
+      public Node setValue(final Node value)
+      {
+         throw new UnsupportedOperationException("Content is read-only through this view");
+      }
+
+      @Override
+      public boolean equals(final Object obj)
+      {
+         if (!(obj instanceof Entry))
+         {
+            return false;
+         }
+         final Entry<?, ?> other = (Entry<?, ?>) obj;
+         return node.getPath().equals(other.getKey()) && node.equals(other.getValue());
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return node.getPath().hashCode() ^ node.hashCode();
+      }
+
+      @Override
+      public String toString()
+      {
+         return node.getPath() + "=" + node;
+      }
+   }
 
-      return node;
-   }
 }
@@ -64,6 +64,16 @@ public class MemoryMapArchiveImpl extends MemoryMapArchiveBase<MemoryMapArchive>
       super(archiveName, configuration);
    }
 
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.impl.base.MemoryMapArchiveBase#newInstance(java.lang.String, org.jboss.shrinkwrap.api.Configuration)
+    */
+   @Override
+   protected MemoryMapArchive newInstance(final String archiveName, final Configuration configuration)
+   {
+      return new MemoryMapArchiveImpl(archiveName, configuration);
+   }
+
    /**
     * {@inheritDoc}
     * @see org.jboss.shrinkwrap.impl.base.ArchiveBase#getActualClass()
@@ -0,0 +1,56 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base;
+
+import org.jboss.shrinkwrap.api.Assignable;
+import org.jboss.shrinkwrap.spi.MutationCounted;
+
+/**
+ * {@link Assignable} implementation view of a {@link MutationCounted}
+ * 
+ * @version $Revision: $
+ */
+public class MutationCountedArchiveImpl extends AssignableBase<ArchiveBase<?>> implements MutationCounted
+{
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Creates a new instance wrapping the specified {@link ArchiveBase}
+    * @param archive
+    */
+   public MutationCountedArchiveImpl(final ArchiveBase<?> archive)
+   {
+      super(archive);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Required Implementations -----------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.spi.MutationCounted#getMutationCount()
+    */
+   @Override
+   public long getMutationCount()
+   {
+      return this.getArchive().getMutationCount();
+   }
+}
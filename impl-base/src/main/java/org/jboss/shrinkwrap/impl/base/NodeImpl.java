@@ -16,9 +16,14 @@
  */
 package org.jboss.shrinkwrap.impl.base;
 
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.ArchivePath;
@@ -46,11 +51,28 @@ public class NodeImpl implements Node
     * The asset this node holds.
     */
    private Asset asset;
+
+   /**
+    * The generation of the owning {@link Archive} in which this node was created; the
+    * node may only be changed while the archive remains in that generation
+    */
+   private final int generation;
    
    /**
-    * The children nodes.
+    * The children nodes, keyed by name (the last segment of their path).
+    */
+   private final ConcurrentMap<String, NodeImpl> children = new ConcurrentHashMap<String, NodeImpl>();
+
+   /**
+    * Number of changes made to the children; stamps the {@link SortedChildren}
     */
-   private Set<Node> children = Collections.synchronizedSet(new HashSet<Node>());
+   private final AtomicInteger childModCount = new AtomicInteger();
+
+   /**
+    * The children in name order as of the last call to {@link NodeImpl#getChildNodes()}; 
+    * valid only while its stamp matches {@link NodeImpl#childModCount}
+    */
+   private volatile SortedChildren sortedChildren;
    
    //-------------------------------------------------------------------------------------||
    // Constructor ------------------------------------------------------------------------||
@@ -76,10 +98,25 @@ public class NodeImpl implements Node
     * @param asset The {@link Asset} that this Node holds.
     */
    public NodeImpl(ArchivePath path, Asset asset) {
+      this(path, asset, 0);
+   }
+
+   /**
+    * Constructor
+    * 
+    * This constructor will create a Node with the specified path, which may
+    * only be changed during the specified generation of its {@link Archive}.
+    * 
+    * @param path The {@link ArchivePath} this Node is placed within the {@link Archive} 
+    * @param asset The {@link Asset} that this Node holds, or null for a directory
+    * @param generation The generation of the {@link Archive} creating the Node
+    */
+   public NodeImpl(ArchivePath path, Asset asset, int generation) {
       Validate.notNull(path, "Path was not specified");
       
       this.path = path;
       this.asset = asset;
+      this.generation = generation;
    }
    
    /* (non-Javadoc)
@@ -100,39 +137,170 @@ public class NodeImpl implements Node
       return this.asset;
    }
 
-   /* (non-Javadoc)
+   /**
+    * {@inheritDoc}
+    * The returned {@link Set} is a snapshot, ordered by child name.
     * @see org.jboss.shrinkwrap.api.Node#getChildren()
     */
    @Override
    public Set<Node> getChildren()
    {
-      return Collections.unmodifiableSet(this.children);
+      final List<NodeImpl> childNodes = this.getChildNodes();
+      final Set<Node> sorted = new LinkedHashSet<Node>(childNodes.size());
+      sorted.addAll(childNodes);
+      return Collections.unmodifiableSet(sorted);
    }
-   
+
    /**
-    * Adds a child to the Set of nodes. If already exists, nothing happens.
+    * Obtains the children of this node ordered by name, without copying.  The
+    * ordering is computed once per change to the children and shared among
+    * callers; the returned {@link List} is read-only and is not updated by
+    * later changes.
     * 
+    * @return
+    */
+   public List<NodeImpl> getChildNodes()
+   {
+      final SortedChildren cached = this.sortedChildren;
+      final int modCount = this.childModCount.get();
+      if (cached != null && cached.modCount == modCount)
+      {
+         return cached.nodes;
+      }
+
+      // Sort upon iteration; ordering is not kept up to date on each insertion
+      final List<String> names = new ArrayList<String>(this.children.keySet());
+      Collections.sort(names);
+      final List<NodeImpl> sorted = new ArrayList<NodeImpl>(names.size());
+      for (final String name : names)
+      {
+         final NodeImpl child = this.children.get(name);
+         if (child != null)
+         {
+            sorted.add(child);
+         }
+      }
+      final List<NodeImpl> nodes = Collections.unmodifiableList(sorted);
+      // A change racing with the above leaves a stale stamp, forcing a rebuild on next call
+      this.sortedChildren = new SortedChildren(modCount, nodes);
+      return nodes;
+   }
+
+   /**
+    * Obtains the child with the specified name, or null if there is none
+    * 
+    * @param name The name (last path segment) of the child
+    * @return
+    */
+   public NodeImpl getChild(String name)
+   {
+      Validate.notNull(name, "No name was specified");
+
+      return children.get(name);
+   }
+
+   /**
+    * Sets the child under the specified name, replacing any existing child of that name.
+    * 
+    * @param name The name (last path segment) of the child
     * @param node The Node that will be added as a child
+    * @return The replaced child, or null if there was none
     */
-   public void addChild(Node node)
+   public NodeImpl putChild(String name, NodeImpl node)
    {
+      Validate.notNull(name, "No name was specified");
       Validate.notNull(node, "No node was specified");
-      
-      children.add(node);
+
+      final NodeImpl replaced = children.put(name, node);
+      childModCount.incrementAndGet();
+      return replaced;
    }
-   
+
    /**
-    * Removes a child from the Set of nodes. If it doesn't exists, nothing happens.
+    * Sets the child under the specified name if no child of that name exists.
     * 
-    * @param node The Node that will be removed from the childs
+    * @param name The name (last path segment) of the child
+    * @param node The Node that will be added as a child
+    * @return The existing child, or null if the specified node was added
     */
-   public void removeChild(Node node) 
+   public NodeImpl putChildIfAbsent(String name, NodeImpl node)
    {
+      Validate.notNull(name, "No name was specified");
       Validate.notNull(node, "No node was specified");
-      
-      children.remove(node);
+
+      final NodeImpl existing = children.putIfAbsent(name, node);
+      if (existing == null)
+      {
+         childModCount.incrementAndGet();
+      }
+      return existing;
    }
-   
+
+   /**
+    * Removes the child of the specified name. If it doesn't exists, nothing happens.
+    * 
+    * @param name The name (last path segment) of the child
+    * @return The removed child, or null if there was none
+    */
+   public NodeImpl removeChild(String name)
+   {
+      Validate.notNull(name, "No name was specified");
+
+      final NodeImpl removed = children.remove(name);
+      if (removed != null)
+      {
+         childModCount.incrementAndGet();
+      }
+      return removed;
+   }
+
+   /**
+    * Obtains the generation of the {@link Archive} in which this node was created
+    * 
+    * @return
+    */
+   public int getGeneration()
+   {
+      return generation;
+   }
+
+   /**
+    * Ensures the child of the specified name belongs to the specified generation, replacing
+    * it with a copy sharing its children if it belongs to an earlier one.  Copies are made
+    * under this node's monitor, such that at most one is made per child and generation.
+    * 
+    * @param name The name (last path segment) of the child
+    * @param generation The current generation of the {@link Archive}
+    * @return The child of the specified generation, or null if there is no child of the name
+    */
+   public synchronized NodeImpl thawChild(String name, int generation)
+   {
+      Validate.notNull(name, "No name was specified");
+
+      final NodeImpl child = children.get(name);
+      if (child == null || child.generation == generation)
+      {
+         return child;
+      }
+      final NodeImpl copy = child.copy(generation);
+      putChild(name, copy);
+      return copy;
+   }
+
+   /**
+    * Creates a copy of this node belonging to the specified generation, 
+    * sharing the children of this node
+    * 
+    * @param generation
+    * @return
+    */
+   public NodeImpl copy(int generation)
+   {
+      final NodeImpl copy = new NodeImpl(path, asset, generation);
+      copy.children.putAll(this.children);
+      return copy;
+   }
+
    /* (non-Javadoc)
     * @see java.lang.Object#equals(java.lang.Object)
     */
@@ -169,4 +337,24 @@ public class NodeImpl implements Node
       return this.path.get();
    }
 
+   //-------------------------------------------------------------------------------------||
+   // Inner Classes ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Children in name order, stamped with the modification count they were built from
+    */
+   private static final class SortedChildren
+   {
+      private final int modCount;
+
+      private final List<NodeImpl> nodes;
+
+      SortedChildren(final int modCount, final List<NodeImpl> nodes)
+      {
+         this.modCount = modCount;
+         this.nodes = nodes;
+      }
+   }
+
 }
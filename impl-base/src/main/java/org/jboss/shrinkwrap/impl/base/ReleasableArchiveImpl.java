@@ -0,0 +1,68 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base;
+
+import java.io.Closeable;
+
+import org.jboss.shrinkwrap.api.Assignable;
+import org.jboss.shrinkwrap.spi.Releasable;
+
+/**
+ * {@link Assignable} implementation view of a {@link Releasable}
+ * 
+ * @version $Revision: $
+ */
+public class ReleasableArchiveImpl extends AssignableBase<ArchiveBase<?>> implements Releasable
+{
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Creates a new instance wrapping the specified {@link ArchiveBase}
+    * @param archive
+    */
+   public ReleasableArchiveImpl(final ArchiveBase<?> archive)
+   {
+      super(archive);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Required Implementations -----------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.spi.Releasable#hold(java.io.Closeable)
+    */
+   @Override
+   public void hold(final Closeable resource) throws IllegalArgumentException
+   {
+      this.getArchive().hold(resource);
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.spi.Releasable#release()
+    */
+   @Override
+   public void release()
+   {
+      this.getArchive().release();
+   }
+}
@@ -22,15 +22,12 @@ import java.net.URL;
 import java.net.URLClassLoader;
 import java.net.URLDecoder;
 import java.util.Collections;
-import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
-import java.util.zip.ZipFile;
 
 /**
  * Implementation of scanner which can scan a {@link URLClassLoader}
@@ -142,18 +139,9 @@ public class URLPackageScanner
       try
       {
          log.fine("archive: " + file);
-         ZipFile zip = new ZipFile(file);
-         Enumeration<? extends ZipEntry> entries = zip.entries();
-         while (entries.hasMoreElements())
+         for (String className : ClasspathIndex.getClassNames(file, packageName, addRecursively))
          {
-            ZipEntry entry = entries.nextElement();
-            String name = entry.getName();
-            if (name.startsWith(packageNamePath) && name.endsWith(".class")
-                  && (addRecursively || !name.substring(packageNamePath.length() + 1).contains("/")))
-            {
-               String className = name.replace("/", ".").substring(0, name.length()- ".class".length());
-               foundClass(className);
-            }
+            foundClass(className);
          }
       }
       catch (ZipException e)
@@ -181,16 +169,16 @@ public class URLPackageScanner
 
    private void handle(File file, String packageName) throws ClassNotFoundException
    {
-      for (File child : file.listFiles())
+      final String packagePrefix = packageName.length() > 0 ? packageName + "." : packageName;
+      for (String className : ClasspathIndex.getClassNames(file))
       {
-         if (!child.isDirectory() && child.getName().endsWith(".class"))
-         {
-            final String packagePrefix = packageName.length() > 0 ? packageName + "." : packageName;
-            foundClass(packagePrefix + child.getName().substring(0, child.getName().lastIndexOf(".class")));
-         }
-         else if (child.isDirectory() && addRecursively)
+         foundClass(packagePrefix + className);
+      }
+      if (addRecursively)
+      {
+         for (File child : ClasspathIndex.getSubdirectories(file))
          {
-            handle(child, packageName + "." + child.getName());
+            handle(child, packagePrefix + child.getName());
          }
       }
    }
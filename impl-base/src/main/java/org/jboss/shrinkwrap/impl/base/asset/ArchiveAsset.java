@@ -22,6 +22,7 @@ import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.asset.Asset;
 import org.jboss.shrinkwrap.api.exporter.StreamExporter;
 import org.jboss.shrinkwrap.impl.base.Validate;
+import org.jboss.shrinkwrap.impl.base.exporter.ExportCache;
 
 /**
  * An {@link Asset} representing an {@link Archive}; a
@@ -82,6 +83,13 @@ public class ArchiveAsset implements Asset
    @Override
    public InputStream openStream()
    {
+      // Use the cached export, if caching is enabled
+      final ExportCache cache = ExportCache.forArchive(this.getArchive());
+      if (cache != null)
+      {
+         return cache.openStream(this.getArchive(), this.exporter);
+      }
+
       // Export via the specified exporter
       return this.getArchive().as(this.exporter).exportAsInputStream();
    }
@@ -95,4 +103,13 @@ public class ArchiveAsset implements Asset
       return archive;
    }
 
+   /**
+    * Returns the type of {@link StreamExporter} used to represent the archive
+    * @return
+    */
+   public Class<? extends StreamExporter> getExporter()
+   {
+      return exporter;
+   }
+
 }
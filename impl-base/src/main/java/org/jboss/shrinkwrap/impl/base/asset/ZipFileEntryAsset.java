@@ -16,12 +16,15 @@
  */
 package org.jboss.shrinkwrap.impl.base.asset;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
-import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.asset.SizedAsset;
 import org.jboss.shrinkwrap.impl.base.Validate;
+import org.jboss.shrinkwrap.impl.base.io.IOUtil;
 
 /**
  * Holds a reference to the ZipFile and the ZipEntry this
@@ -32,7 +35,7 @@ import org.jboss.shrinkwrap.impl.base.Validate;
  * @author <a href="mailto:aslak@conduct.no">Aslak Knutsen</a>
  * @version $Revision: $
  */
-public class ZipFileEntryAsset implements Asset
+public class ZipFileEntryAsset implements SizedAsset
 {
    private ZipFile file;
    private ZipEntry entry;
@@ -62,4 +65,44 @@ public class ZipFileEntryAsset implements Asset
          throw new RuntimeException("Could not open zip file stream", e); 
       }
    }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.asset.SizedAsset#getSize()
+    */
+   @Override
+   public long getSize()
+   {
+      return entry.getSize();
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.asset.SizedAsset#getCrc()
+    */
+   @Override
+   public long getCrc()
+   {
+      return entry.getCrc();
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.asset.SizedAsset#transferTo(java.nio.channels.WritableByteChannel)
+    */
+   @Override
+   public long transferTo(final WritableByteChannel target) throws IllegalArgumentException, IOException
+   {
+      Validate.notNull(target, "Target must be specified");
+
+      final InputStream in = file.getInputStream(entry);
+      try
+      {
+         return IOUtil.copy(in, target);
+      }
+      finally
+      {
+         in.close();
+      }
+   }
 }
@@ -0,0 +1,129 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.asset;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.ZipEntry;
+
+import org.jboss.shrinkwrap.api.asset.SizedAsset;
+import org.jboss.shrinkwrap.impl.base.Validate;
+import org.jboss.shrinkwrap.impl.base.io.zip.ZipSource;
+
+/**
+ * Holds a reference to the shared {@link ZipSource} and the {@link ZipEntry} 
+ * this Asset represents for lazy loading.  May no longer be read once the 
+ * {@link ZipSource} has been closed.
+ * 
+ * Used by the ZipImporter.
+ *
+ * @version $Revision: $
+ */
+public class ZipSourceEntryAsset implements SizedAsset
+{
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   private final ZipSource source;
+
+   private final ZipEntry entry;
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   public ZipSourceEntryAsset(final ZipSource source, final ZipEntry entry)
+   {
+      Validate.notNull(source, "Source must be specified");
+      Validate.notNull(entry, "Entry must be specified");
+
+      this.source = source;
+      this.entry = entry;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Required Implementations -----------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.asset.Asset#openStream()
+    */
+   @Override
+   public InputStream openStream()
+   {
+      try
+      {
+         return source.openStream(entry);
+      }
+      catch (final IllegalStateException ise)
+      {
+         throw ise;
+      }
+      catch (final Exception e)
+      {
+         throw new RuntimeException("Could not open zip file stream", e);
+      }
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.asset.SizedAsset#getSize()
+    */
+   @Override
+   public long getSize()
+   {
+      return entry.getSize();
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.asset.SizedAsset#getCrc()
+    */
+   @Override
+   public long getCrc()
+   {
+      return entry.getCrc();
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.asset.SizedAsset#transferTo(java.nio.channels.WritableByteChannel)
+    */
+   @Override
+   public long transferTo(final WritableByteChannel target) throws IllegalArgumentException, IOException
+   {
+      Validate.notNull(target, "Target must be specified");
+      return source.transferTo(entry, target);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Overridden Implementations ---------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@inheritDoc}
+    * @see java.lang.Object#toString()
+    */
+   @Override
+   public String toString()
+   {
+      return this.getClass().getSimpleName() + " [source=" + source + ", entry=" + entry.getName() + "]";
+   }
+}
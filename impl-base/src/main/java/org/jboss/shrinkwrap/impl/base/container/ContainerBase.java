@@ -20,11 +20,16 @@ import java.io.File;
 import java.net.URL;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 
 import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.ArchivePath;
 import org.jboss.shrinkwrap.api.ArchivePaths;
+import org.jboss.shrinkwrap.api.ArchiveVisitor;
 import org.jboss.shrinkwrap.api.Filter;
 import org.jboss.shrinkwrap.api.Filters;
 import org.jboss.shrinkwrap.api.Node;
@@ -64,7 +69,12 @@ public abstract class ContainerBase<T extends Archive<T>> extends AssignableBase
    //-------------------------------------------------------------------------------------||
    // Class Members ----------------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
-   
+
+   /**
+    * Extension of a compiled class resource
+    */
+   private static final String EXTENSION_CLASS = ".class";
+
    /**
     * Secure action to obtain the Thread Context ClassLoader
     * 
@@ -173,6 +183,17 @@ public abstract class ContainerBase<T extends Archive<T>> extends AssignableBase
       return covarientReturn();
    }
 
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.Archive#addAll(java.util.Map)
+    */
+   @Override
+   public T addAll(Map<ArchivePath, Asset> assets) throws IllegalArgumentException
+   {
+      this.getArchive().addAll(assets);
+      return covarientReturn();
+   }
+
    /**
     * {@inheritDoc}
     * @see org.jboss.shrinkwrap.api.Archive#addDirectories(java.lang.String[])
@@ -354,6 +375,36 @@ public abstract class ContainerBase<T extends Archive<T>> extends AssignableBase
    {
       return this.getArchive().getContent(filter);
    }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.Archive#snapshot()
+    */
+   @Override
+   public T snapshot()
+   {
+      return this.getArchive().snapshot().as(getActualClass());
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.Archive#visit(org.jboss.shrinkwrap.api.ArchiveVisitor)
+    */
+   @Override
+   public void visit(ArchiveVisitor visitor) throws IllegalArgumentException
+   {
+      this.getArchive().visit(visitor);
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see java.lang.Iterable#iterator()
+    */
+   @Override
+   public Iterator<Node> iterator()
+   {
+      return this.getArchive().iterator();
+   }
    
    /**
     * {@inheritDoc}
@@ -395,6 +446,16 @@ public abstract class ContainerBase<T extends Archive<T>> extends AssignableBase
       return this.getArchive().toString(formatter);
    }
    
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.Archive#contentEquals(org.jboss.shrinkwrap.api.Archive)
+    */
+   @Override
+   public boolean contentEquals(final Archive<?> other) throws IllegalArgumentException
+   {
+      return this.getArchive().contentEquals(other);
+   }
+
    @Override
    public int hashCode()
    {
@@ -931,33 +992,58 @@ public abstract class ContainerBase<T extends Archive<T>> extends AssignableBase
    {
       Validate.notNull(classes, "Classes must be specified");
       
+      // Outer class resource names (without extension), grouped by package name such that
+      // each package is only scanned once for inner classes, regardless of how many classes it holds
+      final Map<String, Set<String>> classesByPackage = new LinkedHashMap<String, Set<String>>();
       for(final Class<?> clazz : classes) 
       {
          Asset resource = new ClassAsset(clazz);
-         ArchivePath location = new BasicPath(getClassesPath(), AssetUtil.getFullPathForClassResource(clazz));
+         ArchivePath classPath = AssetUtil.getFullPathForClassResource(clazz);
+         ArchivePath location = new BasicPath(getClassesPath(), classPath);
          add(resource, location);
          
-         // Get all inner classes and add them
+         final Package pack = clazz.getPackage();
+         final String packageName = pack == null ? null : pack.getName();
+         Set<String> outerClasses = classesByPackage.get(packageName);
+         if (outerClasses == null)
+         {
+            outerClasses = new HashSet<String>();
+            classesByPackage.put(packageName, outerClasses);
+         }
+         final String classResource = classPath.get();
+         outerClasses.add(classResource.substring(0, classResource.length() - EXTENSION_CLASS.length()));
+      }
+      
+      // Get all inner classes and add them
+      for (final Map.Entry<String, Set<String>> entry : classesByPackage.entrySet())
+      {
+         final Set<String> outerClasses = entry.getValue();
          addPackages(
                false,
                new Filter<ArchivePath>()
                {
                   /**
-                   * path  = /package/MyClass$Test.class <br/>
-                   * clazz = /package/MyClass.class <br/>
-                   * 
+                   * path  = /package/MyClass$Test$Nested.class <br/>
+                   * Included if any enclosing class (/package/MyClass or /package/MyClass$Test) 
+                   * was requested 
                    *  
                    * @param path The added classes 
                    * @return 
                    */
                   public boolean include(ArchivePath path)
                   {
-                     ArchivePath classArchivePath = AssetUtil.getFullPathForClassResource(clazz);
-                     String expression = classArchivePath.get().replace(".class", "\\$.*");
-                     return path.get().matches(expression);
+                     final String classResource = path.get();
+                     for (int i = classResource.indexOf('$'); i >= 0; i = classResource.indexOf('$', i + 1))
+                     {
+                        if (outerClasses.contains(classResource.substring(0, i)))
+                        {
+                           return true;
+                        }
+                     }
+                     return false;
                   };
                },
-               clazz.getPackage()
+               entry.getKey()
          );
       }
       return covarientReturn();
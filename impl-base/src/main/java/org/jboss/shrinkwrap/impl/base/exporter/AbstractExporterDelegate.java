@@ -16,13 +16,12 @@
  */
 package org.jboss.shrinkwrap.impl.base.exporter;
 
-import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.ArchivePath;
-import org.jboss.shrinkwrap.api.ArchivePaths;
+import org.jboss.shrinkwrap.api.ArchiveVisitor;
 import org.jboss.shrinkwrap.api.Node;
 
 /**
@@ -92,29 +91,16 @@ public abstract class AbstractExporterDelegate<T>
          log.fine("Exporting archive - " + archive.getName());
       }
 
-      // Obtain the root
-      final Node rootNode = archive.get(ArchivePaths.root());
-
-      // Recursively process the root children
-      for (Node child : rootNode.getChildren())
+      // Process each node, parents before their children
+      archive.visit(new ArchiveVisitor()
       {
-         processNode(child);
-      }
-   }
-
-   /**
-    * Recursive call to process all the node hierarchy
-    * @param node
-    */
-   private void processNode(final Node node)
-   {
-      processNode(node.getPath(), node);
-
-      Set<Node> children = node.getChildren();
-      for (Node child : children)
-      {
-         processNode(child);
-      }
+         @Override
+         public boolean visit(final Node node)
+         {
+            processNode(node.getPath(), node);
+            return true;
+         }
+      });
    }
 
    //-------------------------------------------------------------------------------------||
@@ -29,7 +29,6 @@ import org.jboss.shrinkwrap.api.exporter.ArchiveExportException;
 import org.jboss.shrinkwrap.api.exporter.FileExistsException;
 import org.jboss.shrinkwrap.api.exporter.StreamExporter;
 import org.jboss.shrinkwrap.impl.base.AssignableBase;
-import org.jboss.shrinkwrap.impl.base.io.IOUtil;
 
 /**
  * Base support for I/O Stream-based exporters
@@ -57,6 +56,16 @@ public abstract class AbstractStreamExporterImpl extends AssignableBase<Archive<
       super(archive);
    }
 
+   //-------------------------------------------------------------------------------------||
+   // Contracts --------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Creates a new delegate used to perform a single export of the current archive
+    * @return
+    */
+   protected abstract StreamExporterDelegateBase<?> createExportDelegate();
+
    //-------------------------------------------------------------------------------------||
    // Functional Methods -----------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -101,6 +110,23 @@ public abstract class AbstractStreamExporterImpl extends AssignableBase<Archive<
 
    /**
     * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.exporter.StreamExporter#exportAsInputStream()
+    */
+   @Override
+   public InputStream exportAsInputStream()
+   {
+      // Create export delegate
+      final AbstractExporterDelegate<InputStream> exportDelegate = this.createExportDelegate();
+
+      // Execute export
+      return exportDelegate.export();
+   }
+
+   /**
+    * {@inheritDoc}
+    * 
+    * The archive is written directly into the target upon the calling {@link Thread}; 
+    * no intermediate pipe is used.
     * @see org.jboss.shrinkwrap.api.exporter.StreamExporter#exportTo(java.io.OutputStream)
     */
    @Override
@@ -112,34 +138,8 @@ public abstract class AbstractStreamExporterImpl extends AssignableBase<Archive<
          throw new IllegalArgumentException("Target must be specified");
       }
 
-      // Get Stream
-      final InputStream in = this.exportAsInputStream();
-
-      try
-      {
-         // Write out
-         try
-         {
-            IOUtil.copy(in, target);
-         }
-         catch (final IOException e)
-         {
-            throw new ArchiveExportException("Error encountered in exporting archive to " + target, e);
-         }
-      }
-      finally
-      {
-         // Close
-         try
-         {
-            in.close();
-         }
-         catch (final IOException ioe)
-         {
-            // Just log
-            log.warning("Could not close " + in + ": " + ioe);
-         }
-      }
+      // Write out
+      this.createExportDelegate().exportTo(target);
    }
 
    /**
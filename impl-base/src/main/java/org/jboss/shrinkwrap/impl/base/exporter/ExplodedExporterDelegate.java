@@ -26,6 +26,8 @@ import java.util.logging.Logger;
 import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.ArchivePath;
 import org.jboss.shrinkwrap.api.Node;
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.asset.SizedAsset;
 import org.jboss.shrinkwrap.api.exporter.ArchiveExportException;
 import org.jboss.shrinkwrap.api.exporter.ExplodedExporter;
 import org.jboss.shrinkwrap.impl.base.asset.ArchiveAsset;
@@ -134,8 +136,24 @@ public class ExplodedExporterDelegate extends AbstractExporterDelegate<File>
                {
                   log.fine("Writing asset " + path.get() + " to " + assetFile.getAbsolutePath());
                }
+               // Sized assets are transferred straight into the file's channel
+               final Asset asset = node.getAsset();
+               if (asset instanceof SizedAsset)
+               {
+                  final FileOutputStream assetFileOutputStream = new FileOutputStream(assetFile);
+                  try
+                  {
+                     ((SizedAsset) asset).transferTo(assetFileOutputStream.getChannel());
+                  }
+                  finally
+                  {
+                     assetFileOutputStream.close();
+                  }
+                  return;
+               }
+
                // Get the asset streams
-               final InputStream assetInputStream = node.getAsset().openStream();
+               final InputStream assetInputStream = asset.openStream();
                final FileOutputStream assetFileOutputStream = new FileOutputStream(assetFile);
                final BufferedOutputStream assetBufferedOutputStream = new BufferedOutputStream(assetFileOutputStream,
                      8192);
@@ -0,0 +1,578 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.exporter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.Configuration;
+import org.jboss.shrinkwrap.api.ConfigurationBuilder;
+import org.jboss.shrinkwrap.api.Node;
+import org.jboss.shrinkwrap.api.exporter.ArchiveExportException;
+import org.jboss.shrinkwrap.api.exporter.StreamExporter;
+import org.jboss.shrinkwrap.impl.base.Validate;
+import org.jboss.shrinkwrap.impl.base.asset.ArchiveAsset;
+import org.jboss.shrinkwrap.impl.base.io.IOUtil;
+import org.jboss.shrinkwrap.spi.Configurable;
+import org.jboss.shrinkwrap.spi.MutationCounted;
+
+/**
+ * Cache of the exported form of archives, used when exporting nested 
+ * {@link ArchiveAsset}s such that an archive shared among many parents
+ * is exported only once.  One cache exists per {@link Configuration} 
+ * which enables it via {@link ConfigurationBuilder#exportCacheSize(long)}.
+ * 
+ * Entries are keyed by archive identity and exporter type, and are reused only 
+ * while the {@link MutationCounted} counts of the archive and all archives nested 
+ * within it are unchanged since the export.  Entries are held in memory, or as 
+ * temporary files under {@link ConfigurationBuilder#exportCacheDirectory(File)}, to
+ * which they are exported directly; the least recently used are evicted to keep the 
+ * total within the configured size.  The file of an evicted entry is deleted once no
+ * longer being read. 
+ * Archives are referenced weakly, so caching does not prevent their collection.
+ *
+ * @version $Revision: $
+ */
+public final class ExportCache
+{
+
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Logger
+    */
+   private static final Logger log = Logger.getLogger(ExportCache.class.getName());
+
+   /**
+    * Caches by the {@link Configuration} enabling them
+    */
+   private static final Map<Configuration, ExportCache> caches = new WeakHashMap<Configuration, ExportCache>();
+
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Maximum total size of all entries, in bytes
+    */
+   private final long maximumSize;
+
+   /**
+    * Directory in which entries are stored, or null to hold them in memory
+    */
+   private final File directory;
+
+   /**
+    * Entries in least-recently-used order
+    */
+   private final Map<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+
+   /**
+    * Keys whose archives have been collected
+    */
+   private final ReferenceQueue<Archive<?>> collected = new ReferenceQueue<Archive<?>>();
+
+   /**
+    * Current total size of all entries, in bytes
+    */
+   private long size;
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   private ExportCache(final long maximumSize, final File directory)
+   {
+      this.maximumSize = maximumSize;
+      this.directory = directory;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Functional Methods -----------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Obtains the cache of the specified archive's {@link Configuration}, or null 
+    * if the configuration does not enable caching
+    * 
+    * @param archive
+    * @return
+    * @throws IllegalArgumentException If the archive is not specified
+    */
+   public static ExportCache forArchive(final Archive<?> archive) throws IllegalArgumentException
+   {
+      Validate.notNull(archive, "Archive must be specified");
+      final Configuration configuration = archive.as(Configurable.class).getConfiguration();
+      if (configuration.getExportCacheSize() <= 0)
+      {
+         return null;
+      }
+      synchronized (caches)
+      {
+         ExportCache cache = caches.get(configuration);
+         if (cache == null)
+         {
+            cache = new ExportCache(configuration.getExportCacheSize(), configuration.getExportCacheDirectory());
+            caches.put(configuration, cache);
+         }
+         return cache;
+      }
+   }
+
+   /**
+    * Writes the specified archive, in the form of the specified exporter, to the target;
+    * from the cache if current, else exporting and caching the result.  The target is 
+    * not closed.
+    * 
+    * @param archive
+    * @param exporter
+    * @param target
+    * @throws IllegalArgumentException If any argument is not specified
+    * @throws ArchiveExportException If the archive could not be exported or read from the cache
+    */
+   public void writeTo(final Archive<?> archive, final Class<? extends StreamExporter> exporter,
+         final OutputStream target) throws IllegalArgumentException, ArchiveExportException
+   {
+      Validate.notNull(target, "Target must be specified");
+      final Entry entry = this.get(archive, exporter);
+      try
+      {
+         if (entry.contents != null)
+         {
+            target.write(entry.contents);
+         }
+         else
+         {
+            final InputStream in = new FileInputStream(entry.file);
+            try
+            {
+               IOUtil.copy(in, target);
+            }
+            finally
+            {
+               in.close();
+            }
+         }
+      }
+      catch (final IOException ioe)
+      {
+         throw new ArchiveExportException("Could not write cached export of " + archive.getName(), ioe);
+      }
+      finally
+      {
+         this.release(entry);
+      }
+   }
+
+   /**
+    * Obtains a new stream of the specified archive in the form of the specified 
+    * exporter; from the cache if current, else exporting and caching the result
+    * 
+    * @param archive
+    * @param exporter
+    * @return
+    * @throws IllegalArgumentException If either argument is not specified
+    * @throws ArchiveExportException If the archive could not be exported or read from the cache
+    */
+   public InputStream openStream(final Archive<?> archive, final Class<? extends StreamExporter> exporter)
+         throws IllegalArgumentException, ArchiveExportException
+   {
+      final Entry entry = this.get(archive, exporter);
+      if (entry.contents != null)
+      {
+         this.release(entry);
+         return new ByteArrayInputStream(entry.contents);
+      }
+      try
+      {
+         // The entry remains acquired until the stream is closed
+         return new EntryInputStream(entry);
+      }
+      catch (final IOException ioe)
+      {
+         this.release(entry);
+         throw new ArchiveExportException("Could not read cached export of " + archive.getName(), ioe);
+      }
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Obtains the current entry for the specified archive and exporter, exporting
+    * and caching it if there is none.  The entry is acquired such that it is not 
+    * deleted while read; the caller must {@link #release(Entry)} it once done.
+    */
+   private Entry get(final Archive<?> archive, final Class<? extends StreamExporter> exporter)
+   {
+      Validate.notNull(archive, "Archive must be specified");
+      Validate.notNull(exporter, "Exporter must be specified");
+
+      // Use the cached entry if current
+      final Key lookupKey = new Key(archive, exporter, null);
+      synchronized (this)
+      {
+         this.purge();
+         final Entry cached = entries.get(lookupKey);
+         if (cached != null && cached.isCurrent())
+         {
+            if (log.isLoggable(Level.FINER))
+            {
+               log.finer("Using cached export of " + archive.getName());
+            }
+            cached.readers++;
+            return cached;
+         }
+      }
+
+      // Note the counts before exporting; any change during export invalidates the result
+      final List<Stamp> stamps = new ArrayList<Stamp>();
+      stamp(archive, stamps);
+
+      // Export
+      final Entry entry = this.export(archive, exporter, stamps);
+      entry.readers++;
+
+      // Too large to be cached; deleted once read
+      if (entry.size > maximumSize)
+      {
+         entry.discarded = true;
+         return entry;
+      }
+
+      // Cache
+      synchronized (this)
+      {
+         final Entry replaced = entries.put(new Key(archive, exporter, collected), entry);
+         if (replaced != null)
+         {
+            this.discard(replaced);
+         }
+         size += entry.size;
+
+         // Evict the least recently used until within bounds
+         final Iterator<Entry> lru = entries.values().iterator();
+         while (size > maximumSize && lru.hasNext())
+         {
+            final Entry evicted = lru.next();
+            lru.remove();
+            this.discard(evicted);
+         }
+      }
+      return entry;
+   }
+
+   /**
+    * Exports the specified archive into a new entry, stored in a new file 
+    * or, if there is no directory for files, in memory
+    */
+   private Entry export(final Archive<?> archive, final Class<? extends StreamExporter> exporter,
+         final List<Stamp> stamps)
+   {
+      if (directory != null)
+      {
+         // Stream straight to the file
+         File file = null;
+         try
+         {
+            file = File.createTempFile("shrinkwrap-export-", ".cache", directory);
+            final OutputStream out = new FileOutputStream(file);
+            try
+            {
+               archive.as(exporter).exportTo(out);
+            }
+            finally
+            {
+               out.close();
+            }
+            return new Entry(null, file, file.length(), stamps);
+         }
+         catch (final IOException ioe)
+         {
+            // Fall back to memory
+            log.log(Level.WARNING, "Could not store cached export in " + directory + ", holding it in memory", ioe);
+            delete(file);
+         }
+         catch (final RuntimeException re)
+         {
+            delete(file);
+            throw re;
+         }
+      }
+
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      archive.as(exporter).exportTo(out);
+      final byte[] contents = out.toByteArray();
+      return new Entry(contents, null, contents.length, stamps);
+   }
+
+   /**
+    * Releases the specified entry as acquired by {@link #get(Archive, Class)},
+    * deleting any file if the entry has since been discarded and this was 
+    * its last reader
+    */
+   private synchronized void release(final Entry entry)
+   {
+      if (--entry.readers == 0 && entry.discarded)
+      {
+         delete(entry.file);
+      }
+   }
+
+   /**
+    * Removes the specified entry from the total size, deleting any file
+    * unless still being read.  Must be called while holding the lock.
+    */
+   private void discard(final Entry entry)
+   {
+      size -= entry.size;
+      entry.discarded = true;
+      if (entry.readers == 0)
+      {
+         delete(entry.file);
+      }
+   }
+
+   /**
+    * Deletes the specified file of an entry, if any
+    */
+   private static void delete(final File file)
+   {
+      if (file != null && !file.delete())
+      {
+         log.fine("Could not delete cached export " + file);
+      }
+   }
+
+   /**
+    * Removes the entries of all collected archives.  Must be called while holding the lock.
+    */
+   private void purge()
+   {
+      Reference<? extends Archive<?>> key;
+      while ((key = collected.poll()) != null)
+      {
+         final Entry entry = entries.remove(key);
+         if (entry != null)
+         {
+            this.discard(entry);
+         }
+      }
+   }
+
+   /**
+    * Records the current counts of the specified archive and all archives
+    * nested within it
+    */
+   private static void stamp(final Archive<?> archive, final List<Stamp> stamps)
+   {
+      stamps.add(new Stamp(archive));
+      for (final Node node : archive)
+      {
+         if (node.getAsset() instanceof ArchiveAsset)
+         {
+            stamp(((ArchiveAsset) node.getAsset()).getArchive(), stamps);
+         }
+      }
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Inner Classes ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Identity of an archive (held weakly) and exporter type
+    */
+   private static final class Key extends WeakReference<Archive<?>>
+   {
+      private final Class<? extends StreamExporter> exporter;
+
+      private final int hash;
+
+      Key(final Archive<?> archive, final Class<? extends StreamExporter> exporter,
+            final ReferenceQueue<Archive<?>> queue)
+      {
+         super(archive, queue);
+         this.exporter = exporter;
+         this.hash = 31 * System.identityHashCode(archive) + exporter.hashCode();
+      }
+
+      /**
+       * {@inheritDoc}
+       * @see java.lang.Object#hashCode()
+       */
+      @Override
+      public int hashCode()
+      {
+         return hash;
+      }
+
+      /**
+       * {@inheritDoc}
+       * Keys are equal if they are the same, or refer to the same
+       * (uncollected) archive and exporter
+       * @see java.lang.Object#equals(java.lang.Object)
+       */
+      @Override
+      public boolean equals(final Object obj)
+      {
+         if (this == obj)
+         {
+            return true;
+         }
+         if (!(obj instanceof Key))
+         {
+            return false;
+         }
+         final Key other = (Key) obj;
+         final Archive<?> archive = this.get();
+         return archive != null && archive == other.get() && exporter == other.exporter;
+      }
+   }
+
+   /**
+    * Count of an archive (held weakly) at the time of export
+    */
+   private static final class Stamp
+   {
+      private final WeakReference<Archive<?>> archive;
+
+      private final long mutationCount;
+
+      Stamp(final Archive<?> archive)
+      {
+         this.archive = new WeakReference<Archive<?>>(archive);
+         this.mutationCount = archive.as(MutationCounted.class).getMutationCount();
+      }
+
+      /**
+       * Whether the archive is unchanged
+       */
+      boolean isCurrent()
+      {
+         final Archive<?> current = archive.get();
+         return current != null && current.as(MutationCounted.class).getMutationCount() == mutationCount;
+      }
+   }
+
+   /**
+    * Exported contents, held either in memory or in a file
+    */
+   private static final class Entry
+   {
+      private final byte[] contents;
+
+      private final File file;
+
+      private final long size;
+
+      private final List<Stamp> stamps;
+
+      /**
+       * Number of those reading the entry; guarded by the cache
+       */
+      private int readers;
+
+      /**
+       * Whether the entry has left the cache, and is to be deleted once no longer read;
+       * guarded by the cache
+       */
+      private boolean discarded;
+
+      Entry(final byte[] contents, final File file, final long size, final List<Stamp> stamps)
+      {
+         this.contents = contents;
+         this.file = file;
+         this.size = size;
+         this.stamps = stamps;
+      }
+
+      /**
+       * Whether no archive included in the export has changed since
+       */
+      boolean isCurrent()
+      {
+         for (final Stamp stamp : stamps)
+         {
+            if (!stamp.isCurrent())
+            {
+               return false;
+            }
+         }
+         return true;
+      }
+   }
+
+   /**
+    * Stream of the file of an acquired entry, releasing the entry when closed
+    */
+   private final class EntryInputStream extends FilterInputStream
+   {
+      private final Entry entry;
+
+      private boolean closed;
+
+      EntryInputStream(final Entry entry) throws IOException
+      {
+         super(new FileInputStream(entry.file));
+         this.entry = entry;
+      }
+
+      /**
+       * {@inheritDoc}
+       * @see java.io.FilterInputStream#close()
+       */
+      @Override
+      public void close() throws IOException
+      {
+         try
+         {
+            super.close();
+         }
+         finally
+         {
+            if (!closed)
+            {
+               closed = true;
+               release(entry);
+            }
+         }
+      }
+   }
+}
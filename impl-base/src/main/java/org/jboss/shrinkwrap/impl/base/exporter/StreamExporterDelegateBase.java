@@ -16,6 +16,7 @@
  */
 package org.jboss.shrinkwrap.impl.base.exporter;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -27,15 +28,23 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.ArchivePath;
+import org.jboss.shrinkwrap.api.DomainExecutorService;
 import org.jboss.shrinkwrap.api.Node;
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.asset.SizedAsset;
 import org.jboss.shrinkwrap.api.exporter.ArchiveExportException;
+import org.jboss.shrinkwrap.impl.base.asset.ArchiveAsset;
 import org.jboss.shrinkwrap.impl.base.io.IOUtil;
+import org.jboss.shrinkwrap.impl.base.io.NonClosingOutputStream;
+import org.jboss.shrinkwrap.impl.base.io.OutputStreamChannel;
 import org.jboss.shrinkwrap.impl.base.io.StreamErrorHandler;
 import org.jboss.shrinkwrap.impl.base.io.StreamTask;
 import org.jboss.shrinkwrap.impl.base.path.PathUtil;
@@ -59,6 +68,11 @@ public abstract class StreamExporterDelegateBase<O extends OutputStream> extends
     */
    private static final Logger log = Logger.getLogger(StreamExporterDelegateBase.class.getName());
 
+   /**
+    * Size of the buffer placed in front of the caller's target during a direct export
+    */
+   private static final int BUFFER_SIZE_DIRECT_EXPORT = 8192;
+
    //-------------------------------------------------------------------------------------||
    // Instance Members -------------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -115,58 +129,66 @@ public abstract class StreamExporterDelegateBase<O extends OutputStream> extends
    protected void doExport()
    {
       // Define the task to operate in another Thread so we can pipe the output to an InStream
-      final Callable<Void> exportTask = this.getExportTask(new Callable<Void>()
+      final Callable<Void> exportTask = this.createExportTask();
+
+      /**
+       * OutputStream which will be associated with the returned InStream, and the 
+       * chained IO point for the final OutStream
+       */
+      final PipedOutputStream output = new PipedOutputStream()
       {
+         /**
+          * Whether we've been closed; the encoding stream will typically have closed
+          * us already, and the reader may by then hold the pipe's lock while it 
+          * awaits completion of the job, so we must not attempt to close again
+          */
+         private boolean closed;
 
-         // Wrapped task is the super implementation
          @Override
-         public Void call() throws Exception
+         public void close() throws IOException
          {
-            StreamExporterDelegateBase.super.doExport();
-            return null;
+            if (!closed)
+            {
+               closed = true;
+               super.close();
+            }
          }
-
-      });
-
-      // Get an ExecutorService to which we may submit jobs.  This is either supplied by the user
-      // in a custom domain, or if one has not been specified, we'll make one and shut it down right
-      // here.  ExecutorServices supplied by the user are under the user's lifecycle, therefore it's
-      // user responsibility to shut it down appropriately.
-      boolean executorServiceIsOurs = false;
-      ExecutorService service = this.getArchive().as(Configurable.class).getConfiguration().getExecutorService();
-      if (service == null)
-      {
-         service = Executors.newSingleThreadExecutor();
-         executorServiceIsOurs = true;
-      }
-
-      // Get a handle and return it to the caller
-      final Future<Void> job = service.submit(exportTask);
-
-      // If we've created the ES
-      if (executorServiceIsOurs)
-      {
-         // Tell the service to shut down after the job has completed, and accept no new jobs
-         service.shutdown();
-      }
+      };
 
       /*
-       * At this point the job will start, but hit the latch until we set up the streams
-       * and tell it to proceed.
+       * The job to be run; once done (successfully or not) it closes the pipe, as the
+       * reader cannot otherwise tell the writing Thread has finished if that Thread is
+       * pooled and lives on.
        */
+      final FutureTask<Void> job = new FutureTask<Void>(new Callable<Void>()
+      {
+         @Override
+         public Void call() throws Exception
+         {
+            try
+            {
+               return exportTask.call();
+            }
+            finally
+            {
+               try
+               {
+                  output.close();
+               }
+               catch (final IOException ioe)
+               {
+                  log.log(Level.FINER, "Could not close the export pipe", ioe);
+               }
+            }
+         }
+      });
 
       // Stream to return to the caller
       final FutureCompletionInputStream input = new FutureCompletionInputStream(job);
       inputStream = input;
-
-      /**
-       * OutputStream which will be associated with the returned InStream, and the 
-       * chained IO point for the final OutStream
-       */
-      final OutputStream output;
       try
       {
-         output = new PipedOutputStream(input);
+         output.connect(input);
       }
       catch (final IOException e)
       {
@@ -185,10 +207,130 @@ public abstract class StreamExporterDelegateBase<O extends OutputStream> extends
       }
 
       /*
-       * The job is now waiting on us to signal that we've set up the streams; 
-       * let it continue
+       * Everything is set up; once started the job need not wait on us
        */
       latch.countDown();
+
+      // Get an ExecutorService to which we may submit jobs.  This is either supplied by the user
+      // in a custom domain, or the one shared by the domain and created by the ConfigurationBuilder. 
+      // Should the configuration carry none, or should it be unable to run the job upon another
+      // Thread, we'll make one and shut it down right here. 
+      // ExecutorServices supplied by the configuration are under its lifecycle, therefore it's
+      // the user's responsibility to shut it down appropriately.
+      final ExecutorService service = this.getArchive().as(Configurable.class).getConfiguration()
+            .getExecutorService();
+      if (service == null || !offer(service, job))
+      {
+         final ExecutorService ours = Executors.newSingleThreadExecutor();
+         ours.execute(job);
+
+         // Tell the service to shut down after the job has completed, and accept no new jobs
+         ours.shutdown();
+      }
+   }
+
+   /**
+    * Submits the specified export job to the specified service, unless the service would
+    * run it upon this {@link Thread}; as we'll be reading the output of the job, it would
+    * block upon the pipe.  Saturated services may do so (ie. the {@link DomainExecutorService}),
+    * else reject the job.
+    * @param service
+    * @param job
+    * @return Whether the service accepted the job 
+    */
+   private static boolean offer(final ExecutorService service, final Runnable job)
+   {
+      final Thread submitter = Thread.currentThread();
+      final AtomicBoolean submitted = new AtomicBoolean();
+      try
+      {
+         service.execute(new Runnable()
+         {
+            @Override
+            public void run()
+            {
+               if (!submitted.get() && Thread.currentThread() == submitter)
+               {
+                  throw new RejectedExecutionException("Export job may not run upon the Thread reading its output");
+               }
+               job.run();
+            }
+         });
+      }
+      catch (final RejectedExecutionException ree)
+      {
+         if (log.isLoggable(Level.FINER))
+         {
+            log.finer("Could not hand off export job, running upon a new thread: " + service);
+         }
+         return false;
+      }
+      submitted.set(true);
+      return true;
+   }
+
+   /**
+    * Runs the export operation upon the calling {@link Thread}, writing the encoded 
+    * archive directly into the specified target.  Unlike {@link #export()}, no pipe
+    * or additional {@link Thread} is involved; use this when the caller has an
+    * {@link OutputStream} and does not require an {@link InputStream} view.  
+    * The target will be flushed but not closed.
+    * 
+    * @param target
+    * @throws IllegalArgumentException If the target is not specified
+    * @throws ArchiveExportException If an error occurred during export
+    */
+   public final void exportTo(final OutputStream target) throws IllegalArgumentException, ArchiveExportException
+   {
+      // Precondition checks
+      if (target == null)
+      {
+         throw new IllegalArgumentException("Target must be specified");
+      }
+
+      // Set up the stream to which we'll write entries
+      try
+      {
+         outputStream = this.createDirectOutputStream(target);
+      }
+      catch (final IOException e)
+      {
+         throw new ArchiveExportException("Could not create the underlying stream to export: "
+               + this.getArchive().toString(), e);
+      }
+
+      // Everything is set up; nothing to wait upon
+      latch.countDown();
+
+      // Run the export in this Thread
+      try
+      {
+         this.createExportTask().call();
+      }
+      catch (final ArchiveExportException aee)
+      {
+         throw aee;
+      }
+      catch (final Exception e)
+      {
+         throw new ArchiveExportException("Error encountered in exporting archive to " + target, e);
+      }
+   }
+
+   /**
+    * Creates the encoding stream used by {@link #exportTo(OutputStream)} to write directly
+    * into the specified target.  The encoding stream must be closed to write any trailing 
+    * data, but the target belongs to the caller and must be left open.  By default the 
+    * target is buffered such that small writes from the encoder don't each hit it; formats
+    * which can make better use of a particular target (ie. a file) may override.
+    * @param target
+    * @return
+    * @throws IOException If the stream could not be created
+    */
+   protected O createDirectOutputStream(final OutputStream target) throws IOException
+   {
+      return this.createOutputStream(new BufferedOutputStream(new NonClosingOutputStream(target),
+            BUFFER_SIZE_DIRECT_EXPORT));
    }
 
    /**
@@ -200,6 +342,21 @@ public abstract class StreamExporterDelegateBase<O extends OutputStream> extends
     */
    protected abstract void putNextExtry(O outputStream, String context) throws IOException;
 
+   /**
+    * Writes the next entry for the specified {@link Asset}, which is null for
+    * a directory.  By default delegates to {@link #putNextExtry(OutputStream, String)};
+    * formats which benefit from knowing the content up front (ie. the size of a 
+    * {@link SizedAsset}) may override.
+    * @param outputStream
+    * @param context
+    * @param asset
+    * @throws IOException If an error occurred writing the entry
+    */
+   protected void putNextExtry(final O outputStream, final String context, final Asset asset) throws IOException
+   {
+      this.putNextExtry(outputStream, context);
+   }
+
    /**
     * Closes the current entry context for the specified {@link OutputStream}
     * @param outputStream
@@ -235,10 +392,22 @@ public abstract class StreamExporterDelegateBase<O extends OutputStream> extends
       // Mark if we're writing a directory
       final boolean isDirectory = node.getAsset() == null;
 
+      // Nested archives are written directly into the entry upon this Thread, rather than
+      // through the pipe (and Thread) of their own export
+      final ArchiveAsset nestedArchive = node.getAsset() instanceof ArchiveAsset
+            ? (ArchiveAsset) node.getAsset()
+            : null;
+
+      // Sized assets are transferred into the entry, rather than copied from a stream
+      final Asset asset = node.getAsset();
+      final SizedAsset sizedAsset = !isDirectory && nestedArchive == null && asset instanceof SizedAsset
+            ? (SizedAsset) asset
+            : null;
+
       InputStream stream = null;
-      if (!isDirectory)
+      if (!isDirectory && nestedArchive == null && sizedAsset == null)
       {
-         stream = node.getAsset().openStream();
+         stream = asset.openStream();
       }
 
       final String pathName = PathUtil.optionallyRemovePrecedingSlash(path.get());
@@ -265,7 +434,7 @@ public abstract class StreamExporterDelegateBase<O extends OutputStream> extends
             // Write the Asset under the same Path name in the output
             try
             {
-               putNextExtry(outputStream, resolvedPath);
+               putNextExtry(outputStream, resolvedPath, asset);
             }
             catch (final IOException ze)
             {
@@ -278,7 +447,25 @@ public abstract class StreamExporterDelegateBase<O extends OutputStream> extends
 
             // Read the contents of the asset and write to the JAR, 
             // if we're not just a directory
-            if (!isDirectory)
+            if (nestedArchive != null)
+            {
+               // Use the cached export, if caching is enabled
+               final Archive<?> archive = nestedArchive.getArchive();
+               final ExportCache cache = ExportCache.forArchive(archive);
+               if (cache != null)
+               {
+                  cache.writeTo(archive, nestedArchive.getExporter(), outputStream);
+               }
+               else
+               {
+                  archive.as(nestedArchive.getExporter()).exportTo(outputStream);
+               }
+            }
+            else if (sizedAsset != null)
+            {
+               sizedAsset.transferTo(new OutputStreamChannel(outputStream));
+            }
+            else if (!isDirectory)
             {
                IOUtil.copy(stream, outputStream);
             }
@@ -309,6 +496,27 @@ public abstract class StreamExporterDelegateBase<O extends OutputStream> extends
       return inputStream;
    }
 
+   /**
+    * Creates the task which writes all entries to the {@link StreamExporterDelegateBase#outputStream},
+    * wrapped in the export-specific error handling logic of {@link #getExportTask(Callable)}
+    * @return
+    */
+   private Callable<Void> createExportTask()
+   {
+      return this.getExportTask(new Callable<Void>()
+      {
+
+         // Wrapped task is the super implementation
+         @Override
+         public Void call() throws Exception
+         {
+            StreamExporterDelegateBase.super.doExport();
+            return null;
+         }
+
+      });
+   }
+
    /**
     * Returns an immutable view of all {@link ArchivePath}s currently exported
     * @return
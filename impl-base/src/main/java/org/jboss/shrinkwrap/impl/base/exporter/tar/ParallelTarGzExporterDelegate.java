@@ -0,0 +1,132 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.exporter.tar;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.impl.base.io.ParallelGzipOutputStream;
+import org.jboss.shrinkwrap.impl.base.io.tar.TarGzOutputStream;
+import org.jboss.shrinkwrap.spi.Configurable;
+
+/**
+ * Implementation of an exporter for the TAR format, further encoded as GZIP
+ * by compressing blocks concurrently via a {@link ParallelGzipOutputStream}.  
+ * Compression jobs are run upon the {@link ExecutorService} of the archive's 
+ * configuration; if none has been specified, one is created for the duration 
+ * of the export.
+ * 
+ * @version $Revision: $
+ */
+public class ParallelTarGzExporterDelegate extends TarExporterDelegateBase<TarGzOutputStream>
+{
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Logger
+    */
+   @SuppressWarnings("unused")
+   private static final Logger log = Logger.getLogger(ParallelTarGzExporterDelegate.class.getName());
+
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@link ExecutorService} we've created for the compression jobs, if the user has not
+    * supplied one, to be shut down when the export completes
+    */
+   private ExecutorService createdExecutorService;
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Creates a new exporter delegate for exporting archives as TAR/GZ
+    */
+   public ParallelTarGzExporterDelegate(final Archive<?> archive)
+   {
+      super(archive);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Required Implementations -----------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.impl.base.exporter.StreamExporterDelegateBase#createOutputStream(java.io.OutputStream)
+    */
+   @Override
+   protected final TarGzOutputStream createOutputStream(final OutputStream out) throws IOException
+   {
+      // Use the user's ExecutorService if supplied, else make our own
+      final int parallelism = Runtime.getRuntime().availableProcessors();
+      ExecutorService service = this.getArchive().as(Configurable.class).getConfiguration().getExecutorService();
+      if (service == null)
+      {
+         service = Executors.newFixedThreadPool(parallelism);
+         createdExecutorService = service;
+      }
+
+      // Create and return
+      return new TarGzOutputStream(out, service, parallelism);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Overridden Implementations ---------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@inheritDoc}
+    * Shuts down any {@link ExecutorService} we've created once the stream has been closed.
+    * @see org.jboss.shrinkwrap.impl.base.exporter.tar.TarExporterDelegateBase#getExportTask(java.util.concurrent.Callable)
+    */
+   @Override
+   protected Callable<Void> getExportTask(final Callable<Void> wrappedTask)
+   {
+      final Callable<Void> task = super.getExportTask(wrappedTask);
+      return new Callable<Void>()
+      {
+
+         @Override
+         public Void call() throws Exception
+         {
+            try
+            {
+               return task.call();
+            }
+            finally
+            {
+               // Any compression jobs are done; we no longer need the ES if it's ours
+               if (createdExecutorService != null)
+               {
+                  createdExecutorService.shutdown();
+               }
+            }
+         }
+      };
+   }
+}
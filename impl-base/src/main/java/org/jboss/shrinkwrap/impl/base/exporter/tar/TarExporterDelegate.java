@@ -16,11 +16,14 @@
  */
 package org.jboss.shrinkwrap.impl.base.exporter.tar;
 
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.logging.Logger;
 
 import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.impl.base.io.NonClosingWritableByteChannel;
+import org.jboss.shrinkwrap.impl.base.io.tar.TarBuffer;
 import org.jboss.shrinkwrap.impl.base.io.tar.TarOutputStream;
 
 /**
@@ -66,4 +69,28 @@ public class TarExporterDelegate extends TarExporterDelegateBase<TarOutputStream
       // Create and return
       return new TarOutputStream(out);
    }
+
+   //-------------------------------------------------------------------------------------||
+   // Overridden Implementations ---------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@inheritDoc}
+    * Files are written through their channel in large blocks, rather than through 
+    * a stream in blocks of the TAR blocking factor.  The blocks are held on the heap
+    * rather than in direct buffers, which would be allocated (and released only upon 
+    * collection) for each export.
+    * @see org.jboss.shrinkwrap.impl.base.exporter.StreamExporterDelegateBase#createDirectOutputStream(java.io.OutputStream)
+    */
+   @Override
+   protected TarOutputStream createDirectOutputStream(final OutputStream target) throws IOException
+   {
+      if (target instanceof FileOutputStream)
+      {
+         // Leave the file open for the caller
+         return new TarOutputStream(new NonClosingWritableByteChannel(((FileOutputStream) target).getChannel()),
+               TarBuffer.DEFAULT_CHANNEL_BLKSIZE, false);
+      }
+      return super.createDirectOutputStream(target);
+   }
 }
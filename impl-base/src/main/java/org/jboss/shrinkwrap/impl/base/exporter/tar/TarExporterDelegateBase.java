@@ -22,6 +22,8 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.asset.SizedAsset;
 import org.jboss.shrinkwrap.impl.base.exporter.StreamExporterDelegateBase;
 import org.jboss.shrinkwrap.impl.base.io.tar.TarEntry;
 import org.jboss.shrinkwrap.impl.base.io.tar.TarOutputStreamImpl;
@@ -82,6 +84,29 @@ public abstract class TarExporterDelegateBase<T extends TarOutputStreamImpl> ext
       outputStream.putNextEntry(entry);
    }
 
+   /**
+    * {@inheritDoc}
+    * The entries of {@link SizedAsset}s carry their size up front, such that their
+    * content is streamed rather than buffered.
+    * @see org.jboss.shrinkwrap.impl.base.exporter.StreamExporterDelegateBase#putNextExtry(java.io.OutputStream, java.lang.String, org.jboss.shrinkwrap.api.asset.Asset)
+    */
+   @Override
+   protected final void putNextExtry(final T outputStream, final String context, final Asset asset)
+         throws IOException
+   {
+      // Put
+      final TarEntry entry = new TarEntry(context);
+      if (asset instanceof SizedAsset)
+      {
+         final long size = ((SizedAsset) asset).getSize();
+         if (size >= 0)
+         {
+            entry.setSize(size);
+         }
+      }
+      outputStream.putNextEntry(entry);
+   }
+
    /**
     * {@inheritDoc}
     * @see org.jboss.shrinkwrap.impl.base.exporter.StreamExporterDelegateBase#getExportTask()
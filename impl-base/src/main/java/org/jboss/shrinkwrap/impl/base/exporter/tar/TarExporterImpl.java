@@ -16,14 +16,13 @@
  */
 package org.jboss.shrinkwrap.impl.base.exporter.tar;
 
-import java.io.InputStream;
 import java.util.logging.Logger;
 
 import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.exporter.TarExporter;
 import org.jboss.shrinkwrap.api.exporter.TarGzExporter;
-import org.jboss.shrinkwrap.impl.base.exporter.AbstractExporterDelegate;
 import org.jboss.shrinkwrap.impl.base.exporter.AbstractStreamExporterImpl;
+import org.jboss.shrinkwrap.impl.base.exporter.StreamExporterDelegateBase;
 
 /**
  * Implementation of {@link TarGzExporter} used to export an Archive as a TAR format
@@ -61,15 +60,11 @@ public class TarExporterImpl extends AbstractStreamExporterImpl implements TarEx
 
    /**
     * {@inheritDoc}
-    * @see org.jboss.shrinkwrap.api.exporter.StreamExporter#exportAsInputStream()
+    * @see org.jboss.shrinkwrap.impl.base.exporter.AbstractStreamExporterImpl#createExportDelegate()
     */
    @Override
-   public InputStream exportAsInputStream()
+   protected StreamExporterDelegateBase<?> createExportDelegate()
    {
-      // Create export delegate
-      final AbstractExporterDelegate<InputStream> exportDelegate = new TarExporterDelegate(this.getArchive());
-
-      // Execute export
-      return exportDelegate.export();
+      return new TarExporterDelegate(this.getArchive());
    }
 }
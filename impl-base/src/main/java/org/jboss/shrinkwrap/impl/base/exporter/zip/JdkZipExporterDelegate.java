@@ -17,18 +17,28 @@
 package org.jboss.shrinkwrap.impl.base.exporter.zip;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.ArchivePath;
+import org.jboss.shrinkwrap.api.Filter;
 import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.asset.ByteArrayAsset;
+import org.jboss.shrinkwrap.api.asset.FileAsset;
+import org.jboss.shrinkwrap.api.asset.SizedAsset;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
 import org.jboss.shrinkwrap.impl.base.exporter.StreamExporterDelegateBase;
+import org.jboss.shrinkwrap.impl.base.io.zip.DeferredStoredZipOutputStream;
+import org.jboss.shrinkwrap.impl.base.path.BasicPath;
 
 /**
  * JDK-based implementation of a ZIP exporter.  Cannot handle archives
@@ -49,6 +59,20 @@ public class JdkZipExporterDelegate extends StreamExporterDelegateBase<ZipOutput
     */
    private static final Logger log = Logger.getLogger(JdkZipExporterDelegate.class.getName());
 
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Level at which DEFLATED entries are compressed
+    */
+   private final int compressionLevel;
+
+   /**
+    * {@link Filter} selecting entries to be written STORED, or null if all are DEFLATED
+    */
+   private final Filter<ArchivePath> storedEntries;
+
    //-------------------------------------------------------------------------------------||
    // Constructor ------------------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -61,8 +85,28 @@ public class JdkZipExporterDelegate extends StreamExporterDelegateBase<ZipOutput
     * {@link ZipEntry}s.
     */
    public JdkZipExporterDelegate(final Archive<?> archive) throws IllegalArgumentException
+   {
+      this(archive, Deflater.DEFAULT_COMPRESSION, null);
+   }
+
+   /**
+    * Creates a new exporter delegate for exporting archives as ZIP, compressing
+    * at the specified level and writing entries included by the specified 
+    * {@link Filter} as STORED
+    * 
+    * @param archive
+    * @param compressionLevel 0-9, or {@link Deflater#DEFAULT_COMPRESSION}
+    * @param storedEntries Entries to be written STORED; null if none 
+    * @throws IllegalArgumentException If the archive has no {@link Asset}s; JDK ZIP
+    * handling cannot support writing out to a {@link ZipOutputStream} with no
+    * {@link ZipEntry}s.
+    */
+   public JdkZipExporterDelegate(final Archive<?> archive, final int compressionLevel,
+         final Filter<ArchivePath> storedEntries) throws IllegalArgumentException
    {
       super(archive);
+      this.compressionLevel = compressionLevel;
+      this.storedEntries = storedEntries;
 
       // Precondition check
       if (archive.getContent().isEmpty())
@@ -95,8 +139,10 @@ public class JdkZipExporterDelegate extends StreamExporterDelegateBase<ZipOutput
    @Override
    protected final ZipOutputStream createOutputStream(final OutputStream out) throws IOException
    {
-      // Create and return
-      return new ZipOutputStream(out);
+      // Create and return; STORED entries have their size and CRC computed as written
+      final ZipOutputStream zipOutputStream = new DeferredStoredZipOutputStream(out);
+      zipOutputStream.setLevel(compressionLevel);
+      return zipOutputStream;
    }
 
    /**
@@ -107,7 +153,39 @@ public class JdkZipExporterDelegate extends StreamExporterDelegateBase<ZipOutput
    protected final void putNextExtry(final ZipOutputStream outputStream, final String context) throws IOException
    {
       // Put
-      outputStream.putNextEntry(new ZipEntry(context));
+      outputStream.putNextEntry(createEntry(context, storedEntries));
+   }
+
+   /**
+    * {@inheritDoc}
+    * STORED entries of {@link SizedAsset}s with a known CRC are written with their size and 
+    * CRC up front, such that they need not be buffered to compute them.  The CRC of file,
+    * byte array and string assets, which do not know it, is computed in a pass over the 
+    * content beforehand; re-reading these is cheaper than spooling them.
+    * @see org.jboss.shrinkwrap.impl.base.exporter.StreamExporterDelegateBase#putNextExtry(java.io.OutputStream, java.lang.String, org.jboss.shrinkwrap.api.asset.Asset)
+    */
+   @Override
+   protected final void putNextExtry(final ZipOutputStream outputStream, final String context, final Asset asset)
+         throws IOException
+   {
+      final ZipEntry entry = createEntry(context, storedEntries);
+      if (entry.getMethod() == ZipEntry.STORED && asset instanceof SizedAsset)
+      {
+         final SizedAsset sizedAsset = (SizedAsset) asset;
+         final long size = sizedAsset.getSize();
+         long crc = sizedAsset.getCrc();
+         if (crc < 0 && size >= 0 && isCheaplyReread(asset))
+         {
+            crc = computeCrc(asset, size);
+         }
+         if (size >= 0 && crc >= 0)
+         {
+            entry.setSize(size);
+            entry.setCompressedSize(size);
+            entry.setCrc(crc);
+         }
+      }
+      outputStream.putNextEntry(entry);
    }
 
    /**
@@ -172,4 +250,76 @@ public class JdkZipExporterDelegate extends StreamExporterDelegateBase<ZipOutput
          }
       };
    }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Returns whether the content of the specified {@link Asset} may be read
+    * again at little cost, such that computing its CRC in a separate pass is 
+    * cheaper than holding the content to compute it as written
+    * 
+    * @param asset
+    * @return
+    */
+   private static boolean isCheaplyReread(final Asset asset)
+   {
+      return asset instanceof FileAsset || asset instanceof ByteArrayAsset || asset instanceof StringAsset;
+   }
+
+   /**
+    * Computes the CRC-32 of the content of the specified {@link Asset}, 
+    * or returns -1 if its content is not of the specified size
+    * 
+    * @param asset
+    * @param size
+    * @return
+    * @throws IOException If the content could not be read
+    */
+   private static long computeCrc(final Asset asset, final long size) throws IOException
+   {
+      final CRC32 crc = new CRC32();
+      final byte[] buffer = new byte[8192];
+      long read = 0;
+      final InputStream in = asset.openStream();
+      try
+      {
+         int count;
+         while ((count = in.read(buffer)) != -1)
+         {
+            crc.update(buffer, 0, count);
+            read += count;
+         }
+      }
+      finally
+      {
+         in.close();
+      }
+
+      // Changed since measured; leave the CRC to be computed as written
+      if (read != size)
+      {
+         return -1;
+      }
+      return crc.getValue();
+   }
+
+   /**
+    * Creates a {@link ZipEntry} for the specified context, marked as STORED if
+    * it's a file included by the specified {@link Filter}
+    * 
+    * @param context
+    * @param storedEntries Entries to be written STORED; null if none
+    * @return
+    */
+   static ZipEntry createEntry(final String context, final Filter<ArchivePath> storedEntries)
+   {
+      final ZipEntry entry = new ZipEntry(context);
+      if (storedEntries != null && !entry.isDirectory() && storedEntries.include(new BasicPath(context)))
+      {
+         entry.setMethod(ZipEntry.STORED);
+      }
+      return entry;
+   }
 }
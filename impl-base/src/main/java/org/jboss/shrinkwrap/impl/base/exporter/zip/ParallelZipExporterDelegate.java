@@ -0,0 +1,220 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.exporter.zip;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.Deflater;
+
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ArchivePath;
+import org.jboss.shrinkwrap.api.Filter;
+import org.jboss.shrinkwrap.impl.base.exporter.StreamExporterDelegateBase;
+import org.jboss.shrinkwrap.impl.base.io.zip.ParallelZipOutputStream;
+import org.jboss.shrinkwrap.spi.Configurable;
+
+/**
+ * Implementation of a ZIP exporter which deflates entries concurrently 
+ * via a {@link ParallelZipOutputStream}.  Compression jobs are run upon the 
+ * {@link ExecutorService} of the archive's configuration; if none has been 
+ * specified, one is created for the duration of the export.  Like the
+ * {@link JdkZipExporterDelegate}, archives with no content are not accepted
+ * as the JDK is unable to read back a ZIP with no entries.
+ * 
+ * @version $Revision: $
+ */
+public class ParallelZipExporterDelegate extends StreamExporterDelegateBase<ParallelZipOutputStream>
+{
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Logger
+    */
+   private static final Logger log = Logger.getLogger(ParallelZipExporterDelegate.class.getName());
+
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@link ExecutorService} we've created for the compression jobs, if the user has not
+    * supplied one, to be shut down when the export completes
+    */
+   private ExecutorService createdExecutorService;
+
+   /**
+    * Level at which DEFLATED entries are compressed
+    */
+   private final int compressionLevel;
+
+   /**
+    * {@link Filter} selecting entries to be written STORED, or null if all are DEFLATED
+    */
+   private final Filter<ArchivePath> storedEntries;
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Creates a new exporter delegate for exporting archives as ZIP
+    * 
+    * @throws IllegalArgumentException If the archive has no content
+    */
+   public ParallelZipExporterDelegate(final Archive<?> archive) throws IllegalArgumentException
+   {
+      this(archive, Deflater.DEFAULT_COMPRESSION, null);
+   }
+
+   /**
+    * Creates a new exporter delegate for exporting archives as ZIP, compressing
+    * at the specified level and writing entries included by the specified 
+    * {@link Filter} as STORED
+    * 
+    * @param archive
+    * @param compressionLevel 0-9, or {@link Deflater#DEFAULT_COMPRESSION}
+    * @param storedEntries Entries to be written STORED; null if none 
+    * @throws IllegalArgumentException If the archive has no content
+    */
+   public ParallelZipExporterDelegate(final Archive<?> archive, final int compressionLevel,
+         final Filter<ArchivePath> storedEntries) throws IllegalArgumentException
+   {
+      super(archive);
+      this.compressionLevel = compressionLevel;
+      this.storedEntries = storedEntries;
+
+      // Precondition check
+      if (archive.getContent().isEmpty())
+      {
+         throw new IllegalArgumentException(
+               "[SHRINKWRAP-93] Cannot export as ZIP an archive with no content: " + archive.toString());
+      }
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Required Implementations -----------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.impl.base.exporter.StreamExporterDelegateBase#closeEntry(java.io.OutputStream)
+    */
+   @Override
+   protected final void closeEntry(final ParallelZipOutputStream outputStream) throws IOException
+   {
+      // Close the entry, submitting it for compression
+      outputStream.closeEntry();
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.impl.base.exporter.StreamExporterDelegateBase#createOutputStream(java.io.OutputStream)
+    */
+   @Override
+   protected final ParallelZipOutputStream createOutputStream(final OutputStream out) throws IOException
+   {
+      // Use the user's ExecutorService if supplied, else make our own
+      final int parallelism = Runtime.getRuntime().availableProcessors();
+      ExecutorService service = this.getArchive().as(Configurable.class).getConfiguration().getExecutorService();
+      if (service == null)
+      {
+         service = Executors.newFixedThreadPool(parallelism);
+         createdExecutorService = service;
+      }
+
+      // Create and return
+      final ParallelZipOutputStream zipOutputStream = new ParallelZipOutputStream(out, service, parallelism);
+      zipOutputStream.setLevel(compressionLevel);
+      return zipOutputStream;
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.impl.base.exporter.StreamExporterDelegateBase#putNextExtry(java.io.OutputStream, java.lang.String)
+    */
+   @Override
+   protected final void putNextExtry(final ParallelZipOutputStream outputStream, final String context)
+         throws IOException
+   {
+      // Put
+      outputStream.putNextEntry(JdkZipExporterDelegate.createEntry(context, storedEntries));
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.impl.base.exporter.StreamExporterDelegateBase#getExportTask()
+    */
+   @Override
+   protected Callable<Void> getExportTask(final Callable<Void> wrappedTask)
+   {
+      assert wrappedTask != null : "Wrapped task must be specified";
+      return new Callable<Void>()
+      {
+
+         @Override
+         public Void call() throws Exception
+         {
+            try
+            {
+               // Attempt the wrapped task
+               wrappedTask.call();
+            }
+            catch (final Exception e)
+            {
+
+               // Log this and rethrow; otherwise if we go into deadlock we won't ever 
+               // be able to get the underlying cause from the Future 
+               log.log(Level.WARNING, "Exception encountered during export of archive", e);
+
+               throw e;
+            }
+            finally
+            {
+
+               try
+               {
+                  outputStream.close();
+               }
+               catch (final IOException ioe)
+               {
+                  // Ignore, but warn of danger
+                  log.log(Level.WARNING,
+                        "[SHRINKWRAP-120] Possible deadlock scenario: Got exception on closing the ZIP out stream: "
+                              + ioe.getMessage(), ioe);
+               }
+               finally
+               {
+                  // Any compression jobs are done; we no longer need the ES if it's ours
+                  if (createdExecutorService != null)
+                  {
+                     createdExecutorService.shutdown();
+                  }
+               }
+            }
+
+            return null;
+         }
+      };
+   }
+}
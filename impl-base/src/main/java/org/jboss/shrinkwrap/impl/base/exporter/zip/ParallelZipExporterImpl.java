@@ -0,0 +1,69 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.exporter.zip;
+
+import java.util.logging.Logger;
+
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.exporter.ParallelZipExporter;
+import org.jboss.shrinkwrap.impl.base.exporter.StreamExporterDelegateBase;
+
+/**
+ * Implementation of {@link ParallelZipExporter} used to export an Archive as a ZIP format,
+ * compressing entries concurrently.
+ * 
+ * @version $Revision: $
+ */
+public class ParallelZipExporterImpl extends ZipExporterImpl implements ParallelZipExporter
+{
+
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Logger
+    */
+   @SuppressWarnings("unused")
+   private static final Logger log = Logger.getLogger(ParallelZipExporterImpl.class.getName());
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Creates a new exporter for the specified archive
+    */
+   public ParallelZipExporterImpl(final Archive<?> archive)
+   {
+      super(archive);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Required Implementations -----------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.impl.base.exporter.zip.ZipExporterImpl#createExportDelegate()
+    */
+   @Override
+   protected StreamExporterDelegateBase<?> createExportDelegate()
+   {
+      return new ParallelZipExporterDelegate(this.getArchive(), this.getCompressionLevel(), this.getStoredEntries());
+   }
+}
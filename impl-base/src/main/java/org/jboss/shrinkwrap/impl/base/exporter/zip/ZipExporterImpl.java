@@ -17,15 +17,21 @@
 package org.jboss.shrinkwrap.impl.base.exporter.zip;
 
 import java.io.File;
-import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
 
 import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ArchivePath;
+import org.jboss.shrinkwrap.api.Filter;
+import org.jboss.shrinkwrap.api.Filters;
 import org.jboss.shrinkwrap.api.exporter.ArchiveExportException;
 import org.jboss.shrinkwrap.api.exporter.FileExistsException;
 import org.jboss.shrinkwrap.api.exporter.ZipExporter;
-import org.jboss.shrinkwrap.impl.base.exporter.AbstractExporterDelegate;
 import org.jboss.shrinkwrap.impl.base.exporter.AbstractStreamExporterImpl;
+import org.jboss.shrinkwrap.impl.base.exporter.StreamExporterDelegateBase;
 
 /**
  * Implementation of ZipExporter used to export an Archive as a Zip format. 
@@ -48,6 +54,20 @@ public class ZipExporterImpl extends AbstractStreamExporterImpl implements ZipEx
    @SuppressWarnings("unused")
    private static final Logger log = Logger.getLogger(ZipExporterImpl.class.getName());
 
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Level at which DEFLATED entries are compressed
+    */
+   private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+   /**
+    * {@link Filter}s selecting entries to be written STORED
+    */
+   private final List<Filter<ArchivePath>> storedEntries = new ArrayList<Filter<ArchivePath>>();
+
    //-------------------------------------------------------------------------------------||
    // Constructor ------------------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -63,16 +83,78 @@ public class ZipExporterImpl extends AbstractStreamExporterImpl implements ZipEx
 
    /**
     * {@inheritDoc}
-    * @see org.jboss.shrinkwrap.api.exporter.StreamExporter#exportAsInputStream()
+    * @see org.jboss.shrinkwrap.impl.base.exporter.AbstractStreamExporterImpl#createExportDelegate()
+    */
+   @Override
+   protected StreamExporterDelegateBase<?> createExportDelegate()
+   {
+      return new JdkZipExporterDelegate(this.getArchive(), this.getCompressionLevel(), this.getStoredEntries());
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.exporter.ZipExporter#compressionLevel(int)
+    */
+   @Override
+   public ZipExporter compressionLevel(final int level) throws IllegalArgumentException
+   {
+      if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION)
+      {
+         throw new IllegalArgumentException("Compression level must be -1 or in the range 0-9: " + level);
+      }
+      this.compressionLevel = level;
+      return this;
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.exporter.ZipExporter#storeEntries(org.jboss.shrinkwrap.api.Filter)
     */
    @Override
-   public InputStream exportAsInputStream()
+   public ZipExporter storeEntries(final Filter<ArchivePath> filter) throws IllegalArgumentException
    {
-      // Create export delegate
-      AbstractExporterDelegate<InputStream> exportDelegate = new JdkZipExporterDelegate(this.getArchive());
+      if (filter == null)
+      {
+         throw new IllegalArgumentException("Filter must be specified");
+      }
+      this.storedEntries.add(filter);
+      return this;
+   }
 
-      // Export and get result
-      return exportDelegate.export();
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.exporter.ZipExporter#storeEntries(java.lang.String[])
+    */
+   @Override
+   public ZipExporter storeEntries(final String... extensions) throws IllegalArgumentException
+   {
+      if (extensions == null || extensions.length == 0)
+      {
+         throw new IllegalArgumentException("At least one extension must be specified");
+      }
+
+      // Build an expression matching any of the extensions
+      final StringBuilder expression = new StringBuilder("(?i).*\\.(?:");
+      for (int i = 0; i < extensions.length; i++)
+      {
+         String extension = extensions[i];
+         if (extension == null || extension.length() == 0)
+         {
+            throw new IllegalArgumentException("Extension must be specified");
+         }
+         if (extension.charAt(0) == '.')
+         {
+            extension = extension.substring(1);
+         }
+         if (i > 0)
+         {
+            expression.append('|');
+         }
+         expression.append(Pattern.quote(extension));
+      }
+      expression.append(')');
+
+      return this.storeEntries(Filters.include(expression.toString()));
    }
 
 
@@ -92,4 +174,46 @@ public class ZipExporterImpl extends AbstractStreamExporterImpl implements ZipEx
       this.exportTo(target, overwrite);
    }
 
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Obtains the level at which DEFLATED entries are to be compressed
+    * @return
+    */
+   protected final int getCompressionLevel()
+   {
+      return this.compressionLevel;
+   }
+
+   /**
+    * Obtains a {@link Filter} including all entries to be written STORED, 
+    * or null if all entries are to be DEFLATED
+    * @return
+    */
+   protected final Filter<ArchivePath> getStoredEntries()
+   {
+      if (this.storedEntries.isEmpty())
+      {
+         return null;
+      }
+      final List<Filter<ArchivePath>> filters = new ArrayList<Filter<ArchivePath>>(this.storedEntries);
+      return new Filter<ArchivePath>()
+      {
+         @Override
+         public boolean include(final ArchivePath path)
+         {
+            for (final Filter<ArchivePath> filter : filters)
+            {
+               if (filter.include(path))
+               {
+                  return true;
+               }
+            }
+            return false;
+         }
+      };
+   }
+
 }
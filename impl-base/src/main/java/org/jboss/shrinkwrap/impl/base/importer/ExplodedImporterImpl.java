@@ -17,16 +17,30 @@
 package org.jboss.shrinkwrap.impl.base.importer;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.ArchivePath;
+import org.jboss.shrinkwrap.api.ArchivePaths;
+import org.jboss.shrinkwrap.api.asset.Asset;
 import org.jboss.shrinkwrap.api.asset.FileAsset;
 import org.jboss.shrinkwrap.api.importer.ExplodedImporter;
 import org.jboss.shrinkwrap.impl.base.AssignableBase;
 import org.jboss.shrinkwrap.impl.base.Validate;
 import org.jboss.shrinkwrap.impl.base.path.BasicPath;
+import org.jboss.shrinkwrap.spi.Configurable;
 
 /**
  * ExplodedImporterImpl
@@ -88,56 +102,203 @@ public class ExplodedImporterImpl extends AssignableBase<Archive<?>> implements
          throw new IllegalArgumentException("Given file is not a directory " + file.getAbsolutePath());
       }
 
-      doImport(file, file.listFiles());
+      // Walk the tree, then add everything found at once (directories as null)
+      final Map<ArchivePath, Asset> assets = new LinkedHashMap<ArchivePath, Asset>();
+      for (final Listing listing : walk(file))
+      {
+         for (final File child : listing.files)
+         {
+            final ArchivePath path = new BasicPath(listing.path, child.getName());
+            if (log.isLoggable(Level.FINER))
+            {
+               log.finer("Importing: " + child.getAbsolutePath());
+            }
+            assets.put(path, listing.directories.contains(child) ? null : new FileAsset(child));
+         }
+      }
+      this.getArchive().addAll(assets);
       return this;
    }
 
-   private void doImport(File root, File[] files)
+   // -------------------------------------------------------------------------------------||
+   // Internal Helper Methods -------------------------------------------------------------||
+   // -------------------------------------------------------------------------------------||
+
+   /**
+    * Lists all directories under (and including) the specified root, one level
+    * of the tree at a time.  Where a level holds more than one directory, the 
+    * directories are listed concurrently upon the {@link ExecutorService} of the
+    * archive's configuration, or one created for the duration of the walk if
+    * none has been configured.  Archive paths are derived from the parent's path
+    * and the child's name.
+    * 
+    * @param root
+    * @return The listing of each directory, parents before their children
+    */
+   private List<Listing> walk(final File root)
    {
-      for (File file : files)
+      final List<Listing> listings = new ArrayList<Listing>();
+      List<Listing> level = Collections.singletonList(new Listing(root, ArchivePaths.root()));
+      ExecutorService createdExecutorService = null;
+      try
       {
-         if (log.isLoggable(Level.FINER))
+         while (!level.isEmpty())
          {
-            log.finer("Importing: " + file.getAbsolutePath());
-         }
-         final Archive<?> archive = this.getArchive();
-         final ArchivePath path = calculatePath(root, file);
-         if (file.isDirectory())
-         {
-            archive.addDirectory(path);
-            doImport(root, file.listFiles());
+            if (level.size() == 1)
+            {
+               level.get(0).list();
+            }
+            else
+            {
+               ExecutorService service = this.getArchive().as(Configurable.class).getConfiguration()
+                     .getExecutorService();
+               if (service == null)
+               {
+                  if (createdExecutorService == null)
+                  {
+                     createdExecutorService = Executors.newFixedThreadPool(Runtime.getRuntime()
+                           .availableProcessors());
+                  }
+                  service = createdExecutorService;
+               }
+               final List<FutureTask<Void>> jobs = new ArrayList<FutureTask<Void>>(level.size());
+               for (final Listing listing : level)
+               {
+                  final FutureTask<Void> job = new FutureTask<Void>(listing, null);
+                  jobs.add(job);
+                  service.execute(job);
+               }
+               // Run anything not yet started ourselves, so we progress even if the service is saturated
+               for (final FutureTask<Void> job : jobs)
+               {
+                  job.run();
+                  await(job);
+               }
+            }
+
+            // Descend
+            final List<Listing> next = new ArrayList<Listing>();
+            for (final Listing listing : level)
+            {
+               listings.add(listing);
+               for (final File directory : listing.directories)
+               {
+                  next.add(new Listing(directory, new BasicPath(listing.path, directory.getName())));
+               }
+            }
+            level = next;
          }
-         else
+      }
+      finally
+      {
+         if (createdExecutorService != null)
          {
-            archive.add(new FileAsset(file), path);
+            createdExecutorService.shutdown();
          }
       }
+      return listings;
    }
 
    /**
-    * Calculate the relative child path.
-    * 
-    * @param root
-    *           The Archive root folder
-    * @param child
-    *           The Child file
-    * @return a Path fort he child relative to root
+    * Waits upon the specified job, propagating any failure
     */
-   private ArchivePath calculatePath(File root, File child)
+   private static void await(final FutureTask<Void> job)
    {
-      String rootPath = unifyPath(root.getPath());
-      String childPath = unifyPath(child.getPath());
-      String archiveChildPath = childPath.replaceFirst(rootPath, "");
-      return new BasicPath(archiveChildPath);
+      boolean interrupted = false;
+      try
+      {
+         while (true)
+         {
+            try
+            {
+               job.get();
+               return;
+            }
+            catch (final InterruptedException ie)
+            {
+               interrupted = true;
+            }
+            catch (final ExecutionException ee)
+            {
+               final Throwable cause = ee.getCause();
+               if (cause instanceof RuntimeException)
+               {
+                  throw (RuntimeException) cause;
+               }
+               if (cause instanceof Error)
+               {
+                  throw (Error) cause;
+               }
+               throw new RuntimeException("Could not list directory", cause);
+            }
+         }
+      }
+      finally
+      {
+         if (interrupted)
+         {
+            Thread.currentThread().interrupt();
+         }
+      }
    }
 
+   // -------------------------------------------------------------------------------------||
+   // Inner Classes -----------------------------------------------------------------------||
+   // -------------------------------------------------------------------------------------||
+
    /**
-    * Windows vs Linux will return different path separators, unify the paths.
-    * 
-    * @return
+    * The contents of a single directory, populated by {@link Listing#run()}
     */
-   private String unifyPath(String path)
+   private static final class Listing implements Runnable
    {
-      return path.replaceAll("\\\\", "/");
+      private final File directory;
+
+      private final ArchivePath path;
+
+      /**
+       * All children, in the order returned by {@link File#listFiles()}
+       */
+      private final List<File> files = new ArrayList<File>();
+
+      /**
+       * Those children which are directories
+       */
+      private final Set<File> directories = new LinkedHashSet<File>();
+
+      Listing(final File directory, final ArchivePath path)
+      {
+         this.directory = directory;
+         this.path = path;
+      }
+
+      /**
+       * Lists the directory
+       */
+      void list()
+      {
+         final File[] children = directory.listFiles();
+         if (children == null)
+         {
+            throw new IllegalArgumentException("Could not list directory " + directory.getAbsolutePath());
+         }
+         for (final File child : children)
+         {
+            files.add(child);
+            if (child.isDirectory())
+            {
+               directories.add(child);
+            }
+         }
+      }
+
+      /**
+       * {@inheritDoc}
+       * @see java.lang.Runnable#run()
+       */
+      @Override
+      public void run()
+      {
+         this.list();
+      }
    }
 }
@@ -16,14 +16,18 @@
  */
 package org.jboss.shrinkwrap.impl.base.importer.tar;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ArchivePath;
+import org.jboss.shrinkwrap.api.asset.Asset;
 import org.jboss.shrinkwrap.api.asset.ByteArrayAsset;
 import org.jboss.shrinkwrap.api.importer.ArchiveImportException;
 import org.jboss.shrinkwrap.api.importer.StreamImporter;
@@ -31,6 +35,7 @@ import org.jboss.shrinkwrap.impl.base.AssignableBase;
 import org.jboss.shrinkwrap.impl.base.Validate;
 import org.jboss.shrinkwrap.impl.base.io.tar.TarEntry;
 import org.jboss.shrinkwrap.impl.base.io.tar.TarInputStream;
+import org.jboss.shrinkwrap.impl.base.path.BasicPath;
 
 /**
  * Base of implementations used to import existing 
@@ -49,9 +54,14 @@ abstract class TarImporterBase<S extends TarInputStream, I extends StreamImporte
    /**
     * Logger
     */
-   @SuppressWarnings("unused")
    private static final Logger log = Logger.getLogger(TarImporterBase.class.getName());
 
+   /**
+    * Size of the buffer into which an entry is first read; doubled as needed up to
+    * the size of the entry
+    */
+   private static final int INITIAL_ENTRY_BUFFER_SIZE = 64 * 1024;
+
    //-------------------------------------------------------------------------------------||
    // Constructor ------------------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -128,30 +138,48 @@ abstract class TarImporterBase<S extends TarInputStream, I extends StreamImporte
       Validate.notNull(stream, "Stream must be specified");
       try
       {
+         // Gather the entries (directories as null), then add them at once
+         final Map<ArchivePath, Asset> assets = new LinkedHashMap<ArchivePath, Asset>();
          TarEntry entry;
          while ((entry = stream.getNextEntry()) != null)
          {
             // Get the name
             String entryName = entry.getName();
 
-            final Archive<?> archive = this.getArchive();
-
             // Handle directories separately
             if (entry.isDirectory())
             {
-               archive.addDirectory(entryName);
+               assets.put(new BasicPath(entryName), null);
                continue;
             }
 
-            ByteArrayOutputStream output = new ByteArrayOutputStream(8192);
-            byte[] content = new byte[4096];
+            // The size is known up front, so read the content straight into place; 
+            // the buffer grows only as content arrives, as the header may overstate it
+            final long size = entry.getSize();
+            if (size > Integer.MAX_VALUE)
+            {
+               throw new IOException("Entry " + entryName + " is too large to import: " + size + " bytes");
+            }
+            byte[] content = new byte[(int) Math.min(size, INITIAL_ENTRY_BUFFER_SIZE)];
+            int offset = 0;
             int readBytes;
-            while ((readBytes = stream.read(content, 0, content.length)) != -1)
+            while (offset < size && (readBytes = stream.read(content, offset, content.length - offset)) != -1)
+            {
+               offset += readBytes;
+               if (offset == content.length && offset < size)
+               {
+                  final byte[] grown = new byte[(int) Math.min(size, (long) content.length * 2)];
+                  System.arraycopy(content, 0, grown, 0, offset);
+                  content = grown;
+               }
+            }
+            if (offset < size)
             {
-               output.write(content, 0, readBytes);
+               throw new IOException("Entry " + entryName + " ended after " + offset + " of " + size + " bytes");
             }
-            archive.add(new ByteArrayAsset(output.toByteArray()), entryName);
+            assets.put(new BasicPath(entryName), new ByteArrayAsset(content));
          }
+         this.getArchive().addAll(assets);
       }
       catch (final RuntimeException re)
       {
@@ -191,8 +219,22 @@ abstract class TarImporterBase<S extends TarInputStream, I extends StreamImporte
          throw new ArchiveImportException("Could not read archive file " + file, e);
       }
 
-      return this.importFrom(archive);
-
+      // We opened the file, so close it once done
+      try
+      {
+         return this.importFrom(archive);
+      }
+      finally
+      {
+         try
+         {
+            archive.close();
+         }
+         catch (final IOException ioe)
+         {
+            log.log(Level.FINER, "Could not close archive file " + file, ioe);
+         }
+      }
    }
 
    //-------------------------------------------------------------------------------------||
@@ -200,12 +242,14 @@ abstract class TarImporterBase<S extends TarInputStream, I extends StreamImporte
    //-------------------------------------------------------------------------------------||
 
    /**
-    * Obtains an implementation-specific stream to the specified {@link File}
+    * Obtains an implementation-specific stream to the specified {@link File}.
+    * By default wraps a stream to the file; implementations able to read 
+    * the file more directly may override.
     * @param file To open a stream to, must be specified
     * @return
     * @throws IOException If there was a problem getting an instream to the file
     */
-   private S getInputStreamForFile(File file) throws IOException
+   S getInputStreamForFile(File file) throws IOException
    {
       assert file != null : "File must be specified";
       return this.getInputStreamForRawStream(new FileInputStream(file));
@@ -16,11 +16,15 @@
  */
 package org.jboss.shrinkwrap.impl.base.importer.tar;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 
 import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.importer.TarImporter;
+import org.jboss.shrinkwrap.impl.base.io.tar.TarBuffer;
 import org.jboss.shrinkwrap.impl.base.io.tar.TarInputStream;
 
 /**
@@ -65,4 +69,40 @@ public class TarImporterImpl extends TarImporterBase<TarInputStream, TarImporter
       return new TarInputStream(in);
    }
 
+   //-------------------------------------------------------------------------------------||
+   // Overridden Implementations ---------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@inheritDoc}
+    * Reads the file through its channel, in blocks as large as 
+    * {@link TarBuffer#DEFAULT_CHANNEL_BLKSIZE} but no larger than needed for the file.
+    * The blocks are held on the heap rather than in direct buffers, which would be
+    * allocated (and released only upon collection) for each import.
+    * @see org.jboss.shrinkwrap.impl.base.importer.tar.TarImporterBase#getInputStreamForFile(java.io.File)
+    */
+   @Override
+   TarInputStream getInputStreamForFile(final File file) throws IOException
+   {
+      assert file != null : "File must be specified";
+      final FileChannel channel = new FileInputStream(file).getChannel();
+      try
+      {
+         final long blocks = (channel.size() + TarBuffer.DEFAULT_BLKSIZE - 1) / TarBuffer.DEFAULT_BLKSIZE;
+         final int blockSize = (int) Math.max(TarBuffer.DEFAULT_BLKSIZE, Math.min(
+               TarBuffer.DEFAULT_CHANNEL_BLKSIZE, blocks * TarBuffer.DEFAULT_BLKSIZE));
+         return new TarInputStream(channel, blockSize, false);
+      }
+      catch (final IOException ioe)
+      {
+         channel.close();
+         throw ioe;
+      }
+      catch (final RuntimeException re)
+      {
+         channel.close();
+         throw re;
+      }
+   }
+
 }
@@ -18,23 +18,32 @@ package org.jboss.shrinkwrap.impl.base.importer.zip;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.logging.Logger;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
 import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ArchivePath;
+import org.jboss.shrinkwrap.api.asset.Asset;
 import org.jboss.shrinkwrap.api.asset.ByteArrayAsset;
 import org.jboss.shrinkwrap.api.importer.ArchiveImportException;
 import org.jboss.shrinkwrap.api.importer.ZipImporter;
 import org.jboss.shrinkwrap.impl.base.AssignableBase;
 import org.jboss.shrinkwrap.impl.base.Validate;
 import org.jboss.shrinkwrap.impl.base.asset.ZipFileEntryAsset;
+import org.jboss.shrinkwrap.impl.base.asset.ZipSourceEntryAsset;
 import org.jboss.shrinkwrap.impl.base.io.IOUtil;
+import org.jboss.shrinkwrap.impl.base.io.zip.ZipSource;
 import org.jboss.shrinkwrap.impl.base.path.BasicPath;
+import org.jboss.shrinkwrap.spi.Releasable;
 
 /**
  * Used to import existing Zip files/streams into the given {@link Archive}  
@@ -54,6 +63,16 @@ public class ZipImporterImpl extends AssignableBase<Archive<?>> implements ZipIm
    @SuppressWarnings("unused")
    private static final Logger log = Logger.getLogger(ZipImporterImpl.class.getName());
 
+   /**
+    * Prefix of the temporary file to which streams are spooled
+    */
+   private static final String SPOOL_FILE_PREFIX = "shrinkwrap-import-";
+
+   /**
+    * Suffix of the temporary file to which streams are spooled
+    */
+   private static final String SPOOL_FILE_SUFFIX = ".zip";
+
    //-------------------------------------------------------------------------------------||
    // Constructor ------------------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -105,27 +124,27 @@ public class ZipImporterImpl extends AssignableBase<Archive<?>> implements ZipIm
          // Wrap in ZipInputStream if we haven't been given one
          final ZipInputStream zipStream = new ZipInputStream(stream);
 
+         // Gather the entries (directories as null), then add them at once
+         final Map<ArchivePath, Asset> assets = new LinkedHashMap<ArchivePath, Asset>();
          ZipEntry entry;
          while ((entry = zipStream.getNextEntry()) != null)
          {
             // Get the name
             final String entryName = entry.getName();
 
-            // Get the archive
-            final Archive<?> archive = this.getArchive();
-            
             // Handle directories separately
             if (entry.isDirectory())
             {
-               archive.addDirectory(entryName);
+               assets.put(new BasicPath(entryName), null);
                continue;
             }
 
             final ByteArrayOutputStream output = new ByteArrayOutputStream(8192);
             IOUtil.copy(zipStream, output);
-            archive.add(new ByteArrayAsset(output.toByteArray()), entryName);
+            assets.put(new BasicPath(entryName), new ByteArrayAsset(output.toByteArray()));
             zipStream.closeEntry();
          }
+         this.getArchive().addAll(assets);
       }
       catch (IOException e)
       {
@@ -134,6 +153,52 @@ public class ZipImporterImpl extends AssignableBase<Archive<?>> implements ZipIm
       return this;
    }
 
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.importer.ZipImporter#importFromSpooled(java.io.InputStream)
+    */
+   @Override
+   public ZipImporter importFromSpooled(final InputStream stream) throws ArchiveImportException
+   {
+      Validate.notNull(stream, "Stream must be specified");
+
+      // Spool the stream to disk
+      final File spool;
+      try
+      {
+         spool = File.createTempFile(SPOOL_FILE_PREFIX, SPOOL_FILE_SUFFIX);
+      }
+      catch (final IOException ioe)
+      {
+         throw new ArchiveImportException("Could not create file to spool stream", ioe);
+      }
+
+      final ZipSource source;
+      try
+      {
+         final OutputStream out = new FileOutputStream(spool);
+         try
+         {
+            IOUtil.copy(stream, out);
+         }
+         finally
+         {
+            out.close();
+         }
+
+         // The file is deleted once the source is closed, ie. the archive is released
+         source = ZipSource.openTemporary(spool);
+      }
+      catch (final IOException ioe)
+      {
+         spool.delete();
+         throw new ArchiveImportException("Could not import stream", ioe);
+      }
+
+      // Delegate
+      return this.importFrom(source);
+   }
+
    /**
     * {@inheritDoc}
     * @see org.jboss.shrinkwrap.api.importer.StreamImporter#importFrom(java.io.File)
@@ -142,10 +207,11 @@ public class ZipImporterImpl extends AssignableBase<Archive<?>> implements ZipIm
    {
       Validate.notNull(file, "File must be specified");
 
-      final ZipFile zipFile;
+      // Obtain a shared reference to the file, held by the archive until released
+      final ZipSource source;
       try
       {
-         zipFile = new ZipFile(file);
+         source = ZipSource.open(file);
       }
       catch (final IOException ioe)
       {
@@ -153,7 +219,7 @@ public class ZipImporterImpl extends AssignableBase<Archive<?>> implements ZipIm
       }
 
       // Delegate
-      return this.importFrom(zipFile);
+      return this.importFrom(source);
    }
 
    /**
@@ -167,6 +233,8 @@ public class ZipImporterImpl extends AssignableBase<Archive<?>> implements ZipIm
 
       try
       {
+         // Gather the entries (directories as null), then add them at once
+         final Map<ArchivePath, Asset> assets = new LinkedHashMap<ArchivePath, Asset>(file.size());
          Enumeration<? extends ZipEntry> entries = file.entries();
          while (entries.hasMoreElements())
          {
@@ -174,19 +242,64 @@ public class ZipImporterImpl extends AssignableBase<Archive<?>> implements ZipIm
 
             // Get the entry (path) name
             final String entryName = entry.getName();
-            
-            // Get the archive
-            final Archive<?> archive = this.getArchive();
 
             // Handle directories separately
             if (entry.isDirectory())
             {
-               archive.addDirectory(entryName);
+               assets.put(new BasicPath(entryName), null);
+               continue;
+            }
+
+            assets.put(new BasicPath(entryName), new ZipFileEntryAsset(file, entry));
+         }
+         this.getArchive().addAll(assets);
+      }
+      catch (Exception e)
+      {
+         throw new ArchiveImportException("Could not import file", e);
+      }
+      return this;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Imports the entries of the specified source, which is held (and so closed 
+    * upon release) by the archive
+    * 
+    * @param source
+    * @return
+    * @throws ArchiveImportException If the entries could not be imported
+    */
+   private ZipImporter importFrom(final ZipSource source) throws ArchiveImportException
+   {
+      final Archive<?> archive = this.getArchive();
+      archive.as(Releasable.class).hold(source);
+
+      try
+      {
+         // Gather the entries (directories as null), then add them at once
+         final Map<ArchivePath, Asset> assets = new LinkedHashMap<ArchivePath, Asset>(source.size());
+         final Enumeration<? extends ZipEntry> entries = source.entries();
+         while (entries.hasMoreElements())
+         {
+            final ZipEntry entry = entries.nextElement();
+
+            // Get the entry (path) name
+            final String entryName = entry.getName();
+
+            // Handle directories separately
+            if (entry.isDirectory())
+            {
+               assets.put(new BasicPath(entryName), null);
                continue;
             }
 
-            archive.add(new ZipFileEntryAsset(file, entry), new BasicPath(entryName));
+            assets.put(new BasicPath(entryName), new ZipSourceEntryAsset(source, entry));
          }
+         archive.addAll(assets);
       }
       catch (Exception e)
       {
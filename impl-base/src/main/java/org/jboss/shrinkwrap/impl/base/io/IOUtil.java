@@ -22,6 +22,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -160,6 +162,33 @@ public final class IOUtil
       output.flush();
    }
 
+   /**
+    * Copies the contents from an InputStream to a {@link WritableByteChannel}.  It is the
+    * responsibility of the caller to close both when done.
+    * 
+    * @param input
+    * @param output
+    * @return The number of bytes copied
+    * @throws IOException If a problem occurred during any I/O operations
+    */
+   public static long copy(final InputStream input, final WritableByteChannel output) throws IOException
+   {
+      final byte[] bytes = new byte[4096];
+      final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+      long copied = 0;
+      int read = 0;
+      while ((read = input.read(bytes)) != -1)
+      {
+         buffer.clear().limit(read);
+         while (buffer.hasRemaining())
+         {
+            output.write(buffer);
+         }
+         copied += read;
+      }
+      return copied;
+   }
+
    /**
     * Copies the contents from an InputStream to an OutputStream and closes both streams.
     * 
@@ -0,0 +1,376 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * GZIP decoding {@link InputStream} which reads every member of a multi-member
+ * stream, as written by {@link ParallelGzipOutputStream}.  As defined by RFC 1952,
+ * the content of such a stream is the concatenation of the content of its members;
+ * {@link java.util.zip.GZIPInputStream} on the JDKs we support stops after the first.
+ * After each member's trailer is verified, a new member is read from the remaining
+ * input until the end of the underlying stream.  As <code>gunzip</code> does, any 
+ * input following a member which does not start another is ignored.
+ *
+ * Not thread-safe.
+ *
+ * @see http://www.ietf.org/rfc/rfc1952.txt
+ * @version $Revision: $
+ */
+public class MultiMemberGzipInputStream extends InputStream
+{
+
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Size of the buffer of compressed input
+    */
+   private static final int BUFFER_SIZE = 8192;
+
+   /**
+    * Header flags, as defined by RFC 1952
+    */
+   private static final int FHCRC = 2;
+
+   private static final int FEXTRA = 4;
+
+   private static final int FNAME = 8;
+
+   private static final int FCOMMENT = 16;
+
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Underlying compressed input
+    */
+   private final InputStream in;
+
+   /**
+    * Compressed input read from {@link #in}; bytes before {@link #pos} are consumed
+    */
+   private final byte[] buffer = new byte[BUFFER_SIZE];
+
+   private int pos;
+
+   private int length;
+
+   /**
+    * Inflater of the current member's raw deflated data, reset for each member
+    */
+   private final Inflater inflater = new Inflater(true);
+
+   /**
+    * Checksum of the current member's content
+    */
+   private final CRC32 crc = new CRC32();
+
+   private final byte[] oneByte = new byte[1];
+
+   /**
+    * Whether the last member has been read
+    */
+   private boolean eof;
+
+   private boolean closed;
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Creates a new instance reading from the specified GZIP stream, reading the 
+    * header of its first member
+    *
+    * @param in
+    * @throws IllegalArgumentException If the input is not specified
+    * @throws IOException If the input does not start with a GZIP member
+    */
+   public MultiMemberGzipInputStream(final InputStream in) throws IllegalArgumentException, IOException
+   {
+      if (in == null)
+      {
+         throw new IllegalArgumentException("in must be specified");
+      }
+      this.in = in;
+      if (!this.readHeader())
+      {
+         throw new ZipException("Not in GZIP format");
+      }
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Required Implementations -----------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@inheritDoc}
+    * @see java.io.InputStream#read()
+    */
+   @Override
+   public int read() throws IOException
+   {
+      return this.read(oneByte, 0, 1) == -1 ? -1 : oneByte[0] & 0xFF;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Overridden Implementations ---------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@inheritDoc}
+    * @see java.io.InputStream#read(byte[], int, int)
+    */
+   @Override
+   public int read(final byte[] b, final int off, final int len) throws IOException
+   {
+      if (closed)
+      {
+         throw new IOException("Stream closed");
+      }
+      if (eof)
+      {
+         return -1;
+      }
+      if (len == 0)
+      {
+         return 0;
+      }
+      while (true)
+      {
+         final int inflated;
+         try
+         {
+            inflated = inflater.inflate(b, off, len);
+         }
+         catch (final DataFormatException dfe)
+         {
+            throw new ZipException(dfe.getMessage() == null ? "Invalid deflated data" : dfe.getMessage());
+         }
+         if (inflated > 0)
+         {
+            crc.update(b, off, inflated);
+            return inflated;
+         }
+         if (inflater.finished())
+         {
+            // Give back what the inflater did not consume, then move on to the next member
+            pos = length - inflater.getRemaining();
+            this.readTrailer();
+            if (!this.readHeader())
+            {
+               eof = true;
+               return -1;
+            }
+         }
+         else if (inflater.needsDictionary())
+         {
+            throw new ZipException("Unexpected preset dictionary in GZIP member");
+         }
+         else if (inflater.needsInput())
+         {
+            if (!this.fill())
+            {
+               throw new EOFException("Unexpected end of GZIP stream");
+            }
+            this.feedInflater();
+         }
+      }
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see java.io.InputStream#available()
+    */
+   @Override
+   public int available() throws IOException
+   {
+      if (closed)
+      {
+         throw new IOException("Stream closed");
+      }
+      return eof ? 0 : 1;
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see java.io.InputStream#close()
+    */
+   @Override
+   public void close() throws IOException
+   {
+      if (!closed)
+      {
+         closed = true;
+         inflater.end();
+         in.close();
+      }
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Reads the header of the next member and readies the inflater for it
+    * @return false if the input has ended, or does not continue with another member
+    */
+   private boolean readHeader() throws IOException
+   {
+      // The end of the input, or anything other than a member, ends the stream 
+      if (!this.hasInput() || this.peekUByte() != 0x1f)
+      {
+         return false;
+      }
+      pos++;
+      if (!this.hasInput() || this.peekUByte() != 0x8b)
+      {
+         return false;
+      }
+      pos++;
+      if (this.readUByte() != 8)
+      {
+         throw new ZipException("Unsupported GZIP compression method");
+      }
+      final int flags = this.readUByte();
+
+      // Modification time, extra flags and OS
+      this.skipBytes(6);
+      if ((flags & FEXTRA) != 0)
+      {
+         this.skipBytes(this.readUShort());
+      }
+      if ((flags & FNAME) != 0)
+      {
+         this.skipString();
+      }
+      if ((flags & FCOMMENT) != 0)
+      {
+         this.skipString();
+      }
+      if ((flags & FHCRC) != 0)
+      {
+         this.skipBytes(2);
+      }
+
+      inflater.reset();
+      crc.reset();
+      this.feedInflater();
+      return true;
+   }
+
+   /**
+    * Reads the trailer of the member just inflated, verifying its content
+    */
+   private void readTrailer() throws IOException
+   {
+      final long expectedCrc = this.readUInt();
+      final long expectedSize = this.readUInt();
+      if (expectedCrc != crc.getValue())
+      {
+         throw new ZipException("Corrupt GZIP trailer: CRC mismatch");
+      }
+      if (expectedSize != (inflater.getBytesWritten() & 0xFFFFFFFFL))
+      {
+         throw new ZipException("Corrupt GZIP trailer: size mismatch");
+      }
+   }
+
+   /**
+    * Hands all buffered input to the inflater
+    */
+   private void feedInflater()
+   {
+      if (pos < length)
+      {
+         inflater.setInput(buffer, pos, length - pos);
+         pos = length;
+      }
+   }
+
+   /**
+    * Refills the buffer from the underlying stream
+    * @return false at the end of the underlying stream
+    */
+   private boolean fill() throws IOException
+   {
+      int read;
+      do
+      {
+         read = in.read(buffer, 0, buffer.length);
+      }
+      while (read == 0);
+      pos = 0;
+      length = Math.max(read, 0);
+      return read > 0;
+   }
+
+   private boolean hasInput() throws IOException
+   {
+      return pos < length || this.fill();
+   }
+
+   private int peekUByte()
+   {
+      return buffer[pos] & 0xFF;
+   }
+
+   private int readUByte() throws IOException
+   {
+      if (!this.hasInput())
+      {
+         throw new EOFException("Unexpected end of GZIP stream");
+      }
+      return buffer[pos++] & 0xFF;
+   }
+
+   private int readUShort() throws IOException
+   {
+      return this.readUByte() | (this.readUByte() << 8);
+   }
+
+   private long readUInt() throws IOException
+   {
+      return (this.readUShort() | ((long) this.readUShort() << 16));
+   }
+
+   private void skipBytes(final int count) throws IOException
+   {
+      for (int i = 0; i < count; i++)
+      {
+         this.readUByte();
+      }
+   }
+
+   private void skipString() throws IOException
+   {
+      while (this.readUByte() != 0)
+      {
+         // Skip up to and including the terminating zero
+      }
+   }
+}
@@ -0,0 +1,79 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.io;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * {@link OutputStream} which shields the wrapped stream from being closed.
+ * Used when an encoding stream (ie. ZIP or GZIP) must be closed in order
+ * to write its trailing data, but the underlying target is owned by the caller.
+ * Calls to {@link #close()} will only flush the wrapped stream.
+ *
+ * @version $Revision: $
+ */
+public class NonClosingOutputStream extends FilterOutputStream
+{
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Creates a new instance wrapping the specified target
+    *
+    * @param target
+    * @throws IllegalArgumentException If the target is not specified
+    */
+   public NonClosingOutputStream(final OutputStream target) throws IllegalArgumentException
+   {
+      super(target);
+      if (target == null)
+      {
+         throw new IllegalArgumentException("target must be specified");
+      }
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Overridden Implementations ---------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@inheritDoc}
+    * Writes the full range directly to the target rather than byte-by-byte as
+    * {@link FilterOutputStream} would.
+    * @see java.io.FilterOutputStream#write(byte[], int, int)
+    */
+   @Override
+   public void write(final byte[] b, final int off, final int len) throws IOException
+   {
+      out.write(b, off, len);
+   }
+
+   /**
+    * Flushes, but does not close, the underlying stream
+    * @see java.io.FilterOutputStream#close()
+    */
+   @Override
+   public void close() throws IOException
+   {
+      out.flush();
+   }
+
+}
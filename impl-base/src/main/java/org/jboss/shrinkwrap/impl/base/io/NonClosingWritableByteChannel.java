@@ -0,0 +1,105 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * {@link WritableByteChannel} which shields the wrapped channel from being closed.
+ * The channel counterpart of {@link NonClosingOutputStream}; calls to 
+ * {@link #close()} will only close this view, leaving the target open for its owner.
+ *
+ * @version $Revision: $
+ */
+public class NonClosingWritableByteChannel implements WritableByteChannel
+{
+
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * The wrapped channel
+    */
+   private final WritableByteChannel target;
+
+   /**
+    * Whether this view has been closed
+    */
+   private boolean closed;
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Creates a new instance wrapping the specified target
+    *
+    * @param target
+    * @throws IllegalArgumentException If the target is not specified
+    */
+   public NonClosingWritableByteChannel(final WritableByteChannel target) throws IllegalArgumentException
+   {
+      if (target == null)
+      {
+         throw new IllegalArgumentException("target must be specified");
+      }
+      this.target = target;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Required Implementations -----------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@inheritDoc}
+    * @see java.nio.channels.WritableByteChannel#write(java.nio.ByteBuffer)
+    */
+   @Override
+   public int write(final ByteBuffer src) throws IOException
+   {
+      if (closed)
+      {
+         throw new ClosedChannelException();
+      }
+      return target.write(src);
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see java.nio.channels.Channel#isOpen()
+    */
+   @Override
+   public boolean isOpen()
+   {
+      return !closed && target.isOpen();
+   }
+
+   /**
+    * Closes this view, but not the underlying channel
+    * @see java.nio.channels.Channel#close()
+    */
+   @Override
+   public void close() throws IOException
+   {
+      closed = true;
+   }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * {@link WritableByteChannel} writing to an {@link OutputStream}.  Unlike
+ * the channel of {@link java.nio.channels.Channels#newChannel(OutputStream)}, 
+ * buffers backed by an array are written in place rather than copied through
+ * an intermediate buffer.  Closing the channel does not close the stream.
+ *
+ * @version $Revision: $
+ */
+public class OutputStreamChannel implements WritableByteChannel
+{
+
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Size of the buffer through which direct buffers are copied
+    */
+   private static final int BUFFER_SIZE = 8192;
+
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Stream to which we write
+    */
+   private final OutputStream out;
+
+   /**
+    * Buffer through which direct buffers are copied; created on first use
+    */
+   private byte[] copyBuffer;
+
+   /**
+    * Whether we've been closed
+    */
+   private boolean closed;
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Creates a new instance writing to the specified stream
+    *
+    * @param out
+    * @throws IllegalArgumentException If the stream is not specified
+    */
+   public OutputStreamChannel(final OutputStream out) throws IllegalArgumentException
+   {
+      if (out == null)
+      {
+         throw new IllegalArgumentException("stream must be specified");
+      }
+      this.out = out;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Required Implementations -----------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@inheritDoc}
+    * @see java.nio.channels.WritableByteChannel#write(java.nio.ByteBuffer)
+    */
+   @Override
+   public int write(final ByteBuffer src) throws IOException
+   {
+      if (closed)
+      {
+         throw new ClosedChannelException();
+      }
+
+      final int length = src.remaining();
+      if (src.hasArray())
+      {
+         out.write(src.array(), src.arrayOffset() + src.position(), length);
+         src.position(src.limit());
+         return length;
+      }
+
+      if (copyBuffer == null)
+      {
+         copyBuffer = new byte[BUFFER_SIZE];
+      }
+      while (src.hasRemaining())
+      {
+         final int chunk = Math.min(src.remaining(), copyBuffer.length);
+         src.get(copyBuffer, 0, chunk);
+         out.write(copyBuffer, 0, chunk);
+      }
+      return length;
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see java.nio.channels.Channel#isOpen()
+    */
+   @Override
+   public boolean isOpen()
+   {
+      return !closed;
+   }
+
+   /**
+    * Closes this channel, but not the underlying stream
+    * @see java.nio.channels.Channel#close()
+    */
+   @Override
+   public void close()
+   {
+      closed = true;
+   }
+
+}
@@ -0,0 +1,576 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * GZIP encoding {@link OutputStream} which compresses concurrently upon a 
+ * supplied {@link Executor}.  Contents are cut into fixed-size blocks, each 
+ * of which is deflated independently and written as a complete GZIP member 
+ * (header, deflated data and trailer).  Members are written to the underlying
+ * stream strictly in the order their blocks were filled; as defined by 
+ * RFC 1952, the concatenation of members is itself a valid GZIP stream, 
+ * decoded by <code>gunzip</code> and by {@link MultiMemberGzipInputStream} 
+ * as the concatenation of their contents.  {@link java.util.zip.GZIPInputStream}
+ * on the JDKs we support reads only the first member.
+ *
+ * <br /><br />
+ * As each block starts without a dictionary, the output is marginally larger than
+ * that of a single member; the larger the block, the smaller the difference.
+ *
+ * <br /><br />
+ * Jobs not yet started by the {@link Executor} when their result is
+ * required are run in the calling {@link Thread}, so this stream will progress
+ * even if the {@link Executor} is saturated (or is the one running the caller).
+ *
+ * Not thread-safe.
+ *
+ * @see http://www.ietf.org/rfc/rfc1952.txt
+ * @version $Revision: $
+ */
+public class ParallelGzipOutputStream extends OutputStream
+{
+
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Default number of uncompressed bytes in each member
+    */
+   public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+   /**
+    * Upper bound of uncompressed bytes held by blocks waiting to be written
+    */
+   private static final long MAX_PENDING_BYTES = 32 * 1024 * 1024;
+
+   /**
+    * Member header: magic, DEFLATE method, no flags, no modification time, 
+    * no extra flags, unknown operating system
+    */
+   private static final byte[] HEADER =
+   {(byte) 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+   /**
+    * Length of the member trailer (CRC-32 and size)
+    */
+   private static final int LENGTH_TRAILER = 8;
+
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Underlying stream to which we write the encoded members
+    */
+   private final OutputStream out;
+
+   /**
+    * Where deflate jobs are run
+    */
+   private final Executor executor;
+
+   /**
+    * Number of uncompressed bytes in each member
+    */
+   private final int blockSize;
+
+   /**
+    * Upper bound of blocks waiting to be written
+    */
+   private final int maxPendingBlocks;
+
+   /**
+    * Upper bound of deflate jobs handed to the {@link Executor} and not yet completed
+    */
+   private final int parallelism;
+
+   /**
+    * Number of leading {@link #pending} jobs which have been handed to the {@link Executor}
+    */
+   private int submitted;
+
+   /**
+    * Jobs submitted, in order, whose members have not yet been written
+    */
+   private final LinkedList<FutureTask<Member>> pending = new LinkedList<FutureTask<Member>>();
+
+   /**
+    * Block currently being filled
+    */
+   private byte[] block;
+
+   /**
+    * Number of bytes in {@link #block}
+    */
+   private int blockLength;
+
+   /**
+    * Number of blocks submitted
+    */
+   private long blocks;
+
+   /**
+    * Compression level applied to each block
+    */
+   private int level = Deflater.DEFAULT_COMPRESSION;
+
+   /**
+    * Whether {@link #finish()} has been called
+    */
+   private boolean finished;
+
+   /**
+    * Whether {@link #close()} has been called
+    */
+   private boolean closed;
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Creates a new stream writing to the specified target, compressing
+    * blocks of {@link #DEFAULT_BLOCK_SIZE} upon the specified {@link Executor}
+    *
+    * @param out
+    * @param executor
+    * @param parallelism The most deflate jobs handed to the executor at once, also used in bounding
+    *   how many blocks may be held before being written
+    * @throws IllegalArgumentException If either the stream or executor is not specified, or the
+    *   parallelism is less than 1
+    */
+   public ParallelGzipOutputStream(final OutputStream out, final Executor executor, final int parallelism)
+         throws IllegalArgumentException
+   {
+      this(out, executor, parallelism, DEFAULT_BLOCK_SIZE);
+   }
+
+   /**
+    * Creates a new stream writing to the specified target, compressing
+    * blocks of the specified size upon the specified {@link Executor}
+    *
+    * @param out
+    * @param executor
+    * @param parallelism The most deflate jobs handed to the executor at once, also used in bounding
+    *   how many blocks may be held before being written
+    * @param blockSize Number of uncompressed bytes in each member
+    * @throws IllegalArgumentException If either the stream or executor is not specified, or the
+    *   parallelism or block size is less than 1
+    */
+   public ParallelGzipOutputStream(final OutputStream out, final Executor executor, final int parallelism,
+         final int blockSize) throws IllegalArgumentException
+   {
+      // Precondition checks
+      if (out == null)
+      {
+         throw new IllegalArgumentException("out must be specified");
+      }
+      if (executor == null)
+      {
+         throw new IllegalArgumentException("executor must be specified");
+      }
+      if (parallelism < 1)
+      {
+         throw new IllegalArgumentException("parallelism must be at least 1");
+      }
+      if (blockSize < 1)
+      {
+         throw new IllegalArgumentException("blockSize must be at least 1");
+      }
+
+      // Set
+      this.out = out;
+      this.executor = executor;
+      this.blockSize = blockSize;
+      this.maxPendingBlocks = (int) Math.max(1, Math.min(parallelism * 4L, MAX_PENDING_BYTES / blockSize));
+      this.parallelism = parallelism;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Functional Methods -----------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Sets the compression level used for subsequent blocks
+    *
+    * @param level 0-9, or {@link Deflater#DEFAULT_COMPRESSION}
+    * @throws IllegalArgumentException If the level is not valid
+    */
+   public void setLevel(final int level) throws IllegalArgumentException
+   {
+      if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION)
+      {
+         throw new IllegalArgumentException("Invalid compression level: " + level);
+      }
+      this.level = level;
+   }
+
+   /**
+    * Finishes writing the GZIP stream without closing the underlying stream
+    *
+    * @throws IOException If an I/O error has occurred
+    */
+   public void finish() throws IOException
+   {
+      this.ensureOpen();
+      if (this.finished)
+      {
+         return;
+      }
+
+      // Submit what remains; an empty stream is still made of one (empty) member
+      if (this.blockLength > 0 || this.blocks == 0)
+      {
+         this.submitBlock();
+      }
+
+      // Write all outstanding members
+      while (!this.pending.isEmpty())
+      {
+         this.writeFirstPending();
+      }
+      this.out.flush();
+      this.finished = true;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Overridden Implementations ---------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@inheritDoc}
+    * @see java.io.OutputStream#write(int)
+    */
+   @Override
+   public void write(final int b) throws IOException
+   {
+      this.ensureWritable();
+      if (this.block == null)
+      {
+         this.block = new byte[this.blockSize];
+      }
+      this.block[this.blockLength++] = (byte) b;
+      if (this.blockLength == this.blockSize)
+      {
+         this.submitBlock();
+      }
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see java.io.OutputStream#write(byte[], int, int)
+    */
+   @Override
+   public void write(final byte[] b, final int off, final int len) throws IOException
+   {
+      this.ensureWritable();
+      if (off < 0 || len < 0 || off + len > b.length)
+      {
+         throw new IndexOutOfBoundsException();
+      }
+      int position = off;
+      int remaining = len;
+      while (remaining > 0)
+      {
+         if (this.block == null)
+         {
+            this.block = new byte[this.blockSize];
+         }
+         final int length = Math.min(remaining, this.blockSize - this.blockLength);
+         System.arraycopy(b, position, this.block, this.blockLength, length);
+         this.blockLength += length;
+         position += length;
+         remaining -= length;
+         if (this.blockLength == this.blockSize)
+         {
+            this.submitBlock();
+         }
+      }
+   }
+
+   /**
+    * No-op while blocks are being filled, as flushing a partial block would
+    * cost compression; the underlying stream is flushed upon {@link #finish()}
+    * @see java.io.OutputStream#flush()
+    */
+   @Override
+   public void flush() throws IOException
+   {
+      // NOOP
+   }
+
+   /**
+    * Finishes writing the GZIP stream and closes the underlying stream.  If the stream
+    * could not be finished, any outstanding jobs are cancelled.
+    * @see java.io.OutputStream#close()
+    */
+   @Override
+   public void close() throws IOException
+   {
+      if (this.closed)
+      {
+         return;
+      }
+      try
+      {
+         this.finish();
+      }
+      finally
+      {
+         this.closed = true;
+         for (final FutureTask<Member> job : this.pending)
+         {
+            job.cancel(false);
+         }
+         this.pending.clear();
+         this.block = null;
+         this.out.close();
+      }
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Submits the current block for compression, then writes out what members we can, 
+    * blocking if we're holding too many
+    * @throws IOException
+    */
+   private void submitBlock() throws IOException
+   {
+      // Hand off the block; the job owns it from here
+      final FutureTask<Member> job = new FutureTask<Member>(new DeflateTask(this.block, this.blockLength,
+            this.level));
+      this.block = null;
+      this.blockLength = 0;
+      this.blocks++;
+
+      // Submit and record
+      this.pending.add(job);
+      this.submitJobs();
+
+      // Write out what we can; block if we're holding too much
+      while (!this.pending.isEmpty())
+      {
+         final boolean full = this.pending.size() > this.maxPendingBlocks;
+         if (!full && !this.pending.getFirst().isDone())
+         {
+            break;
+         }
+         this.writeFirstPending();
+      }
+   }
+
+   /**
+    * Removes the first pending job, running it here if it has not yet
+    * been started, and writes its member
+    * @throws IOException
+    */
+   private void writeFirstPending() throws IOException
+   {
+      final FutureTask<Member> job = this.pending.removeFirst();
+      if (this.submitted > 0)
+      {
+         this.submitted--;
+      }
+
+      // No-op if already run or running elsewhere
+      job.run();
+
+      final Member member;
+      try
+      {
+         member = job.get();
+      }
+      catch (final InterruptedException ie)
+      {
+         Thread.currentThread().interrupt();
+         throw new InterruptedIOException("Interrupted while waiting for block to be compressed");
+      }
+      catch (final ExecutionException ee)
+      {
+         final IOException ioe = new IOException("Could not compress block: " + ee.getCause());
+         ioe.initCause(ee.getCause());
+         throw ioe;
+      }
+
+      this.out.write(member.data, 0, member.length);
+
+      // A slot may have freed
+      this.submitJobs();
+   }
+
+   /**
+    * Hands pending jobs to the {@link Executor}, in order, such that no more than the 
+    * expected parallelism are in flight at once.  The others are held until a job completes,
+    * or are run here once their result is required, so a shared {@link Executor} is left
+    * room for other work.  A job the {@link Executor} rejects is likewise run here.
+    */
+   private void submitJobs()
+   {
+      int inFlight = 0;
+      final Iterator<FutureTask<Member>> jobs = this.pending.iterator();
+      for (int i = 0; i < this.submitted; i++)
+      {
+         if (!jobs.next().isDone())
+         {
+            inFlight++;
+         }
+      }
+      while (inFlight < this.parallelism && jobs.hasNext())
+      {
+         try
+         {
+            this.executor.execute(jobs.next());
+         }
+         catch (final RejectedExecutionException ree)
+         {
+            break;
+         }
+         this.submitted++;
+         inFlight++;
+      }
+   }
+
+   private void ensureOpen() throws IOException
+   {
+      if (this.closed)
+      {
+         throw new IOException("Stream closed");
+      }
+   }
+
+   private void ensureWritable() throws IOException
+   {
+      this.ensureOpen();
+      if (this.finished)
+      {
+         throw new IOException("Stream finished");
+      }
+   }
+
+   /**
+    * Writes the low 32 bits of the specified value in little-endian order into the 
+    * buffer at the specified position, returning the next position
+    */
+   private static int putInt(final byte[] b, final int pos, final long value)
+   {
+      b[pos] = (byte) value;
+      b[pos + 1] = (byte) (value >>> 8);
+      b[pos + 2] = (byte) (value >>> 16);
+      b[pos + 3] = (byte) (value >>> 24);
+      return pos + 4;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Inner Classes ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * An encoded GZIP member
+    */
+   private static final class Member
+   {
+      private final byte[] data;
+
+      private final int length;
+
+      Member(final byte[] data, final int length)
+      {
+         this.data = data;
+         this.length = length;
+      }
+   }
+
+   /**
+    * Job encoding a block as a complete GZIP member
+    */
+   private static final class DeflateTask implements Callable<Member>
+   {
+      private final byte[] block;
+
+      private final int length;
+
+      private final int level;
+
+      DeflateTask(final byte[] block, final int length, final int level)
+      {
+         this.block = block;
+         this.length = length;
+         this.level = level;
+      }
+
+      @Override
+      public Member call() throws Exception
+      {
+         // Room for the header, trailer and incompressible data with a little overhead
+         byte[] data = new byte[HEADER.length + this.length + (this.length >> 8) + 64 + LENGTH_TRAILER];
+         System.arraycopy(HEADER, 0, data, 0, HEADER.length);
+         int pos = HEADER.length;
+
+         // Deflate (raw; the header and trailer are our own)
+         final Deflater deflater = new Deflater(this.level, true);
+         try
+         {
+            if (this.block != null)
+            {
+               deflater.setInput(this.block, 0, this.length);
+            }
+            deflater.finish();
+            while (!deflater.finished())
+            {
+               if (pos == data.length - LENGTH_TRAILER)
+               {
+                  final byte[] grown = new byte[data.length * 2];
+                  System.arraycopy(data, 0, grown, 0, pos);
+                  data = grown;
+               }
+               pos += deflater.deflate(data, pos, data.length - LENGTH_TRAILER - pos);
+            }
+         }
+         finally
+         {
+            deflater.end();
+         }
+
+         // Trailer
+         final CRC32 crc = new CRC32();
+         if (this.block != null)
+         {
+            crc.update(this.block, 0, this.length);
+         }
+         pos = putInt(data, pos, crc.getValue());
+         pos = putInt(data, pos, this.length);
+         return new Member(data, pos);
+      }
+   }
+}
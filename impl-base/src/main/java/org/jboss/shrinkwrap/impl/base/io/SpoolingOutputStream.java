@@ -0,0 +1,286 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.io;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@link OutputStream} holding all written content such that it may be 
+ * measured, then replayed via {@link #writeTo(OutputStream)}.  Content is held
+ * in memory up to a threshold, beyond which it is spooled to a temporary file,
+ * such that the memory held is bounded regardless of the size of the content.
+ * May be reused via {@link #reset()}; the in-memory buffer is kept, any spool
+ * file is deleted.  Not thread-safe.
+ *
+ * @version $Revision: $
+ */
+public class SpoolingOutputStream extends OutputStream
+{
+
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Logger
+    */
+   private static final Logger log = Logger.getLogger(SpoolingOutputStream.class.getName());
+
+   /**
+    * Number of bytes held in memory before spooling, by default
+    */
+   public static final int DEFAULT_THRESHOLD = 1024 * 1024;
+
+   /**
+    * Prefix of the temporary file to which content is spooled
+    */
+   private static final String SPOOL_FILE_PREFIX = "shrinkwrap-spool-";
+
+   /**
+    * Suffix of the temporary file to which content is spooled
+    */
+   private static final String SPOOL_FILE_SUFFIX = ".tmp";
+
+   /**
+    * Size of the buffer in front of the spool file
+    */
+   private static final int BUFFER_SIZE = 8192;
+
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Number of bytes held in memory before spooling
+    */
+   private final int threshold;
+
+   /**
+    * Content held in memory; empty once spooled
+    */
+   private final ByteArrayOutputStream memory = new ByteArrayOutputStream(BUFFER_SIZE);
+
+   /**
+    * File to which content is spooled, or null if held in memory
+    */
+   private File spoolFile;
+
+   /**
+    * Stream to the spool file, or null if held in memory
+    */
+   private OutputStream spoolStream;
+
+   /**
+    * Number of bytes written since construction or the last reset
+    */
+   private long size;
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Creates a new instance spooling beyond the {@link #DEFAULT_THRESHOLD}
+    */
+   public SpoolingOutputStream()
+   {
+      this(DEFAULT_THRESHOLD);
+   }
+
+   /**
+    * Creates a new instance spooling content beyond the specified number of bytes
+    *
+    * @param threshold
+    * @throws IllegalArgumentException If the threshold is negative
+    */
+   public SpoolingOutputStream(final int threshold) throws IllegalArgumentException
+   {
+      if (threshold < 0)
+      {
+         throw new IllegalArgumentException("threshold must not be negative");
+      }
+      this.threshold = threshold;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Functional Methods -----------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Obtains the number of bytes written since construction or the last reset
+    * @return
+    */
+   public long size()
+   {
+      return size;
+   }
+
+   /**
+    * Returns whether the content has been spooled to disk
+    * @return
+    */
+   public boolean isSpooled()
+   {
+      return spoolFile != null;
+   }
+
+   /**
+    * Writes all content into the specified stream, which is left open
+    *
+    * @param out
+    * @throws IOException If an error occurred in reading or writing
+    */
+   public void writeTo(final OutputStream out) throws IOException
+   {
+      if (spoolFile == null)
+      {
+         memory.writeTo(out);
+         return;
+      }
+
+      spoolStream.flush();
+      final InputStream in = new FileInputStream(spoolFile);
+      try
+      {
+         IOUtil.copy(in, out);
+      }
+      finally
+      {
+         in.close();
+      }
+   }
+
+   /**
+    * Discards all content, deleting any spool file
+    */
+   public void reset()
+   {
+      memory.reset();
+      size = 0;
+      if (spoolFile == null)
+      {
+         return;
+      }
+
+      try
+      {
+         spoolStream.close();
+      }
+      catch (final IOException ioe)
+      {
+         if (log.isLoggable(Level.FINER))
+         {
+            log.finer("Could not close spool file " + spoolFile + " due to: " + ioe.getMessage() + "; ignoring");
+         }
+      }
+      if (!spoolFile.delete() && log.isLoggable(Level.FINER))
+      {
+         log.finer("Could not delete spool file " + spoolFile);
+      }
+      spoolStream = null;
+      spoolFile = null;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Required Implementations -----------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@inheritDoc}
+    * @see java.io.OutputStream#write(int)
+    */
+   @Override
+   public void write(final int b) throws IOException
+   {
+      this.target(1).write(b);
+      size++;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Overridden Implementations ---------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@inheritDoc}
+    * @see java.io.OutputStream#write(byte[], int, int)
+    */
+   @Override
+   public void write(final byte[] b, final int off, final int len) throws IOException
+   {
+      this.target(len).write(b, off, len);
+      size += len;
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see java.io.OutputStream#flush()
+    */
+   @Override
+   public void flush() throws IOException
+   {
+      if (spoolStream != null)
+      {
+         spoolStream.flush();
+      }
+   }
+
+   /**
+    * Discards all content, deleting any spool file
+    * @see java.io.OutputStream#close()
+    */
+   @Override
+   public void close()
+   {
+      this.reset();
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Obtains the stream to which the specified number of bytes is to be written,
+    * spooling the content to disk should it exceed the threshold
+    *
+    * @param length
+    * @return
+    * @throws IOException If the spool file could not be created
+    */
+   private OutputStream target(final int length) throws IOException
+   {
+      if (spoolStream == null && size + length > threshold)
+      {
+         final File file = File.createTempFile(SPOOL_FILE_PREFIX, SPOOL_FILE_SUFFIX);
+         final OutputStream stream = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+         memory.writeTo(stream);
+         memory.reset();
+         spoolFile = file;
+         spoolStream = stream;
+      }
+      return spoolStream != null ? spoolStream : memory;
+   }
+
+}
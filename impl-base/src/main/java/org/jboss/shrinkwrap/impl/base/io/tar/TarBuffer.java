@@ -18,6 +18,10 @@ package org.jboss.shrinkwrap.impl.base.io.tar;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
 
 
 /**
@@ -28,6 +32,12 @@ import java.io.OutputStream;
  * performs is to ensure that files have the correct "block"
  * size, or other tars will complain.
  * <p>
+ * A TarBuffer may also be backed by an NIO channel, in which case
+ * it reads and writes blocks much larger than the tar blocking
+ * factor, optionally through a direct buffer, and records are handed
+ * out as ByteBuffer views of the block rather than copied. Archives
+ * written through a channel are padded to DEFAULT_BLKSIZE only.
+ * <p>
  * You should never have a need to access this class directly.
  * TarBuffers are created by Tar IO Streams.
  *
@@ -43,16 +53,22 @@ extends		Object
 	{
 	public static final int		DEFAULT_RCDSIZE = ( 512 );
 	public static final int		DEFAULT_BLKSIZE = ( DEFAULT_RCDSIZE * 20 );
+	public static final int		DEFAULT_CHANNEL_BLKSIZE = ( DEFAULT_BLKSIZE * 100 );
 
 	private InputStream		inStream;
 	private OutputStream	outStream;
 
+	private ReadableByteChannel		inChannel;
+	private WritableByteChannel		outChannel;
+
+	private ByteBuffer	block;
 	private byte[]	blockBuffer;
 	private int		currBlkIdx;
 	private int		currRecIdx;
 	private int		blockSize;
 	private int		recordSize;
 	private int		recsPerBlock;
+	private int		padSize;
 
 	private boolean	debug;
 
@@ -98,18 +114,78 @@ extends		Object
 		}
 
 	/**
-	 * Initialization common to all constructors.
+	 * Create a TarBuffer reading from a channel in blocks of the given
+	 * size, which must be a multiple of DEFAULT_BLKSIZE.
+	 *
+	 * @param inChannel The channel from which to read, which must block.
+	 * @param blockSize The number of bytes read at once.
+	 * @param direct If true, read through a direct buffer.
+	 */
+	public
+	TarBuffer( ReadableByteChannel inChannel, int blockSize, boolean direct )
+		{
+		this.inChannel = inChannel;
+		this.initialize( blockSize, TarBuffer.DEFAULT_RCDSIZE, direct );
+		}
+
+	/**
+	 * Create a TarBuffer writing to a channel in blocks of the given
+	 * size, which must be a multiple of DEFAULT_BLKSIZE. The last block
+	 * is only padded to a multiple of DEFAULT_BLKSIZE.
+	 *
+	 * @param outChannel The channel to which to write, which must block.
+	 * @param blockSize The number of bytes written at once.
+	 * @param direct If true, write through a direct buffer.
+	 */
+	public
+	TarBuffer( WritableByteChannel outChannel, int blockSize, boolean direct )
+		{
+		this.outChannel = outChannel;
+		this.initialize( blockSize, TarBuffer.DEFAULT_RCDSIZE, direct );
+		}
+
+	/**
+	 * Initialization common to all stream constructors.
 	 */
 	private void
 	initialize( int blockSize, int recordSize )
 		{
+		this.initialize( blockSize, recordSize, false );
+		this.padSize = blockSize;
+		}
+
+	/**
+	 * Initialization common to all constructors.
+	 */
+	private void
+	initialize( int blockSize, int recordSize, boolean direct )
+		{
+		if ( blockSize <= 0 || blockSize % DEFAULT_BLKSIZE != 0 )
+			{
+			if ( this.inChannel != null || this.outChannel != null )
+				throw new IllegalArgumentException
+					( "block size '" + blockSize
+						+ "' is not a multiple of " + DEFAULT_BLKSIZE );
+			}
+
 		this.debug = false;
 		this.blockSize = blockSize;
 		this.recordSize = recordSize;
 		this.recsPerBlock = ( this.blockSize / this.recordSize );
-		this.blockBuffer = new byte[ this.blockSize ];
+		this.padSize = DEFAULT_BLKSIZE;
+
+		if ( direct )
+			{
+			this.block = ByteBuffer.allocateDirect( this.blockSize );
+			this.blockBuffer = null;
+			}
+		else
+			{
+			this.blockBuffer = new byte[ this.blockSize ];
+			this.block = ByteBuffer.wrap( this.blockBuffer );
+			}
 
-		if ( this.inStream != null )
+		if ( this.isReading() )
 			{
 			this.currBlkIdx = -1;
 			this.currRecIdx = this.recsPerBlock;
@@ -159,13 +235,57 @@ extends		Object
 	public boolean
 	isEOFRecord( byte[] record )
 		{
-		for ( int i = 0, sz = this.getRecordSize() ; i < sz ; ++i )
-			if ( record[i] != 0 )
+		return this.isEOFRecord( record, 0 );
+		}
+
+	/**
+	 * Determine if an archive record held at an offset within a larger
+	 * buffer indicates End of Archive.
+	 *
+	 * @param buf The buffer holding the record data to check.
+	 * @param offset The offset of the record within the buffer.
+	 */
+	public boolean
+	isEOFRecord( byte[] buf, int offset )
+		{
+		for ( int i = offset, end = offset + this.getRecordSize() ; i < end ; ++i )
+			if ( buf[i] != 0 )
 				return false;
 
 		return true;
 		}
 
+	/**
+	 * Get the buffer holding the current block. Records returned by
+	 * nextRecord() are read from this buffer, in place.
+	 *
+	 * @return The block buffer, or null if the block is held in a
+	 *         direct buffer; use nextRecords() instead.
+	 */
+	public byte[]
+	getBlockBuffer()
+		{
+		return this.blockBuffer;
+		}
+
+	/**
+	 * Determine if this buffer reads, from either a stream or a channel.
+	 */
+	private boolean
+	isReading()
+		{
+		return this.inStream != null || this.inChannel != null;
+		}
+
+	/**
+	 * Determine if this buffer writes, to either a stream or a channel.
+	 */
+	private boolean
+	isWriting()
+		{
+		return this.outStream != null || this.outChannel != null;
+		}
+
 	/**
 	 * Skip over a record on the input stream.
 	 */
@@ -181,7 +301,7 @@ extends		Object
 					+ " blkIdx = " + this.currBlkIdx );
 			}
 
-		if ( this.inStream == null )
+		if ( ! this.isReading() )
 			throw new IOException
 				( "reading (via skip) from an output buffer" );
 
@@ -202,6 +322,40 @@ extends		Object
 
 	public byte[]
 	readRecord()
+		throws IOException
+		{
+		int offset = this.nextRecord();
+		if ( offset == -1 )
+			return null;
+
+		byte[] result = new byte[ this.recordSize ];
+
+		if ( this.blockBuffer != null )
+			{
+			System.arraycopy(
+				this.blockBuffer, offset,
+				result, 0, this.recordSize );
+			}
+		else
+			{
+			ByteBuffer view = this.block.duplicate();
+			view.position( offset );
+			view.get( result );
+			}
+
+		return result;
+		}
+
+	/**
+	 * Read a record from the input stream without copying it. The
+	 * record data is held in the block buffer at the offset returned,
+	 * and remains valid until the next record is read or skipped.
+	 *
+	 * @return The offset of the record within getBlockBuffer(), or -1 at EOF.
+	 */
+
+	public int
+	nextRecord()
 		throws IOException
 		{
 		if ( this.debug )
@@ -211,25 +365,54 @@ extends		Object
 					+ " blkIdx = " + this.currBlkIdx );
 			}
 
-		if ( this.inStream == null )
+		if ( ! this.isReading() )
 			throw new IOException
 				( "reading from an output buffer" );
 
 		if ( this.currRecIdx >= this.recsPerBlock )
 			{
 			if ( ! this.readBlock() )
-				return null;
+				return -1;
 			}
 
-		byte[] result = new byte[ this.recordSize ];
-
-		System.arraycopy(
-			this.blockBuffer, (this.currRecIdx * this.recordSize),
-			result, 0, this.recordSize );
+		int offset = this.currRecIdx * this.recordSize;
 
 		this.currRecIdx++;
 
-		return result;
+		return offset;
+		}
+
+	/**
+	 * Read up to maxRecords consecutive records from the input without
+	 * copying them. The records are returned as a view of the block,
+	 * positioned at the first and limited after the last, which remains
+	 * valid until the next record is read or skipped. Fewer records are
+	 * returned if the current block holds no more.
+	 *
+	 * @param maxRecords The maximum number of records to read.
+	 * @return A view of the records read, or null at EOF.
+	 */
+
+	public ByteBuffer
+	nextRecords( int maxRecords )
+		throws IOException
+		{
+		int offset = this.nextRecord();
+		if ( offset == -1 )
+			return null;
+
+		int numRecords = Math.min
+			( maxRecords - 1, this.recsPerBlock - this.currRecIdx );
+		if ( numRecords > 0 )
+			this.currRecIdx += numRecords;
+		else
+			numRecords = 0;
+
+		ByteBuffer view = this.block.duplicate();
+		view.limit( offset + ( ( numRecords + 1 ) * this.recordSize ) );
+		view.position( offset );
+
+		return view;
 		}
 
 	/**
@@ -246,12 +429,15 @@ extends		Object
 				( "ReadBlock: blkIdx = " + this.currBlkIdx );
 			}
 
-		if ( this.inStream == null )
+		if ( ! this.isReading() )
 			throw new IOException
 				( "reading from an output buffer" );
 
 		this.currRecIdx = 0;
 
+		if ( this.inChannel != null )
+			return this.readChannelBlock();
+
 		int offset = 0;
 		int bytesNeeded = this.blockSize;
 		for ( ; bytesNeeded > 0 ; )
@@ -275,7 +461,15 @@ extends		Object
 			//
 
 			if ( numBytes == -1 )
+				{
+				// Nothing at all is left; the archive is truncated.
+				// Report EOF rather than replaying the previous block.
+				if ( offset == 0 )
+					return false;
+
+				this.zeroFill( offset, this.blockSize );
 				break;
+				}
 
 			offset += numBytes;
 			bytesNeeded -= numBytes;
@@ -295,6 +489,90 @@ extends		Object
 		return true;
 		}
 
+	/**
+	 * Fill the block from the input channel. Unlike streams, a short
+	 * last block is zero filled, as it is typically the tail of an
+	 * archive which is smaller than our block.
+	 *
+	 * @return false if End-Of-File, else true
+	 */
+
+	private boolean
+	readChannelBlock()
+		throws IOException
+		{
+		this.block.clear();
+
+		for ( ; this.block.hasRemaining() ; )
+			{
+			if ( this.inChannel.read( this.block ) == -1 )
+				break;
+			}
+
+		int numBytes = this.block.position();
+		if ( numBytes == 0 )
+			return false;
+
+		if ( numBytes < this.blockSize )
+			{
+			if ( this.debug )
+				{
+				System.err.println
+					( "ReadBlock: INCOMPLETE READ " + numBytes
+						+ " of " + this.blockSize + " bytes read." );
+				}
+
+			this.zeroFill( numBytes, this.blockSize );
+			}
+
+		this.currBlkIdx++;
+
+		return true;
+		}
+
+	/**
+	 * Zero the block between the given offsets.
+	 */
+
+	private void
+	zeroFill( int from, int to )
+		{
+		if ( this.blockBuffer != null )
+			{
+			Arrays.fill( this.blockBuffer, from, to, (byte) 0 );
+			}
+		else
+			{
+			this.block.clear();
+			this.block.position( from );
+			this.block.put( new byte[ to - from ] );
+			}
+		}
+
+	/**
+	 * Copy a record into the block at the current record index.
+	 */
+
+	private void
+	putRecord( byte[] buf, int offset )
+		{
+		int blockOffset = this.currRecIdx * this.recordSize;
+
+		if ( this.blockBuffer != null )
+			{
+			System.arraycopy(
+				buf, offset,
+				this.blockBuffer, blockOffset,
+				this.recordSize );
+			}
+		else
+			{
+			this.block.clear();
+			this.block.position( blockOffset );
+			this.block.put( buf, offset, this.recordSize );
+			}
+		}
+
 	/**
 	 * Get the current block number, zero based.
 	 *
@@ -335,7 +613,7 @@ extends		Object
 					+ " blkIdx = " + this.currBlkIdx );
 			}
 
-		if ( this.outStream == null )
+		if ( ! this.isWriting() )
 			throw new IOException
 				( "writing to an input buffer" );
 
@@ -347,13 +625,10 @@ extends		Object
 
 		if ( this.currRecIdx >= this.recsPerBlock )
 			{
-			this.writeBlock();
+			this.writeBlock( this.blockSize );
 			}
 
-		System.arraycopy(
-			record, 0,
-			this.blockBuffer, (this.currRecIdx * this.recordSize),
-			this.recordSize );
+		this.putRecord( record, 0 );
 
 		this.currRecIdx++;
 		}
@@ -378,7 +653,7 @@ extends		Object
 					+ " blkIdx = " + this.currBlkIdx );
 			}
 
-		if ( this.outStream == null )
+		if ( ! this.isWriting() )
 			throw new IOException
 				( "writing to an input buffer" );
 
@@ -391,22 +666,19 @@ extends		Object
 
 		if ( this.currRecIdx >= this.recsPerBlock )
 			{
-			this.writeBlock();
+			this.writeBlock( this.blockSize );
 			}
 
-		System.arraycopy(
-			buf, offset,
-			this.blockBuffer, (this.currRecIdx * this.recordSize),
-			this.recordSize );
+		this.putRecord( buf, offset );
 
 		this.currRecIdx++;
 		}
 
 	/**
-	 * Write a TarBuffer block to the archive.
+	 * Write a TarBuffer block, or its first length bytes, to the archive.
 	 */
 	private void
-	writeBlock()
+	writeBlock( int length )
 		throws IOException
 		{
 		if ( this.debug )
@@ -415,12 +687,22 @@ extends		Object
 				( "WriteBlock: blkIdx = " + this.currBlkIdx );
 			}
 
-		if ( this.outStream == null )
+		if ( ! this.isWriting() )
 			throw new IOException
 				( "writing to an input buffer" );
 
-		this.outStream.write( this.blockBuffer, 0, this.blockSize );
-		this.outStream.flush();
+		if ( this.outChannel != null )
+			{
+			this.block.clear();
+			this.block.limit( length );
+			for ( ; this.block.hasRemaining() ; )
+				this.outChannel.write( this.block );
+			}
+		else
+			{
+			this.outStream.write( this.blockBuffer, 0, length );
+			this.outStream.flush();
+			}
 
 		this.currRecIdx = 0;
 		this.currBlkIdx++;
@@ -439,7 +721,7 @@ extends		Object
 			System.err.println( "TarBuffer.flushBlock() called." );
 			}
 
-		if ( this.outStream == null )
+		if ( ! this.isWriting() )
 			throw new IOException
 				( "writing to an input buffer" );
 
@@ -452,12 +734,15 @@ extends		Object
 		if ( this.currRecIdx > 0 )
 			{
 			int offset = this.currRecIdx * this.recordSize;
-			byte[]	zeroBuffer = new byte[ this.blockSize - offset ];
 
-			System.arraycopy
-				( zeroBuffer, 0, this.blockBuffer, offset, zeroBuffer.length );
+			// Streams pad to the block size; channels, whose blocks
+			// are larger, only to the tar blocking factor.
+			int length = Math.min( this.blockSize,
+				( ( offset + this.padSize - 1 ) / this.padSize ) * this.padSize );
+
+			this.zeroFill( offset, length );
 
-			this.writeBlock();
+			this.writeBlock( length );
 			}
 		}
 
@@ -493,6 +778,18 @@ extends		Object
 				this.inStream = null;
 				}
 			}
+		else if ( this.outChannel != null )
+			{
+			this.flushBlock();
+
+			this.outChannel.close();
+			this.outChannel = null;
+			}
+		else if ( this.inChannel != null )
+			{
+			this.inChannel.close();
+			this.inChannel = null;
+			}
 		}
 
 	}
@@ -200,6 +200,22 @@ implements	Cloneable
 		this.parseTarHeader( this.header, headerBuf );
 		}
 
+	/**
+	 * Construct an entry from the header bytes of an archive, held
+	 * at an offset within a larger buffer. File is set to null.
+	 *
+	 * @param headerBuf The buffer holding the header bytes.
+	 * @param offset The offset of the header bytes within the buffer.
+	 * @param codec The codec with which to parse the header's names.
+	 */
+	public
+	TarEntry( byte[] headerBuf, int offset, TarHeaderCodec codec )
+		throws InvalidHeaderException
+		{
+		this.initialize();
+		this.parseTarHeader( this.header, headerBuf, offset, codec );
+		}
+
 	/**
 	 * Initialization code common to all constructors.
 	 */
@@ -320,8 +336,7 @@ implements	Cloneable
 	equals( TarEntry it )
 		{
 		return
-			this.header.name.toString().equals
-				( it.header.name.toString() );
+			this.header.name.equals( it.header.name );
 		}
 
 	/**
@@ -336,8 +351,7 @@ implements	Cloneable
 	isDescendent( TarEntry desc )
 		{
 		return
-			desc.header.name.toString().startsWith
-				( this.header.name.toString() );
+			desc.header.name.startsWith( this.header.name );
 		}
 
 	/**
@@ -359,7 +373,7 @@ implements	Cloneable
 	public String
 	getName()
 		{
-		return this.header.name.toString();
+		return this.header.name;
 		}
 
 	/**
@@ -370,8 +384,7 @@ implements	Cloneable
 	public void
 	setName( String name )
 		{
-		this.header.name =
-			new StringBuffer( name );
+		this.header.name = name;
 		}
 
 	/**
@@ -426,7 +439,7 @@ implements	Cloneable
 	public String
 	getUserName()
 		{
-		return this.header.userName.toString();
+		return this.header.userName;
 		}
 
 	/**
@@ -437,8 +450,7 @@ implements	Cloneable
 	public void
 	setUserName( String userName )
 		{
-		this.header.userName =
-			new StringBuffer( userName );
+		this.header.userName = userName;
 		}
 
 	/**
@@ -449,7 +461,7 @@ implements	Cloneable
 	public String
 	getGroupName()
 		{
-		return this.header.groupName.toString();
+		return this.header.groupName;
 		}
 
 	/**
@@ -460,8 +472,7 @@ implements	Cloneable
 	public void
 	setGroupName( String groupName )
 		{
-		this.header.groupName =
-			new StringBuffer( groupName );
+		this.header.groupName = groupName;
 		}
 
 	/**
@@ -573,7 +584,7 @@ implements	Cloneable
 			if ( this.header.linkFlag == TarHeader.LF_DIR )
 				return true;
 
-			if ( this.header.name.toString().endsWith( "/" ) )
+			if ( this.header.name.endsWith( "/" ) )
 				return true;
 			}
 
@@ -633,9 +644,9 @@ implements	Cloneable
 		for ( ; name.startsWith( "/" ) ; )
 			name = name.substring( 1 );
 
- 		hdr.linkName = new StringBuffer( "" );
+ 		hdr.linkName = "";
 
-		hdr.name = new StringBuffer( name );
+		hdr.name = name;
 
 		if ( file.isDirectory() )
 			{
@@ -643,7 +654,7 @@ implements	Cloneable
 			hdr.mode = 040755;
 			hdr.linkFlag = TarHeader.LF_DIR;
 			if ( hdr.name.charAt( hdr.name.length() - 1 ) != '/' )
-				hdr.name.append( "/" );
+				hdr.name = hdr.name + "/";
 			}
 		else
 			{
@@ -698,10 +709,25 @@ implements	Cloneable
 	 */
 	public long
 	computeCheckSum( byte[] buf )
+		{
+		return this.computeCheckSum( buf, 0, buf.length );
+		}
+
+	/**
+	 * Compute the checksum of a tar entry header held at an offset
+	 * within a larger buffer.
+	 *
+	 * @param buf The buffer holding the tar entry's header.
+	 * @param offset The offset of the header within the buffer.
+	 * @param length The length of the header.
+	 * @return The computed checksum.
+	 */
+	public long
+	computeCheckSum( byte[] buf, int offset, int length )
 		{
 		long sum = 0;
 
-		for ( int i = 0 ; i < buf.length ; ++i )
+		for ( int i = offset, end = offset + length ; i < end ; ++i )
 			{
 			sum += 255 & buf[ i ];
 			}
@@ -720,7 +746,23 @@ implements	Cloneable
 	writeEntryHeader( byte[] outbuf )
 		throws InvalidHeaderException
 		{
-		int offset = 0;
+		this.writeEntryHeader( outbuf, 0, outbuf.length );
+		}
+
+	/**
+	 * Write an entry's header information to a header record held at
+	 * an offset within a larger buffer, such as that of a TarBuffer.
+	 *
+	 * @param outbuf The buffer holding the tar entry header to fill in.
+	 * @param headerOffset The offset of the header record within the buffer.
+	 * @param headerLength The length of the header record.
+	 * @throws InvalidHeaderException If the name will not fit in the header.
+	 */
+	public void
+	writeEntryHeader( byte[] outbuf, int headerOffset, int headerLength )
+		throws InvalidHeaderException
+		{
+		int offset = headerOffset;
 
 		if ( this.isUnixTarFormat() )
 			{
@@ -730,7 +772,13 @@ implements	Cloneable
 						+ this.header.name );
 			}
 
-		offset = TarHeader.getFileNameBytes( this.header.name.toString(), outbuf );
+		// Clear the end of the record first, as it holds the 'ustar'
+		// prefix of long names.
+		for ( int i = headerOffset + TarHeader.PREFIXOFFSET,
+				end = headerOffset + headerLength ; i < end ; ++i )
+			outbuf[ i ] = 0;
+
+		offset = TarHeader.getFileNameBytes( this.header.name, outbuf, headerOffset );
 
 		offset = TarHeader.getOctalBytes
 			( this.header.mode, outbuf, offset, TarHeader.MODELEN );
@@ -781,10 +829,8 @@ implements	Cloneable
 		offset = TarHeader.getOctalBytes
 			( this.header.devMinor, outbuf, offset, TarHeader.DEVLEN );
 
-		for ( ; offset < outbuf.length ; )
-			outbuf[ offset++ ] = 0;
-
-		long checkSum = this.computeCheckSum( outbuf );
+		long checkSum =
+			this.computeCheckSum( outbuf, headerOffset, headerLength );
 
 		TarHeader.getCheckSumOctalBytes
 			( checkSum, outbuf, csOffset, TarHeader.CHKSUMLEN );
@@ -802,39 +848,57 @@ implements	Cloneable
 	parseTarHeader( TarHeader hdr, byte[] headerBuf )
 		throws InvalidHeaderException
 		{
-		int offset = 0;
+		this.parseTarHeader( hdr, headerBuf, 0, new TarHeaderCodec() );
+		}
+
+	/**
+	 * Parse an entry's TarHeader information from a header record held
+	 * at an offset within a larger buffer, such as that of a TarBuffer.
+	 * The record is read in place; names are decoded by the given codec.
+	 *
+	 * @param hdr The TarHeader to fill in from the buffer information.
+	 * @param headerBuf The buffer holding the tar entry header.
+	 * @param headerOffset The offset of the header record within the buffer.
+	 * @param codec The codec with which to parse the header's names.
+	 */
+	public void
+	parseTarHeader( TarHeader hdr, byte[] headerBuf, int headerOffset, TarHeaderCodec codec )
+		throws InvalidHeaderException
+		{
+		int offset = headerOffset;
+		int magic = headerOffset + 257;
 
 		//
 		// NOTE Recognize archive header format.
 		//
-		if (       headerBuf[257] == 0
-				&& headerBuf[258] == 0
-				&& headerBuf[259] == 0
-				&& headerBuf[260] == 0
-				&& headerBuf[261] == 0 )
+		if (       headerBuf[magic] == 0
+				&& headerBuf[magic + 1] == 0
+				&& headerBuf[magic + 2] == 0
+				&& headerBuf[magic + 3] == 0
+				&& headerBuf[magic + 4] == 0 )
 			{
 			this.unixFormat = true;
 			this.ustarFormat = false;
 			this.gnuFormat = false;
 			}
-		else if (  headerBuf[257] == 'u'
-				&& headerBuf[258] == 's'
-				&& headerBuf[259] == 't'
-				&& headerBuf[260] == 'a'
-				&& headerBuf[261] == 'r'
-				&& headerBuf[262] == 0 )
+		else if (  headerBuf[magic] == 'u'
+				&& headerBuf[magic + 1] == 's'
+				&& headerBuf[magic + 2] == 't'
+				&& headerBuf[magic + 3] == 'a'
+				&& headerBuf[magic + 4] == 'r'
+				&& headerBuf[magic + 5] == 0 )
 			{
 			this.ustarFormat = true;
 			this.gnuFormat = false;
 			this.unixFormat = false;
 			}
-		else if (  headerBuf[257] == 'u'
-				&& headerBuf[258] == 's'
-				&& headerBuf[259] == 't'
-				&& headerBuf[260] == 'a'
-				&& headerBuf[261] == 'r'
-				&& headerBuf[262] != 0
-				&& headerBuf[263] != 0 )
+		else if (  headerBuf[magic] == 'u'
+				&& headerBuf[magic + 1] == 's'
+				&& headerBuf[magic + 2] == 't'
+				&& headerBuf[magic + 3] == 'a'
+				&& headerBuf[magic + 4] == 'r'
+				&& headerBuf[magic + 5] != 0
+				&& headerBuf[magic + 6] != 0 )
 			{
 			// REVIEW
 			this.gnuFormat = true;
@@ -846,34 +910,34 @@ implements	Cloneable
 			StringBuffer buf = new StringBuffer( 128 );
 
 			buf.append( "header magic is not 'ustar' or unix-style zeros, it is '" );
-			buf.append( headerBuf[257] );
-			buf.append( headerBuf[258] );
-			buf.append( headerBuf[259] );
-			buf.append( headerBuf[260] );
-			buf.append( headerBuf[261] );
-			buf.append( headerBuf[262] );
-			buf.append( headerBuf[263] );
+			buf.append( headerBuf[magic] );
+			buf.append( headerBuf[magic + 1] );
+			buf.append( headerBuf[magic + 2] );
+			buf.append( headerBuf[magic + 3] );
+			buf.append( headerBuf[magic + 4] );
+			buf.append( headerBuf[magic + 5] );
+			buf.append( headerBuf[magic + 6] );
 			buf.append( "', or (dec) " );
-			buf.append( (int)headerBuf[257] );
+			buf.append( (int)headerBuf[magic] );
 			buf.append( ", " );
-			buf.append( (int)headerBuf[258] );
+			buf.append( (int)headerBuf[magic + 1] );
 			buf.append( ", " );
-			buf.append( (int)headerBuf[259] );
+			buf.append( (int)headerBuf[magic + 2] );
 			buf.append( ", " );
-			buf.append( (int)headerBuf[260] );
+			buf.append( (int)headerBuf[magic + 3] );
 			buf.append( ", " );
-			buf.append( (int)headerBuf[261] );
+			buf.append( (int)headerBuf[magic + 4] );
 			buf.append( ", " );
-			buf.append( (int)headerBuf[262] );
+			buf.append( (int)headerBuf[magic + 5] );
 			buf.append( ", " );
-			buf.append( (int)headerBuf[263] );
+			buf.append( (int)headerBuf[magic + 6] );
 
 			throw new InvalidHeaderException( buf.toString() );
 			}
 
-		hdr.name = TarHeader.parseFileName( headerBuf );
+		hdr.name = codec.parseFileName( headerBuf, headerOffset );
 
-		offset = TarHeader.NAMELEN;
+		offset += TarHeader.NAMELEN;
 
 		hdr.mode = (int)
 			TarHeader.parseOctal( headerBuf, offset, TarHeader.MODELEN );
@@ -908,24 +972,24 @@ implements	Cloneable
 		hdr.linkFlag = headerBuf[ offset++ ];
 
 		hdr.linkName =
-			TarHeader.parseName( headerBuf, offset, TarHeader.NAMELEN );
+			codec.parseName( headerBuf, offset, TarHeader.NAMELEN );
 
 		offset += TarHeader.NAMELEN;
 
 		if ( this.ustarFormat )
 			{
 			hdr.magic =
-				TarHeader.parseName( headerBuf, offset, TarHeader.MAGICLEN );
+				codec.parseName( headerBuf, offset, TarHeader.MAGICLEN );
 
 			offset += TarHeader.MAGICLEN;
 
 			hdr.userName =
-				TarHeader.parseName( headerBuf, offset, TarHeader.UNAMELEN );
+				codec.parseName( headerBuf, offset, TarHeader.UNAMELEN );
 
 			offset += TarHeader.UNAMELEN;
 
 			hdr.groupName =
-				TarHeader.parseName( headerBuf, offset, TarHeader.GNAMELEN );
+				codec.parseName( headerBuf, offset, TarHeader.GNAMELEN );
 
 			offset += TarHeader.GNAMELEN;
 
@@ -941,9 +1005,9 @@ implements	Cloneable
 			{
 			hdr.devMajor = 0;
 			hdr.devMinor = 0;
-			hdr.magic = new StringBuffer( "" );
-			hdr.userName = new StringBuffer( "" );
-			hdr.groupName = new StringBuffer( "" );
+			hdr.magic = "";
+			hdr.userName = "";
+			hdr.groupName = "";
 			}
 		}
 
@@ -966,7 +1030,7 @@ implements	Cloneable
 		hdr.devMajor = 0;
 		hdr.devMinor = 0;
 
-		hdr.name = new StringBuffer( name );
+		hdr.name = name;
 		hdr.mode = isDir ? 040755 : 0100644;
 		hdr.userId = 0;
 		hdr.groupId = 0;
@@ -979,9 +1043,9 @@ implements	Cloneable
 		hdr.linkFlag =
 			isDir ? TarHeader.LF_DIR : TarHeader.LF_NORMAL;
 
-		hdr.linkName = new StringBuffer( "" );
-		hdr.userName = new StringBuffer( "" );
-		hdr.groupName = new StringBuffer( "" );
+		hdr.linkName = "";
+		hdr.userName = "";
+		hdr.groupName = "";
 
 		hdr.devMajor = 0;
 		hdr.devMinor = 0;
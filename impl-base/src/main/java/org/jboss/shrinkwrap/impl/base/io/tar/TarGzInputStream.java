@@ -18,14 +18,16 @@ package org.jboss.shrinkwrap.impl.base.io.tar;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.zip.GZIPInputStream;
+
+import org.jboss.shrinkwrap.impl.base.io.MultiMemberGzipInputStream;
 
 /**
  * The {@link TarGzInputStream} reads a UNIX TAR archive, further 
  * encoded in GZIP compresssion, as an InputStream.
  * Methods are provided to position at each successive entry in
  * the archive, and the read each entry as a normal input stream
- * using read().
+ * using read().  Every member of a multi-member GZIP stream,
+ * as written by the ParallelTarGzExporter, is read.
  * 
  * @author <a href="mailto:andrew.rubinger@jboss.org">ALR</a>
  */
@@ -37,7 +39,7 @@ public class TarGzInputStream extends TarInputStream
     */
    public TarGzInputStream(InputStream is) throws IOException
    {
-      super(new GZIPInputStream(is));
+      super(new MultiMemberGzipInputStream(is));
    }
 
    /**
@@ -46,7 +48,7 @@ public class TarGzInputStream extends TarInputStream
     */
    public TarGzInputStream(InputStream is, int blockSize) throws IOException
    {
-      super(new GZIPInputStream(is), blockSize);
+      super(new MultiMemberGzipInputStream(is), blockSize);
    }
 
    /**
@@ -56,7 +58,7 @@ public class TarGzInputStream extends TarInputStream
     */
    public TarGzInputStream(InputStream is, int blockSize, int recordSize) throws IOException
    {
-      super(new GZIPInputStream(is), blockSize, recordSize);
+      super(new MultiMemberGzipInputStream(is), blockSize, recordSize);
    }
 
 }
@@ -6,11 +6,14 @@
 
 package org.jboss.shrinkwrap.impl.base.io.tar;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.concurrent.Executor;
 import java.util.zip.GZIPOutputStream;
 
+import org.jboss.shrinkwrap.impl.base.io.ParallelGzipOutputStream;
+import org.jboss.shrinkwrap.impl.base.io.SpoolingOutputStream;
+
 
 // we extend TarOutputStream to have the same type, 
 // BUT, we don't use ANY methods. It's all about 
@@ -20,7 +23,11 @@ import java.util.zip.GZIPOutputStream;
  * Outputs tar.gz files. Added functionality that it 
  * doesn't need to know the size of an entry. If an 
  * entry has zero size when it is put in the Tar, then 
- * it buffers it until it's closed and it knows the size.
+ * it buffers it until it's closed and it knows the size;
+ * large entries are spooled to disk rather than held in memory.
+ * May optionally compress upon an {@link Executor}, writing
+ * the GZIP stream as a series of members via a 
+ * {@link ParallelGzipOutputStream}.
  *
  * @author "Bay" <bayard@generationjava.com>
  */
@@ -30,8 +37,7 @@ class		TarGzOutputStream
 extends		TarOutputStreamImpl
 	{
     private TarOutputStreamImpl			tos = null;
-    private GZIPOutputStream		gzip = null;
-    private ByteArrayOutputStream	bos = null;
+    private SpoolingOutputStream	bos = null;
     private TarEntry				currentEntry = null;
 
 	public
@@ -39,9 +45,24 @@ extends		TarOutputStreamImpl
 		throws IOException
 		{
 		super( null );
-		this.gzip = new GZIPOutputStream( out );
-		this.tos = new TarOutputStreamImpl( this.gzip );
-		this.bos = new ByteArrayOutputStream();
+		this.tos = new TarOutputStreamImpl( new GZIPOutputStream( out ) );
+		this.bos = new SpoolingOutputStream();
+		}
+
+	/**
+	 * Creates a new stream compressing blocks of the TAR
+	 * concurrently upon the specified {@link Executor}.
+	 *
+	 * @see ParallelGzipOutputStream
+	 */
+	public
+	TarGzOutputStream( OutputStream out, Executor executor, int parallelism )
+		throws IOException
+		{
+		super( null );
+		this.tos = new TarOutputStreamImpl(
+			new ParallelGzipOutputStream( out, executor, parallelism ) );
+		this.bos = new SpoolingOutputStream();
 		}
 
 	// proxy all methods, but buffer if unknown size
@@ -75,8 +96,9 @@ extends		TarOutputStreamImpl
 		throws IOException
 		{
 	   this.flush();
+		// closes, and so finishes, the GZIP stream
 		this.tos.close();
-		this.gzip.finish();
+		this.bos.close();
 		}
 
 	public int
@@ -114,7 +136,7 @@ extends		TarOutputStreamImpl
 			this.bos.writeTo( this.tos );
 			this.tos.closeEntry();
 			this.currentEntry = null; 
-			this.bos = new ByteArrayOutputStream();
+			this.bos.reset();
 			}
 		}
 
@@ -132,10 +132,26 @@ implements	Cloneable
 	 */
 	public static final String	GNU_TMAGIC	= "ustar  ";
 
+	/**
+	 * The user name given to new headers.
+	 */
+	private static final String	DEFAULT_USER_NAME;
+
+	static
+		{
+		String user =
+			System.getProperty( "user.name", "" );
+
+		if ( user.length() > 31 )
+			user = user.substring( 0, 31 );
+
+		DEFAULT_USER_NAME = user;
+		}
+
 	/**
 	 * The entry's name.
 	 */
-	public StringBuffer		name;
+	public String			name;
 	/**
 	 * The entry's permission mode.
 	 */
@@ -167,19 +183,19 @@ implements	Cloneable
 	/**
 	 * The entry's link name.
 	 */
-	public StringBuffer		linkName;
+	public String			linkName;
 	/**
 	 * The entry's magic tag.
 	 */
-	public StringBuffer		magic;
+	public String			magic;
 	/**
 	 * The entry's user name.
 	 */
-	public StringBuffer		userName;
+	public String			userName;
 	/**
 	 * The entry's group name.
 	 */
-	public StringBuffer		groupName;
+	public String			groupName;
 	/**
 	 * The entry's major device number.
 	 */
@@ -193,25 +209,20 @@ implements	Cloneable
 	public
 	TarHeader()
 		{
-		this.magic = new StringBuffer( TarHeader.TMAGIC );
+		this.magic = TarHeader.TMAGIC;
 
-		this.name = new StringBuffer();
-		this.linkName = new StringBuffer();
-
-		String user =
-			System.getProperty( "user.name", "" );
-
-		if ( user.length() > 31 )
-			user = user.substring( 0, 31 );
+		this.name = "";
+		this.linkName = "";
 
 		this.userId = 0;
 		this.groupId = 0;
-		this.userName = new StringBuffer( user );
-		this.groupName = new StringBuffer( "" );
+		this.userName = DEFAULT_USER_NAME;
+		this.groupName = "";
 		}
 
 	/**
-	 * TarHeaders can be cloned.
+	 * TarHeaders can be cloned. As all fields are either primitive
+	 * or immutable, the clone shares them with this header.
 	 */
 	public Object
 	clone()
@@ -220,31 +231,6 @@ implements	Cloneable
 
 		try {
 			hdr = (TarHeader) super.clone();
-
-			hdr.name =
-				(this.name == null ) ? null
-					: new StringBuffer( this.name.toString() );
-			hdr.mode = this.mode;
-			hdr.userId = this.userId;
-			hdr.groupId = this.groupId;
-			hdr.size = this.size;
-			hdr.modTime = this.modTime;
-			hdr.checkSum = this.checkSum;
-			hdr.linkFlag = this.linkFlag;
-			hdr.linkName =
-				(this.linkName == null ) ? null
-					: new StringBuffer( this.linkName.toString() );
-			hdr.magic =
-				(this.magic == null ) ? null
-					: new StringBuffer( this.magic.toString() );
-			hdr.userName =
-				(this.userName == null ) ? null
-					: new StringBuffer( this.userName.toString() );
-			hdr.groupName =
-				(this.groupName == null ) ? null
-					: new StringBuffer( this.groupName.toString() );
-			hdr.devMajor = this.devMajor;
-			hdr.devMinor = this.devMinor;
 			}
 		catch ( CloneNotSupportedException ex )
 			{
@@ -262,7 +248,7 @@ implements	Cloneable
 	public String
 	getName()
 		{
-		return this.name.toString();
+		return this.name;
 		}
 
 	/**
@@ -314,35 +300,13 @@ implements	Cloneable
 	 * Contributed by Dmitri Tikhonov <dxt2431@yahoo.com>
 	 *
 	 * @param header The header buffer from which to parse.
-	 * @param offset The offset into the buffer from which to parse.
-	 * @param length The number of header bytes to parse.
 	 * @return The header's entry name.
+	 * @see TarHeaderCodec#parseFileName(byte[], int)
 	 */
-	public static StringBuffer
+	public static String
 	parseFileName( byte[] header )
 		{
-		StringBuffer result = new StringBuffer( 256 );
-
-		// If header[345] is not equal to zero, then it is the "prefix"
-		// that 'ustar' defines. It must be prepended to the "normal"
-		// name field. We are responsible for the separating '/'.
-		//
-		if ( header[345] != 0 )
-			{
-			for ( int i = 345 ; i < 500 && header[i] != 0 ; ++i )
-				{
-				result.append( (char)header[i] );
-				}
-
-			result.append( "/" );
-			}
-
-		for ( int i = 0 ; i < 100 && header[i] != 0 ; ++i )
-			{
-			result.append( (char)header[i] );
-			}
-
-		return result;
+		return new TarHeaderCodec().parseFileName( header, 0 );
 		}
 
 	/**
@@ -352,22 +316,13 @@ implements	Cloneable
 	 * @param offset The offset into the buffer from which to parse.
 	 * @param length The number of header bytes to parse.
 	 * @return The header's entry name.
+	 * @see TarHeaderCodec#parseName(byte[], int, int)
 	 */
-	public static StringBuffer
+	public static String
 	parseName( byte[] header, int offset, int length )
 		throws InvalidHeaderException
 		{
-		StringBuffer result = new StringBuffer( length );
-
-		int end = offset + length;
-		for ( int i = offset ; i < end ; ++i )
-			{
-			if ( header[i] == 0 )
-				break;
-			result.append( (char)header[i] );
-			}
-
-		return result;
+		return new TarHeaderCodec().parseName( header, offset, length );
 		}
 
 	/**
@@ -388,46 +343,62 @@ implements	Cloneable
 	getFileNameBytes( String newName, byte[] outbuf )
 		throws InvalidHeaderException
 		{
-		if ( newName.length() > 100 )
+		return TarHeader.getFileNameBytes( newName, outbuf, 0 );
+		}
+
+	/**
+	 * As getFileNameBytes( String, byte[] ), placing the name in
+	 * a header which starts at the given offset of the buffer.
+	 *
+	 * @param newName The new name to place into the header buffer.
+	 * @param outbuf The buffer containing the entry header to modify.
+	 * @param headerOffset The offset of the entry header in the buffer.
+	 * @return The current offset in the buffer (always headerOffset
+	 *         + TarHeader.NAMELEN).
+	 * @throws InvalidHeaderException If the name will not fit in the header.
+	 */
+	public static int
+	getFileNameBytes( String newName, byte[] outbuf, int headerOffset )
+		throws InvalidHeaderException
+		{
+		int length = newName.length();
+		if ( length > 100 )
 			{
 			// Locate a pathname "break" prior to the maximum name length...
-			int index = newName.indexOf( "/", newName.length() - 100 );
+			int index = newName.indexOf( '/', length - 100 );
 			if ( index == -1 )
 				throw new InvalidHeaderException
 					( "file name is greater than 100 characters, " + newName );
 
-			// Get the "suffix subpath" of the name.
-			String name = newName.substring( index + 1 );
-
-			// Get the "prefix subpath", or "prefix", of the name.
-			String prefix = newName.substring( 0, index );
-			if ( prefix.length() > TarHeader.PREFIXLEN )
+			// The "prefix subpath", or "prefix", of the name
+			// precedes the break; the "suffix subpath" follows it.
+			if ( index > TarHeader.PREFIXLEN )
 				throw new InvalidHeaderException
 					( "file prefix is greater than 155 characters" );
 
 			TarHeader.getNameBytes
-				( new StringBuffer( name ), outbuf,
-					TarHeader.NAMEOFFSET, TarHeader.NAMELEN );
+				( newName, index + 1, length, outbuf,
+					headerOffset + TarHeader.NAMEOFFSET, TarHeader.NAMELEN );
 
 			TarHeader.getNameBytes
-				( new StringBuffer( prefix ), outbuf,
-					TarHeader.PREFIXOFFSET, TarHeader.PREFIXLEN );
+				( newName, 0, index, outbuf,
+					headerOffset + TarHeader.PREFIXOFFSET, TarHeader.PREFIXLEN );
 			}
 		else
 			{
 			TarHeader.getNameBytes
-				( new StringBuffer( newName ), outbuf,
-					TarHeader.NAMEOFFSET, TarHeader.NAMELEN );
+				( newName, 0, length, outbuf,
+					headerOffset + TarHeader.NAMEOFFSET, TarHeader.NAMELEN );
 			}
 
 		// The offset, regardless of the format, is now the end of the
 		// original name field.
 		//
-		return TarHeader.NAMELEN;
+		return headerOffset + TarHeader.NAMELEN;
 		}
 
 	/**
-	 * Move the bytes from the name StringBuffer into the header's buffer.
+	 * Move the bytes from the name into the header's buffer.
 	 *
 	 * @param header The header buffer into which to copy the name.
 	 * @param offset The offset into the buffer at which to store.
@@ -435,13 +406,31 @@ implements	Cloneable
 	 * @return The new offset (offset + length).
 	 */
 	public static int
-	getNameBytes( StringBuffer name, byte[] buf, int offset, int length )
+	getNameBytes( String name, byte[] buf, int offset, int length )
+		{
+		return TarHeader.getNameBytes
+			( name, 0, name.length(), buf, offset, length );
+		}
+
+	/**
+	 * Move the bytes from a range of the name into the header's buffer.
+	 *
+	 * @param name The name from which to copy.
+	 * @param begin The index of the first character of the range.
+	 * @param end The index following the last character of the range.
+	 * @param header The header buffer into which to copy the name.
+	 * @param offset The offset into the buffer at which to store.
+	 * @param length The number of header bytes to store.
+	 * @return The new offset (offset + length).
+	 */
+	public static int
+	getNameBytes( String name, int begin, int end, byte[] buf, int offset, int length )
 		{
 		int i;
 
-		for ( i = 0 ; i < length && i < name.length() ; ++i )
+		for ( i = 0 ; i < length && begin + i < end ; ++i )
 			{
-			buf[ offset + i ] = (byte) name.charAt( i );
+			buf[ offset + i ] = (byte) name.charAt( begin + i );
 			}
 
 		for ( ; i < length ; ++i )
@@ -463,8 +452,6 @@ implements	Cloneable
 	public static int
 	getOctalBytes( long value, byte[] buf, int offset, int length )
 		{
-		byte[] result = new byte[ length ];
-
 		int idx = length - 1;
 
 		buf[ offset + idx ] = 0;
@@ -506,9 +493,33 @@ implements	Cloneable
 	public static int
 	getLongOctalBytes( long value, byte[] buf, int offset, int length )
 		{
-		byte[] temp = new byte[ length + 1 ];
-		TarHeader.getOctalBytes( value, temp, 0, length + 1 );
-		System.arraycopy( temp, 0, buf, offset, length );
+		// As getOctalBytes() into a field one byte longer, without its
+		// trailing NUL; the digits are followed by a single space.
+		int idx = length - 1;
+
+		buf[ offset + idx ] = (byte) ' ';
+		--idx;
+
+		if ( value == 0 )
+			{
+			buf[ offset + idx ] = (byte) '0';
+			--idx;
+			}
+		else
+			{
+			for ( long val = value ; idx >= 0 && val > 0 ; --idx )
+				{
+				buf[ offset + idx ] = (byte)
+					( (byte) '0' + (byte) (val & 7) );
+				val = val >> 3;
+				}
+			}
+
+		for ( ; idx >= 0 ; --idx )
+			{
+			buf[ offset + idx ] = (byte) ' ';
+			}
+
 		return offset + length;
 		}
 
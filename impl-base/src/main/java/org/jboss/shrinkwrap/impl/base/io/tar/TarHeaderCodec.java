@@ -0,0 +1,169 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.io.tar;
+
+/**
+ * Decodes the text fields of {@link TarHeader}s directly from the buffer
+ * holding a header record, such that no intermediate buffers are
+ * created per entry.  Short fields which tend to repeat from one entry 
+ * to the next (link name, magic, user and group names) are returned as 
+ * shared instances, decoded only when first encountered.  A single instance 
+ * is intended to be reused for all headers read from an archive.
+ *
+ * Text is treated as ISO-8859-1, one character per byte.
+ * 
+ * Not thread-safe.
+ *
+ * @see TarInputStream
+ * @version $Revision: $
+ */
+public class TarHeaderCodec
+{
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Number of short fields remembered; must be a power of 2
+    */
+   private static final int CACHE_SIZE = 32;
+
+   /**
+    * Longest field which will be remembered
+    */
+   private static final int MAX_CACHED_LENGTH = TarHeader.UNAMELEN;
+
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Scratch space into which names are decoded
+    */
+   private final char[] chars = new char[TarHeader.PREFIXLEN + 1 + TarHeader.NAMELEN];
+
+   /**
+    * Short fields previously decoded, indexed by the hash of their bytes
+    */
+   private final String[] cache = new String[CACHE_SIZE];
+
+   //-------------------------------------------------------------------------------------||
+   // Functional Methods -----------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Parses the name of an entry from the header record at the specified offset,
+    * prepending the 'ustar' prefix, if present, and its separating '/'
+    * 
+    * @param header The buffer holding the header record
+    * @param offset The offset of the header record within the buffer
+    * @return The entry name
+    */
+   public String parseFileName(final byte[] header, final int offset)
+   {
+      int length = 0;
+
+      // If there is a 'ustar' prefix, it must be prepended to the "normal"
+      // name field. We are responsible for the separating '/'.
+      final int prefixOffset = offset + TarHeader.PREFIXOFFSET;
+      if (header[prefixOffset] != 0)
+      {
+         length = this.decode(header, prefixOffset, TarHeader.PREFIXLEN, length);
+         this.chars[length++] = '/';
+      }
+
+      length = this.decode(header, offset + TarHeader.NAMEOFFSET, TarHeader.NAMELEN, length);
+      return new String(this.chars, 0, length);
+   }
+
+   /**
+    * Parses a NUL-terminated text field from a header buffer, returning an
+    * instance shared with any previous field of equal content
+    * 
+    * @param header The header buffer from which to parse
+    * @param offset The offset into the buffer from which to parse
+    * @param length The number of header bytes to parse
+    * @return The field value
+    */
+   public String parseName(final byte[] header, final int offset, final int length)
+   {
+      // Find the length and hash of the value
+      int hash = 0;
+      int end = offset;
+      final int limit = offset + length;
+      while (end < limit && header[end] != 0)
+      {
+         hash = 31 * hash + (header[end] & 0xFF);
+         end++;
+      }
+      final int valueLength = end - offset;
+      if (valueLength == 0)
+      {
+         return "";
+      }
+      if (valueLength > MAX_CACHED_LENGTH)
+      {
+         return new String(this.chars, 0, this.decode(header, offset, valueLength, 0));
+      }
+
+      // Reuse what we've seen before, if we can
+      final int slot = (hash ^ (hash >>> 16)) & (CACHE_SIZE - 1);
+      final String cached = this.cache[slot];
+      if (cached != null && matches(cached, header, offset, valueLength))
+      {
+         return cached;
+      }
+      final String value = new String(this.chars, 0, this.decode(header, offset, valueLength, 0));
+      this.cache[slot] = value;
+      return value;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Decodes up to the specified number of bytes, stopping at NUL, into {@link #chars} at 
+    * the specified position, returning the new position
+    */
+   private int decode(final byte[] header, final int offset, final int length, final int position)
+   {
+      int pos = position;
+      final int end = offset + length;
+      for (int i = offset; i < end && header[i] != 0; i++)
+      {
+         this.chars[pos++] = (char) (header[i] & 0xFF);
+      }
+      return pos;
+   }
+
+   private static boolean matches(final String value, final byte[] header, final int offset, final int length)
+   {
+      if (value.length() != length)
+      {
+         return false;
+      }
+      for (int i = 0; i < length; i++)
+      {
+         if (value.charAt(i) != (char) (header[offset + i] & 0xFF))
+         {
+            return false;
+         }
+      }
+      return true;
+   }
+}
@@ -20,6 +20,10 @@ import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 
 
 /**
@@ -28,6 +32,11 @@ import java.io.OutputStream;
  * the archive, and the read each entry as a normal input stream
  * using read().
  *
+ * When created upon a channel, the archive is read in large
+ * blocks, optionally through a direct buffer, and entry data is
+ * copied from the block only once, into the caller's buffer, or
+ * not at all by copyEntryContents( WritableByteChannel ).
+ *
  * Kerry Menzel <kmenzel@cfl.rr.com> Contributed the code to support
  * file sizes greater than 2GB (longs versus ints).
  *
@@ -51,10 +60,22 @@ extends		FilterInputStream
 	protected long				entryOffset;
 
 	protected byte[]			oneBuf;
-	protected byte[]			readBuf;
+
+	/**
+	 * The unread remainder of the last record read from the
+	 * current entry, a view of the TarBuffer's block.
+	 */
+	protected ByteBuffer		readBuf;
+
+	/**
+	 * Holds headers copied out of a direct block, else null.
+	 */
+	protected byte[]			headerBuf;
 
 	protected TarBuffer			buffer;
 
+	protected TarHeaderCodec	codec;
+
 	protected TarEntry			currEntry;
 
 	protected EntryFactory		eFactory;
@@ -78,8 +99,34 @@ extends		FilterInputStream
 		super( is );
 
 		this.buffer = new TarBuffer( is, blockSize, recordSize );
+		this.initialize();
+		}
 
+	/**
+	 * Create a stream reading from a channel in blocks of the given
+	 * size, which must be a multiple of TarBuffer.DEFAULT_BLKSIZE.
+	 *
+	 * @param channel The channel from which to read.
+	 * @param blockSize The number of bytes read from the channel at once.
+	 * @param direct If true, read through a direct buffer.
+	 */
+	public
+	TarInputStream( ReadableByteChannel channel, int blockSize, boolean direct )
+		{
+		super( Channels.newInputStream( channel ) );
+
+		this.buffer = new TarBuffer( channel, blockSize, direct );
+		this.initialize();
+		}
+
+	/**
+	 * Initialization common to all constructors.
+	 */
+	private void
+	initialize()
+		{
 		this.readBuf = null;
+		this.codec = new TarHeaderCodec();
 		this.oneBuf = new byte[1];
 		this.debug = false;
 		this.hasHitEOF = false;
@@ -170,26 +217,43 @@ extends		FilterInputStream
 	skip( long numToSkip )
 		throws IOException
 		{
-		// REVIEW
-		// This is horribly inefficient, but it ensures that we
-		// properly skip over bytes via the TarBuffer...
+		// Records are skipped in place via the TarBuffer, without
+		// copying their data.
 		//
 
-		byte[] skipBuf = new byte[ 8 * 1024 ];
-        long num = numToSkip;
-		for ( ; num > 0 ; )
+		if ( numToSkip <= 0 || this.entryOffset >= this.entrySize )
+			return 0;
+
+		long num = Math.min( numToSkip, this.entrySize - this.entryOffset );
+		long remaining = num;
+
+		if ( this.readBuf != null )
 			{
-			int numRead =
-				this.read( skipBuf, 0,
-					( num > skipBuf.length ? skipBuf.length : (int) num ) );
+			int sz = (int) Math.min( remaining, this.readBuf.remaining() );
+			this.readBuf.position( this.readBuf.position() + sz );
+			remaining -= sz;
+			}
 
-			if ( numRead == -1 )
-				break;
+		for ( ; remaining > 0 ; )
+			{
+			ByteBuffer records =
+				this.buffer.nextRecords( this.recordsFor( remaining ) );
+			if ( records == null )
+				{
+				// Unexpected EOF!
+				throw new IOException
+					( "unexpected EOF with " + remaining + " bytes unskipped" );
+				}
 
-			num -= numRead;
+			int sz = (int) Math.min( remaining, records.remaining() );
+			records.position( records.position() + sz );
+			this.readBuf = records;
+			remaining -= sz;
 			}
 
-		return ( numToSkip - num );
+		this.entryOffset += num;
+
+		return num;
 		}
 
 	/**
@@ -289,9 +353,32 @@ extends		FilterInputStream
 			this.readBuf = null;
 			}
 
-		byte[] headerBuf = this.buffer.readRecord();
+		// The header is parsed in place, within the TarBuffer's block,
+		// unless that is a direct buffer
+		byte[] headerBuf = this.buffer.getBlockBuffer();
+		int headerOffset;
+
+		if ( headerBuf != null )
+			{
+			headerOffset = this.buffer.nextRecord();
+			}
+		else
+			{
+			if ( this.headerBuf == null )
+				this.headerBuf = new byte[ this.buffer.getRecordSize() ];
+
+			headerBuf = this.headerBuf;
+			headerOffset = -1;
 
-		if ( headerBuf == null )
+			ByteBuffer record = this.buffer.nextRecords( 1 );
+			if ( record != null )
+				{
+				record.get( headerBuf );
+				headerOffset = 0;
+				}
+			}
+
+		if ( headerOffset == -1 )
 			{
 			if ( this.debug )
 				{
@@ -300,7 +387,7 @@ extends		FilterInputStream
 
 			this.hasHitEOF = true;
 			}
-		else if ( this.buffer.isEOFRecord( headerBuf ) )
+		else if ( this.buffer.isEOFRecord( headerBuf, headerOffset ) )
 			{
 			if ( this.debug )
 				{
@@ -319,12 +406,16 @@ extends		FilterInputStream
 			try {
 				if ( this.eFactory == null )
 					{
-					this.currEntry = new TarEntry( headerBuf );
+					this.currEntry =
+						new TarEntry( headerBuf, headerOffset, this.codec );
 					}
 				else
 					{
+					byte[] record = new byte[ this.buffer.getRecordSize() ];
+					System.arraycopy
+						( headerBuf, headerOffset, record, 0, record.length );
 					this.currEntry =
-						this.eFactory.createEntry( headerBuf );
+						this.eFactory.createEntry( record );
 					}
 
 				if ( this.debug )
@@ -412,54 +503,34 @@ extends		FilterInputStream
 			numToRead = (int) (this.entrySize - this.entryOffset);
 			}
 
-		if ( this.readBuf != null )
+		if ( this.readBuf != null && this.readBuf.hasRemaining() )
 			{
-			int sz = ( numToRead > this.readBuf.length )
-						? this.readBuf.length : numToRead;
+			int sz = Math.min( numToRead, this.readBuf.remaining() );
 
-			System.arraycopy( this.readBuf, 0, buf, offset, sz );
-
-			if ( sz >= this.readBuf.length )
-				{
-				this.readBuf = null;
-				}
-			else
-				{
-				int newLen = this.readBuf.length - sz;
-				byte[] newBuf = new byte[ newLen ];
-				System.arraycopy( this.readBuf, sz, newBuf, 0, newLen );
-				this.readBuf = newBuf;
-				}
+			this.readBuf.get( buf, offset, sz );
 
 			totalRead += sz;
 			numToRead -= sz;
 			offset += sz;
 			}
 
+		// As many records as are wanted are read from the block at
+		// once; the remainder of the last is kept for the next read.
 		for ( ; numToRead > 0 ; )
 			{
-			byte[] rec = this.buffer.readRecord();
-			if ( rec == null )
+			ByteBuffer records =
+				this.buffer.nextRecords( this.recordsFor( numToRead ) );
+			if ( records == null )
 				{
 				// Unexpected EOF!
 				throw new IOException
 					( "unexpected EOF with " + numToRead + " bytes unread" );
 				}
 
-			int sz = numToRead;
-			int recLen = rec.length;
+			int sz = Math.min( numToRead, records.remaining() );
 
-			if ( recLen > sz )
-				{
-				System.arraycopy( rec, 0, buf, offset, sz );
-				this.readBuf = new byte[ recLen - sz ];
-				System.arraycopy( rec, sz, this.readBuf, 0, recLen - sz );
-				}
-			else
-				{
-				sz = recLen;
-				System.arraycopy( rec, 0, buf, offset, recLen );
-				}
+			records.get( buf, offset, sz );
+			this.readBuf = records;
 
 			totalRead += sz;
 			numToRead -= sz;
@@ -492,6 +563,74 @@ extends		FilterInputStream
 			}
 		}
 
+	/**
+	 * Copies the contents of the current tar archive entry directly into
+	 * a channel, writing views of the TarBuffer's block without copying.
+	 *
+	 * @param out The channel into which to write the entry's data.
+	 */
+	public void
+	copyEntryContents( WritableByteChannel out )
+		throws IOException
+		{
+		long remaining = this.entrySize - this.entryOffset;
+
+		if ( remaining > 0 && this.readBuf != null )
+			{
+			remaining -= this.writeFully
+				( out, this.readBuf, (int) Math.min( remaining, this.readBuf.remaining() ) );
+			}
+
+		for ( ; remaining > 0 ; )
+			{
+			ByteBuffer records =
+				this.buffer.nextRecords( this.recordsFor( remaining ) );
+			if ( records == null )
+				{
+				// Unexpected EOF!
+				throw new IOException
+					( "unexpected EOF with " + remaining + " bytes unwritten" );
+				}
+
+			this.readBuf = records;
+			remaining -= this.writeFully
+				( out, records, (int) Math.min( remaining, records.remaining() ) );
+			}
+
+		this.entryOffset = this.entrySize;
+		}
+
+	/**
+	 * Writes the next length bytes of a view to a channel, advancing it.
+	 *
+	 * @return The number of bytes written.
+	 */
+	private int
+	writeFully( WritableByteChannel out, ByteBuffer src, int length )
+		throws IOException
+		{
+		int limit = src.limit();
+
+		src.limit( src.position() + length );
+		for ( ; src.hasRemaining() ; )
+			out.write( src );
+		src.limit( limit );
+
+		return length;
+		}
+
+	/**
+	 * Get the number of records holding the given number of bytes.
+	 */
+	private int
+	recordsFor( long numBytes )
+		{
+		int recLen = this.buffer.getRecordSize();
+
+		return (int) Math.min
+			( Integer.MAX_VALUE, ( numBytes + recLen - 1 ) / recLen );
+		}
+
 	/**
 	 * This interface is provided, with the method setEntryFactory(), to allow
 	 * the programmer to have their own TarEntry subclass instantiated for the
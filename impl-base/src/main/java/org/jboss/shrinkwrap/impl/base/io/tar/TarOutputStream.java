@@ -6,11 +6,13 @@
 
 package org.jboss.shrinkwrap.impl.base.io.tar;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
 import java.util.zip.GZIPOutputStream;
 
+import org.jboss.shrinkwrap.impl.base.io.SpoolingOutputStream;
+
 // we extend TarOutputStream to have the same type, 
 // BUT, we don't use ANY methods. It's all about 
 // typing.
@@ -23,7 +25,8 @@ import java.util.zip.GZIPOutputStream;
  * a way to properly write entries and automatically handle 
  * the proper "next entry" logic for TAR just as is done
  * for TAR.GZ.  Likely well centralize a lot of this
- * logic into a common base class.
+ * logic into a common base class.  Entries of unknown
+ * size are buffered, and spooled to disk when large.
  *
  * @author "Bay" <bayard@generationjava.com>
  * @author <a href="mailto:andrew.rubinger@jboss.org">ALR</a>
@@ -33,7 +36,7 @@ public class TarOutputStream extends TarOutputStreamImpl
 {
    private TarOutputStreamImpl tos = null;
 
-   private ByteArrayOutputStream bos = null;
+   private SpoolingOutputStream bos = null;
 
    private TarEntry currentEntry = null;
 
@@ -41,7 +44,14 @@ public class TarOutputStream extends TarOutputStreamImpl
    {
       super(null);
       this.tos = new TarOutputStreamImpl(out);
-      this.bos = new ByteArrayOutputStream();
+      this.bos = new SpoolingOutputStream();
+   }
+
+   public TarOutputStream(WritableByteChannel channel, int blockSize, boolean direct) throws IOException
+   {
+      super(null);
+      this.tos = new TarOutputStreamImpl(channel, blockSize, direct);
+      this.bos = new SpoolingOutputStream();
    }
 
    // proxy all methods, but buffer if unknown size
@@ -70,6 +80,7 @@ public class TarOutputStream extends TarOutputStreamImpl
    {
       this.flush();
       this.tos.close();
+      this.bos.close();
    }
 
    public int getRecordSize()
@@ -102,7 +113,7 @@ public class TarOutputStream extends TarOutputStreamImpl
          this.bos.writeTo(this.tos);
          this.tos.closeEntry();
          this.currentEntry = null;
-         this.bos = new ByteArrayOutputStream();
+         this.bos.reset();
       }
    }
 
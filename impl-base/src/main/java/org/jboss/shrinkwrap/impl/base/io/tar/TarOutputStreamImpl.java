@@ -18,6 +18,8 @@ package org.jboss.shrinkwrap.impl.base.io.tar;
 import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 
 
 /**
@@ -67,7 +69,32 @@ extends		FilterOutputStream
 		super( os );
 
 		this.buffer = new TarBuffer( os, blockSize, recordSize );
-		
+		this.initialize( recordSize );
+		}
+
+	/**
+	 * Create a stream writing to a channel in blocks of the given
+	 * size, which must be a multiple of TarBuffer.DEFAULT_BLKSIZE.
+	 *
+	 * @param channel The channel to which to write.
+	 * @param blockSize The number of bytes written to the channel at once.
+	 * @param direct If true, write through a direct buffer.
+	 */
+	public
+	TarOutputStreamImpl( WritableByteChannel channel, int blockSize, boolean direct )
+		{
+		super( Channels.newOutputStream( channel ) );
+
+		this.buffer = new TarBuffer( channel, blockSize, direct );
+		this.initialize( this.buffer.getRecordSize() );
+		}
+
+	/**
+	 * Initialization common to all constructors.
+	 */
+	private void
+	initialize( int recordSize )
+		{
 		this.debug = false;
 		this.assemLen = 0;
 		this.assemBuf = new byte[ recordSize ];
@@ -149,7 +176,7 @@ extends		FilterOutputStream
 	putNextEntry( TarEntry entry )
 		throws IOException
 		{
-		StringBuffer name = entry.getHeader().name;
+		String name = entry.getHeader().name;
 
 		// NOTE
 		// This check is not adequate, because the maximum file length that
@@ -0,0 +1,180 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.io.zip;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.jboss.shrinkwrap.impl.base.io.SpoolingOutputStream;
+
+/**
+ * {@link ZipOutputStream} which accepts STORED entries without their size and CRC
+ * being known in advance.  The contents of such entries are held until the entry
+ * is closed, at which point the size and CRC are known and the entry is written
+ * as usual.  Held contents are spooled to a temporary file beyond 
+ * {@link SpoolingOutputStream#DEFAULT_THRESHOLD}, so the memory held is bounded
+ * regardless of the size of the entry.  All other entries are passed straight through.
+ *
+ * @version $Revision: $
+ */
+public class DeferredStoredZipOutputStream extends ZipOutputStream
+{
+
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * STORED entry currently being held, if any
+    */
+   private ZipEntry pendingEntry;
+
+   /**
+    * Contents written to the {@link #pendingEntry}; reused for each held entry
+    */
+   private final SpoolingOutputStream pendingContents = new SpoolingOutputStream();
+
+   /**
+    * CRC of the contents written to the {@link #pendingEntry}
+    */
+   private final CRC32 pendingCrc = new CRC32();
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Creates a new instance writing to the specified stream
+    *
+    * @param out
+    */
+   public DeferredStoredZipOutputStream(final OutputStream out)
+   {
+      super(out);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Overridden Implementations ---------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@inheritDoc}
+    * STORED entries lacking a size or CRC are held until {@link #closeEntry()}.
+    * @see java.util.zip.ZipOutputStream#putNextEntry(java.util.zip.ZipEntry)
+    */
+   @Override
+   public void putNextEntry(final ZipEntry entry) throws IOException
+   {
+      if (this.pendingEntry != null)
+      {
+         this.closeEntry();
+      }
+      if (entry.getMethod() == ZipEntry.STORED && (entry.getSize() == -1 || entry.getCrc() == -1))
+      {
+         this.pendingEntry = entry;
+         return;
+      }
+      super.putNextEntry(entry);
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see java.util.zip.ZipOutputStream#write(byte[], int, int)
+    */
+   @Override
+   public synchronized void write(final byte[] b, final int off, final int len) throws IOException
+   {
+      if (this.pendingEntry != null)
+      {
+         this.pendingContents.write(b, off, len);
+         this.pendingCrc.update(b, off, len);
+         return;
+      }
+      super.write(b, off, len);
+   }
+
+   /**
+    * {@inheritDoc}
+    * Writes out any held STORED entry now that its size and CRC are known.
+    * @see java.util.zip.ZipOutputStream#closeEntry()
+    */
+   @Override
+   public void closeEntry() throws IOException
+   {
+      if (this.pendingEntry == null)
+      {
+         super.closeEntry();
+         return;
+      }
+
+      // Take the held entry; from here on writes pass straight through
+      final ZipEntry entry = this.pendingEntry;
+      this.pendingEntry = null;
+
+      // Now we know enough to write it
+      try
+      {
+         final long size = this.pendingContents.size();
+         entry.setSize(size);
+         entry.setCompressedSize(size);
+         entry.setCrc(this.pendingCrc.getValue());
+         super.putNextEntry(entry);
+         this.pendingContents.writeTo(this);
+         super.closeEntry();
+      }
+      finally
+      {
+         this.pendingContents.reset();
+         this.pendingCrc.reset();
+      }
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see java.util.zip.ZipOutputStream#finish()
+    */
+   @Override
+   public void finish() throws IOException
+   {
+      if (this.pendingEntry != null)
+      {
+         this.closeEntry();
+      }
+      super.finish();
+   }
+
+   /**
+    * {@inheritDoc}
+    * Deletes any content still held.
+    * @see java.util.zip.ZipOutputStream#close()
+    */
+   @Override
+   public void close() throws IOException
+   {
+      try
+      {
+         super.close();
+      }
+      finally
+      {
+         this.pendingContents.close();
+      }
+   }
+}
@@ -0,0 +1,846 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.io.zip;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * ZIP encoding {@link OutputStream} which compresses the contents of each entry
+ * concurrently upon a supplied {@link Executor}.  Entry contents are buffered
+ * until {@link #closeEntry()}, at which point a deflate job for the entry
+ * is submitted; completed entries are then written to the underlying stream
+ * strictly in the order they were put, each with a local header carrying the
+ * real CRC and sizes (so no data descriptors are required), followed
+ * by the central directory upon {@link #finish()}.  The result is readable
+ * by both {@link java.util.zip.ZipInputStream} and {@link java.util.zip.ZipFile}.
+ *
+ * <br /><br />
+ * Jobs not yet started by the {@link Executor} when their result is
+ * required are run in the calling {@link Thread}, so this stream will progress
+ * even if the {@link Executor} is saturated (or is the one running the caller).
+ *
+ * <br /><br />
+ * ZIP64 extensions are not supported; the same limits as
+ * {@link java.util.zip.ZipOutputStream} in JDK5 apply.
+ *
+ * Not thread-safe.
+ *
+ * @see http://www.pkware.com/documents/casestudies/APPNOTE.TXT
+ * @version $Revision: $
+ */
+public class ParallelZipOutputStream extends OutputStream
+{
+
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Local file header signature
+    */
+   private static final int SIG_LOCAL_HEADER = 0x04034b50;
+
+   /**
+    * Central directory file header signature
+    */
+   private static final int SIG_CENTRAL_HEADER = 0x02014b50;
+
+   /**
+    * End of central directory signature
+    */
+   private static final int SIG_END_CENTRAL_DIRECTORY = 0x06054b50;
+
+   /**
+    * Version needed to extract a DEFLATED entry
+    */
+   private static final int VERSION_DEFLATED = 20;
+
+   /**
+    * Version needed to extract a STORED entry
+    */
+   private static final int VERSION_STORED = 10;
+
+   /**
+    * General purpose flag denoting the name is encoded in UTF-8
+    */
+   private static final int FLAG_UTF8 = 0x0800;
+
+   /**
+    * Fixed length of a local file header, excluding the name
+    */
+   private static final int LENGTH_LOCAL_HEADER = 30;
+
+   /**
+    * Fixed length of a central directory file header, excluding the name
+    */
+   private static final int LENGTH_CENTRAL_HEADER = 46;
+
+   /**
+    * Length of the end of central directory record, without comment
+    */
+   private static final int LENGTH_END_CENTRAL_DIRECTORY = 22;
+
+   /**
+    * Maximum number of entries permitted without ZIP64 extensions
+    */
+   private static final int MAX_ENTRIES = 0xFFFF;
+
+   /**
+    * Maximum size or offset permitted without ZIP64 extensions
+    */
+   private static final long MAX_SIZE = 0xFFFFFFFFL;
+
+   /**
+    * Upper bound of uncompressed bytes held by entries waiting to be written
+    */
+   private static final long MAX_PENDING_BYTES = 32 * 1024 * 1024;
+
+   /**
+    * Charset used in encoding entry names
+    */
+   private static final String CHARSET_UTF8 = "UTF-8";
+
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Underlying stream to which we write the encoded ZIP
+    */
+   private final OutputStream out;
+
+   /**
+    * Where deflate jobs are run
+    */
+   private final Executor executor;
+
+   /**
+    * Upper bound of entries waiting to be written
+    */
+   private final int maxPendingEntries;
+
+   /**
+    * Upper bound of deflate jobs handed to the {@link Executor} and not yet completed
+    */
+   private final int parallelism;
+
+   /**
+    * Number of leading {@link #pending} entries whose jobs have been handed to the {@link Executor}
+    */
+   private int submitted;
+
+   /**
+    * Entries put, in order, whose contents have not yet been written
+    */
+   private final LinkedList<PendingEntry> pending = new LinkedList<PendingEntry>();
+
+   /**
+    * Entries written, in order, used to write the central directory
+    */
+   private final List<WrittenEntry> written = new ArrayList<WrittenEntry>();
+
+   /**
+    * Uncompressed bytes held by {@link #pending}
+    */
+   private long pendingBytes;
+
+   /**
+    * The entry currently being written, or null if none is open
+    */
+   private ZipEntry current;
+
+   /**
+    * Buffer for the contents of {@link #current}
+    */
+   private EntryContents currentContents;
+
+   /**
+    * Reusable buffer in which headers are assembled before being written
+    */
+   private byte[] headerBuffer = new byte[256];
+
+   /**
+    * Number of bytes written to {@link #out}
+    */
+   private long offset;
+
+   /**
+    * Compression level applied to DEFLATED entries
+    */
+   private int level = Deflater.DEFAULT_COMPRESSION;
+
+   /**
+    * Compression method applied to entries which do not specify their own
+    */
+   private int method = ZipEntry.DEFLATED;
+
+   /**
+    * Whether {@link #finish()} has been called
+    */
+   private boolean finished;
+
+   /**
+    * Whether {@link #close()} has been called
+    */
+   private boolean closed;
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Creates a new stream writing to the specified target, compressing
+    * entries upon the specified {@link Executor}
+    *
+    * @param out
+    * @param executor
+    * @param parallelism The most deflate jobs handed to the executor at once, also used in bounding
+    *   how many entries may be held before being written
+    * @throws IllegalArgumentException If either the stream or executor is not specified, or the
+    *   parallelism is less than 1
+    */
+   public ParallelZipOutputStream(final OutputStream out, final Executor executor, final int parallelism)
+         throws IllegalArgumentException
+   {
+      // Precondition checks
+      if (out == null)
+      {
+         throw new IllegalArgumentException("out must be specified");
+      }
+      if (executor == null)
+      {
+         throw new IllegalArgumentException("executor must be specified");
+      }
+      if (parallelism < 1)
+      {
+         throw new IllegalArgumentException("parallelism must be at least 1");
+      }
+
+      // Set
+      this.out = out;
+      this.executor = executor;
+      this.maxPendingEntries = parallelism * 4;
+      this.parallelism = parallelism;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Functional Methods -----------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Sets the compression level used for subsequent DEFLATED entries
+    *
+    * @param level 0-9, or {@link Deflater#DEFAULT_COMPRESSION}
+    * @throws IllegalArgumentException If the level is not valid
+    */
+   public void setLevel(final int level) throws IllegalArgumentException
+   {
+      if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION)
+      {
+         throw new IllegalArgumentException("Invalid compression level: " + level);
+      }
+      this.level = level;
+   }
+
+   /**
+    * Sets the default compression method used for subsequent entries which
+    * do not specify one
+    *
+    * @param method {@link ZipEntry#DEFLATED} or {@link ZipEntry#STORED}
+    * @throws IllegalArgumentException If the method is not valid
+    */
+   public void setMethod(final int method) throws IllegalArgumentException
+   {
+      if (method != ZipEntry.DEFLATED && method != ZipEntry.STORED)
+      {
+         throw new IllegalArgumentException("Invalid compression method: " + method);
+      }
+      this.method = method;
+   }
+
+   /**
+    * Begins writing a new entry; any entry currently open will be closed.
+    * Sizes and CRC of the specified entry are ignored; they are computed
+    * from the contents written.
+    *
+    * @param entry
+    * @throws IOException If an I/O error has occurred
+    */
+   public void putNextEntry(final ZipEntry entry) throws IOException
+   {
+      this.ensureOpen();
+      if (entry == null)
+      {
+         throw new IllegalArgumentException("entry must be specified");
+      }
+      if (this.current != null)
+      {
+         this.closeEntry();
+      }
+      this.current = entry;
+      this.currentContents = new EntryContents();
+   }
+
+   /**
+    * Closes the current entry, submitting it for compression.  Completed entries
+    * are written to the underlying stream as they become available.
+    *
+    * @throws IOException If an I/O error has occurred
+    */
+   public void closeEntry() throws IOException
+   {
+      this.ensureOpen();
+      if (this.current == null)
+      {
+         return;
+      }
+
+      // Take the current entry and its contents
+      final ZipEntry entry = this.current;
+      // Hand over the buffer itself rather than a copy, so large entries aren't held twice
+      final byte[] contents = this.currentContents.buffer();
+      final int length = this.currentContents.size();
+      this.current = null;
+      this.currentContents = null;
+
+      // Make a job to compress it
+      final int entryMethod = entry.isDirectory() ? ZipEntry.STORED : (entry.getMethod() == -1
+            ? this.method
+            : entry.getMethod());
+      final long time = entry.getTime() == -1 ? System.currentTimeMillis() : entry.getTime();
+      final PendingEntry pendingEntry = new PendingEntry(length, new FutureTask<WrittenEntry>(new DeflateTask(
+            entry.getName(), contents, length, entryMethod, this.level, time)));
+
+      // Submit and record
+      this.pending.add(pendingEntry);
+      this.pendingBytes += length;
+      this.submitJobs();
+
+      // Write out what we can; block if we're holding too much
+      while (!this.pending.isEmpty())
+      {
+         final boolean full = this.pending.size() > this.maxPendingEntries
+               || this.pendingBytes > MAX_PENDING_BYTES;
+         if (!full && !this.pending.getFirst().job.isDone())
+         {
+            break;
+         }
+         this.writeFirstPending();
+      }
+   }
+
+   /**
+    * Finishes writing the contents of the ZIP without closing the underlying stream
+    *
+    * @throws IOException If an I/O error has occurred
+    */
+   public void finish() throws IOException
+   {
+      this.ensureOpen();
+      if (this.finished)
+      {
+         return;
+      }
+      if (this.current != null)
+      {
+         this.closeEntry();
+      }
+
+      // Write all outstanding entries
+      while (!this.pending.isEmpty())
+      {
+         this.writeFirstPending();
+      }
+
+      // Write the central directory, which must itself be addressable without ZIP64 extensions
+      final long centralDirectoryOffset = this.offset;
+      if (centralDirectoryOffset > MAX_SIZE)
+      {
+         throw new ZipException("Central directory offset too large for a ZIP without ZIP64 extensions: "
+               + centralDirectoryOffset);
+      }
+      for (final WrittenEntry entry : this.written)
+      {
+         this.writeCentralHeader(entry);
+      }
+      final long centralDirectorySize = this.offset - centralDirectoryOffset;
+      if (centralDirectorySize > MAX_SIZE)
+      {
+         throw new ZipException("Central directory too large for a ZIP without ZIP64 extensions: "
+               + centralDirectorySize);
+      }
+      this.writeEndOfCentralDirectory(centralDirectoryOffset, centralDirectorySize);
+      this.out.flush();
+      this.finished = true;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Overridden Implementations ---------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@inheritDoc}
+    * @see java.io.OutputStream#write(int)
+    */
+   @Override
+   public void write(final int b) throws IOException
+   {
+      this.ensureEntryOpen();
+      this.currentContents.write(b);
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see java.io.OutputStream#write(byte[], int, int)
+    */
+   @Override
+   public void write(final byte[] b, final int off, final int len) throws IOException
+   {
+      this.ensureEntryOpen();
+      this.currentContents.write(b, off, len);
+   }
+
+   /**
+    * No-op while entries are being assembled; the underlying stream
+    * is flushed upon {@link #finish()}
+    * @see java.io.OutputStream#flush()
+    */
+   @Override
+   public void flush() throws IOException
+   {
+      // NOOP
+   }
+
+   /**
+    * Finishes writing the ZIP and closes the underlying stream.  If the ZIP could
+    * not be finished, any outstanding jobs are cancelled.
+    * @see java.io.OutputStream#close()
+    */
+   @Override
+   public void close() throws IOException
+   {
+      if (this.closed)
+      {
+         return;
+      }
+      try
+      {
+         this.finish();
+      }
+      finally
+      {
+         this.closed = true;
+         for (final PendingEntry entry : this.pending)
+         {
+            entry.job.cancel(false);
+         }
+         this.pending.clear();
+         this.out.close();
+      }
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Removes the first pending entry, running its job here if it has not yet
+    * been started, and writes its local header and contents
+    * @throws IOException
+    */
+   private void writeFirstPending() throws IOException
+   {
+      final PendingEntry pendingEntry = this.pending.removeFirst();
+      this.pendingBytes -= pendingEntry.size;
+      if (this.submitted > 0)
+      {
+         this.submitted--;
+      }
+
+      // No-op if already run or running elsewhere
+      pendingEntry.job.run();
+
+      final WrittenEntry entry;
+      try
+      {
+         entry = pendingEntry.job.get();
+      }
+      catch (final InterruptedException ie)
+      {
+         Thread.currentThread().interrupt();
+         throw new InterruptedIOException("Interrupted while waiting for entry to be compressed");
+      }
+      catch (final ExecutionException ee)
+      {
+         final IOException ioe = new IOException("Could not compress entry: " + ee.getCause());
+         ioe.initCause(ee.getCause());
+         throw ioe;
+      }
+
+      // Enforce the limits of the format
+      if (this.written.size() >= MAX_ENTRIES)
+      {
+         throw new ZipException("Too many entries for a ZIP without ZIP64 extensions: " + (this.written.size() + 1));
+      }
+      if (entry.size > MAX_SIZE || entry.compressedSize > MAX_SIZE || this.offset > MAX_SIZE)
+      {
+         throw new ZipException("Entry too large for a ZIP without ZIP64 extensions: " + entry.name);
+      }
+
+      // Write the header and contents
+      entry.offset = this.offset;
+      this.writeLocalHeader(entry);
+      this.writeBytes(entry.data, 0, entry.dataLength);
+      this.written.add(entry);
+
+      // Release the contents, we only need the metadata for the central directory
+      entry.data = null;
+
+      // A slot may have freed
+      this.submitJobs();
+   }
+
+   /**
+    * Hands pending jobs to the {@link Executor}, in order, such that no more than the 
+    * expected parallelism are in flight at once.  The others are held until a job completes,
+    * or are run here once their result is required, so a shared {@link Executor} is left
+    * room for other work.  A job the {@link Executor} rejects is likewise run here.
+    */
+   private void submitJobs()
+   {
+      int inFlight = 0;
+      final Iterator<PendingEntry> entries = this.pending.iterator();
+      for (int i = 0; i < this.submitted; i++)
+      {
+         if (!entries.next().job.isDone())
+         {
+            inFlight++;
+         }
+      }
+      while (inFlight < this.parallelism && entries.hasNext())
+      {
+         try
+         {
+            this.executor.execute(entries.next().job);
+         }
+         catch (final RejectedExecutionException ree)
+         {
+            break;
+         }
+         this.submitted++;
+         inFlight++;
+      }
+   }
+
+   private void writeLocalHeader(final WrittenEntry entry) throws IOException
+   {
+      final byte[] header = this.header(LENGTH_LOCAL_HEADER + entry.name.length);
+      int pos = putInt(header, 0, SIG_LOCAL_HEADER);
+      pos = putShort(header, pos, entry.versionNeeded());
+      pos = putShort(header, pos, FLAG_UTF8);
+      pos = putShort(header, pos, entry.method);
+      pos = putInt(header, pos, entry.dosTime);
+      pos = putInt(header, pos, entry.crc);
+      pos = putInt(header, pos, entry.compressedSize);
+      pos = putInt(header, pos, entry.size);
+      pos = putShort(header, pos, entry.name.length);
+      pos = putShort(header, pos, 0); // Extra field length
+      System.arraycopy(entry.name, 0, header, pos, entry.name.length);
+      this.writeBytes(header, 0, pos + entry.name.length);
+   }
+
+   private void writeCentralHeader(final WrittenEntry entry) throws IOException
+   {
+      final byte[] header = this.header(LENGTH_CENTRAL_HEADER + entry.name.length);
+      int pos = putInt(header, 0, SIG_CENTRAL_HEADER);
+      pos = putShort(header, pos, VERSION_DEFLATED); // Version made by
+      pos = putShort(header, pos, entry.versionNeeded());
+      pos = putShort(header, pos, FLAG_UTF8);
+      pos = putShort(header, pos, entry.method);
+      pos = putInt(header, pos, entry.dosTime);
+      pos = putInt(header, pos, entry.crc);
+      pos = putInt(header, pos, entry.compressedSize);
+      pos = putInt(header, pos, entry.size);
+      pos = putShort(header, pos, entry.name.length);
+      pos = putShort(header, pos, 0); // Extra field length
+      pos = putShort(header, pos, 0); // Comment length
+      pos = putShort(header, pos, 0); // Disk number start
+      pos = putShort(header, pos, 0); // Internal attributes
+      pos = putInt(header, pos, 0); // External attributes
+      pos = putInt(header, pos, entry.offset);
+      System.arraycopy(entry.name, 0, header, pos, entry.name.length);
+      this.writeBytes(header, 0, pos + entry.name.length);
+   }
+
+   private void writeEndOfCentralDirectory(final long centralDirectoryOffset, final long centralDirectorySize)
+         throws IOException
+   {
+      final int count = this.written.size();
+      final byte[] header = this.header(LENGTH_END_CENTRAL_DIRECTORY);
+      int pos = putInt(header, 0, SIG_END_CENTRAL_DIRECTORY);
+      pos = putShort(header, pos, 0); // Number of this disk
+      pos = putShort(header, pos, 0); // Disk with the central directory
+      pos = putShort(header, pos, count);
+      pos = putShort(header, pos, count);
+      pos = putInt(header, pos, centralDirectorySize);
+      pos = putInt(header, pos, centralDirectoryOffset);
+      pos = putShort(header, pos, 0); // Comment length
+      this.writeBytes(header, 0, pos);
+   }
+
+   /**
+    * Obtains the reusable header buffer, ensuring it has at least the specified length
+    */
+   private byte[] header(final int length)
+   {
+      if (this.headerBuffer.length < length)
+      {
+         this.headerBuffer = new byte[length];
+      }
+      return this.headerBuffer;
+   }
+
+   private void writeBytes(final byte[] b, final int off, final int len) throws IOException
+   {
+      this.out.write(b, off, len);
+      this.offset += len;
+   }
+
+   /**
+    * Writes the specified value in little-endian order into the buffer at the
+    * specified position, returning the next position
+    */
+   private static int putShort(final byte[] b, final int pos, final int value)
+   {
+      b[pos] = (byte) value;
+      b[pos + 1] = (byte) (value >>> 8);
+      return pos + 2;
+   }
+
+   /**
+    * Writes the low 32 bits of the specified value in little-endian order into the 
+    * buffer at the specified position, returning the next position
+    */
+   private static int putInt(final byte[] b, final int pos, final long value)
+   {
+      putShort(b, pos, (int) (value & 0xFFFF));
+      return putShort(b, pos + 2, (int) ((value >>> 16) & 0xFFFF));
+   }
+
+   private void ensureOpen() throws IOException
+   {
+      if (this.closed)
+      {
+         throw new IOException("Stream closed");
+      }
+   }
+
+   private void ensureEntryOpen() throws IOException
+   {
+      this.ensureOpen();
+      if (this.current == null)
+      {
+         throw new ZipException("No current ZIP entry");
+      }
+   }
+
+   /**
+    * Converts the specified Java time to the MS-DOS date (high 16 bits) and time (low 16 bits)
+    * format used in ZIP headers
+    * @param time
+    * @return
+    */
+   static long toDosTime(final long time)
+   {
+      final Calendar calendar = Calendar.getInstance();
+      calendar.setTimeInMillis(time);
+      final int year = calendar.get(Calendar.YEAR);
+      if (year < 1980)
+      {
+         return (1 << 21) | (1 << 16);
+      }
+      return ((long) (year - 1980) << 25) | ((long) (calendar.get(Calendar.MONTH) + 1) << 21)
+            | ((long) calendar.get(Calendar.DAY_OF_MONTH) << 16) | ((long) calendar.get(Calendar.HOUR_OF_DAY) << 11)
+            | ((long) calendar.get(Calendar.MINUTE) << 5) | ((long) calendar.get(Calendar.SECOND) >> 1);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Inner Classes ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Buffer for the contents of an entry, exposing its backing array so it may 
+    * be handed off for compression without copying
+    */
+   private static final class EntryContents extends ByteArrayOutputStream
+   {
+      byte[] buffer()
+      {
+         return buf;
+      }
+   }
+
+   /**
+    * An entry whose contents are being compressed
+    */
+   private static final class PendingEntry
+   {
+      private final long size;
+
+      private final FutureTask<WrittenEntry> job;
+
+      PendingEntry(final long size, final FutureTask<WrittenEntry> job)
+      {
+         this.size = size;
+         this.job = job;
+      }
+   }
+
+   /**
+    * An encoded entry ready to be written; retained after writing
+    * (without contents) for the central directory
+    */
+   private static final class WrittenEntry
+   {
+      private final byte[] name;
+
+      private final int method;
+
+      private final long dosTime;
+
+      private final long crc;
+
+      private final long size;
+
+      private final long compressedSize;
+
+      private byte[] data;
+
+      private final int dataLength;
+
+      private long offset;
+
+      WrittenEntry(final byte[] name, final int method, final long dosTime, final long crc, final long size,
+            final byte[] data, final int dataLength)
+      {
+         this.name = name;
+         this.method = method;
+         this.dosTime = dosTime;
+         this.crc = crc;
+         this.size = size;
+         this.compressedSize = dataLength;
+         this.data = data;
+         this.dataLength = dataLength;
+      }
+
+      int versionNeeded()
+      {
+         return method == ZipEntry.DEFLATED ? VERSION_DEFLATED : VERSION_STORED;
+      }
+   }
+
+   /**
+    * Computes the CRC of and (optionally) compresses an entry's contents
+    */
+   private static final class DeflateTask implements Callable<WrittenEntry>
+   {
+      private final String name;
+
+      private final byte[] contents;
+
+      private final int length;
+
+      private final int method;
+
+      private final int level;
+
+      private final long time;
+
+      DeflateTask(final String name, final byte[] contents, final int length, final int method, final int level,
+            final long time)
+      {
+         this.name = name;
+         this.contents = contents;
+         this.length = length;
+         this.method = method;
+         this.level = level;
+         this.time = time;
+      }
+
+      @Override
+      public WrittenEntry call() throws UnsupportedEncodingException
+      {
+         // Checksum
+         final CRC32 crc = new CRC32();
+         crc.update(contents, 0, this.length);
+
+         // Compress if requested, falling back to STORED if it doesn't make the entry any smaller
+         final byte[] encodedName = name.getBytes(CHARSET_UTF8);
+         final long dosTime = toDosTime(time);
+         if (method == ZipEntry.DEFLATED && this.length > 0)
+         {
+            final Deflater deflater = new Deflater(level, true);
+            try
+            {
+               deflater.setInput(contents, 0, this.length);
+               deflater.finish();
+               byte[] buffer = new byte[Math.max(64, this.length / 2)];
+               int deflated = 0;
+               while (!deflater.finished() && deflated < this.length)
+               {
+                  if (deflated == buffer.length)
+                  {
+                     final byte[] expanded = new byte[buffer.length * 2];
+                     System.arraycopy(buffer, 0, expanded, 0, deflated);
+                     buffer = expanded;
+                  }
+                  deflated += deflater.deflate(buffer, deflated, buffer.length - deflated);
+               }
+               if (deflater.finished() && deflated < this.length)
+               {
+                  return new WrittenEntry(encodedName, ZipEntry.DEFLATED, dosTime, crc.getValue(),
+                        this.length, buffer, deflated);
+               }
+            }
+            finally
+            {
+               deflater.end();
+            }
+         }
+         return new WrittenEntry(encodedName, ZipEntry.STORED, dosTime, crc.getValue(), this.length, contents,
+               this.length);
+      }
+   }
+}
@@ -0,0 +1,885 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.io.zip;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+import org.jboss.shrinkwrap.impl.base.Validate;
+import org.jboss.shrinkwrap.impl.base.io.IOUtil;
+
+/**
+ * Shared, reference-counted view of a ZIP file on disk.  Each call to 
+ * {@link #open(File)} for the same (unchanged) file returns the same instance 
+ * and adds a reference; each call to {@link #close()} removes one.  When the last 
+ * reference is removed the underlying file is closed.  A source which becomes 
+ * unreachable without having been closed (ie. an imported archive which was never
+ * released) has its file closed the next time any source is opened.
+ * 
+ * A file is considered unchanged while its last modified time, its length and 
+ * the checksum of its central directory (which records the CRC and size of every
+ * entry) match those read when the source was opened.  Callers who rewrite a file
+ * in place and require subsequent opens to see the new contents regardless may 
+ * {@link #invalidate(File)} it.  Temporary files may be opened via 
+ * {@link #openTemporary(File)}, such that they are deleted along with the source.
+ * 
+ * The contents of STORED entries are read directly from the file channel at their
+ * offset, and are transferred to other channels without copying through the heap
+ * where the platform allows.  DEFLATED entries are read via the {@link ZipFile}.
+ * Nothing is mapped, so nothing of the file remains in use once closed.
+ *
+ * @version $Revision: $
+ */
+public final class ZipSource implements Closeable
+{
+
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Logger
+    */
+   private static final Logger log = Logger.getLogger(ZipSource.class.getName());
+
+   /**
+    * Signature of the end of central directory record
+    */
+   private static final int SIGNATURE_END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+
+   /**
+    * Signature of a central directory file header
+    */
+   private static final int SIGNATURE_CENTRAL_DIRECTORY = 0x02014b50;
+
+   /**
+    * Signature of a local file header
+    */
+   private static final int SIGNATURE_LOCAL_HEADER = 0x04034b50;
+
+   /**
+    * Fixed length of the end of central directory record
+    */
+   private static final int LENGTH_END_OF_CENTRAL_DIRECTORY = 22;
+
+   /**
+    * Fixed length of a central directory file header
+    */
+   private static final int LENGTH_CENTRAL_DIRECTORY = 46;
+
+   /**
+    * Fixed length of a local file header
+    */
+   private static final int LENGTH_LOCAL_HEADER = 30;
+
+   /**
+    * Maximum length of the ZIP file comment
+    */
+   private static final int MAX_LENGTH_COMMENT = 0xFFFF;
+
+   /**
+    * Size of the buffer used in reading STORED entries
+    */
+   private static final int BUFFER_SIZE = 8192;
+
+   /**
+    * Open sources, keyed by canonical file.  Also guards the reference counts.
+    */
+   private static final Map<File, SourceReference> sources = new HashMap<File, SourceReference>();
+
+   /**
+    * Queue of references to sources which have become unreachable without being closed
+    */
+   private static final ReferenceQueue<ZipSource> unreachable = new ReferenceQueue<ZipSource>();
+
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Canonical file
+    */
+   private final File file;
+
+   /**
+    * Last modified time of the file when opened
+    */
+   private final long lastModified;
+
+   /**
+    * Length of the file when opened
+    */
+   private final long length;
+
+   /**
+    * Checksum of the central directory when opened, or null if it could not be read
+    */
+   private final Long directoryChecksum;
+
+   /**
+    * Underlying {@link ZipFile}
+    */
+   private final ZipFile zipFile;
+
+   /**
+    * Channel from which STORED entries are read
+    */
+   private final FileChannel channel;
+
+   /**
+    * Offsets of the local headers of all STORED entries, keyed by entry name
+    */
+   private final Map<String, Long> storedEntryOffsets;
+
+   /**
+    * Reference through which the pool refers to this source, and which 
+    * closes the file should this source become unreachable
+    */
+   private final SourceReference reference;
+
+   /**
+    * Number of references; guarded by {@link #sources}
+    */
+   private int references;
+
+   /**
+    * Whether the last reference has been closed; read without holding the pool's lock
+    */
+   private volatile boolean closed;
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Opens the specified canonical file, already open as the specified channel
+    * 
+    * @param file
+    * @param lastModified
+    * @param length
+    * @param channel
+    * @param directory The central directory read from the channel, or null if it could not be read
+    * @param deleteOnClose Whether the file is to be deleted once closed
+    * @throws IOException If the file could not be opened as ZIP
+    */
+   private ZipSource(final File file, final long lastModified, final long length, final FileChannel channel,
+         final CentralDirectory directory, final boolean deleteOnClose) throws IOException
+   {
+      this.file = file;
+      this.lastModified = lastModified;
+      this.length = length;
+      this.channel = channel;
+      this.zipFile = new ZipFile(file);
+      if (directory != null)
+      {
+         this.directoryChecksum = Long.valueOf(directory.checksum);
+         this.storedEntryOffsets = directory.storedEntryOffsets;
+      }
+      else
+      {
+         // Everything is read via the ZipFile
+         this.directoryChecksum = null;
+         this.storedEntryOffsets = Collections.emptyMap();
+      }
+      this.reference = new SourceReference(this, deleteOnClose);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Functional Methods -----------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Obtains a reference to the {@link ZipSource} for the specified file, opening
+    * it if not already open (or if it has changed since opened).  The caller is 
+    * responsible for calling {@link #close()} once the reference is no longer needed.
+    * 
+    * @param file
+    * @return
+    * @throws IllegalArgumentException If the file is not specified
+    * @throws IOException If the file could not be opened as ZIP
+    */
+   public static ZipSource open(final File file) throws IllegalArgumentException, IOException
+   {
+      return open(file, false);
+   }
+
+   /**
+    * Obtains the only reference to a new {@link ZipSource} for the specified 
+    * temporary file, which is deleted once the source is closed (or has become 
+    * unreachable without having been closed).  The caller is responsible for 
+    * deleting the file should this fail.
+    * 
+    * @param file
+    * @return
+    * @throws IllegalArgumentException If the file is not specified
+    * @throws IOException If the file could not be opened as ZIP
+    */
+   public static ZipSource openTemporary(final File file) throws IllegalArgumentException, IOException
+   {
+      return open(file, true);
+   }
+
+   /**
+    * Obtains a reference to the {@link ZipSource} for the specified file, always
+    * opening it anew if it is to be deleted on close
+    * 
+    * @param file
+    * @param deleteOnClose
+    * @return
+    * @throws IllegalArgumentException If the file is not specified
+    * @throws IOException If the file could not be opened as ZIP
+    */
+   private static ZipSource open(final File file, final boolean deleteOnClose) throws IllegalArgumentException,
+         IOException
+   {
+      Validate.notNull(file, "File must be specified");
+      final File canonicalFile = file.getCanonicalFile();
+      closeUnreachable();
+
+      // Read what identifies the current contents
+      final long lastModified = canonicalFile.lastModified();
+      final long length = canonicalFile.length();
+      final RandomAccessFile raf = new RandomAccessFile(canonicalFile, "r");
+      final FileChannel channel = raf.getChannel();
+      boolean opened = false;
+      try
+      {
+         CentralDirectory directory = null;
+         try
+         {
+            directory = readCentralDirectory(channel);
+         }
+         catch (final IOException ioe)
+         {
+            log.log(Level.FINE, "Could not read central directory of " + canonicalFile
+                  + "; reading all entries via ZipFile", ioe);
+         }
+         catch (final RuntimeException re)
+         {
+            log.log(Level.FINE, "Could not read central directory of " + canonicalFile
+                  + "; reading all entries via ZipFile", re);
+         }
+
+         synchronized (sources)
+         {
+            final SourceReference existing = sources.get(canonicalFile);
+            ZipSource source = existing == null ? null : existing.get();
+            if (deleteOnClose || source == null || !source.isSameContents(lastModified, length, directory))
+            {
+               // Any stale source remains open until its own references are closed
+               source = new ZipSource(canonicalFile, lastModified, length, channel, directory, deleteOnClose);
+               sources.put(canonicalFile, source.reference);
+               opened = true;
+            }
+            source.references++;
+            return source;
+         }
+      }
+      finally
+      {
+         if (!opened)
+         {
+            raf.close();
+         }
+      }
+   }
+
+   /**
+    * Ensures that subsequent calls to {@link #open(File)} for the specified file 
+    * open it anew, regardless of whether it is considered changed.  References
+    * already obtained remain valid until closed.  Has no effect if the file 
+    * is not open.
+    * 
+    * @param file
+    * @throws IllegalArgumentException If the file is not specified
+    * @throws IOException If the canonical file could not be determined
+    */
+   public static void invalidate(final File file) throws IllegalArgumentException, IOException
+   {
+      Validate.notNull(file, "File must be specified");
+      final File canonicalFile = file.getCanonicalFile();
+      synchronized (sources)
+      {
+         sources.remove(canonicalFile);
+      }
+   }
+
+   /**
+    * Obtains all entries of the ZIP file
+    * @return
+    * @throws IllegalStateException If this source has been closed
+    */
+   public Enumeration<? extends ZipEntry> entries() throws IllegalStateException
+   {
+      this.ensureOpen();
+      return zipFile.entries();
+   }
+
+   /**
+    * Obtains the number of entries of the ZIP file
+    * @return
+    * @throws IllegalStateException If this source has been closed
+    */
+   public int size() throws IllegalStateException
+   {
+      this.ensureOpen();
+      return zipFile.size();
+   }
+
+   /**
+    * Opens a stream to read the contents of the specified entry
+    * 
+    * @param entry
+    * @return
+    * @throws IllegalStateException If this source has been closed
+    * @throws IOException If the entry could not be read
+    */
+   public InputStream openStream(final ZipEntry entry) throws IllegalStateException, IOException
+   {
+      this.ensureOpen();
+
+      // Read STORED entries straight from the channel
+      if (entry.getMethod() == ZipEntry.STORED)
+      {
+         final long start = this.getStoredContentsOffset(entry);
+         if (start >= 0)
+         {
+            return new StoredEntryInputStream(start, start + entry.getSize());
+         }
+      }
+
+      return new SourceInputStream(zipFile.getInputStream(entry));
+   }
+
+   /**
+    * Writes the contents of the specified entry into the specified channel; 
+    * STORED entries are transferred straight from the file
+    * 
+    * @param entry
+    * @param target
+    * @return The number of bytes written
+    * @throws IllegalStateException If this source has been closed
+    * @throws IOException If the entry could not be read or written
+    */
+   public long transferTo(final ZipEntry entry, final WritableByteChannel target) throws IllegalStateException,
+         IOException
+   {
+      this.ensureOpen();
+
+      if (entry.getMethod() == ZipEntry.STORED)
+      {
+         final long start = this.getStoredContentsOffset(entry);
+         if (start >= 0)
+         {
+            final long size = entry.getSize();
+            long transferred = 0;
+            while (transferred < size)
+            {
+               final long count = channel.transferTo(start + transferred, size - transferred, target);
+               if (count <= 0)
+               {
+                  throw new IOException("Could only transfer " + transferred + " of " + size + " bytes of "
+                        + entry.getName() + " from " + file);
+               }
+               transferred += count;
+            }
+            return transferred;
+         }
+      }
+
+      final InputStream in = zipFile.getInputStream(entry);
+      try
+      {
+         return IOUtil.copy(in, target);
+      }
+      finally
+      {
+         in.close();
+      }
+   }
+
+   /**
+    * Removes a reference to this source, closing the underlying file 
+    * if this was the last reference.  Has no effect if already closed.
+    * 
+    * @see java.io.Closeable#close()
+    */
+   @Override
+   public void close() throws IOException
+   {
+      synchronized (sources)
+      {
+         if (references == 0)
+         {
+            return;
+         }
+         if (--references > 0)
+         {
+            return;
+         }
+         closed = true;
+         if (sources.get(file) == reference)
+         {
+            sources.remove(file);
+         }
+      }
+
+      // Last reference; closed here rather than once unreachable
+      reference.clear();
+      reference.closeFile();
+   }
+
+   /**
+    * Returns whether or not this source is still open
+    * @return
+    */
+   public boolean isOpen()
+   {
+      return !closed;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Overridden Implementations ---------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@inheritDoc}
+    * @see java.lang.Object#toString()
+    */
+   @Override
+   public String toString()
+   {
+      return this.getClass().getSimpleName() + " [file=" + file + "]";
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Ensures this source has not been closed
+    * @throws IllegalStateException If closed
+    */
+   private void ensureOpen() throws IllegalStateException
+   {
+      if (!this.isOpen())
+      {
+         throw new IllegalStateException("ZIP source has been closed: " + file);
+      }
+   }
+
+   /**
+    * Returns whether the file as described by the specified arguments has the 
+    * same contents as when this source was opened
+    * @param lastModified
+    * @param length
+    * @param directory
+    * @return
+    */
+   private boolean isSameContents(final long lastModified, final long length, final CentralDirectory directory)
+   {
+      if (this.lastModified != lastModified || this.length != length)
+      {
+         return false;
+      }
+      if (directoryChecksum == null || directory == null)
+      {
+         return directoryChecksum == null && directory == null;
+      }
+      return directoryChecksum.longValue() == directory.checksum;
+   }
+
+   /**
+    * Obtains the offset in the file of the contents of the specified STORED 
+    * entry, or -1 if the contents cannot be located
+    * @param entry
+    * @return
+    * @throws IOException If the local header could not be read
+    */
+   private long getStoredContentsOffset(final ZipEntry entry) throws IOException
+   {
+      final Long headerOffset = storedEntryOffsets.get(entry.getName());
+      if (headerOffset == null || entry.getSize() < 0)
+      {
+         return -1;
+      }
+
+      // Locate the data following the local header
+      final long header = headerOffset.longValue();
+      final ByteBuffer localHeader = ByteBuffer.allocate(LENGTH_LOCAL_HEADER).order(ByteOrder.LITTLE_ENDIAN);
+      if (!readFully(channel, localHeader, header) || localHeader.getInt(0) != SIGNATURE_LOCAL_HEADER)
+      {
+         return -1;
+      }
+      final int nameLength = localHeader.getShort(26) & 0xFFFF;
+      final int extraLength = localHeader.getShort(28) & 0xFFFF;
+      final long start = header + LENGTH_LOCAL_HEADER + nameLength + extraLength;
+      if (start + entry.getSize() > length)
+      {
+         return -1;
+      }
+      return start;
+   }
+
+   /**
+    * Closes any sources which have become unreachable without having been closed
+    */
+   private static void closeUnreachable()
+   {
+      SourceReference reference;
+      while ((reference = (SourceReference) unreachable.poll()) != null)
+      {
+         synchronized (sources)
+         {
+            if (sources.get(reference.file) == reference)
+            {
+               sources.remove(reference.file);
+            }
+         }
+         log.log(Level.FINE, "Closing " + reference.file + ", no longer referenced by any archive");
+         reference.closeFile();
+      }
+   }
+
+   /**
+    * Reads from the specified channel at the specified position until the 
+    * specified buffer is full, returning false if the end of the channel
+    * was reached first
+    * @param channel
+    * @param buffer
+    * @param position
+    * @return
+    * @throws IOException
+    */
+   private static boolean readFully(final FileChannel channel, final ByteBuffer buffer, final long position)
+         throws IOException
+   {
+      final int start = buffer.position();
+      while (buffer.hasRemaining())
+      {
+         if (channel.read(buffer, position + buffer.position() - start) < 0)
+         {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+    * Reads the central directory of the ZIP file open as the specified channel,
+    * returning its checksum and the offsets of the local headers of all STORED 
+    * entries keyed by name
+    * @param channel
+    * @return
+    * @throws ZipException If the central directory could not be read
+    * @throws IOException
+    */
+   private static CentralDirectory readCentralDirectory(final FileChannel channel) throws ZipException,
+         IOException
+   {
+      // Find the end of central directory record, searching back over any comment
+      final long fileLength = channel.size();
+      final int tailLength = (int) Math.min(fileLength, LENGTH_END_OF_CENTRAL_DIRECTORY + MAX_LENGTH_COMMENT);
+      final ByteBuffer tail = ByteBuffer.allocate(tailLength).order(ByteOrder.LITTLE_ENDIAN);
+      if (!readFully(channel, tail, fileLength - tailLength))
+      {
+         throw new ZipException("Could not read end of central directory record");
+      }
+      int endOfCentralDirectory = -1;
+      for (int pos = tailLength - LENGTH_END_OF_CENTRAL_DIRECTORY; pos >= 0; pos--)
+      {
+         if (tail.getInt(pos) == SIGNATURE_END_OF_CENTRAL_DIRECTORY)
+         {
+            endOfCentralDirectory = pos;
+            break;
+         }
+      }
+      if (endOfCentralDirectory < 0)
+      {
+         throw new ZipException("Could not find end of central directory record");
+      }
+
+      // Read the central directory itself
+      final int numEntries = tail.getShort(endOfCentralDirectory + 10) & 0xFFFF;
+      final long directoryLength = tail.getInt(endOfCentralDirectory + 12) & 0xFFFFFFFFL;
+      final long directoryOffset = tail.getInt(endOfCentralDirectory + 16) & 0xFFFFFFFFL;
+      if (directoryOffset + directoryLength > fileLength || directoryLength > Integer.MAX_VALUE)
+      {
+         throw new ZipException("Invalid central directory location");
+      }
+      final ByteBuffer zip = ByteBuffer.allocate((int) directoryLength).order(ByteOrder.LITTLE_ENDIAN);
+      if (!readFully(channel, zip, directoryOffset))
+      {
+         throw new ZipException("Could not read central directory");
+      }
+
+      // The directory records the CRC and size of every entry, so identifies the contents
+      final CRC32 checksum = new CRC32();
+      checksum.update(zip.array());
+      checksum.update(tail.array(), endOfCentralDirectory, LENGTH_END_OF_CENTRAL_DIRECTORY);
+
+      // Walk the central directory
+      int pos = 0;
+      final Map<String, Long> offsets = new HashMap<String, Long>();
+      for (int i = 0; i < numEntries; i++)
+      {
+         if (zip.getInt(pos) != SIGNATURE_CENTRAL_DIRECTORY)
+         {
+            throw new ZipException("Invalid central directory file header at offset " + (directoryOffset + pos));
+         }
+         final int method = zip.getShort(pos + 10) & 0xFFFF;
+         final int nameLength = zip.getShort(pos + 28) & 0xFFFF;
+         final int extraLength = zip.getShort(pos + 30) & 0xFFFF;
+         final int commentLength = zip.getShort(pos + 32) & 0xFFFF;
+         if (method == ZipEntry.STORED)
+         {
+            final String name = new String(zip.array(), pos + LENGTH_CENTRAL_DIRECTORY, nameLength, "UTF-8");
+            offsets.put(name, Long.valueOf(zip.getInt(pos + 42) & 0xFFFFFFFFL));
+         }
+         pos += LENGTH_CENTRAL_DIRECTORY + nameLength + extraLength + commentLength;
+      }
+      return new CentralDirectory(checksum.getValue(), offsets);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Inner Classes ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * What was read from the central directory of a ZIP file
+    */
+   private static final class CentralDirectory
+   {
+      /**
+       * Checksum of the central directory and its end record
+       */
+      private final long checksum;
+
+      /**
+       * Offsets of the local headers of all STORED entries, keyed by entry name
+       */
+      private final Map<String, Long> storedEntryOffsets;
+
+      private CentralDirectory(final long checksum, final Map<String, Long> storedEntryOffsets)
+      {
+         this.checksum = checksum;
+         this.storedEntryOffsets = storedEntryOffsets;
+      }
+   }
+
+   /**
+    * Weak reference to a {@link ZipSource}, holding what's needed to close its 
+    * file once the source itself is unreachable
+    */
+   private static final class SourceReference extends WeakReference<ZipSource>
+   {
+      private final File file;
+
+      private final ZipFile zipFile;
+
+      private final FileChannel channel;
+
+      private final boolean deleteOnClose;
+
+      private SourceReference(final ZipSource source, final boolean deleteOnClose)
+      {
+         super(source, unreachable);
+         this.file = source.file;
+         this.zipFile = source.zipFile;
+         this.channel = source.channel;
+         this.deleteOnClose = deleteOnClose;
+      }
+
+      /**
+       * Closes (and if requested, deletes) the file, logging rather than raising any errors
+       */
+      private void closeFile()
+      {
+         try
+         {
+            channel.close();
+         }
+         catch (final IOException ioe)
+         {
+            log.log(Level.WARNING, "Could not close channel of " + file, ioe);
+         }
+         try
+         {
+            zipFile.close();
+         }
+         catch (final IOException ioe)
+         {
+            log.log(Level.WARNING, "Could not close " + file, ioe);
+         }
+         if (deleteOnClose && !file.delete())
+         {
+            log.log(Level.WARNING, "Could not delete " + file);
+         }
+      }
+   }
+
+   /**
+    * Stream over an entry of the {@link ZipFile}, keeping this source reachable while in use
+    */
+   private final class SourceInputStream extends FilterInputStream
+   {
+      private SourceInputStream(final InputStream in)
+      {
+         super(in);
+      }
+   }
+
+   /**
+    * Stream reading a STORED entry straight from the channel, by position
+    */
+   private final class StoredEntryInputStream extends InputStream
+   {
+      /**
+       * Position of the next byte to be read
+       */
+      private long position;
+
+      /**
+       * Position following the last byte of the entry
+       */
+      private final long end;
+
+      /**
+       * Buffer of content read ahead
+       */
+      private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+      private StoredEntryInputStream(final long start, final long end)
+      {
+         this.position = start;
+         this.end = end;
+         buffer.flip();
+      }
+
+      /**
+       * {@inheritDoc}
+       * @see java.io.InputStream#read()
+       */
+      @Override
+      public int read() throws IOException
+      {
+         if (!buffer.hasRemaining() && !this.fill())
+         {
+            return -1;
+         }
+         return buffer.get() & 0xFF;
+      }
+
+      /**
+       * {@inheritDoc}
+       * @see java.io.InputStream#read(byte[], int, int)
+       */
+      @Override
+      public int read(final byte[] b, final int off, final int len) throws IOException
+      {
+         if (len == 0)
+         {
+            return 0;
+         }
+         if (!buffer.hasRemaining() && !this.fill())
+         {
+            return -1;
+         }
+         final int count = Math.min(len, buffer.remaining());
+         buffer.get(b, off, count);
+         return count;
+      }
+
+      /**
+       * {@inheritDoc}
+       * @see java.io.InputStream#skip(long)
+       */
+      @Override
+      public long skip(final long n) throws IOException
+      {
+         if (n <= 0)
+         {
+            return 0;
+         }
+         final long buffered = Math.min(n, buffer.remaining());
+         buffer.position(buffer.position() + (int) buffered);
+         final long skipped = Math.min(n - buffered, end - position);
+         position += skipped;
+         return buffered + skipped;
+      }
+
+      /**
+       * {@inheritDoc}
+       * @see java.io.InputStream#available()
+       */
+      @Override
+      public int available() throws IOException
+      {
+         return buffer.remaining();
+      }
+
+      /**
+       * Reads the next block of the entry into the buffer, returning 
+       * false if the entry has been read entirely
+       * @return
+       * @throws IOException If the file ends before the entry
+       */
+      private boolean fill() throws IOException
+      {
+         if (position >= end)
+         {
+            return false;
+         }
+         ensureOpen();
+         buffer.clear();
+         buffer.limit((int) Math.min(buffer.capacity(), end - position));
+         int count;
+         do
+         {
+            count = channel.read(buffer, position);
+            if (count < 0)
+            {
+               throw new IOException("Unexpected end of " + file + " in reading STORED entry");
+            }
+         }
+         while (count == 0);
+         position += count;
+         buffer.flip();
+         return true;
+      }
+   }
+}
@@ -16,14 +16,18 @@
  */
 package org.jboss.shrinkwrap.impl.base.path;
 
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.jboss.shrinkwrap.api.ArchivePath;
 
 /**
  * A Path which may be optionally prefixed with some common
  * namespace context at construction time.  Thread-safe.
+ * 
+ * The context is normalized once upon construction; the canonical form
+ * (without any following slash) by which paths are compared, and its hash,
+ * are kept, and the parent and segments are kept once first obtained.
  *
  * @author <a href="mailto:andrew.rubinger@jboss.org">ALR</a>
  * @author <a href="mailto:aslak@conduct.no">Aslak Knutsen</a>
@@ -32,15 +36,6 @@ import org.jboss.shrinkwrap.api.ArchivePath;
 public class BasicPath implements ArchivePath, Comparable<ArchivePath>
 {
 
-   //-------------------------------------------------------------------------------------||
-   // Class Members ----------------------------------------------------------------------||
-   //-------------------------------------------------------------------------------------||
-
-   /**
-    * Logger
-    */
-   private static final Logger log = Logger.getLogger(BasicPath.class.getName());
-
    //-------------------------------------------------------------------------------------||
    // Instance Members -------------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -51,6 +46,29 @@ public class BasicPath implements ArchivePath, Comparable<ArchivePath>
     */
    private final String context;
 
+   /**
+    * The context without any following slash; that by which 
+    * paths are compared
+    */
+   private final String canonicalContext;
+
+   /**
+    * Hash code of the canonical context
+    */
+   private final int hash;
+
+   /**
+    * The parent path, once obtained; as paths are immutable, racing
+    * threads at worst obtain equal instances
+    */
+   private volatile ArchivePath parent;
+
+   /**
+    * The non-empty segments of the context, once obtained; never modified
+    * once assigned, so racing threads at worst obtain equal arrays
+    */
+   private volatile String[] segments;
+
    //-------------------------------------------------------------------------------------||
    // Constructor ------------------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -72,12 +90,9 @@ public class BasicPath implements ArchivePath, Comparable<ArchivePath>
     */
    public BasicPath(final String context)
    {
-      final String resolvedContext = PathUtil.optionallyPrependSlash(context);
-      if (log.isLoggable(Level.FINER))
-      {
-         log.finer("Resolved \"" + context + "\" to absolute form: " + resolvedContext);
-      }
-      this.context = resolvedContext;
+      this.context = PathUtil.optionallyPrependSlash(context);
+      this.canonicalContext = PathUtil.optionallyRemoveFollowingSlash(this.context);
+      this.hash = 31 + canonicalContext.hashCode();
    }
 
    /**
@@ -149,7 +164,13 @@ public class BasicPath implements ArchivePath, Comparable<ArchivePath>
    @Override
    public ArchivePath getParent()
    {
-      return PathUtil.getParent(this);
+      ArchivePath parent = this.parent;
+      if (parent == null && canonicalContext.length() > 0)
+      {
+         parent = PathUtil.getParent(this);
+         this.parent = parent;
+      }
+      return parent;
    }
 
    /**
@@ -167,8 +188,8 @@ public class BasicPath implements ArchivePath, Comparable<ArchivePath>
       /*
        * Check for parent relationship
        */
-      final ArchivePath parentOfSpecified = PathUtil.getParent(path);
-      final ArchivePath parentOfThis = PathUtil.getParent(this);
+      final ArchivePath parentOfSpecified = path.getParent();
+      final ArchivePath parentOfThis = this.getParent();
       // If we're the parent of the specified, we're less
       if (this.equals(parentOfSpecified))
       {
@@ -188,6 +209,44 @@ public class BasicPath implements ArchivePath, Comparable<ArchivePath>
       return adjusted;
    }
    
+   //-------------------------------------------------------------------------------------||
+   // Functional Methods -----------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Obtains the context of this path without any following slash;
+    * that by which paths are compared
+    * 
+    * @return
+    */
+   public String getCanonicalContext()
+   {
+      return canonicalContext;
+   }
+
+   /**
+    * Obtains the number of non-empty segments (names between slashes) 
+    * of this path; 0 for the root
+    * 
+    * @return
+    */
+   public int getSegmentCount()
+   {
+      return this.getSegments().length;
+   }
+
+   /**
+    * Obtains the non-empty segment of this path at the specified index
+    * 
+    * @param index
+    * @return
+    * @throws IndexOutOfBoundsException If the index is not less than {@link #getSegmentCount()}
+    */
+   public String getSegment(final int index) throws IndexOutOfBoundsException
+   {
+      return this.getSegments()[index];
+   }
+
    //-------------------------------------------------------------------------------------||
    // Overridden Implementations ---------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -199,10 +258,7 @@ public class BasicPath implements ArchivePath, Comparable<ArchivePath>
    @Override
    public int hashCode()
    {
-      final int prime = 31;
-      int result = 1;
-      result = prime * result + ((context == null) ? 0 : context.hashCode());
-      return result;
+      return hash;
    }
 
    /**
@@ -219,23 +275,9 @@ public class BasicPath implements ArchivePath, Comparable<ArchivePath>
       if (getClass() != obj.getClass())
          return false;
       final BasicPath other = (BasicPath) obj;
-      
-      if (context == null)
-      {
-         if (other.context != null)
-            return false;
-      }
-      
-      // Ensure we treat following slashes equally
-      final String adjustedContext = PathUtil.optionallyRemoveFollowingSlash(context);
-      final String adjustedOther = PathUtil.optionallyRemoveFollowingSlash(other.context);
-      if (!adjustedContext.equals(adjustedOther))
-      {
-         return false;
-      }
-       
-      // No match
-      return true;
+
+      // Following slashes are treated equally, as they're absent from the canonical context
+      return hash == other.hash && canonicalContext.equals(other.canonicalContext);
    }
 
    /**
@@ -248,4 +290,40 @@ public class BasicPath implements ArchivePath, Comparable<ArchivePath>
       return this.getClass().getSimpleName() + " [context=" + context + "]";
    }
 
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Obtains the non-empty segments of the context, splitting it upon first request
+    * 
+    * @return
+    */
+   private String[] getSegments()
+   {
+      String[] segments = this.segments;
+      if (segments == null)
+      {
+         final List<String> split = new ArrayList<String>();
+         final int length = canonicalContext.length();
+         int start = 0;
+         while (start < length)
+         {
+            int end = canonicalContext.indexOf(PathUtil.SLASH, start);
+            if (end < 0)
+            {
+               end = length;
+            }
+            if (end > start)
+            {
+               split.add(canonicalContext.substring(start, end));
+            }
+            start = end + 1;
+         }
+         segments = split.toArray(new String[split.size()]);
+         this.segments = segments;
+      }
+      return segments;
+   }
+
 }
@@ -236,6 +236,24 @@ public final class PathUtil
       return resolved;
    }
 
+   /**
+    * Obtains the context of the specified path without any following 
+    * slash, by which paths are compared.  Allocates only where the path
+    * is not a {@link BasicPath}, which holds its canonical context.
+    * 
+    * @param path
+    * @return
+    */
+   public static String getCanonicalContext(final ArchivePath path)
+   {
+      assert path != null : "Path must be specified";
+      if (path instanceof BasicPath)
+      {
+         return ((BasicPath) path).getCanonicalContext();
+      }
+      return optionallyRemoveFollowingSlash(path.get());
+   }
+
    /**
     * Obtains the parent of this Path, if exists, else null.
     * For instance if the Path is "/my/path", the parent
@@ -251,7 +269,7 @@ public final class PathUtil
       assert path != null : "Path must be specified";
 
       // Get the last index of "/"
-      final String resolvedContext = PathUtil.optionallyRemoveFollowingSlash(path.get());
+      final String resolvedContext = getCanonicalContext(path);
       final int lastIndex = resolvedContext.lastIndexOf(PathUtil.SLASH);
       // If it either doesn't occur or is the root
       if (lastIndex == -1 || (lastIndex == 0 && resolvedContext.length() == 1))
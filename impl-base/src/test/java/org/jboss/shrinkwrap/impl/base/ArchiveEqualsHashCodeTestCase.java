@@ -5,9 +5,12 @@ import java.io.File;
 import junit.framework.Assert;
 
 import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ArchivePaths;
 import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.EmptyAsset;
 import org.jboss.shrinkwrap.api.spec.EnterpriseArchive;
 import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
 import org.junit.Test;
 
 /**
@@ -131,4 +134,54 @@ public class ArchiveEqualsHashCodeTestCase
       Assert.assertEquals("hashCode did not return consistent value for same instance", jar.hashCode(), jar.hashCode());
    }
 
+   /**
+    * Archives of equal name and contents must hash alike regardless of how they were built
+    * @throws Exception
+    */
+   @Test
+   public void archiveHashCodeShouldNotDependOnHistory() throws Exception
+   {
+      final String archiveName = "test.jar";
+      final JavaArchive archive = ShrinkWrap.create(JavaArchive.class, archiveName);
+      archive.add(EmptyAsset.INSTANCE, "a/b/c.txt");
+      final JavaArchive archive2 = ShrinkWrap.create(JavaArchive.class, archiveName);
+      archive2.add(EmptyAsset.INSTANCE, "x/y/z.txt");
+      archive2.add(EmptyAsset.INSTANCE, "a/b/c.txt");
+      archive2.delete(ArchivePaths.create("x"));
+
+      Assert.assertEquals("Archives were not equal, but should be.", archive, archive2);
+      Assert.assertEquals("Equal archives did not hash alike", archive.hashCode(), archive2.hashCode());
+   }
+
+   /**
+    * The hash must follow changes to the contents
+    * @throws Exception
+    */
+   @Test
+   public void archiveHashCodeShouldReflectContentChanges() throws Exception
+   {
+      final JavaArchive archive = ShrinkWrap.create(JavaArchive.class, "test.jar");
+      archive.add(EmptyAsset.INSTANCE, "a.txt");
+      final int before = archive.hashCode();
+      archive.add(EmptyAsset.INSTANCE, "b.txt");
+
+      Assert.assertFalse("hashCode did not change along with the contents", before == archive.hashCode());
+      archive.delete(ArchivePaths.create("b.txt"));
+      Assert.assertEquals("hashCode did not revert along with the contents", before, archive.hashCode());
+   }
+
+   @Test
+   public void archiveContentEqualsShouldIgnoreName() throws Exception
+   {
+      final JavaArchive archive = ShrinkWrap.create(JavaArchive.class, "test.jar");
+      archive.add(EmptyAsset.INSTANCE, "a/b.txt");
+      final WebArchive archive2 = ShrinkWrap.create(WebArchive.class, "test.war");
+      archive2.add(EmptyAsset.INSTANCE, "a/b.txt");
+
+      Assert.assertTrue("Archive contents were not equal, but should be.", archive.contentEquals(archive2));
+      Assert.assertFalse("Archives were equal, but should not have been - names differ.", archive.equals(archive2));
+      archive2.add(EmptyAsset.INSTANCE, "a/c.txt");
+      Assert.assertFalse("Archive contents were equal, but should not have been.", archive.contentEquals(archive2));
+   }
+
 }
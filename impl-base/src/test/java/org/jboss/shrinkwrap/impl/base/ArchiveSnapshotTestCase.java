@@ -0,0 +1,120 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base;
+
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.Assert;
+
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.Node;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.EmptyAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Test;
+
+/**
+ * Ensures that {@link Archive#snapshot()} provides a consistent view
+ * while the archive is changed concurrently
+ * 
+ * @version $Revision: $
+ */
+public class ArchiveSnapshotTestCase
+{
+
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   private static final int NUM_ENTRIES = 2000;
+
+   //-------------------------------------------------------------------------------------||
+   // Tests ------------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   @Test
+   public void snapshotsShouldBeConsistentWhileWriting() throws Exception
+   {
+      final JavaArchive archive = ShrinkWrap.create(JavaArchive.class);
+      final ExecutorService writer = Executors.newSingleThreadExecutor();
+      try
+      {
+         final Future<Void> writing = writer.submit(new Callable<Void>()
+         {
+            @Override
+            public Void call() throws Exception
+            {
+               for (int i = 0; i < NUM_ENTRIES; i++)
+               {
+                  archive.add(EmptyAsset.INSTANCE, "dir" + (i % 10) + "/sub" + (i % 7) + "/entry" + i);
+               }
+               return null;
+            }
+         });
+
+         int previous = 0;
+         while (!writing.isDone())
+         {
+            final JavaArchive snapshot = archive.snapshot();
+            final int size = count(snapshot);
+            Assert.assertEquals("Snapshot content should not change", size, count(snapshot));
+            Assert.assertEquals("Snapshot content should not change", size, snapshot.getContent().size());
+            Assert.assertTrue("Snapshot should not lose content of an earlier snapshot", size >= previous);
+            previous = size;
+         }
+         writing.get();
+      }
+      finally
+      {
+         writer.shutdown();
+      }
+
+      final JavaArchive snapshot = archive.snapshot();
+      Assert.assertEquals("Final snapshot should equal the archive", archive, snapshot);
+      Assert.assertEquals("Final snapshot should hash as the archive", archive.hashCode(), snapshot.hashCode());
+   }
+
+   @Test
+   public void snapshotOfUnchangedArchiveShouldShareContent() throws Exception
+   {
+      final JavaArchive archive = ShrinkWrap.create(JavaArchive.class);
+      archive.add(EmptyAsset.INSTANCE, "a/b");
+
+      final Node first = archive.snapshot().get("a");
+      final Node second = archive.snapshot().get("a");
+
+      Assert.assertSame("Snapshots of an unchanged archive should share content", first, second);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   private static int count(final Archive<?> archive)
+   {
+      int count = 0;
+      for (final Iterator<Node> nodes = archive.iterator(); nodes.hasNext(); nodes.next())
+      {
+         count++;
+      }
+      return count;
+   }
+}
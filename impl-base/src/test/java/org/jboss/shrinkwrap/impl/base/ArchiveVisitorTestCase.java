@@ -0,0 +1,107 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ArchivePath;
+import org.jboss.shrinkwrap.api.ArchivePaths;
+import org.jboss.shrinkwrap.api.ArchiveVisitor;
+import org.jboss.shrinkwrap.api.Node;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.EmptyAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Test;
+
+/**
+ * Ensures that {@link Archive#visit(ArchiveVisitor)} walks the content
+ * depth-first in path order and honors pruning
+ * 
+ * @version $Revision: $
+ */
+public class ArchiveVisitorTestCase
+{
+
+   //-------------------------------------------------------------------------------------||
+   // Tests ------------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   @Test
+   public void visitShouldWalkContentInPathOrder() throws Exception
+   {
+      final JavaArchive archive = ShrinkWrap.create(JavaArchive.class);
+      archive.add(EmptyAsset.INSTANCE, "b/test.properties").add(EmptyAsset.INSTANCE, "a");
+
+      final PathCollector collector = new PathCollector(null);
+      archive.visit(collector);
+
+      Assert.assertEquals(Arrays.asList(ArchivePaths.create("a"), ArchivePaths.create("b"), ArchivePaths
+            .create("b/test.properties")), collector.paths);
+   }
+
+   @Test
+   public void visitShouldSkipPrunedSubtrees() throws Exception
+   {
+      final ArchivePath pruned = ArchivePaths.create("b");
+      final JavaArchive archive = ShrinkWrap.create(JavaArchive.class);
+      archive.add(EmptyAsset.INSTANCE, "a/test.properties").add(EmptyAsset.INSTANCE,
+            ArchivePaths.create(pruned, "test.properties")).add(EmptyAsset.INSTANCE, "c");
+
+      final PathCollector collector = new PathCollector(pruned);
+      archive.visit(collector);
+
+      Assert.assertEquals(Arrays.asList(ArchivePaths.create("a"), ArchivePaths.create("a/test.properties"), pruned,
+            ArchivePaths.create("c")), collector.paths);
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void visitShouldRequireVisitor() throws Exception
+   {
+      ShrinkWrap.create(JavaArchive.class).visit(null);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Inner Classes ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Records the paths visited, pruning below the specified path
+    */
+   private static final class PathCollector implements ArchiveVisitor
+   {
+      private final List<ArchivePath> paths = new ArrayList<ArchivePath>();
+
+      private final ArchivePath prune;
+
+      PathCollector(final ArchivePath prune)
+      {
+         this.prune = prune;
+      }
+
+      @Override
+      public boolean visit(final Node node)
+      {
+         paths.add(node.getPath());
+         return !node.getPath().equals(prune);
+      }
+   }
+}
@@ -0,0 +1,127 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.Assert;
+
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Test;
+
+/**
+ * Ensures that an {@link Archive} may be built by several threads concurrently
+ * 
+ * @version $Revision: $
+ */
+public class ConcurrentArchiveBuildingTestCase
+{
+
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   private static final int NUM_THREADS = 8;
+
+   private static final int NUM_ENTRIES = 1000;
+
+   //-------------------------------------------------------------------------------------||
+   // Tests ------------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   @Test
+   public void concurrentAddsShouldNotLoseContent() throws Exception
+   {
+      final JavaArchive archive = ShrinkWrap.create(JavaArchive.class, "concurrent.jar");
+      final CountDownLatch start = new CountDownLatch(1);
+      final ExecutorService writers = Executors.newFixedThreadPool(NUM_THREADS);
+      try
+      {
+         final List<Future<Void>> writing = new ArrayList<Future<Void>>();
+         for (int t = 0; t < NUM_THREADS; t++)
+         {
+            final int thread = t;
+            writing.add(writers.submit(new Callable<Void>()
+            {
+               @Override
+               public Void call() throws Exception
+               {
+                  start.await();
+                  for (int i = 0; i < NUM_ENTRIES; i++)
+                  {
+                     add(archive, thread, i);
+                  }
+                  return null;
+               }
+            }));
+         }
+         start.countDown();
+         for (final Future<Void> future : writing)
+         {
+            future.get();
+         }
+      }
+      finally
+      {
+         writers.shutdown();
+      }
+
+      final JavaArchive expected = ShrinkWrap.create(JavaArchive.class, "concurrent.jar");
+      for (int t = 0; t < NUM_THREADS; t++)
+      {
+         for (int i = 0; i < NUM_ENTRIES; i++)
+         {
+            add(expected, t, i);
+         }
+      }
+
+      for (int t = 0; t < NUM_THREADS; t++)
+      {
+         for (int i = 0; i < NUM_ENTRIES; i++)
+         {
+            Assert.assertTrue("Entry should not be lost", archive.contains(path(t, i)));
+         }
+      }
+      Assert.assertEquals("Concurrently built archive should equal the sequentially built one", expected, archive);
+      Assert.assertEquals("Concurrently built archive should hash as the sequentially built one", expected
+            .hashCode(), archive.hashCode());
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   private static void add(final Archive<?> archive, final int thread, final int entry)
+   {
+      // Directories are shared among the threads, such that they race to create them
+      archive.add(new StringAsset("entry" + entry), path(thread, entry));
+   }
+
+   private static String path(final int thread, final int entry)
+   {
+      return "dir" + (entry % 10) + "/sub" + (entry % 7) + "/thread" + thread + "-entry" + entry;
+   }
+}
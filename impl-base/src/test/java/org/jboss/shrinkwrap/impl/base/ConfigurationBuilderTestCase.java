@@ -16,8 +16,12 @@
  */
 package org.jboss.shrinkwrap.impl.base;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import junit.framework.TestCase;
 
@@ -25,6 +29,7 @@ import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.Assignable;
 import org.jboss.shrinkwrap.api.Configuration;
 import org.jboss.shrinkwrap.api.ConfigurationBuilder;
+import org.jboss.shrinkwrap.api.DomainExecutorService;
 import org.jboss.shrinkwrap.api.ExtensionLoader;
 import org.junit.Assert;
 import org.junit.Before;
@@ -67,20 +72,71 @@ public class ConfigurationBuilderTestCase
    //-------------------------------------------------------------------------------------||
 
    /**
-    * Ensures that a null {@link ExecutorService} is not defaulted
-    * to any value, and may remain null
+    * Ensures that a null {@link ExecutorService} is defaulted
+    * to a shared {@link DomainExecutorService} of the configured size
     */
    @Test
    public void defaultsExecutorService()
    {
       // Build and default
-      builder.build();
+      builder.executorMaximumThreads(3).build();
 
       // Get the defaulted service
       final ExecutorService service = builder.getExecutorService();
 
       // Test
-      Assert.assertNull("The builder should not default an " + ExecutorService.class.getSimpleName(), service);
+      Assert.assertTrue("The builder should default a " + DomainExecutorService.class.getSimpleName(),
+            service instanceof DomainExecutorService);
+      Assert.assertEquals("The default " + ExecutorService.class.getSimpleName() + " should be sized as configured",
+            3, ((DomainExecutorService) service).getMaximumPoolSize());
+   }
+
+   /**
+    * Ensures that the default {@link ExecutorService} runs jobs upon daemon
+    * threads, and when its pooled threads are all busy runs jobs upon the 
+    * submitting thread rather than blocking them or creating more threads
+    */
+   @Test
+   public void defaultExecutorServiceRunsUponSubmitterWhenSaturated() throws Exception
+   {
+      builder.executorMaximumThreads(1).build();
+      final DomainExecutorService service = (DomainExecutorService) builder.getExecutorService();
+
+      // Occupy the only pooled thread until the second job has run
+      final CountDownLatch secondJobRan = new CountDownLatch(1);
+      final Future<Boolean> first = service.submit(new Callable<Boolean>()
+      {
+         @Override
+         public Boolean call() throws Exception
+         {
+            Assert.assertTrue("Second job should not wait upon the first", secondJobRan.await(10, TimeUnit.SECONDS));
+            return Thread.currentThread().isDaemon();
+         }
+      });
+      final Future<Thread> second = service.submit(new Callable<Thread>()
+      {
+         @Override
+         public Thread call()
+         {
+            secondJobRan.countDown();
+            return Thread.currentThread();
+         }
+      });
+
+      Assert.assertSame("Second job should have run upon the submitting thread", Thread.currentThread(), second
+            .get(10, TimeUnit.SECONDS));
+      Assert.assertTrue("Jobs should run upon daemon threads", first.get(10, TimeUnit.SECONDS));
+      Assert.assertEquals("Second job should have overflowed", 1, service.getOverflowCount());
+      Assert.assertEquals("No threads beyond the maximum should be created", 1, service.getLargestPoolSize());
+   }
+
+   /**
+    * Ensures the default {@link ExecutorService} sizing is validated
+    */
+   @Test(expected = IllegalArgumentException.class)
+   public void rejectsInvalidExecutorMaximumThreads()
+   {
+      builder.executorMaximumThreads(0);
    }
 
    /**
@@ -16,6 +16,17 @@
  */
 package org.jboss.shrinkwrap.impl.base;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Assert;
 import org.junit.Test;
 
 /**
@@ -41,4 +52,99 @@ public class URLPackageScannerTestCase
                }
             }, null);
    }
+
+   /**
+    * Ensures that scanning an archive picks up changes to it, and
+    * only includes the requested package and (optionally) its sub packages
+    */
+   @Test
+   public void shouldRescanChangedArchive() throws Exception
+   {
+      final File jar = File.createTempFile("scanner", ".jar");
+      jar.deleteOnExit();
+
+      writeJar(jar, "org/example/A.class", "org/example/sub/B.class", "org/examplex/C.class");
+      Assert.assertEquals(asSet("org.example.A"), scan(jar, false));
+      Assert.assertEquals(asSet("org.example.A", "org.example.sub.B"), scan(jar, true));
+
+      writeJar(jar, "org/example/A.class", "org/example/D.class", "org/example/sub/B.class",
+            "org/examplex/C.class");
+      Assert.assertEquals("Changed archive should have been re-indexed", asSet("org.example.A", "org.example.D"),
+            scan(jar, false));
+   }
+
+   /**
+    * Ensures that an archive re-written in place with different classes is
+    * re-indexed, even though its size is unchanged
+    */
+   @Test
+   public void shouldRescanRewrittenArchiveOfSameSize() throws Exception
+   {
+      final File jar = File.createTempFile("scanner", ".jar");
+      jar.deleteOnExit();
+
+      writeJar(jar, "org/example/A.class", "org/example/B.class");
+      final long length = jar.length();
+      final long lastModified = jar.lastModified();
+      Assert.assertEquals(asSet("org.example.A", "org.example.B"), scan(jar, false));
+
+      // Same length, only the names of the classes differ
+      writeJar(jar, "org/example/C.class", "org/example/D.class");
+      Assert.assertTrue(jar.setLastModified(lastModified + 2000));
+      Assert.assertEquals("Rewrite should be of the same size", length, jar.length());
+      Assert.assertEquals("Re-written archive should have been re-indexed", asSet("org.example.C",
+            "org.example.D"), scan(jar, false));
+   }
+
+   private Set<String> scan(final File jar, final boolean recursive) throws Exception
+   {
+      final Set<String> found = new HashSet<String>();
+      final ClassLoader cl = new URLClassLoader(new URL[]
+      {jar.toURI().toURL()}, null);
+      URLPackageScanner.newInstance(recursive, cl, new URLPackageScanner.Callback()
+      {
+         @Override
+         public void classFound(String className)
+         {
+            found.add(className);
+         }
+      }, "org.example").scanPackage();
+      return found;
+   }
+
+   private void writeJar(final File jar, final String... classes) throws IOException
+   {
+      final ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar));
+      try
+      {
+         final Set<String> directories = new HashSet<String>();
+         for (final String name : classes)
+         {
+            final String directory = name.substring(0, name.lastIndexOf('/') + 1);
+            if (directories.add(directory))
+            {
+               out.putNextEntry(new ZipEntry(directory));
+               out.closeEntry();
+            }
+            out.putNextEntry(new ZipEntry(name));
+            out.write(new byte[]
+            {(byte) 0xCA, (byte) 0xFE});
+            out.closeEntry();
+         }
+      }
+      finally
+      {
+         out.close();
+      }
+   }
+
+   private Set<String> asSet(final String... values)
+   {
+      final Set<String> set = new HashSet<String>();
+      for (final String value : values)
+      {
+         set.add(value);
+      }
+      return set;
+   }
 }
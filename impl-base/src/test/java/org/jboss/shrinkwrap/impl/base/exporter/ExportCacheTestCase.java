@@ -0,0 +1,286 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.exporter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ArchivePaths;
+import org.jboss.shrinkwrap.api.ConfigurationBuilder;
+import org.jboss.shrinkwrap.api.Domain;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.exporter.ZipExporter;
+import org.jboss.shrinkwrap.api.importer.ZipImporter;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.jboss.shrinkwrap.impl.base.TestIOUtil;
+import org.jboss.shrinkwrap.impl.base.io.IOUtil;
+import org.jboss.shrinkwrap.spi.MutationCounted;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Ensures that the {@link ExportCache} reuses the exported form of unchanged
+ * nested archives, and exports them again once changed
+ *
+ * @version $Revision: $
+ */
+public class ExportCacheTestCase
+{
+
+   //-------------------------------------------------------------------------------------||
+   // Tests ------------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Ensures that additions and removals are counted
+    */
+   @Test
+   public void countsMutations()
+   {
+      final JavaArchive archive = ShrinkWrap.create(JavaArchive.class, "test.jar");
+      final MutationCounted counted = archive.as(MutationCounted.class);
+      final long initial = counted.getMutationCount();
+
+      archive.add(new CountingAsset(), "a.txt");
+      Assert.assertEquals("Addition should be counted", initial + 1, counted.getMutationCount());
+
+      archive.delete(ArchivePaths.create("a.txt"));
+      Assert.assertEquals("Removal should be counted", initial + 2, counted.getMutationCount());
+
+      archive.delete(ArchivePaths.create("a.txt"));
+      Assert.assertEquals("Removing nothing should not be counted", initial + 2, counted.getMutationCount());
+   }
+
+   /**
+    * Ensures that an unchanged nested archive is exported only once
+    * when held in memory
+    */
+   @Test
+   public void reusesUnchangedNestedArchiveInMemory() throws Exception
+   {
+      this.reusesUnchangedNestedArchive(new ConfigurationBuilder().exportCacheSize(1024 * 1024));
+   }
+
+   /**
+    * Ensures that an unchanged nested archive is exported only once
+    * when stored in files
+    */
+   @Test
+   public void reusesUnchangedNestedArchiveInFiles() throws Exception
+   {
+      final File directory = File.createTempFile("exportCache", "");
+      Assert.assertTrue(directory.delete());
+      Assert.assertTrue(directory.mkdir());
+      try
+      {
+         this.reusesUnchangedNestedArchive(new ConfigurationBuilder().exportCacheSize(1024 * 1024)
+               .exportCacheDirectory(directory));
+         Assert.assertTrue("Cached export should be stored in the directory", directory.list().length > 0);
+      }
+      finally
+      {
+         TestIOUtil.deleteDirectory(directory);
+      }
+   }
+
+   /**
+    * Ensures that a change to an archive nested within the nested archive 
+    * invalidates the cached export
+    */
+   @Test
+   public void exportsAgainWhenDeeplyNestedArchiveChanges() throws Exception
+   {
+      final Domain domain = ShrinkWrap.createDomain(new ConfigurationBuilder().exportCacheSize(1024 * 1024));
+      final CountingAsset asset = new CountingAsset();
+      final Archive<?> deepest = domain.getArchiveFactory().create(JavaArchive.class, "deepest.jar").add(asset,
+            "a.txt");
+      final Archive<?> nested = domain.getArchiveFactory().create(JavaArchive.class, "nested.jar");
+      nested.add(deepest, ArchivePaths.root(), ZipExporter.class);
+      final Archive<?> parent = domain.getArchiveFactory().create(JavaArchive.class, "parent.jar");
+      parent.add(nested, ArchivePaths.root(), ZipExporter.class);
+
+      export(parent);
+      export(parent);
+      Assert.assertEquals("Unchanged nested archives should be exported once", 1, asset.opened.get());
+
+      deepest.add(new CountingAsset(), "b.txt");
+      export(parent);
+      Assert.assertEquals("Change to a deeply nested archive should cause export", 2, asset.opened.get());
+   }
+
+   /**
+    * Ensures that a nested archive is exported each time when
+    * caching is not enabled
+    */
+   @Test
+   public void doesNotCacheByDefault() throws Exception
+   {
+      final CountingAsset asset = new CountingAsset();
+      final Archive<?> nested = ShrinkWrap.create(JavaArchive.class, "nested.jar").add(asset, "a.txt");
+      final Archive<?> parent = ShrinkWrap.create(JavaArchive.class, "parent.jar");
+      parent.add(nested, ArchivePaths.root(), ZipExporter.class);
+
+      export(parent);
+      export(parent);
+      Assert.assertEquals("Nested archive should be exported each time", 2, asset.opened.get());
+   }
+
+   /**
+    * Ensures entries are evicted to keep within the configured size
+    */
+   @Test
+   public void evictsToConfiguredSize() throws Exception
+   {
+      final Domain domain = ShrinkWrap.createDomain(new ConfigurationBuilder().exportCacheSize(1));
+      final CountingAsset asset = new CountingAsset();
+      final Archive<?> nested = domain.getArchiveFactory().create(JavaArchive.class, "nested.jar").add(asset,
+            "a.txt");
+      final Archive<?> parent = domain.getArchiveFactory().create(JavaArchive.class, "parent.jar");
+      parent.add(nested, ArchivePaths.root(), ZipExporter.class);
+
+      export(parent);
+      export(parent);
+      Assert.assertEquals("Exports larger than the cache should not be cached", 2, asset.opened.get());
+   }
+
+   /**
+    * Ensures the least recently used entries are evicted first
+    */
+   @Test
+   public void evictsLeastRecentlyUsed() throws Exception
+   {
+      final CountingAsset assetA = new CountingAsset();
+      final CountingAsset assetB = new CountingAsset();
+      final CountingAsset assetC = new CountingAsset();
+
+      // Room for two exports, but not three
+      final long exportSize = export(ShrinkWrap.create(JavaArchive.class, "a.jar").add(assetA, "a.txt")).length;
+      assetA.opened.set(0);
+      final Domain domain = ShrinkWrap.createDomain(new ConfigurationBuilder().exportCacheSize(exportSize * 5 / 2));
+      final Archive<?> a = domain.getArchiveFactory().create(JavaArchive.class, "a.jar").add(assetA, "a.txt");
+      final Archive<?> b = domain.getArchiveFactory().create(JavaArchive.class, "b.jar").add(assetB, "a.txt");
+      final Archive<?> c = domain.getArchiveFactory().create(JavaArchive.class, "c.jar").add(assetC, "a.txt");
+      final ExportCache cache = ExportCache.forArchive(a);
+
+      cache.writeTo(a, ZipExporter.class, new ByteArrayOutputStream());
+      cache.writeTo(b, ZipExporter.class, new ByteArrayOutputStream());
+      cache.writeTo(a, ZipExporter.class, new ByteArrayOutputStream());
+      cache.writeTo(c, ZipExporter.class, new ByteArrayOutputStream());
+
+      // b was least recently used when c was added
+      cache.writeTo(a, ZipExporter.class, new ByteArrayOutputStream());
+      Assert.assertEquals("Recently used entry should have been kept", 1, assetA.opened.get());
+      cache.writeTo(b, ZipExporter.class, new ByteArrayOutputStream());
+      Assert.assertEquals("Least recently used entry should have been evicted", 2, assetB.opened.get());
+   }
+
+   /**
+    * Ensures that an entry stored in a file is not deleted while read, 
+    * even if evicted meanwhile
+    */
+   @Test
+   public void keepsEvictedEntryFileUntilRead() throws Exception
+   {
+      final File directory = File.createTempFile("exportCache", "");
+      Assert.assertTrue(directory.delete());
+      Assert.assertTrue(directory.mkdir());
+      try
+      {
+         // Room for one export only
+         final long exportSize = export(ShrinkWrap.create(JavaArchive.class, "a.jar").add(new CountingAsset(),
+               "a.txt")).length;
+         final Domain domain = ShrinkWrap.createDomain(new ConfigurationBuilder().exportCacheSize(
+               exportSize * 3 / 2).exportCacheDirectory(directory));
+         final Archive<?> a = domain.getArchiveFactory().create(JavaArchive.class, "a.jar").add(
+               new CountingAsset(), "a.txt");
+         final Archive<?> b = domain.getArchiveFactory().create(JavaArchive.class, "b.jar").add(
+               new CountingAsset(), "a.txt");
+         final ExportCache cache = ExportCache.forArchive(a);
+
+         final InputStream in = cache.openStream(a, ZipExporter.class);
+         cache.writeTo(b, ZipExporter.class, new ByteArrayOutputStream());
+         Assert.assertEquals("Evicted entry should be kept while read", 2, directory.list().length);
+
+         final byte[] contents = IOUtil.asByteArray(in);
+         Assert.assertEquals("Evicted entry should be read entirely", exportSize, contents.length);
+         Assert.assertEquals("Evicted entry should be deleted once read", 1, directory.list().length);
+      }
+      finally
+      {
+         TestIOUtil.deleteDirectory(directory);
+      }
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   private void reusesUnchangedNestedArchive(final ConfigurationBuilder builder) throws Exception
+   {
+      final Domain domain = ShrinkWrap.createDomain(builder);
+      final CountingAsset asset = new CountingAsset();
+      final Archive<?> nested = domain.getArchiveFactory().create(JavaArchive.class, "nested.jar").add(asset,
+            "a.txt");
+      final Archive<?> parent = domain.getArchiveFactory().create(JavaArchive.class, "parent.jar");
+      parent.add(nested, ArchivePaths.root(), ZipExporter.class);
+
+      final byte[] first = export(parent);
+      final byte[] second = export(parent);
+      Assert.assertEquals("Unchanged nested archive should be exported once", 1, asset.opened.get());
+      Assert.assertEquals("Cached export should be of the same size", first.length, second.length);
+
+      // Ensure the nested content survives the cache
+      final Archive<?> imported = ShrinkWrap.create(JavaArchive.class, "imported.jar");
+      imported.as(ZipImporter.class).importFrom(new ByteArrayInputStream(second));
+      Assert.assertTrue("Nested archive should be in the export", imported.contains("nested.jar"));
+
+      nested.add(new CountingAsset(), "b.txt");
+      export(parent);
+      Assert.assertEquals("Changed nested archive should be exported again", 2, asset.opened.get());
+   }
+
+   private static byte[] export(final Archive<?> archive)
+   {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      archive.as(ZipExporter.class).exportTo(out);
+      return out.toByteArray();
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Inner Classes ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@link Asset} counting the number of times it is read
+    */
+   private static final class CountingAsset implements Asset
+   {
+      private final AtomicInteger opened = new AtomicInteger();
+
+      @Override
+      public InputStream openStream()
+      {
+         opened.incrementAndGet();
+         return new ByteArrayInputStream("content".getBytes());
+      }
+   }
+}
@@ -0,0 +1,186 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.exporter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ArchivePath;
+import org.jboss.shrinkwrap.api.ConfigurationBuilder;
+import org.jboss.shrinkwrap.api.GenericArchive;
+import org.jboss.shrinkwrap.api.Node;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.ByteArrayAsset;
+import org.jboss.shrinkwrap.api.exporter.ParallelTarGzExporter;
+import org.jboss.shrinkwrap.api.exporter.StreamExporter;
+import org.jboss.shrinkwrap.api.exporter.TarExporter;
+import org.jboss.shrinkwrap.api.importer.TarGzImporter;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.jboss.shrinkwrap.impl.base.io.IOUtil;
+import org.jboss.shrinkwrap.impl.base.io.MultiMemberGzipInputStream;
+import org.jboss.shrinkwrap.impl.base.io.ParallelGzipOutputStream;
+import org.jboss.shrinkwrap.impl.base.io.tar.TarEntry;
+import org.jboss.shrinkwrap.impl.base.io.tar.TarInputStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * TestCase to ensure that the {@link ParallelTarGzExporter} correctly exports archives 
+ * to TAR.GZ format.  Runs all tests of the {@link TarGzExporterTestCase}.
+ *
+ * @version $Revision: $
+ */
+public final class ParallelTarGzExporterTestCase extends TarGzExporterTestCase
+{
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Number of entries to add such that the TAR spans many GZIP members
+    */
+   private static final int NUM_ENTRIES = 12;
+
+   /**
+    * Size of each entry
+    */
+   private static final int ENTRY_SIZE = ParallelGzipOutputStream.DEFAULT_BLOCK_SIZE / 2 + 123;
+
+   //-------------------------------------------------------------------------------------||
+   // Required Implementations -----------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.impl.base.exporter.TarGzExporterTestCase#getExporterClass()
+    */
+   @Override
+   protected Class<? extends StreamExporter> getExporterClass()
+   {
+      return ParallelTarGzExporter.class;
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.impl.base.exporter.StreamExporterTestBase#isCompressedUponExecutorService()
+    */
+   @Override
+   protected boolean isCompressedUponExecutorService()
+   {
+      return true;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Tests ------------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Ensures that an archive spanning many GZIP members, compressed upon a small 
+    * {@link ExecutorService}, decodes to the same TAR as is exported by the {@link TarExporter},
+    * and may be imported back in full
+    * @throws Exception
+    */
+   @Test
+   public void exportManyBlocksRoundTrip() throws Exception
+   {
+      // Make a small ES so the pending window fills
+      final ExecutorService service = Executors.newFixedThreadPool(2);
+      final Archive<?> archive = ShrinkWrap
+            .createDomain(new ConfigurationBuilder().executorService(service).build()).getArchiveFactory()
+            .create(JavaArchive.class, NAME_ARCHIVE + this.getArchiveExtension());
+
+      // Add content; alternate between repetitive and random data
+      final Random random = new Random(7L);
+      for (int i = 0; i < NUM_ENTRIES; i++)
+      {
+         final byte[] contents = new byte[ENTRY_SIZE];
+         if (i % 2 == 0)
+         {
+            random.nextBytes(contents);
+         }
+         else
+         {
+            for (int j = 0; j < contents.length; j++)
+            {
+               contents[j] = (byte) (j % 7);
+            }
+         }
+         archive.add(new ByteArrayAsset(contents), "dir" + (i % 3) + "/entry" + i);
+      }
+
+      // Export
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      archive.as(ParallelTarGzExporter.class).exportTo(out);
+      final byte[] tarGz = out.toByteArray();
+      Assert.assertFalse("Export should not shut down a user-supplied " + ExecutorService.class.getName(),
+            service.isShutdown());
+      service.shutdown();
+
+      // Decoding all members should yield the plain TAR, bar the modification times of its entries
+      final ByteArrayOutputStream tar = new ByteArrayOutputStream();
+      archive.as(TarExporter.class).exportTo(tar);
+      final byte[] decoded = IOUtil.asByteArray(new MultiMemberGzipInputStream(new ByteArrayInputStream(tarGz)));
+      Assert.assertEquals("Decoded members should be as long as the TAR of the archive", tar.size(), decoded.length);
+      final TarInputStream expectedEntries = new TarInputStream(new ByteArrayInputStream(tar.toByteArray()));
+      final TarInputStream decodedEntries = new TarInputStream(new ByteArrayInputStream(decoded));
+      TarEntry expected;
+      while ((expected = expectedEntries.getNextEntry()) != null)
+      {
+         final TarEntry entry = decodedEntries.getNextEntry();
+         Assert.assertNotNull("Decoded TAR ended before " + expected.getName(), entry);
+         Assert.assertEquals(expected.getName(), entry.getName());
+         Assert.assertArrayEquals("Contents mismatch for " + expected.getName(), readEntry(expectedEntries),
+               readEntry(decodedEntries));
+      }
+      Assert.assertNull("Decoded TAR should have no further entries", decodedEntries.getNextEntry());
+
+      // Import
+      final Archive<?> imported = ShrinkWrap.create(GenericArchive.class, archive.getName()).as(TarGzImporter.class)
+            .importFrom(new ByteArrayInputStream(tarGz)).as(GenericArchive.class);
+      for (final Node node : archive.getContent().values())
+      {
+         if (node.getAsset() == null)
+         {
+            continue;
+         }
+         final ArchivePath path = node.getPath();
+         final Node importedNode = imported.get(path);
+         Assert.assertNotNull("Expected entry not imported: " + path, importedNode);
+         Assert.assertArrayEquals("Contents mismatch for " + path, IOUtil.asByteArray(node.getAsset()
+               .openStream()), IOUtil.asByteArray(importedNode.getAsset().openStream()));
+      }
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Reads the contents of the current entry of the specified stream
+    */
+   private static byte[] readEntry(final TarInputStream in) throws IOException
+   {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      in.copyEntryContents(out);
+      return out.toByteArray();
+   }
+}
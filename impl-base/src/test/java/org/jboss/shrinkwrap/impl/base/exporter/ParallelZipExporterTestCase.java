@@ -0,0 +1,194 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.exporter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.FileOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ConfigurationBuilder;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.ByteArrayAsset;
+import org.jboss.shrinkwrap.api.exporter.ParallelZipExporter;
+import org.jboss.shrinkwrap.api.exporter.StreamExporter;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.jboss.shrinkwrap.impl.base.io.IOUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * TestCase to ensure that the {@link ParallelZipExporter} correctly exports archives 
+ * to ZIP format.  Runs all tests of the {@link ZipExporterTestCase}.
+ *
+ * @version $Revision: $
+ */
+public final class ParallelZipExporterTestCase extends ZipExporterTestCase
+{
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Number of entries to add when ensuring the compression window is exercised
+    */
+   private static final int NUM_ENTRIES = 200;
+
+   //-------------------------------------------------------------------------------------||
+   // Required Implementations -----------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.impl.base.exporter.ZipExporterTestCase#getExporterClass()
+    */
+   @Override
+   protected Class<? extends StreamExporter> getExporterClass()
+   {
+      return ParallelZipExporter.class;
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.impl.base.exporter.StreamExporterTestBase#isCompressedUponExecutorService()
+    */
+   @Override
+   protected boolean isCompressedUponExecutorService()
+   {
+      return true;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Tests ------------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Ensures that an archive of many compressible and incompressible entries, 
+    * deflated upon a small {@link ExecutorService}, is written in entry order and
+    * may be read back both as a stream and as a {@link ZipFile}
+    * @throws Exception
+    */
+   @Test
+   public void exportManyEntriesRoundTrip() throws Exception
+   {
+      // Make a small ES so the pending window fills
+      final ExecutorService service = Executors.newFixedThreadPool(2);
+      final Archive<?> archive = ShrinkWrap
+            .createDomain(new ConfigurationBuilder().executorService(service).build()).getArchiveFactory()
+            .create(JavaArchive.class, NAME_ARCHIVE + this.getArchiveExtension());
+
+      // Add content; alternate between repetitive and random data
+      final Random random = new Random(7L);
+      final Map<String, byte[]> expected = new HashMap<String, byte[]>();
+      for (int i = 0; i < NUM_ENTRIES; i++)
+      {
+         final byte[] contents = new byte[i * 37];
+         if (i % 2 == 0)
+         {
+            random.nextBytes(contents);
+         }
+         else
+         {
+            for (int j = 0; j < contents.length; j++)
+            {
+               contents[j] = (byte) (j % 7);
+            }
+         }
+         final String name = "dir" + (i % 5) + "/entry" + i;
+         archive.add(new ByteArrayAsset(contents), name);
+         expected.put(name, contents);
+      }
+
+      // Export
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      archive.as(ParallelZipExporter.class).exportTo(out);
+      final byte[] zip = out.toByteArray();
+      Assert.assertFalse("Export should not shut down a user-supplied " + ExecutorService.class.getName(),
+            service.isShutdown());
+      service.shutdown();
+
+      // Read back as a stream
+      final ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip));
+      int found = 0;
+      ZipEntry entry;
+      while ((entry = in.getNextEntry()) != null)
+      {
+         if (entry.isDirectory())
+         {
+            continue;
+         }
+         final byte[] expectedContents = expected.get(entry.getName());
+         Assert.assertNotNull("Unexpected entry in stream: " + entry.getName(), expectedContents);
+         Assert.assertArrayEquals("Contents mismatch for " + entry.getName(), expectedContents, IOUtil
+               .asByteArray(new NonClosingInputStream(in)));
+         found++;
+      }
+      in.close();
+      Assert.assertEquals("Not all entries were read from stream", NUM_ENTRIES, found);
+
+      // Read back as a file via the central directory
+      final File tempDirectory = createTempDirectory("exportManyEntriesRoundTrip");
+      final File serialized = new File(tempDirectory, archive.getName());
+      IOUtil.copyWithClose(new ByteArrayInputStream(zip), new FileOutputStream(serialized));
+      final ZipFile zipFile = new ZipFile(serialized);
+      try
+      {
+         for (final Map.Entry<String, byte[]> expectedEntry : expected.entrySet())
+         {
+            final ZipEntry fileEntry = zipFile.getEntry(expectedEntry.getKey());
+            Assert.assertNotNull("Expected entry not in ZIP: " + expectedEntry.getKey(), fileEntry);
+            Assert.assertArrayEquals("Contents mismatch for " + expectedEntry.getKey(), expectedEntry.getValue(),
+                  IOUtil.asByteArray(zipFile.getInputStream(fileEntry)));
+         }
+      }
+      finally
+      {
+         zipFile.close();
+      }
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Inner Classes ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Shields a {@link ZipInputStream} from being closed while reading a single entry
+    */
+   private static final class NonClosingInputStream extends FilterInputStream
+   {
+      NonClosingInputStream(final ZipInputStream in)
+      {
+         super(in);
+      }
+
+      @Override
+      public void close()
+      {
+         // NOOP
+      }
+   }
+}
@@ -16,6 +16,8 @@
  */
 package org.jboss.shrinkwrap.impl.base.exporter;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -24,6 +26,7 @@ import java.io.OutputStream;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -37,6 +40,7 @@ import org.jboss.shrinkwrap.api.ArchivePath;
 import org.jboss.shrinkwrap.api.ArchivePaths;
 import org.jboss.shrinkwrap.api.ConfigurationBuilder;
 import org.jboss.shrinkwrap.api.Domain;
+import org.jboss.shrinkwrap.api.DomainExecutorService;
 import org.jboss.shrinkwrap.api.ShrinkWrap;
 import org.jboss.shrinkwrap.api.asset.Asset;
 import org.jboss.shrinkwrap.api.exporter.ArchiveExportException;
@@ -87,6 +91,16 @@ public abstract class StreamExporterTestBase extends ExportTestBase
     */
    protected abstract InputStream getContentsFromExportedFile(File file, ArchivePath path) throws IOException;
 
+   /**
+    * Whether or not the exporter under test submits compression jobs to the
+    * configured {@link ExecutorService} in addition to the export itself
+    * @return
+    */
+   protected boolean isCompressedUponExecutorService()
+   {
+      return false;
+   }
+
    //-------------------------------------------------------------------------------------||
    // Tests ------------------------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -145,9 +159,17 @@ public abstract class StreamExporterTestBase extends ExportTestBase
       };
       IOUtil.copyWithClose(content, sink);
 
-      // Ensure the ES was used (one job was submitted to it)
-      Assert.assertEquals("Custom " + ExecutorService.class.getSimpleName() + " was not used by export process", 1,
-            service.counter);
+      // Ensure the ES was used (one job was submitted to it, plus any compression jobs)
+      if (this.isCompressedUponExecutorService())
+      {
+         Assert.assertTrue("Custom " + ExecutorService.class.getSimpleName() + " was not used by export process",
+               service.counter > 1);
+      }
+      else
+      {
+         Assert.assertEquals("Custom " + ExecutorService.class.getSimpleName() + " was not used by export process",
+               1, service.counter);
+      }
 
       // Ensure the ES was not shut down by the export process
       Assert.assertFalse("Export should not shut down a user-supplied " + ExecutorService.class.getName(),
@@ -157,6 +179,177 @@ public abstract class StreamExporterTestBase extends ExportTestBase
       service.shutdown();
    }
 
+   /**
+    * Ensures that export completes when the domain's {@link DomainExecutorService} has no
+    * free {@link Thread}; as the caller reads the output, the export must not be run upon
+    * the calling {@link Thread} as other saturated jobs are
+    * @throws Exception
+    */
+   @Test
+   public void exportCompletesWhenExecutorServiceSaturated() throws Exception
+   {
+      // Occupy the only pooled thread of the domain
+      final Domain domain = ShrinkWrap.createDomain(new ConfigurationBuilder().executorMaximumThreads(1).build());
+      final ExecutorService service = domain.getConfiguration().getExecutorService();
+      Assert.assertTrue(service instanceof DomainExecutorService);
+      final CountDownLatch occupied = new CountDownLatch(1);
+      final CountDownLatch release = new CountDownLatch(1);
+      service.execute(new Runnable()
+      {
+         @Override
+         public void run()
+         {
+            occupied.countDown();
+            try
+            {
+               release.await();
+            }
+            catch (final InterruptedException ie)
+            {
+               Thread.currentThread().interrupt();
+            }
+         }
+      });
+      Assert.assertTrue("Pooled thread should be occupied", occupied.await(10, TimeUnit.SECONDS));
+
+      try
+      {
+         final Archive<?> archive = domain.getArchiveFactory().create(JavaArchive.class,
+               NAME_ARCHIVE + this.getArchiveExtension());
+         this.addContent(archive);
+
+         // Fully export by reading all content
+         final File tempDirectory = createTempDirectory("exportCompletesWhenExecutorServiceSaturated");
+         final File serialized = new File(tempDirectory, archive.getName());
+         IOUtil.copyWithClose(this.exportAsInputStream(archive), new FileOutputStream(serialized));
+         this.ensureInExpectedForm(serialized);
+         Assert.assertEquals("Pool should not have grown", 1, ((DomainExecutorService) service).getLargestPoolSize());
+      }
+      finally
+      {
+         release.countDown();
+      }
+   }
+
+   /**
+    * Ensures that exporting to an {@link OutputStream} writes directly upon the calling
+    * {@link Thread} (no jobs submitted to the {@link ExecutorService}), and leaves the
+    * target open
+    * @throws Exception
+    */
+   @Test
+   public void exportToOutputStreamIsDirect() throws Exception
+   {
+      // Make a custom ES
+      final CountingExecutorService service = new CountingExecutorService();
+
+      // Create a custom configuration
+      final Domain domain = ShrinkWrap.createDomain(new ConfigurationBuilder().executorService(service).build());
+
+      // Make an archive using the new configuration
+      final Archive<?> archive = domain.getArchiveFactory().create(JavaArchive.class,
+            NAME_ARCHIVE + this.getArchiveExtension());
+      this.addContent(archive);
+
+      // Export into a target which fails if closed
+      final ByteArrayOutputStream out = new ByteArrayOutputStream()
+      {
+         @Override
+         public void close() throws IOException
+         {
+            throw new IllegalStateException("Export should not close the target");
+         }
+      };
+      archive.as(this.getExporterClass()).exportTo(out);
+
+      // Ensure the ES was not used, save for any compression jobs
+      if (!this.isCompressedUponExecutorService())
+      {
+         Assert.assertEquals("Direct export should not submit jobs to the " + ExecutorService.class.getSimpleName(),
+               0, service.counter);
+      }
+
+      // Validate
+      final File tempDirectory = createTempDirectory("exportToOutputStreamIsDirect");
+      final File serialized = new File(tempDirectory, archive.getName());
+      IOUtil.copyWithClose(new ByteArrayInputStream(out.toByteArray()), new FileOutputStream(serialized));
+      this.ensureInExpectedForm(serialized);
+
+      // Shut down the ES (clean up)
+      service.shutdown();
+   }
+
+   /**
+    * Ensures that nested archives are exported inline upon the exporting {@link Thread},
+    * submitting no jobs of their own to the {@link ExecutorService}
+    * @throws Exception
+    */
+   @Test
+   public void exportNestedIsInline() throws Exception
+   {
+      // Make a custom ES
+      final CountingExecutorService service = new CountingExecutorService();
+
+      // Create a custom configuration
+      final Domain domain = ShrinkWrap.createDomain(new ConfigurationBuilder().executorService(service).build());
+
+      // Make an archive with a nested archive, both using the new configuration
+      final Archive<?> archive = domain.getArchiveFactory().create(JavaArchive.class,
+            NAME_ARCHIVE + this.getArchiveExtension());
+      this.addContent(archive);
+      final Archive<?> nestedArchive = domain.getArchiveFactory().create(JavaArchive.class,
+            NAME_NESTED_ARCHIVE + this.getArchiveExtension());
+      this.addContent(nestedArchive);
+      archive.add(nestedArchive, ArchivePaths.root(), this.getExporterClass());
+
+      // Export directly
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      archive.as(this.getExporterClass()).exportTo(out);
+
+      // Ensure the ES was not used by the nested export, save for any compression jobs
+      if (!this.isCompressedUponExecutorService())
+      {
+         Assert.assertEquals("Nested export should not submit jobs to the "
+               + ExecutorService.class.getSimpleName(), 0, service.counter);
+      }
+
+      // Validate the nested contents
+      final File tempDirectory = createTempDirectory("exportNestedIsInline");
+      final File exported = new File(tempDirectory, archive.getName());
+      IOUtil.copyWithClose(new ByteArrayInputStream(out.toByteArray()), new FileOutputStream(exported));
+      final File nestedFile = new File(tempDirectory, nestedArchive.getName());
+      IOUtil.copyWithClose(this.getContentsFromExportedFile(exported, ArchivePaths.create(nestedArchive.getName())),
+            new FileOutputStream(nestedFile));
+      this.ensureAssetInExportedFile(nestedFile, PATH_ONE, ASSET_ONE);
+      this.ensureAssetInExportedFile(nestedFile, PATH_TWO, ASSET_TWO);
+
+      // Shut down the ES (clean up)
+      service.shutdown();
+   }
+
+   /**
+    * Ensures that errors encountered during a direct export to an {@link OutputStream}
+    * are reported as {@link ArchiveExportException}
+    */
+   @Test(expected = ArchiveExportException.class)
+   public void testExportToOutStreamThrowsArchiveExceptionOnAssetWriteFailure() throws IOException
+   {
+      log.info("testExportToOutStreamThrowsArchiveExceptionOnAssetWriteFailure");
+      final Archive<?> archive = createArchiveWithAssets();
+      archive.add(new Asset()
+      {
+         @Override
+         public InputStream openStream()
+         {
+            throw new RuntimeException("Mock Exception from an Asset write");
+         }
+
+      }, PATH_ONE);
+
+      // Export
+      archive.as(this.getExporterClass()).exportTo(new ByteArrayOutputStream());
+   }
+
    /**
     * Test to ensure that the export process accepts an archive
     * with only directories, no assets.
@@ -19,10 +19,10 @@ package org.jboss.shrinkwrap.impl.base.exporter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.zip.GZIPInputStream;
 
 import org.jboss.shrinkwrap.api.exporter.StreamExporter;
 import org.jboss.shrinkwrap.api.exporter.TarGzExporter;
+import org.jboss.shrinkwrap.impl.base.io.tar.TarGzInputStream;
 import org.jboss.shrinkwrap.impl.base.io.tar.TarInputStream;
 
 /**
@@ -32,7 +32,7 @@ import org.jboss.shrinkwrap.impl.base.io.tar.TarInputStream;
  * @author <a href="mailto:andrew.rubinger@jboss.org">ALR</a>
  * @version $Revision: $
  */
-public final class TarGzExporterTestCase extends TarExporterTestBase
+public class TarGzExporterTestCase extends TarExporterTestBase
 {
    //-------------------------------------------------------------------------------------||
    // Class Members ----------------------------------------------------------------------||
@@ -74,7 +74,7 @@ public final class TarGzExporterTestCase extends TarExporterTestBase
    @Override
    protected TarInputStream getTarInputStreamFromFile(final File archive) throws IOException
    {
-      return new TarInputStream(new GZIPInputStream(new FileInputStream(archive)));
+      return new TarGzInputStream(new FileInputStream(archive));
    }
 
    //-------------------------------------------------------------------------------------||
@@ -17,20 +17,34 @@
 package org.jboss.shrinkwrap.impl.base.exporter;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
 
+import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.ArchivePath;
+import org.jboss.shrinkwrap.api.ArchivePaths;
+import org.jboss.shrinkwrap.api.Filter;
+import org.jboss.shrinkwrap.api.Filters;
 import org.jboss.shrinkwrap.api.ShrinkWrap;
 import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.asset.ByteArrayAsset;
+import org.jboss.shrinkwrap.api.asset.FileAsset;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
 import org.jboss.shrinkwrap.api.exporter.StreamExporter;
 import org.jboss.shrinkwrap.api.exporter.ZipExporter;
 import org.jboss.shrinkwrap.api.spec.JavaArchive;
 import org.jboss.shrinkwrap.impl.base.exporter.zip.JdkZipExporterDelegate;
 import org.jboss.shrinkwrap.impl.base.io.IOUtil;
+import org.jboss.shrinkwrap.impl.base.io.SpoolingOutputStream;
 import org.jboss.shrinkwrap.impl.base.path.PathUtil;
 import org.junit.Assert;
 import org.junit.Test;
@@ -43,7 +57,7 @@ import org.junit.Test;
  * @author <a href="mailto:andrew.rubinger@jboss.org">ALR</a>
  * @version $Revision: $
  */
-public final class ZipExporterTestCase extends StreamExporterTestBase
+public class ZipExporterTestCase extends StreamExporterTestBase
 {
    //-------------------------------------------------------------------------------------||
    // Class Members ----------------------------------------------------------------------||
@@ -54,6 +68,26 @@ public final class ZipExporterTestCase extends StreamExporterTestBase
     */
    private static final String EXTENSION = ".jar";
 
+   /**
+    * Path of an already-compressed entry
+    */
+   private static final ArchivePath PATH_NESTED_JAR = ArchivePaths.create("lib/nested.jar");
+
+   /**
+    * Path of a compressible entry
+    */
+   private static final ArchivePath PATH_TEXT = ArchivePaths.create("text.txt");
+
+   /**
+    * Contents of the compressible entry
+    */
+   private static final byte[] CONTENT_TEXT;
+   static
+   {
+      CONTENT_TEXT = new byte[8192];
+      Arrays.fill(CONTENT_TEXT, (byte) 'a');
+   }
+
    //-------------------------------------------------------------------------------------||
    // Required Implementations -----------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -133,13 +167,254 @@ public final class ZipExporterTestCase extends StreamExporterTestBase
    public void exportEmptyArchiveAsZip() throws Exception
    {
       // Attempt to export an empty archive, should fail
-      ShrinkWrap.create(JavaArchive.class, NAME_ARCHIVE).as(ZipExporter.class).exportAsInputStream();
+      ShrinkWrap.create(JavaArchive.class, NAME_ARCHIVE).as(this.getExporterClass()).exportAsInputStream();
+   }
+
+   /**
+    * Ensures that entries matching the extensions passed to 
+    * {@link ZipExporter#storeEntries(String...)} are written STORED, 
+    * and all others DEFLATED
+    * @throws Exception
+    */
+   @Test
+   public void exportWithStoredExtensions() throws Exception
+   {
+      // Make an archive with an already-compressed entry
+      final Archive<?> archive = this.createCompressionTestArchive();
+
+      // Export
+      final File exported = this.exportToFile(this.getZipExporter(archive).storeEntries(".jar", "png"),
+            "exportWithStoredExtensions");
+
+      // Validate
+      final ZipFile zip = new ZipFile(exported);
+      try
+      {
+         assertMethod(zip, PATH_NESTED_JAR, ZipEntry.STORED);
+         assertMethod(zip, PATH_TEXT, ZipEntry.DEFLATED);
+         this.assertAssetInZip(zip, PATH_NESTED_JAR, archive.get(PATH_NESTED_JAR).getAsset());
+         this.assertAssetInZip(zip, PATH_TEXT, archive.get(PATH_TEXT).getAsset());
+      }
+      finally
+      {
+         zip.close();
+      }
+   }
+
+   /**
+    * Ensures that entries included by the {@link Filter} passed to 
+    * {@link ZipExporter#storeEntries(org.jboss.shrinkwrap.api.Filter)} are written STORED
+    * @throws Exception
+    */
+   @Test
+   public void exportWithStoredFilter() throws Exception
+   {
+      // Make an archive 
+      final Archive<?> archive = this.createCompressionTestArchive();
+
+      // Export
+      final File exported = this.exportToFile(this.getZipExporter(archive).storeEntries(
+            Filters.include(".*\\.txt")), "exportWithStoredFilter");
+
+      // Validate; contents must be readable via the stream as well as the central directory
+      final ZipFile zip = new ZipFile(exported);
+      try
+      {
+         assertMethod(zip, PATH_TEXT, ZipEntry.STORED);
+         this.assertAssetInZip(zip, PATH_TEXT, archive.get(PATH_TEXT).getAsset());
+      }
+      finally
+      {
+         zip.close();
+      }
+      final ZipInputStream in = new ZipInputStream(new FileInputStream(exported));
+      try
+      {
+         ZipEntry entry;
+         boolean found = false;
+         while ((entry = in.getNextEntry()) != null)
+         {
+            if (entry.getName().equals(PathUtil.optionallyRemovePrecedingSlash(PATH_TEXT.get())))
+            {
+               final byte[] actual = new byte[CONTENT_TEXT.length];
+               int read = 0;
+               while (read < actual.length)
+               {
+                  read += in.read(actual, read, actual.length - read);
+               }
+               Assert.assertArrayEquals(CONTENT_TEXT, actual);
+               Assert.assertEquals("STORED entry should have no further content", -1, in.read());
+               found = true;
+            }
+         }
+         Assert.assertTrue("STORED entry not found in stream", found);
+      }
+      finally
+      {
+         in.close();
+      }
+   }
+
+   /**
+    * Ensures that a STORED entry of unknown CRC, larger than is held in memory, 
+    * is written intact
+    * @throws Exception
+    */
+   @Test
+   public void exportWithLargeStoredEntry() throws Exception
+   {
+      // Larger than the spooling threshold
+      final byte[] content = new byte[SpoolingOutputStream.DEFAULT_THRESHOLD * 3 + 17];
+      for (int i = 0; i < content.length; i++)
+      {
+         content[i] = (byte) (i % 251);
+      }
+      final ArchivePath path = ArchivePaths.create("large.bin");
+      final Archive<?> archive = ShrinkWrap.create(JavaArchive.class, NAME_ARCHIVE).add(new ByteArrayAsset(content),
+            path);
+
+      // Export
+      final File exported = this.exportToFile(this.getZipExporter(archive).storeEntries("bin"),
+            "exportWithLargeStoredEntry");
+
+      // Validate
+      final ZipFile zip = new ZipFile(exported);
+      try
+      {
+         assertMethod(zip, path, ZipEntry.STORED);
+         this.assertAssetInZip(zip, path, archive.get(path).getAsset());
+      }
+      finally
+      {
+         zip.close();
+      }
+   }
+
+   /**
+    * Ensures that STORED file and string assets, whose CRC is computed before 
+    * they are written, are written intact
+    * @throws Exception
+    */
+   @Test
+   public void exportWithStoredFileAndStringAssets() throws Exception
+   {
+      final File file = File.createTempFile("exportWithStoredFileAndStringAssets", ".bin");
+      file.deleteOnExit();
+      final byte[] content = new byte[100000];
+      new Random(7).nextBytes(content);
+      IOUtil.copyWithClose(new ByteArrayInputStream(content), new FileOutputStream(file));
+      final ArchivePath filePath = ArchivePaths.create("file.bin");
+      final ArchivePath stringPath = ArchivePaths.create("string.bin");
+      final Archive<?> archive = ShrinkWrap.create(JavaArchive.class, NAME_ARCHIVE).add(new FileAsset(file),
+            filePath).add(new StringAsset("stored string"), stringPath);
+
+      // Export
+      final File exported = this.exportToFile(this.getZipExporter(archive).storeEntries("bin"),
+            "exportWithStoredFileAndStringAssets");
+
+      // Validate
+      final ZipFile zip = new ZipFile(exported);
+      try
+      {
+         assertMethod(zip, filePath, ZipEntry.STORED);
+         assertMethod(zip, stringPath, ZipEntry.STORED);
+         this.assertAssetInZip(zip, filePath, archive.get(filePath).getAsset());
+         this.assertAssetInZip(zip, stringPath, archive.get(stringPath).getAsset());
+      }
+      finally
+      {
+         zip.close();
+      }
+   }
+
+   /**
+    * Ensures that the level passed to {@link ZipExporter#compressionLevel(int)}
+    * is honored
+    * @throws Exception
+    */
+   @Test
+   public void exportWithCompressionLevel() throws Exception
+   {
+      // Make an archive 
+      final Archive<?> archive = this.createCompressionTestArchive();
+
+      // Export at both ends of the scale
+      final ByteArrayOutputStream uncompressed = new ByteArrayOutputStream();
+      this.getZipExporter(archive).compressionLevel(0).exportTo(uncompressed);
+      final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+      this.getZipExporter(archive).compressionLevel(9).exportTo(compressed);
+
+      // Validate
+      Assert.assertTrue("Level 0 export should be larger than level 9", uncompressed.size() > compressed.size()
+            + CONTENT_TEXT.length / 2);
+      final ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(uncompressed.toByteArray()));
+      Assert.assertNotNull(in.getNextEntry());
+      in.close();
+   }
+
+   /**
+    * Ensures that invalid compression levels are rejected
+    */
+   @Test(expected = IllegalArgumentException.class)
+   public void exportWithInvalidCompressionLevel()
+   {
+      this.getZipExporter(this.createCompressionTestArchive()).compressionLevel(10);
    }
 
    //-------------------------------------------------------------------------------------||
    // Internal Helper Methods ------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
 
+   /**
+    * Obtains the exporter under test for the specified archive as a {@link ZipExporter}
+    * @param archive
+    * @return
+    */
+   private ZipExporter getZipExporter(final Archive<?> archive)
+   {
+      return (ZipExporter) archive.as(this.getExporterClass());
+   }
+
+   /**
+    * Creates an archive with one incompressible "nested archive" entry and one 
+    * highly compressible text entry
+    * @return
+    */
+   private Archive<?> createCompressionTestArchive()
+   {
+      final byte[] nested = new byte[4096];
+      new Random(13L).nextBytes(nested);
+      return ShrinkWrap.create(JavaArchive.class, NAME_ARCHIVE + EXTENSION).add(new ByteArrayAsset(nested),
+            PATH_NESTED_JAR).add(new ByteArrayAsset(CONTENT_TEXT), PATH_TEXT);
+   }
+
+   /**
+    * Exports via the specified exporter to a new file in a temp directory for the specified test
+    * @param exporter
+    * @param testName
+    * @return
+    * @throws IOException
+    */
+   private File exportToFile(final ZipExporter exporter, final String testName) throws IOException
+   {
+      final File exported = new File(this.createTempDirectory(testName), NAME_ARCHIVE + EXTENSION);
+      exporter.exportTo(exported);
+      return exported;
+   }
+
+   /**
+    * Asserts the entry at the specified path in the ZIP was written with the specified method
+    * @param zip
+    * @param path
+    * @param method
+    * @throws IOException
+    */
+   private void assertMethod(final ZipFile zip, final ArchivePath path, final int method) throws IOException
+   {
+      Assert.assertEquals("Unexpected compression method for " + path, method, this.getEntryFromZip(zip, path)
+            .getMethod());
+   }
+
    /**
     * Ensures that the specified {@link ZipFile} contains entries
     * in the expected form
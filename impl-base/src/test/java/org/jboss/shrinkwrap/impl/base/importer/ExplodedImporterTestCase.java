@@ -17,6 +17,7 @@
 package org.jboss.shrinkwrap.impl.base.importer;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.util.logging.Logger;
@@ -25,6 +26,7 @@ import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.ShrinkWrap;
 import org.jboss.shrinkwrap.api.importer.ExplodedImporter;
 import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.jboss.shrinkwrap.impl.base.TestIOUtil;
 import org.jboss.shrinkwrap.impl.base.path.BasicPath;
 import org.junit.Assert;
 import org.junit.BeforeClass;
@@ -105,6 +107,43 @@ public class ExplodedImporterTestCase
             archive.contains(new BasicPath("/parent/empty_dir"))); 
    }
    
+   /**
+    * Ensures that directories whose names contain regular expression 
+    * metacharacters, and trees wide enough to be walked concurrently, are imported
+    */
+   @Test
+   public void shouldImportDirectoryWithMetacharactersInPath() throws Exception
+   {
+      final File root = File.createTempFile("exploded+import[", "]");
+      Assert.assertTrue(root.delete());
+      Assert.assertTrue(root.mkdir());
+      try
+      {
+         for (int i = 0; i < 5; i++)
+         {
+            final File dir = new File(root, "dir$" + i + "/sub(" + i + ")");
+            Assert.assertTrue(dir.mkdirs());
+            final FileOutputStream out = new FileOutputStream(new File(dir, "file" + i + ".txt"));
+            out.write(i);
+            out.close();
+         }
+
+         final Archive<?> archive = ShrinkWrap.create(ExplodedImporter.class, "test.jar").importDirectory(root)
+               .as(JavaArchive.class);
+
+         for (int i = 0; i < 5; i++)
+         {
+            final String path = "/dir$" + i + "/sub(" + i + ")/file" + i + ".txt";
+            Assert.assertTrue("Nested file should be imported at " + path, archive.contains(new BasicPath(path)));
+         }
+         Assert.assertEquals("All files and directories should be imported", 15, archive.getContent().size());
+      }
+      finally
+      {
+         TestIOUtil.deleteDirectory(root);
+      }
+   }
+
    @Test(expected = IllegalArgumentException.class)
    public void shouldThrowExceptionIfImportingAFile() throws Exception {
     
@@ -17,15 +17,22 @@
 package org.jboss.shrinkwrap.impl.base.importer;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.logging.Logger;
 
+import org.jboss.shrinkwrap.api.GenericArchive;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
 import org.jboss.shrinkwrap.api.exporter.StreamExporter;
 import org.jboss.shrinkwrap.api.exporter.TarExporter;
+import org.jboss.shrinkwrap.api.importer.ArchiveImportException;
 import org.jboss.shrinkwrap.api.importer.TarImporter;
 import org.jboss.shrinkwrap.impl.base.importer.tar.TarImporterImpl;
 import org.jboss.shrinkwrap.impl.base.io.tar.TarInputStream;
+import org.junit.Test;
 
 /**
  * TestCase to verify the {@link TarImporterImpl} functionality.
@@ -51,6 +58,37 @@ public class TarImporterImplTestCase extends StreamImporterImplTestBase<TarImpor
     */
    private static final TarContentAssertionDelegate delegate = new TarContentAssertionDelegate();
 
+   //-------------------------------------------------------------------------------------||
+   // Tests ------------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Ensures that an entry whose header claims more content than the stream holds
+    * fails the import, without first allocating for the claimed size
+    */
+   @Test(expected = ArchiveImportException.class)
+   public void shouldNotTrustEntrySizeOfHeader() throws Exception
+   {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      ShrinkWrap.create(GenericArchive.class, "test.tar").add(new StringAsset("content"), "a.txt").as(
+            TarExporter.class).exportTo(out);
+      final byte[] tar = out.toByteArray();
+
+      // Claim nearly 2GB in the header of the entry
+      final int header = findFileHeader(tar);
+      writeHeaderField(tar, header + 124, 12, Integer.toOctalString(Integer.MAX_VALUE - 1));
+      Arrays.fill(tar, header + 148, header + 156, (byte) ' ');
+      long checksum = 0;
+      for (int i = header; i < header + 512; i++)
+      {
+         checksum += tar[i] & 0xFF;
+      }
+      writeHeaderField(tar, header + 148, 7, Long.toOctalString(checksum));
+
+      ShrinkWrap.create(GenericArchive.class, "test.tar").as(TarImporter.class).importFrom(
+            new ByteArrayInputStream(tar));
+   }
+
    //-------------------------------------------------------------------------------------||
    // Required Implementations -----------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -106,6 +144,37 @@ public class TarImporterImplTestCase extends StreamImporterImplTestBase<TarImpor
    // Internal Helper Members ------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
 
+   /**
+    * Obtains the offset of the header of the first regular file in the specified TAR
+    */
+   private static int findFileHeader(final byte[] tar)
+   {
+      for (int header = 0; header + 512 <= tar.length; header += 512)
+      {
+         if (tar[header] != 0 && (tar[header + 156] == '0' || tar[header + 156] == 0))
+         {
+            return header;
+         }
+      }
+      throw new IllegalStateException("No file entry in TAR");
+   }
+
+   /**
+    * Writes the specified octal value into the header field of the specified
+    * length at the specified offset, zero-padded and NUL-terminated
+    */
+   private static void writeHeaderField(final byte[] tar, final int offset, final int length, final String octal)
+   {
+      final StringBuilder field = new StringBuilder(octal);
+      while (field.length() < length - 1)
+      {
+         field.insert(0, '0');
+      }
+      final byte[] bytes = field.toString().getBytes();
+      System.arraycopy(bytes, 0, tar, offset, bytes.length);
+      tar[offset + length - 1] = 0;
+   }
+
    /**
     * Test {@link TarInputStream} extension which throws errors when read
     * in order to test exception handling of the import process
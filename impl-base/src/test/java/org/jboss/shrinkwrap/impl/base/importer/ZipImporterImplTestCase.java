@@ -17,19 +17,36 @@
 package org.jboss.shrinkwrap.impl.base.importer;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.logging.Logger;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
+import junit.framework.Assert;
+
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ArchivePath;
+import org.jboss.shrinkwrap.api.ArchivePaths;
+import org.jboss.shrinkwrap.api.GenericArchive;
+import org.jboss.shrinkwrap.api.Node;
 import org.jboss.shrinkwrap.api.ShrinkWrap;
 import org.jboss.shrinkwrap.api.exporter.StreamExporter;
 import org.jboss.shrinkwrap.api.exporter.ZipExporter;
 import org.jboss.shrinkwrap.api.importer.ArchiveImportException;
 import org.jboss.shrinkwrap.api.importer.ZipImporter;
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.asset.ByteArrayAsset;
 import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.jboss.shrinkwrap.impl.base.asset.ZipSourceEntryAsset;
+import org.jboss.shrinkwrap.impl.base.io.IOUtil;
+import org.jboss.shrinkwrap.spi.Releasable;
 import org.junit.Test;
 
 /**
@@ -83,6 +100,144 @@ public class ZipImporterImplTestCase extends StreamImporterImplTestBase<ZipImpor
       ShrinkWrap.create(ZipImporter.class, "test.jar").importFrom(testZip).as(JavaArchive.class);
    }
 
+   /**
+    * Ensures that we may import an archive as a spooled stream, 
+    * and the contents will be as expected and read lazily, and that
+    * the spool file is deleted once the archive is released
+    * @throws Exception
+    */
+   @Test
+   public void shouldBeAbleToImportSpooledInputStream() throws Exception
+   {
+      final ContentAssertionDelegateBase delegate = this.getDelegate();
+      final File testFile = delegate.getExistingResource();
+      final Set<File> existingSpools = this.getSpoolFiles();
+
+      // Import as a spooled stream
+      final InputStream stream = new FileInputStream(testFile);
+      final Archive<?> archive;
+      try
+      {
+         archive = ShrinkWrap.create(ZipImporter.class, "test.jar").importFromSpooled(stream).as(
+               GenericArchive.class);
+      }
+      finally
+      {
+         stream.close();
+      }
+
+      // Ensure the archive matches the file input
+      delegate.assertContent(archive, testFile);
+
+      // Ensure the content was not loaded into memory
+      for (final Node node : archive.getContent().values())
+      {
+         if (node.getAsset() != null)
+         {
+            Assert.assertTrue("Spooled import should read entries lazily",
+                  node.getAsset() instanceof ZipSourceEntryAsset);
+         }
+      }
+
+      // Ensure the spool file is deleted upon release
+      final Set<File> spools = this.getSpoolFiles();
+      spools.removeAll(existingSpools);
+      Assert.assertEquals("Import should have spooled to one file", 1, spools.size());
+      archive.as(Releasable.class).release();
+      for (final File spool : spools)
+      {
+         Assert.assertFalse("Spool file should be deleted once the archive is released", spool.exists());
+      }
+   }
+
+   /**
+    * Ensures that a spooled import of {@link InputStream} results in {@link ArchiveImportException}
+    * if an unexpected error occurred.
+    * @throws Exception
+    */
+   @Test(expected = ArchiveImportException.class)
+   public void shouldThrowExceptionOnErrorInImportFromSpooledStream() throws Exception
+   {
+      ShrinkWrap.create(ZipImporter.class, "test.jar").importFromSpooled(this.getExceptionThrowingInputStream());
+   }
+
+   /**
+    * Ensures that archives imported from the same file share it, and that 
+    * it's closed only once the last of them is released
+    * @throws Exception
+    */
+   @Test
+   public void shouldReleaseImportedFileWithLastArchive() throws Exception
+   {
+      // Use a copy no other test has imported (and not released)
+      final File testFile = File.createTempFile("shouldReleaseImportedFileWithLastArchive", ".jar");
+      testFile.deleteOnExit();
+      IOUtil.copyWithClose(new FileInputStream(this.getDelegate().getExistingResource()), new FileOutputStream(
+            testFile));
+
+      // Import twice
+      final Archive<?> archive1 = ShrinkWrap.create(ZipImporter.class, "test1.jar").importFrom(testFile).as(
+            GenericArchive.class);
+      final Archive<?> archive2 = ShrinkWrap.create(ZipImporter.class, "test2.jar").importFrom(testFile).as(
+            GenericArchive.class);
+      final Asset asset = getFirstAsset(archive2);
+
+      // Releasing the first should leave the content of the second intact
+      archive1.as(Releasable.class).release();
+      IOUtil.asByteArray(asset.openStream());
+      delegate.assertContent(archive2, testFile);
+
+      // Releasing the last should close the file
+      archive2.as(Releasable.class).release();
+      try
+      {
+         asset.openStream();
+         Assert.fail("Content should not be readable once the last archive has been released");
+      }
+      catch (final IllegalStateException expected)
+      {
+         // Good
+      }
+   }
+
+   /**
+    * Ensures that STORED entries imported from a file are read correctly
+    * @throws Exception
+    */
+   @Test
+   public void shouldBeAbleToImportStoredEntriesFromFile() throws Exception
+   {
+      // Export an archive with STORED and DEFLATED entries
+      final byte[] stored = new byte[5000];
+      Arrays.fill(stored, (byte) 's');
+      final byte[] deflated = new byte[5000];
+      Arrays.fill(deflated, (byte) 'd');
+      final ArchivePath storedPath = ArchivePaths.create("lib/stored.jar");
+      final ArchivePath deflatedPath = ArchivePaths.create("deflated.txt");
+      final File exported = File.createTempFile("shouldBeAbleToImportStoredEntriesFromFile", ".jar");
+      exported.deleteOnExit();
+      ShrinkWrap.create(JavaArchive.class).add(new ByteArrayAsset(stored), storedPath).add(
+            new ByteArrayAsset(deflated), deflatedPath).as(ZipExporter.class).storeEntries("jar").exportTo(
+            exported, true);
+
+      // Import and validate
+      final Archive<?> archive = ShrinkWrap.create(ZipImporter.class, "test.jar").importFrom(exported).as(
+            GenericArchive.class);
+      try
+      {
+         Assert.assertTrue("Import from file should read entries lazily",
+               archive.get(storedPath).getAsset() instanceof ZipSourceEntryAsset);
+         Assert.assertTrue(Arrays.equals(stored, IOUtil.asByteArray(archive.get(storedPath).getAsset()
+               .openStream())));
+         Assert.assertTrue(Arrays.equals(deflated, IOUtil.asByteArray(archive.get(deflatedPath).getAsset()
+               .openStream())));
+      }
+      finally
+      {
+         archive.as(Releasable.class).release();
+      }
+   }
+
    //-------------------------------------------------------------------------------------||
    // Required Implementations -----------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -133,4 +288,46 @@ public class ZipImporterImplTestCase extends StreamImporterImplTestBase<ZipImpor
          }
       };
    }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Obtains any {@link Asset} from the specified archive
+    * @param archive
+    * @return
+    */
+   private static Asset getFirstAsset(final Archive<?> archive)
+   {
+      for (final Node node : archive.getContent().values())
+      {
+         if (node.getAsset() != null)
+         {
+            return node.getAsset();
+         }
+      }
+      throw new IllegalStateException("No assets in " + archive);
+   }
+
+   /**
+    * Obtains the files in the temporary directory to which streams are spooled on import
+    * @return
+    */
+   private Set<File> getSpoolFiles()
+   {
+      final Set<File> spools = new HashSet<File>();
+      final File[] files = new File(System.getProperty("java.io.tmpdir")).listFiles();
+      if (files != null)
+      {
+         for (final File file : files)
+         {
+            if (file.getName().startsWith("shrinkwrap-import-"))
+            {
+               spools.add(file);
+            }
+         }
+      }
+      return spools;
+   }
 }
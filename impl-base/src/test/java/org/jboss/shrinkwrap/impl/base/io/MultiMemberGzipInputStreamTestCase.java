@@ -0,0 +1,187 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Ensures that the {@link MultiMemberGzipInputStream} decodes every member
+ * of a GZIP stream, independently of the JDK's own GZIP reader
+ *
+ * @version $Revision: $
+ */
+public class MultiMemberGzipInputStreamTestCase
+{
+
+   //-------------------------------------------------------------------------------------||
+   // Tests ------------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   @Test
+   public void shouldReadAllMembers() throws Exception
+   {
+      final byte[] first = createContent(100000, 3);
+      final byte[] second = new byte[0];
+      final byte[] third = createContent(5000, 7);
+      final byte[] encoded = concat(gzip(first), gzip(second), gzip(third));
+      final byte[] expected = concat(first, second, third);
+
+      // In bulk
+      Assert.assertTrue("All members should be decoded", Arrays.equals(expected, IOUtil
+            .asByteArray(new MultiMemberGzipInputStream(new ByteArrayInputStream(encoded)))));
+
+      // Byte by byte
+      final MultiMemberGzipInputStream in = new MultiMemberGzipInputStream(new ByteArrayInputStream(encoded));
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      int b;
+      while ((b = in.read()) != -1)
+      {
+         out.write(b);
+      }
+      in.close();
+      Assert.assertTrue("All members should be decoded byte by byte", Arrays.equals(expected, out.toByteArray()));
+   }
+
+   @Test
+   public void shouldReadMembersOfParallelGzipOutputStream() throws Exception
+   {
+      final byte[] content = createContent(1024 * 1024 * 3 + 11, 5);
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      final ExecutorService service = Executors.newFixedThreadPool(2);
+      try
+      {
+         final ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(out, service, 2, 1024 * 1024);
+         gzip.write(content);
+         gzip.close();
+      }
+      finally
+      {
+         service.shutdownNow();
+      }
+
+      Assert.assertTrue("Content spanning several members should be decoded", Arrays.equals(content, IOUtil
+            .asByteArray(new MultiMemberGzipInputStream(new ByteArrayInputStream(out.toByteArray())))));
+   }
+
+   @Test
+   public void shouldSkipOptionalHeaderFields() throws Exception
+   {
+      final byte[] content = createContent(1000, 1);
+      final byte[] plain = gzip(content);
+
+      // FHCRC | FEXTRA | FNAME | FCOMMENT, each followed by its field after the fixed header
+      final ByteArrayOutputStream member = new ByteArrayOutputStream();
+      member.write(plain, 0, 3);
+      member.write(2 | 4 | 8 | 16);
+      member.write(plain, 4, 6);
+      member.write(new byte[]
+      {3, 0, 'x', 'y', 'z'});
+      member.write("name.tar\0".getBytes("US-ASCII"));
+      member.write("comment\0".getBytes("US-ASCII"));
+      member.write(new byte[2]);
+      member.write(plain, 10, plain.length - 10);
+
+      Assert.assertTrue("Optional header fields should be skipped", Arrays.equals(concat(content, content), IOUtil
+            .asByteArray(new MultiMemberGzipInputStream(new ByteArrayInputStream(concat(member.toByteArray(),
+                  plain))))));
+   }
+
+   @Test
+   public void shouldIgnoreTrailingInput() throws Exception
+   {
+      final byte[] content = createContent(1000, 1);
+      final byte[] encoded = concat(gzip(content), new byte[512]);
+
+      Assert.assertTrue("Input following the last member should be ignored", Arrays.equals(content, IOUtil
+            .asByteArray(new MultiMemberGzipInputStream(new ByteArrayInputStream(encoded)))));
+   }
+
+   @Test(expected = ZipException.class)
+   public void shouldRejectCorruptTrailer() throws Exception
+   {
+      final byte[] encoded = gzip(createContent(1000, 1));
+      encoded[encoded.length - 8]++;
+
+      readFully(new MultiMemberGzipInputStream(new ByteArrayInputStream(encoded)));
+   }
+
+   @Test(expected = IOException.class)
+   public void shouldRejectTruncatedMember() throws Exception
+   {
+      final byte[] encoded = concat(gzip(createContent(1000, 1)), gzip(createContent(1000, 2)));
+
+      readFully(new MultiMemberGzipInputStream(new ByteArrayInputStream(encoded, 0, encoded.length - 20)));
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   private static byte[] createContent(final int length, final int seed)
+   {
+      final byte[] content = new byte[length];
+      for (int i = 0; i < length; i++)
+      {
+         content[i] = (byte) (i * seed / 7);
+      }
+      return content;
+   }
+
+   /**
+    * Reads the specified stream to its end, propagating any {@link IOException}
+    */
+   private static void readFully(final InputStream in) throws IOException
+   {
+      final byte[] buffer = new byte[4096];
+      while (in.read(buffer) != -1)
+      {
+         // Discard
+      }
+      in.close();
+   }
+
+   private static byte[] gzip(final byte[] content) throws IOException
+   {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      final GZIPOutputStream gzip = new GZIPOutputStream(out);
+      gzip.write(content);
+      gzip.close();
+      return out.toByteArray();
+   }
+
+   private static byte[] concat(final byte[]... arrays)
+   {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      for (final byte[] array : arrays)
+      {
+         out.write(array, 0, array.length);
+      }
+      return out.toByteArray();
+   }
+}
@@ -0,0 +1,172 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Ensures that the {@link ParallelGzipOutputStream} writes a series of GZIP members
+ * which decode to the content written
+ *
+ * @version $Revision: $
+ */
+public class ParallelGzipOutputStreamTestCase
+{
+
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   private static final int BLOCK_SIZE = 1024;
+
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   private ExecutorService service;
+
+   //-------------------------------------------------------------------------------------||
+   // Lifecycle --------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   @Before
+   public void createExecutorService()
+   {
+      service = Executors.newFixedThreadPool(2);
+   }
+
+   @After
+   public void shutdownExecutorService()
+   {
+      service.shutdownNow();
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Tests ------------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   @Test
+   public void shouldWriteOneMemberPerBlock() throws Exception
+   {
+      final byte[] content = createContent(BLOCK_SIZE * 40 + 17);
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      final ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(out, service, 2, BLOCK_SIZE);
+      gzip.write(content, 0, 100);
+      gzip.write(content[100]);
+      gzip.write(content, 101, content.length - 101);
+      gzip.close();
+
+      final byte[] encoded = out.toByteArray();
+      Assert.assertEquals("Each block should be written as its own member", 41, countMembers(encoded));
+      assertContent(content, encoded);
+   }
+
+   @Test
+   public void shouldWriteOneMemberForNoContent() throws Exception
+   {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      new ParallelGzipOutputStream(out, service, 2, BLOCK_SIZE).close();
+
+      final byte[] encoded = out.toByteArray();
+      Assert.assertEquals("An empty stream should be a single member", 1, countMembers(encoded));
+      assertContent(new byte[0], encoded);
+   }
+
+   @Test
+   public void shouldHandOffNoMoreJobsThanParallelism() throws Exception
+   {
+      // Never runs anything; every job is left to the stream to run itself
+      final List<Future<?>> handedOff = new ArrayList<Future<?>>();
+      final Executor idle = new Executor()
+      {
+         @Override
+         public void execute(final Runnable job)
+         {
+            int inFlight = 0;
+            for (final Future<?> previous : handedOff)
+            {
+               if (!previous.isDone())
+               {
+                  inFlight++;
+               }
+            }
+            Assert.assertTrue("No more jobs than the parallelism should be in flight", inFlight < 2);
+            handedOff.add((Future<?>) job);
+         }
+      };
+
+      final byte[] content = createContent(BLOCK_SIZE * 20);
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      final ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(out, idle, 2, BLOCK_SIZE);
+      gzip.write(content);
+      gzip.close();
+
+      Assert.assertTrue("Jobs should have been handed off", handedOff.size() > 0);
+      assertContent(content, out.toByteArray());
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   private static byte[] createContent(final int length)
+   {
+      final byte[] content = new byte[length];
+      for (int i = 0; i < length; i++)
+      {
+         content[i] = (byte) (i * 31 / 7);
+      }
+      return content;
+   }
+
+   /**
+    * Counts the member headers as written by {@link ParallelGzipOutputStream}
+    */
+   private static int countMembers(final byte[] encoded)
+   {
+      int count = 0;
+      for (int i = 0; i + 10 <= encoded.length; i++)
+      {
+         if (encoded[i] == (byte) 0x1f && encoded[i + 1] == (byte) 0x8b && encoded[i + 2] == 8
+               && encoded[i + 3] == 0 && encoded[i + 9] == (byte) 0xff)
+         {
+            count++;
+         }
+      }
+      return count;
+   }
+
+   private static void assertContent(final byte[] expected, final byte[] encoded) throws Exception
+   {
+      final byte[] decoded = IOUtil.asByteArray(new MultiMemberGzipInputStream(new ByteArrayInputStream(encoded)));
+      Assert.assertTrue("Decoded content should be that written", Arrays.equals(expected, decoded));
+   }
+}
@@ -0,0 +1,104 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.io;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Ensures that the {@link SpoolingOutputStream} replays its content
+ * whether held in memory or spooled to disk
+ *
+ * @version $Revision: $
+ */
+public class SpoolingOutputStreamTestCase
+{
+
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   private static final int THRESHOLD = 16;
+
+   //-------------------------------------------------------------------------------------||
+   // Tests ------------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   @Test
+   public void shouldHoldContentBelowThresholdInMemory() throws Exception
+   {
+      final SpoolingOutputStream spool = new SpoolingOutputStream(THRESHOLD);
+      final byte[] content = createContent(THRESHOLD);
+      spool.write(content);
+
+      Assert.assertFalse("Content within the threshold should not be spooled", spool.isSpooled());
+      assertContent(content, spool);
+   }
+
+   @Test
+   public void shouldSpoolContentBeyondThreshold() throws Exception
+   {
+      final SpoolingOutputStream spool = new SpoolingOutputStream(THRESHOLD);
+      final byte[] content = createContent(THRESHOLD * 4 + 3);
+      spool.write(content, 0, THRESHOLD);
+      spool.write(content[THRESHOLD]);
+      spool.write(content, THRESHOLD + 1, content.length - THRESHOLD - 1);
+
+      Assert.assertTrue("Content beyond the threshold should be spooled", spool.isSpooled());
+      assertContent(content, spool);
+      spool.close();
+   }
+
+   @Test
+   public void shouldDiscardContentOnReset() throws Exception
+   {
+      final SpoolingOutputStream spool = new SpoolingOutputStream(THRESHOLD);
+      spool.write(createContent(THRESHOLD * 2));
+      spool.reset();
+
+      Assert.assertFalse("Reset should discard the spool file", spool.isSpooled());
+      final byte[] content = createContent(3);
+      spool.write(content);
+      assertContent(content, spool);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   private static byte[] createContent(final int length)
+   {
+      final byte[] content = new byte[length];
+      for (int i = 0; i < length; i++)
+      {
+         content[i] = (byte) i;
+      }
+      return content;
+   }
+
+   private static void assertContent(final byte[] expected, final SpoolingOutputStream spool) throws Exception
+   {
+      Assert.assertEquals("Size should be that of the content written", expected.length, spool.size());
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      spool.writeTo(out);
+      Assert.assertTrue("Replayed content should be that written", Arrays.equals(expected, out.toByteArray()));
+   }
+}
@@ -0,0 +1,178 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.io.tar;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Ensures that TAR archives written and read through channels, in large blocks
+ * and via direct buffers, are interchangeable with those using streams
+ *
+ * @version $Revision: $
+ */
+public class TarChannelTestCase
+{
+
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Sizes of the entries written, some spanning the blocks used below
+    */
+   private static final int[] SIZES =
+   {1000, 0, 513, 511, 3 * TarBuffer.DEFAULT_BLKSIZE + 7, 20000};
+
+   /**
+    * A channel block size small enough that the entries span several blocks
+    */
+   private static final int BLOCK_SIZE = TarBuffer.DEFAULT_BLKSIZE * 2;
+
+   //-------------------------------------------------------------------------------------||
+   // Tests ------------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   @Test
+   public void shouldWriteThroughChannel() throws Exception
+   {
+      final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+      this.write(new TarOutputStreamImpl(stream));
+
+      final ByteArrayOutputStream channel = new ByteArrayOutputStream();
+      this.write(new TarOutputStreamImpl(Channels.newChannel(channel), TarBuffer.DEFAULT_CHANNEL_BLKSIZE, true));
+
+      // Only padded to the blocking factor, not the channel's block, so identical
+      Assert.assertTrue("Archive should be smaller than the channel block",
+            channel.size() < TarBuffer.DEFAULT_CHANNEL_BLKSIZE);
+      Assert.assertTrue("Archive written through a channel should match that written through a stream",
+            Arrays.equals(stream.toByteArray(), channel.toByteArray()));
+   }
+
+   @Test
+   public void shouldReadThroughChannel() throws Exception
+   {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      this.write(new TarOutputStreamImpl(out));
+
+      // Both heap and direct blocks
+      this.read(new TarInputStream(Channels.newChannel(new ByteArrayInputStream(out.toByteArray())), BLOCK_SIZE,
+            false));
+      this.read(new TarInputStream(Channels.newChannel(new ByteArrayInputStream(out.toByteArray())), BLOCK_SIZE,
+            true));
+   }
+
+   @Test
+   public void shouldCopyEntryContentsToChannel() throws Exception
+   {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      this.write(new TarOutputStreamImpl(out));
+
+      final TarInputStream tis = new TarInputStream(Channels.newChannel(new ByteArrayInputStream(out.toByteArray())),
+            BLOCK_SIZE, true);
+      for (int i = 0; i < SIZES.length; i++)
+      {
+         final TarEntry entry = tis.getNextEntry();
+         Assert.assertEquals("entry" + i, entry.getName());
+
+         // Read some first, then copy the rest
+         final byte[] first = new byte[3];
+         final int read = Math.max(0, tis.read(first));
+         final ByteArrayOutputStream content = new ByteArrayOutputStream();
+         tis.copyEntryContents(Channels.newChannel(content));
+         Assert.assertEquals(SIZES[i] - read, content.size());
+         final byte[] copied = content.toByteArray();
+         for (int j = 0; j < copied.length; j++)
+         {
+            Assert.assertEquals((byte) (i + read + j), copied[j]);
+         }
+      }
+      Assert.assertNull("Should have reached the end of the archive", tis.getNextEntry());
+      tis.close();
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void shouldRejectUnalignedChannelBlock() throws Exception
+   {
+      new TarBuffer(Channels.newChannel(new ByteArrayOutputStream()), TarBuffer.DEFAULT_BLKSIZE + 512, false);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Writes entries of {@link #SIZES} with predictable content, then closes the stream
+    */
+   private void write(final TarOutputStreamImpl tos) throws Exception
+   {
+      for (int i = 0; i < SIZES.length; i++)
+      {
+         final TarEntry entry = new TarEntry("entry" + i);
+         entry.setSize(SIZES[i]);
+         entry.setModTime(1234567890000L);
+         tos.putNextEntry(entry);
+         final byte[] content = new byte[SIZES[i]];
+         for (int j = 0; j < content.length; j++)
+         {
+            content[j] = (byte) (i + j);
+         }
+         tos.write(content);
+         tos.closeEntry();
+      }
+      tos.close();
+   }
+
+   /**
+    * Reads the entries written by {@link #write(TarOutputStreamImpl)}, skipping over 
+    * part of each, then closes the stream
+    */
+   private void read(final TarInputStream tis) throws Exception
+   {
+      for (int i = 0; i < SIZES.length; i++)
+      {
+         final TarEntry entry = tis.getNextEntry();
+         Assert.assertEquals("entry" + i, entry.getName());
+         Assert.assertEquals(SIZES[i], entry.getSize());
+         final byte[] buffer = new byte[SIZES[i]];
+         final int read = Math.max(0, tis.read(buffer, 0, Math.min(600, buffer.length)));
+         final long skipped = tis.skip(100);
+         int offset = read + (int) skipped;
+         int num;
+         while ((num = tis.read(buffer, offset, buffer.length - offset)) > 0)
+         {
+            offset += num;
+         }
+         Assert.assertEquals(SIZES[i], offset);
+         for (int j = 0; j < SIZES[i]; j++)
+         {
+            if (j < read || j >= read + skipped)
+            {
+               Assert.assertEquals("Content of entry" + i + " at " + j, (byte) (i + j), buffer[j]);
+            }
+         }
+      }
+      Assert.assertNull("Should have reached the end of the archive", tis.getNextEntry());
+      tis.close();
+   }
+}
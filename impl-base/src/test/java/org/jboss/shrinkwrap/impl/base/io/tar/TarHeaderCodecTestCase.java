@@ -0,0 +1,135 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.io.tar;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Ensures that TAR headers are written and parsed in place, and that
+ * the {@link TarHeaderCodec} shares repeated fields
+ *
+ * @version $Revision: $
+ */
+public class TarHeaderCodecTestCase
+{
+
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * A name too long for the name field alone, which must be split into the 'ustar' prefix
+    */
+   private static final String LONG_NAME = "org/jboss/shrinkwrap/impl/base/io/tar/some/deeply/nested/package/"
+         + "which/goes/on/and/on/and/on/beyond/one/hundred/characters/Entry.class";
+
+   //-------------------------------------------------------------------------------------||
+   // Tests ------------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   @Test
+   public void shouldParseHeaderWrittenAtOffset() throws Exception
+   {
+      final TarEntry entry = new TarEntry(LONG_NAME);
+      entry.setSize(12345L);
+      entry.setNames("user", "group");
+      entry.setIds(500, 501);
+      entry.setModTime(1234567890000L);
+
+      final int offset = TarBuffer.DEFAULT_RCDSIZE * 3;
+      final byte[] buffer = new byte[offset + TarBuffer.DEFAULT_RCDSIZE];
+      entry.writeEntryHeader(buffer, offset, TarBuffer.DEFAULT_RCDSIZE);
+
+      final TarEntry parsed = new TarEntry(buffer, offset, new TarHeaderCodec());
+      Assert.assertEquals("Name should survive the 'ustar' prefix split", LONG_NAME, parsed.getName());
+      Assert.assertEquals(12345L, parsed.getSize());
+      Assert.assertEquals("user", parsed.getUserName());
+      Assert.assertEquals("group", parsed.getGroupName());
+      Assert.assertEquals(500, parsed.getUserId());
+      Assert.assertEquals(501, parsed.getGroupId());
+      Assert.assertEquals(1234567890000L, parsed.getModTime().getTime());
+      Assert.assertTrue("Entry should be in 'ustar' format", parsed.isUSTarFormat());
+
+      // Parsing a standalone copy of the record yields the same
+      final byte[] record = new byte[TarBuffer.DEFAULT_RCDSIZE];
+      System.arraycopy(buffer, offset, record, 0, record.length);
+      Assert.assertEquals(LONG_NAME, new TarEntry(record).getName());
+   }
+
+   @Test
+   public void shouldShareRepeatedFields() throws Exception
+   {
+      final TarHeaderCodec codec = new TarHeaderCodec();
+      final byte[] first = "someuser\0\0\0\0".getBytes("ISO-8859-1");
+      final byte[] second = "xxsomeuser\0\0".getBytes("ISO-8859-1");
+
+      final String parsed = codec.parseName(first, 0, first.length);
+      Assert.assertEquals("someuser", parsed);
+      Assert.assertSame("Repeated field should be shared", parsed, codec.parseName(second, 2, 10));
+      Assert.assertEquals("someus", codec.parseName(first, 0, 6));
+      Assert.assertEquals("", codec.parseName(first, 8, 4));
+   }
+
+   @Test
+   public void shouldReadEntriesAfterPartialRead() throws Exception
+   {
+      // Write entries spanning several records
+      final int[] sizes =
+      {1000, 0, 513, 511, 20000};
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      final TarOutputStreamImpl tos = new TarOutputStreamImpl(out);
+      for (int i = 0; i < sizes.length; i++)
+      {
+         final TarEntry entry = new TarEntry("entry" + i);
+         entry.setSize(sizes[i]);
+         tos.putNextEntry(entry);
+         for (int j = 0; j < sizes[i]; j++)
+         {
+            tos.write(i + j);
+         }
+         tos.closeEntry();
+      }
+      tos.close();
+
+      // Read only part of each entry; the remainder must be skipped
+      final TarInputStream tis = new TarInputStream(new ByteArrayInputStream(out.toByteArray()));
+      for (int i = 0; i < sizes.length; i++)
+      {
+         final TarEntry entry = tis.getNextEntry();
+         Assert.assertEquals("entry" + i, entry.getName());
+         Assert.assertEquals(sizes[i], entry.getSize());
+         final byte[] buffer = new byte[7];
+         final int read = Math.max(0, tis.read(buffer));
+         for (int j = 0; j < read; j++)
+         {
+            Assert.assertEquals((byte) (i + j), buffer[j]);
+         }
+         Assert.assertEquals(Math.min(sizes[i] - read, 100), tis.skip(100));
+         if (sizes[i] > 107)
+         {
+            Assert.assertEquals((byte) (i + 107), (byte) tis.read());
+         }
+      }
+      Assert.assertNull("Should have reached the end of the archive", tis.getNextEntry());
+      tis.close();
+   }
+}
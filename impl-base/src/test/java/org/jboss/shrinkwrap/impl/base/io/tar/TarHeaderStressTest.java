@@ -0,0 +1,145 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.io.tar;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.logging.Logger;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * Benchmark of the TAR header codec, writing and reading back an archive of
+ * many small entries such that the time taken is dominated by encoding and
+ * parsing headers rather than by content.  Logs the throughput of each pass;
+ * compare against a build of the previous implementation to measure a change.
+ *
+ * @version $Revision: $
+ */
+public class TarHeaderStressTest
+{
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Logger
+    */
+   private static final Logger log = Logger.getLogger(TarHeaderStressTest.class.getName());
+
+   /**
+    * Number of entries in the archive
+    */
+   private static final int NUM_ENTRIES = 100000;
+
+   /**
+    * Number of passes made before those measured, to warm up the JIT
+    */
+   private static final int NUM_WARMUP_PASSES = 5;
+
+   /**
+    * Number of passes measured
+    */
+   private static final int NUM_PASSES = 10;
+
+   /**
+    * Content of each entry
+    */
+   private static final byte[] CONTENT = "Some small content".getBytes();
+
+   //-------------------------------------------------------------------------------------||
+   // Tests ------------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Measures writing, then reading, an archive of {@link #NUM_ENTRIES} small entries
+    */
+   @Test
+   public void writeAndReadManySmallEntries() throws IOException
+   {
+      log.info("writeAndReadManySmallEntries");
+
+      byte[] tar = null;
+      long writeNanos = 0;
+      long readNanos = 0;
+      for (int pass = 0; pass < NUM_WARMUP_PASSES + NUM_PASSES; pass++)
+      {
+         final long start = System.nanoTime();
+         tar = writeArchive();
+         final long written = System.nanoTime();
+         final int read = readArchive(tar);
+         final long end = System.nanoTime();
+
+         TestCase.assertEquals("Not all entries were read back", NUM_ENTRIES, read);
+         if (pass >= NUM_WARMUP_PASSES)
+         {
+            writeNanos += written - start;
+            readNanos += end - written;
+         }
+      }
+
+      log.info("Archive of " + NUM_ENTRIES + " entries is " + tar.length + " bytes");
+      log.info("Write: " + entriesPerSecond(writeNanos) + " entries/s");
+      log.info("Read: " + entriesPerSecond(readNanos) + " entries/s");
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   private static byte[] writeArchive() throws IOException
+   {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream(NUM_ENTRIES * 1024 + 10240);
+      final TarOutputStreamImpl tos = new TarOutputStreamImpl(out);
+      for (int i = 0; i < NUM_ENTRIES; i++)
+      {
+         final TarEntry entry = new TarEntry("org/jboss/shrinkwrap/benchmark/package" + (i % 100) + "/Entry" + i
+               + ".class");
+         entry.setSize(CONTENT.length);
+         tos.putNextEntry(entry);
+         tos.write(CONTENT);
+         tos.closeEntry();
+      }
+      tos.close();
+      return out.toByteArray();
+   }
+
+   private static int readArchive(final byte[] tar) throws IOException
+   {
+      final TarInputStream tis = new TarInputStream(new ByteArrayInputStream(tar));
+      final byte[] buffer = new byte[64];
+      int count = 0;
+      while (tis.getNextEntry() != null)
+      {
+         while (tis.read(buffer) != -1)
+         {
+            // Drain
+         }
+         count++;
+      }
+      tis.close();
+      return count;
+   }
+
+   private static long entriesPerSecond(final long nanos)
+   {
+      return (long) NUM_ENTRIES * NUM_PASSES * 1000000000L / nanos;
+   }
+}
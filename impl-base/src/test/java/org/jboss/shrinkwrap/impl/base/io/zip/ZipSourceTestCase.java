@@ -0,0 +1,221 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.io.zip;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.Assert;
+
+import org.jboss.shrinkwrap.impl.base.io.IOUtil;
+import org.junit.Test;
+
+/**
+ * Ensures that {@link ZipSource} is shared while its file is unchanged, 
+ * and that its file is closed with the last reference
+ *
+ * @version $Revision: $
+ */
+public class ZipSourceTestCase
+{
+
+   //-------------------------------------------------------------------------------------||
+   // Tests ------------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   @Test
+   public void shouldShareSourceUntilLastReferenceClosed() throws Exception
+   {
+      final File file = createZip("shouldShareSourceUntilLastReferenceClosed", (byte) 'a');
+      final ZipSource first = ZipSource.open(file);
+      final ZipSource second = ZipSource.open(file);
+      Assert.assertSame("Unchanged file should be shared", first, second);
+
+      first.close();
+      Assert.assertTrue("Source should remain open while referenced", second.isOpen());
+      assertEntries(second, (byte) 'a');
+
+      second.close();
+      Assert.assertFalse("Source should be closed with the last reference", second.isOpen());
+      try
+      {
+         second.entries();
+         Assert.fail("Closed source should not be readable");
+      }
+      catch (final IllegalStateException expected)
+      {
+         // Good
+      }
+
+      // Opening again obtains a new source
+      final ZipSource third = ZipSource.open(file);
+      Assert.assertNotSame("Closed source should not be reused", second, third);
+      assertEntries(third, (byte) 'a');
+      third.close();
+   }
+
+   @Test
+   public void shouldReopenFileRewrittenWithSameLengthAndTime() throws Exception
+   {
+      final File file = createZip("shouldReopenFileRewrittenWithSameLengthAndTime", (byte) 'a');
+      final long lastModified = file.lastModified();
+      final long length = file.length();
+      final ZipSource original = ZipSource.open(file);
+
+      // Rewrite in place; only the contents (and so their CRCs) differ
+      writeZip(file, (byte) 'b');
+      file.setLastModified(lastModified);
+      Assert.assertEquals("Rewrite should have the same length", length, file.length());
+      Assert.assertEquals("Rewrite should have the same time", lastModified, file.lastModified());
+
+      final ZipSource rewritten = ZipSource.open(file);
+      try
+      {
+         Assert.assertNotSame("Rewritten file should be opened anew", original, rewritten);
+         assertEntries(rewritten, (byte) 'b');
+      }
+      finally
+      {
+         original.close();
+         rewritten.close();
+      }
+   }
+
+   @Test
+   public void shouldReopenInvalidatedFile() throws Exception
+   {
+      final File file = createZip("shouldReopenInvalidatedFile", (byte) 'a');
+      final ZipSource original = ZipSource.open(file);
+      ZipSource.invalidate(file);
+      final ZipSource reopened = ZipSource.open(file);
+      try
+      {
+         Assert.assertNotSame("Invalidated file should be opened anew", original, reopened);
+         Assert.assertTrue("Invalidated source should remain open while referenced", original.isOpen());
+         assertEntries(original, (byte) 'a');
+         assertEntries(reopened, (byte) 'a');
+      }
+      finally
+      {
+         original.close();
+         reopened.close();
+      }
+   }
+
+   @Test
+   public void shouldNotKeepUnclosedSourceReachable() throws Exception
+   {
+      // Never closed, as by an archive which is never released
+      final File file = createZip("shouldNotKeepUnclosedSourceReachable", (byte) 'a');
+      final WeakReference<ZipSource> source = new WeakReference<ZipSource>(ZipSource.open(file));
+      for (int i = 0; i < 50 && source.get() != null; i++)
+      {
+         System.gc();
+         Thread.sleep(10);
+      }
+      Assert.assertNull("Unclosed source should be left to be collected, and so closed", source.get());
+
+      // Its file has been closed by now, and is opened anew
+      final ZipSource reopened = ZipSource.open(file);
+      assertEntries(reopened, (byte) 'a');
+      reopened.close();
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Creates a temporary ZIP holding a STORED and a DEFLATED entry filled 
+    * with the specified byte
+    */
+   private static File createZip(final String name, final byte fill) throws Exception
+   {
+      final File file = File.createTempFile(name, ".zip");
+      file.deleteOnExit();
+      writeZip(file, fill);
+      return file;
+   }
+
+   private static void writeZip(final File file, final byte fill) throws Exception
+   {
+      final byte[] content = createContent(fill);
+      final CRC32 crc = new CRC32();
+      crc.update(content);
+
+      final ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file));
+      final ZipEntry stored = new ZipEntry("stored.txt");
+      stored.setMethod(ZipEntry.STORED);
+      stored.setSize(content.length);
+      stored.setCrc(crc.getValue());
+      stored.setTime(0);
+      out.putNextEntry(stored);
+      out.write(content);
+      out.closeEntry();
+      final ZipEntry deflated = new ZipEntry("deflated.txt");
+      deflated.setTime(0);
+      out.putNextEntry(deflated);
+      out.write(content);
+      out.closeEntry();
+      out.close();
+   }
+
+   private static byte[] createContent(final byte fill)
+   {
+      final byte[] content = new byte[20000];
+      Arrays.fill(content, fill);
+      return content;
+   }
+
+   /**
+    * Ensures both entries of the specified source hold the specified byte, 
+    * whether read as stream or transferred
+    */
+   private static void assertEntries(final ZipSource source, final byte fill) throws Exception
+   {
+      final byte[] expected = createContent(fill);
+      for (final String name : new String[]
+      {"stored.txt", "deflated.txt"})
+      {
+         ZipEntry entry = null;
+         for (final ZipEntry candidate : Collections.list(source.entries()))
+         {
+            if (candidate.getName().equals(name))
+            {
+               entry = candidate;
+            }
+         }
+         Assert.assertNotNull("Entry should be present: " + name, entry);
+
+         final InputStream in = source.openStream(entry);
+         Assert.assertTrue("Streamed contents of " + name, Arrays.equals(expected, IOUtil.asByteArray(in)));
+
+         final ByteArrayOutputStream out = new ByteArrayOutputStream();
+         Assert.assertEquals(expected.length, source.transferTo(entry, Channels.newChannel(out)));
+         Assert.assertTrue("Transferred contents of " + name, Arrays.equals(expected, out.toByteArray()));
+      }
+   }
+}
@@ -19,6 +19,8 @@ package org.jboss.shrinkwrap.impl.base.path;
 import java.util.logging.Logger;
 
 import org.jboss.shrinkwrap.api.ArchivePath;
+import org.junit.Assert;
+import org.junit.Test;
 
 /**
  * BasicPathTestCase
@@ -43,6 +45,25 @@ public class BasicPathTestCase extends PathsTestBase
    @SuppressWarnings("unused")
    private static final Logger log = Logger.getLogger(BasicPathTestCase.class.getName());
 
+   //-------------------------------------------------------------------------------------||
+   // Tests ------------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Ensures that the segments of a path are its non-empty names between slashes
+    */
+   @Test
+   public void shouldSplitIntoNonEmptySegments()
+   {
+      final BasicPath path = new BasicPath("a//b/c/");
+      Assert.assertEquals(3, path.getSegmentCount());
+      Assert.assertEquals("a", path.getSegment(0));
+      Assert.assertEquals("b", path.getSegment(1));
+      Assert.assertEquals("c", path.getSegment(2));
+      Assert.assertSame("Segments should be kept once split", path.getSegment(1), path.getSegment(1));
+      Assert.assertEquals("Root should have no segments", 0, new BasicPath("/").getSegmentCount());
+   }
+
    //-------------------------------------------------------------------------------------||
    // Required Implementations -----------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
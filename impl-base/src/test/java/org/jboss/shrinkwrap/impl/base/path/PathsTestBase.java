@@ -283,6 +283,26 @@ public abstract class PathsTestBase
       log.info("Both " + path1 + " and " + path2 + " have hashCode: " + hash1);
    }
 
+   /**
+    * Ensures that Paths equal but for a following 
+    * slash have equal hash codes
+    */
+   @Test
+   public void testHashCodeRegardlessOfFollowingSlash()
+   {
+      // Log
+      log.info("testHashCodeRegardlessOfFollowingSlash");
+
+      // Create new paths
+      final String context = "context";
+      final ArchivePath path = this.createPath(context);
+      final ArchivePath pathWithFollowingSlash = this.createPath(context + PathUtil.SLASH);
+
+      // Ensure expected
+      Assert.assertEquals("Paths equal by value should have equal hash codes", path.hashCode(),
+            pathWithFollowingSlash.hashCode());
+   }
+
    /**
     * Ensures that Paths with equal contexts 
     * are equal by value
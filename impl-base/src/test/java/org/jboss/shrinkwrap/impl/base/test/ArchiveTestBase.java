@@ -16,7 +16,10 @@
  */
 package org.jboss.shrinkwrap.impl.base.test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import junit.framework.Assert;
@@ -346,6 +349,52 @@ public abstract class ArchiveTestBase<T extends Archive<T>>
       TestCase.assertTrue(message + path3, archive.contains(path3));
    }
    
+   /**
+    * Ensures that {@link Archive#addAll(Map)} adds assets and directories,
+    * creating the parents they share, and replaces existing assets
+    * @throws Exception
+    */
+   @Test
+   public void testAddAll() throws Exception
+   {
+      Archive<T> archive = getArchive();
+      final ArchivePath existing = ArchivePaths.create("path/to/existing");
+      archive.add(EmptyAsset.INSTANCE, existing);
+
+      final Asset asset = new ClassLoaderAsset(NAME_TEST_PROPERTIES);
+      final ArchivePath path1 = ArchivePaths.create("path/to/file1");
+      final ArchivePath path2 = ArchivePaths.create("path/to/nested/file2");
+      final ArchivePath directory = ArchivePaths.create("path/empty");
+      final Map<ArchivePath, Asset> assets = new LinkedHashMap<ArchivePath, Asset>();
+      assets.put(path2, asset);
+      assets.put(path1, asset);
+      assets.put(directory, null);
+      assets.put(existing, asset);
+
+      archive.addAll(assets);
+
+      Assert.assertSame("Asset should be placed on " + path1, asset, archive.get(path1).getAsset());
+      Assert.assertSame("Asset should be placed on " + path2, asset, archive.get(path2).getAsset());
+      Assert.assertTrue("Parent directory should be created", archive.contains("path/to/nested"));
+      Assert.assertNull("Directory should be added", archive.get(directory).getAsset());
+      Assert.assertSame("Existing asset should be replaced", asset, archive.get(existing).getAsset());
+   }
+
+   /**
+    * Ensures that {@link Archive#addAll(Map)} refuses to add beneath an asset
+    * @throws Exception
+    */
+   @Test(expected = IllegalArchivePathException.class)
+   public void testAddAllBeneathAsset() throws Exception
+   {
+      Archive<T> archive = getArchive();
+      archive.add(EmptyAsset.INSTANCE, "path/to/file");
+
+      final Map<ArchivePath, Asset> assets = new LinkedHashMap<ArchivePath, Asset>();
+      assets.put(ArchivePaths.create("path/to/file/child"), EmptyAsset.INSTANCE);
+      archive.addAll(assets);
+   }
+
    /**
     * Ensures that {@link Archive#contains(String)}
     * works as expected
@@ -551,6 +600,150 @@ public abstract class ArchiveTestBase<T extends Archive<T>>
             node2);
    }
    
+   /**
+    * Ensure get content returns the content in path order, each directory
+    * followed by its children
+    * @throws Exception
+    */
+   @Test
+   public void testToGetContentOrderedByPath() throws Exception
+   {
+      Archive<T> archive = getArchive();
+      final ArchivePath[] expected = new ArchivePath[]
+      {ArchivePaths.create("orderTest"), ArchivePaths.create("orderTest/a"), ArchivePaths.create("orderTest/a/b"),
+            ArchivePaths.create("orderTest/b"), ArchivePaths.create("orderTest/c")};
+
+      // Add out of order
+      archive.add(EmptyAsset.INSTANCE, expected[4]).add(EmptyAsset.INSTANCE, expected[2]).add(EmptyAsset.INSTANCE,
+            expected[3]);
+
+      // Ensure the order of our paths within the content
+      final Map<ArchivePath, Node> content = archive.getContent(Filters.include("/orderTest.*"));
+      Assert.assertEquals(Arrays.asList(expected), Arrays.asList(content.keySet().toArray()));
+   }
+
+   /**
+    * Ensure the content view reflects changes made after it was obtained
+    * @throws Exception
+    */
+   @Test
+   public void testGetContentIsLiveView() throws Exception
+   {
+      Archive<T> archive = getArchive();
+      final ArchivePath path = ArchivePaths.create("liveViewTest/test.properties");
+      final Map<ArchivePath, Node> content = archive.getContent();
+      Assert.assertFalse("Content should not yet contain: " + path.get(), content.containsKey(path));
+
+      archive.add(EmptyAsset.INSTANCE, path);
+
+      Assert.assertTrue("Content view should reflect the addition of: " + path.get(), content.containsKey(path));
+      Assert.assertTrue("Content view should reflect the addition of: " + path.get(), content.keySet().contains(path));
+      Assert.assertNull("Content view should not expose the root", content.get(ArchivePaths.root()));
+   }
+
+   /**
+    * Ensure iterating the archive yields the same {@link Node}s, in the same order, as its content
+    * @throws Exception
+    */
+   @Test
+   public void testIteratorMatchesContent() throws Exception
+   {
+      Archive<T> archive = getArchive();
+      archive.add(EmptyAsset.INSTANCE, "iteratorTest/b/test.properties").add(EmptyAsset.INSTANCE,
+            "iteratorTest/a");
+
+      final List<ArchivePath> iterated = new ArrayList<ArchivePath>();
+      for (final Node node : archive)
+      {
+         iterated.add(node.getPath());
+      }
+
+      Assert.assertEquals(new ArrayList<ArchivePath>(archive.getContent().keySet()), iterated);
+   }
+
+   /**
+    * Ensure the size of the content matches the number of {@link Node}s iterated
+    * as content is added, replaced and deleted, and in a snapshot
+    * @throws Exception
+    */
+   @Test
+   public void testContentSizeMatchesIteratedContent() throws Exception
+   {
+      Archive<T> archive = getArchive();
+      final Map<ArchivePath, Node> content = archive.getContent();
+      assertSizeMatchesIteration(content);
+
+      archive.add(EmptyAsset.INSTANCE, "sizeTest/a/b/test.properties").addDirectory("sizeTest/c/d");
+      assertSizeMatchesIteration(content);
+
+      // Replace a directory holding content by an asset
+      archive.add(EmptyAsset.INSTANCE, "sizeTest/a");
+      assertSizeMatchesIteration(content);
+
+      archive.merge(ShrinkWrap.create(JavaArchive.class).add(EmptyAsset.INSTANCE, "x/y.properties"), "sizeTest/c");
+      assertSizeMatchesIteration(content);
+
+      final T snapshot = archive.snapshot();
+      archive.delete(ArchivePaths.create("sizeTest/c"));
+      assertSizeMatchesIteration(content);
+      assertSizeMatchesIteration(snapshot.getContent());
+      Assert.assertFalse("Snapshot should not see the deletion", snapshot.getContent().size() == content.size());
+   }
+
+   /**
+    * Ensure deleting a directory removes all content beneath it
+    * @throws Exception
+    */
+   @Test
+   public void testDeleteDirectoryRemovesChildren() throws Exception
+   {
+      Archive<T> archive = getArchive();
+      final ArchivePath directory = ArchivePaths.create("deleteTest");
+      final ArchivePath child = ArchivePaths.create(directory, "nested/test.properties");
+      archive.add(new ClassLoaderAsset(NAME_TEST_PROPERTIES), child);
+
+      Assert.assertTrue("Successfully deleting a directory should return true", archive.delete(directory));
+
+      Assert.assertFalse("There should no longer be an asset at: " + child.get() + " after its parent was deleted",
+            archive.contains(child));
+      Assert.assertTrue("Content should no longer contain paths beneath " + directory.get(), archive.getContent(
+            Filters.include("/deleteTest.*")).isEmpty());
+   }
+
+   /**
+    * Ensure adding an asset at the path of a directory replaces the directory 
+    * and all content beneath it
+    * @throws Exception
+    */
+   @Test
+   public void testAddAssetReplacesDirectoryAndChildren() throws Exception
+   {
+      Archive<T> archive = getArchive();
+      final ArchivePath directory = ArchivePaths.create("replaceTest");
+      final ArchivePath child = ArchivePaths.create(directory, "nested/test.properties");
+      archive.add(new ClassLoaderAsset(NAME_TEST_PROPERTIES), child);
+
+      final Asset asset = new ClassLoaderAsset(NAME_TEST_PROPERTIES);
+      archive.add(asset, directory);
+
+      Assert.assertSame("The asset should replace the directory", asset, archive.get(directory).getAsset());
+      Assert.assertFalse("There should no longer be an asset at: " + child.get() + " after its parent was replaced",
+            archive.contains(child));
+      Assert.assertEquals("Content should no longer contain paths beneath " + directory.get(), 1, archive
+            .getContent(Filters.include("/replaceTest.*")).size());
+   }
+
+   /**
+    * Ensure an asset may not be added as the root of the archive
+    * @throws Exception
+    */
+   @Test(expected = IllegalArchivePathException.class)
+   public void testAddAssetAsRootNotAllowed() throws Exception
+   {
+      Archive<T> archive = getArchive();
+      archive.add(new ClassLoaderAsset(NAME_TEST_PROPERTIES), ArchivePaths.root());
+   }
+
    /**
     * Ensure adding an archive to a path requires a path
     * @throws Exception
@@ -838,6 +1031,100 @@ public abstract class ArchiveTestBase<T extends Archive<T>>
             this.compareAssets(archive.get(locationTwo).getAsset(), asset));
    }
 
+   /**
+    * Ensure merge recreates the source structure beneath the path, sharing the source assets
+    * and keeping existing content
+    * @throws Exception
+    */
+   @Test
+   public void testMergeGraftsSourceTree() throws Exception
+   {
+      Archive<T> archive = getArchive();
+      Archive<T> sourceArchive = createNewArchive();
+      Asset asset = new ClassLoaderAsset(NAME_TEST_PROPERTIES);
+      sourceArchive.add(asset, "a/b/test.properties").addDirectory("c");
+      ArchivePath existing = ArchivePaths.create("graftTest/a/existing.properties");
+      archive.add(EmptyAsset.INSTANCE, existing);
+
+      archive.merge(sourceArchive, "graftTest");
+
+      Assert.assertSame("Asset should have been shared with the source", asset, archive.get(
+            "graftTest/a/b/test.properties").getAsset());
+      Assert.assertNull("Directory should have been merged", archive.get("graftTest/c").getAsset());
+      Assert.assertTrue("Existing content should have been kept: " + existing.get(), archive.contains(existing));
+   }
+
+   /**
+    * Ensure merge creates the parents of included content even where the filter 
+    * excludes the parents themselves
+    * @throws Exception
+    */
+   @Test
+   public void testMergeWithFilterCreatesParentsOfIncluded() throws Exception
+   {
+      Archive<T> archive = getArchive();
+      Archive<T> sourceArchive = createNewArchive();
+      sourceArchive.add(EmptyAsset.INSTANCE, "a/test.properties").add(EmptyAsset.INSTANCE, "b/test2.properties");
+
+      archive.merge(sourceArchive, "graftFilterTest", Filters.include(".*/test\\.properties"));
+
+      Assert.assertTrue("Included asset should have been merged", archive.contains("graftFilterTest/a/test.properties"));
+      Assert.assertTrue("Parent of included asset should exist", archive.contains("graftFilterTest/a"));
+      Assert.assertFalse("Parent of excluded asset should not exist", archive.contains("graftFilterTest/b"));
+   }
+
+   /**
+    * Ensure an archive may be merged into itself
+    * @throws Exception
+    */
+   @Test
+   public void testMergeIntoSelf() throws Exception
+   {
+      Archive<T> archive = getArchive();
+      archive.add(EmptyAsset.INSTANCE, "selfMergeTest/test.properties");
+
+      archive.merge(archive, "selfMergeTest");
+
+      Assert.assertTrue("Archive should have been merged into itself", archive
+            .contains("selfMergeTest/selfMergeTest/test.properties"));
+      Assert.assertFalse("Merged content should not have been merged again", archive
+            .contains("selfMergeTest/selfMergeTest/selfMergeTest"));
+   }
+
+   /**
+    * Ensure a snapshot keeps the content as of the time it was taken
+    * @throws Exception
+    */
+   @Test
+   public void testSnapshotIsUnaffectedByLaterChanges() throws Exception
+   {
+      T archive = getArchive();
+      final ArchivePath kept = ArchivePaths.create("snapshotTest/a/test.properties");
+      final ArchivePath added = ArchivePaths.create("snapshotTest/a/test2.properties");
+      archive.add(EmptyAsset.INSTANCE, kept);
+
+      final T snapshot = archive.snapshot();
+      archive.add(EmptyAsset.INSTANCE, added);
+      archive.delete(kept);
+
+      Assert.assertTrue("Snapshot should be of the archive type", archive.getClass().isInstance(snapshot));
+      Assert.assertEquals("Snapshot should have the archive name", archive.getName(), snapshot.getName());
+      Assert.assertTrue("Snapshot should keep: " + kept.get(), snapshot.contains(kept));
+      Assert.assertFalse("Snapshot should not see later addition: " + added.get(), snapshot.contains(added));
+      Assert.assertTrue("Archive should have: " + added.get(), archive.contains(added));
+      Assert.assertFalse("Archive should no longer have: " + kept.get(), archive.contains(kept));
+   }
+
+   /**
+    * Ensure a snapshot may not be changed
+    * @throws Exception
+    */
+   @Test(expected = UnsupportedOperationException.class)
+   public void testSnapshotIsReadOnly() throws Exception
+   {
+      getArchive().snapshot().add(EmptyAsset.INSTANCE, "snapshotTest/test.properties");
+   }
+
    /**
     * Ensure merging content from another archive requires a path
     * @throws Exception
@@ -949,6 +1236,44 @@ public abstract class ArchiveTestBase<T extends Archive<T>>
             nestedNode.getAsset());
    }
 
+   /**
+    * Ensure resolution of nested archive content follows deletion and
+    * replacement of the nested archive, and matches whole path segments only
+    * @throws Exception
+    */
+   @Test
+   public void testNestedArchiveResolutionFollowsDeleteAndReAdd() throws Exception
+   {
+      Archive<T> archive = getArchive();
+      final ArchivePath baseLocation = ArchivePaths.create("nestedIndex");
+
+      // Add a nested archive with content
+      final Archive<T> nestedArchive = createNewArchive();
+      nestedArchive.add(new ClassLoaderAsset(NAME_TEST_PROPERTIES), "first.properties");
+      archive.add(nestedArchive, baseLocation, ZipExporter.class);
+      final ArchivePath nestedArchivePath = ArchivePaths.create(baseLocation, nestedArchive.getName());
+      final ArchivePath firstPath = ArchivePaths.create(nestedArchivePath, "first.properties");
+      Assert.assertTrue("Nested content should be found", archive.contains(firstPath));
+
+      // A sibling sharing the name as a prefix is not within the nested archive
+      Assert.assertFalse("Only whole path segments should resolve to a nested archive", archive
+            .contains(ArchivePaths.create(baseLocation, nestedArchive.getName() + "x/first.properties")));
+
+      // Delete
+      Assert.assertTrue(archive.delete(nestedArchivePath));
+      Assert.assertFalse("Nested content should not be found once the nested archive is deleted", archive
+            .contains(firstPath));
+      Assert.assertNull(archive.get(firstPath));
+
+      // Re-add different content under the same name
+      final Archive<T> replacement = createNewArchive();
+      replacement.add(new ClassLoaderAsset(NAME_TEST_PROPERTIES_2), "second.properties");
+      archive.add(new ArchiveAsset(replacement, ZipExporter.class), nestedArchivePath);
+      Assert.assertFalse(archive.contains(firstPath));
+      Assert.assertNotNull("Nested content of the replacement should be found", archive.get(ArchivePaths.create(
+            nestedArchivePath, "second.properties")));
+   }
+
    //-------------------------------------------------------------------------------------||
    // Internal Helper Methods ------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -975,6 +1300,23 @@ public abstract class ArchiveTestBase<T extends Archive<T>>
       return Arrays.equals(oneData, twoData);
    }
    
+   /**
+    * Ensures the size of the specified content is the number of entries iterated
+    * 
+    * @param content
+    */
+   private void assertSizeMatchesIteration(final Map<ArchivePath, Node> content)
+   {
+      int iterated = 0;
+      for (final ArchivePath path : content.keySet())
+      {
+         Assert.assertNotNull(path);
+         iterated++;
+      }
+      Assert.assertEquals("Content size should match the entries iterated", iterated, content.size());
+      Assert.assertEquals("Content should be empty only if nothing is iterated", iterated == 0, content.isEmpty());
+   }
+
    /**
     * Returns the number of assets in a file.
     * 
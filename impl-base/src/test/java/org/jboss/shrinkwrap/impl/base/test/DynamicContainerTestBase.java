@@ -542,6 +542,36 @@ public abstract class DynamicContainerTestBase<T extends Archive<T>> extends Arc
 
       this.ensureClassesAdded();
    }
+
+   /**
+    * Ensure that adding several classes from the same package at once
+    * adds the inner classes of each
+    *
+    * @throws Exception
+    */
+   @Test
+   @ArchiveType(ClassContainer.class)
+   public void testAddClassesFromSamePackageAddsAllInnerClasses() throws Exception
+   {
+      getClassContainer().addClasses(DummyClassA.class, DummyClassParent.class);
+
+      final ArchivePath expectedPathParent = new BasicPath(getClassPath(), AssetUtil
+            .getFullPathForClassResource(DummyClassParent.class));
+      final ArchivePath expectedPathInnerClassParent = new BasicPath(
+            getClassPath(), AssetUtil.getFullPathForClassResource(DummyClassParent.ParentInnerClass.class));
+      final ArchivePath expectedPathInnerClass = new BasicPath(
+            getClassPath(), AssetUtil.getFullPathForClassResource(DummyClassA.InnerClass.class));
+
+      Assert.assertTrue(
+            "A class should be located at " + expectedPathParent.get(),
+            getArchive().contains(expectedPathParent));
+      Assert.assertTrue(
+            "Inner classes of each added class should be added",
+            getArchive().contains(expectedPathInnerClassParent));
+      Assert.assertTrue(
+            "Inner classes of each added class should be added",
+            getArchive().contains(expectedPathInnerClass));
+   }
    
    /**
     * Ensures that the "addClass*" tests result in all expected classes added 
@@ -0,0 +1,43 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.spi;
+
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.Assignable;
+
+/**
+ * {@link Assignable} view representing an {@link Archive} which counts
+ * the changes made to its content.  The count increases each time a 
+ * {@link org.jboss.shrinkwrap.api.Node} is added or removed; an unchanged 
+ * count therefore denotes unchanged structure, such that results derived from
+ * the content (ie. its export) may be reused.  Changes within the 
+ * {@link org.jboss.shrinkwrap.api.asset.Asset}s themselves are not counted.
+ *
+ * @version $Revision: $
+ */
+public interface MutationCounted extends Assignable
+{
+   //-------------------------------------------------------------------------------------||
+   // Contracts --------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Obtains the number of changes made to this {@link Archive}'s content
+    * since construction
+    */
+   long getMutationCount();
+}
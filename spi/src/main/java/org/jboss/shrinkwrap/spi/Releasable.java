@@ -0,0 +1,57 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.spi;
+
+import java.io.Closeable;
+
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.Assignable;
+
+/**
+ * {@link Assignable} view representing an {@link Archive} which may hold 
+ * resources (ie. open files) on behalf of its content.  For instance, an archive
+ * imported from a ZIP file holds the file open such that its entries may be 
+ * read lazily.  Held resources are closed when the archive is released; any
+ * content backed by them (including content merged from this archive into 
+ * another) may no longer be read thereafter.  Resources of archives which are
+ * never released may be closed only once they (and all content backed by 
+ * them) are no longer referenced and have been garbage collected; release 
+ * archives to close them deterministically.
+ *
+ * @version $Revision: $
+ */
+public interface Releasable extends Assignable
+{
+   //-------------------------------------------------------------------------------------||
+   // Contracts --------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Registers the specified resource to be closed when this {@link Archive}
+    * is released
+    * 
+    * @param resource
+    * @throws IllegalArgumentException If the resource is not specified
+    */
+   void hold(Closeable resource) throws IllegalArgumentException;
+
+   /**
+    * Closes all resources held by this {@link Archive}.  Subsequent calls 
+    * have no effect unless new resources have been held in the meantime.
+    */
+   void release();
+}